@@ -53,12 +53,20 @@ public final class CBLTrustManager extends AbstractCBLTrustManager {
 
         notifyListener(serverCerts);
 
+        final String key = getTrustKey(serverCerts, authType, host);
+        final List<X509Certificate> trustedChain = getTrustedChain(key);
+        if (trustedChain != null) { return (useCBLTrustManagement()) ? serverCerts : trustedChain; }
+
         if (useCBLTrustManagement()) {
             cBLServerTrustCheck(serverCerts, authType);
+            putTrustedChain(key, serverCerts, null);
             return serverCerts;
         }
 
         Log.d(LogDomain.NETWORK, "Extended trust check: %d, %s, %s", serverCerts.size(), authType, host);
-        return new X509TrustManagerExtensions(getDefaultTrustManager()).checkServerTrusted(chain, authType, host);
+        final List<X509Certificate> verifiedChain
+            = new X509TrustManagerExtensions(getDefaultTrustManager()).checkServerTrusted(chain, authType, host);
+        putTrustedChain(key, serverCerts, verifiedChain);
+        return verifiedChain;
     }
 }
@@ -247,6 +247,22 @@ JNIEXPORT jlong JNICALL Java_com_couchbase_lite_internal_core_C4Document_update
 JNIEXPORT jlong JNICALL Java_com_couchbase_lite_internal_core_C4Document_update2
   (JNIEnv *, jclass, jlong, jlong, jint);
 
+/*
+ * Class:     com_couchbase_lite_internal_core_C4Document
+ * Method:    tryUpdate
+ * Signature: (JJI)J
+ */
+JNIEXPORT jlong JNICALL Java_com_couchbase_lite_internal_core_C4Document_tryUpdate
+  (JNIEnv *, jclass, jlong, jlong, jint);
+
+/*
+ * Class:     com_couchbase_lite_internal_core_C4Document
+ * Method:    tryCreate
+ * Signature: (JLjava/lang/String;JI)J
+ */
+JNIEXPORT jlong JNICALL Java_com_couchbase_lite_internal_core_C4Document_tryCreate
+  (JNIEnv *, jclass, jlong, jstring, jlong, jint);
+
 /*
  * Class:     com_couchbase_lite_internal_core_C4Document
  * Method:    bodyAsJSON
@@ -61,6 +61,14 @@ JNIEXPORT void JNICALL Java_com_couchbase_lite_internal_core_impl_NativeC4Socket
 JNIEXPORT void JNICALL Java_com_couchbase_lite_internal_core_impl_NativeC4Socket_received
         (JNIEnv *, jclass, jlong, jbyteArray);
 
+/*
+ * Class:     com_couchbase_lite_internal_core_impl_NativeC4Socket
+ * Method:    receivedBuffer
+ * Signature: (JLjava/nio/ByteBuffer;II)V
+ */
+JNIEXPORT void JNICALL Java_com_couchbase_lite_internal_core_impl_NativeC4Socket_receivedBuffer
+        (JNIEnv *, jclass, jlong, jobject, jint, jint);
+
 /*
  * Class:     com_couchbase_lite_internal_core_C4Socket
  * Method:    closeRequested
@@ -23,6 +23,30 @@ JNIEXPORT jlong JNICALL Java_com_couchbase_lite_internal_fleece_FLArray_count
 JNIEXPORT jlong JNICALL Java_com_couchbase_lite_internal_fleece_FLArray_get
   (JNIEnv *, jclass, jlong, jlong);
 
+/*
+ * Class:     com_couchbase_lite_internal_fleece_FLArray
+ * Method:    copyDoubles
+ * Signature: (J[D)I
+ */
+JNIEXPORT jint JNICALL Java_com_couchbase_lite_internal_fleece_FLArray_copyDoubles
+  (JNIEnv *, jclass, jlong, jdoubleArray);
+
+/*
+ * Class:     com_couchbase_lite_internal_fleece_FLArray
+ * Method:    copyFloats
+ * Signature: (J[F)I
+ */
+JNIEXPORT jint JNICALL Java_com_couchbase_lite_internal_fleece_FLArray_copyFloats
+  (JNIEnv *, jclass, jlong, jfloatArray);
+
+/*
+ * Class:     com_couchbase_lite_internal_fleece_FLArray
+ * Method:    copyLongs
+ * Signature: (J[J)I
+ */
+JNIEXPORT jint JNICALL Java_com_couchbase_lite_internal_fleece_FLArray_copyLongs
+  (JNIEnv *, jclass, jlong, jlongArray);
+
 #ifdef __cplusplus
 }
 #endif
@@ -135,6 +135,46 @@ JNIEXPORT jboolean JNICALL Java_com_couchbase_lite_internal_fleece_FLEncoder_end
 JNIEXPORT jboolean JNICALL Java_com_couchbase_lite_internal_fleece_FLEncoder_writeKey
   (JNIEnv *, jclass, jlong, jstring);
 
+/*
+ * Class:     com_couchbase_lite_internal_fleece_FLEncoder
+ * Method:    writeJSON
+ * Signature: (J[B)Z
+ */
+JNIEXPORT jboolean JNICALL Java_com_couchbase_lite_internal_fleece_FLEncoder_writeJSON
+  (JNIEnv *, jclass, jlong, jbyteArray);
+
+/*
+ * Class:     com_couchbase_lite_internal_fleece_FLEncoder
+ * Method:    writeEntriesExcept
+ * Signature: (JJ[Ljava/lang/String;)Z
+ */
+JNIEXPORT jboolean JNICALL Java_com_couchbase_lite_internal_fleece_FLEncoder_writeEntriesExcept
+  (JNIEnv *, jclass, jlong, jlong, jobjectArray);
+
+/*
+ * Class:     com_couchbase_lite_internal_fleece_FLEncoder
+ * Method:    writeDoubleArray
+ * Signature: (J[D)Z
+ */
+JNIEXPORT jboolean JNICALL Java_com_couchbase_lite_internal_fleece_FLEncoder_writeDoubleArray
+  (JNIEnv *, jclass, jlong, jdoubleArray);
+
+/*
+ * Class:     com_couchbase_lite_internal_fleece_FLEncoder
+ * Method:    writeFloatArray
+ * Signature: (J[F)Z
+ */
+JNIEXPORT jboolean JNICALL Java_com_couchbase_lite_internal_fleece_FLEncoder_writeFloatArray
+  (JNIEnv *, jclass, jlong, jfloatArray);
+
+/*
+ * Class:     com_couchbase_lite_internal_fleece_FLEncoder
+ * Method:    writeLongArray
+ * Signature: (J[J)Z
+ */
+JNIEXPORT jboolean JNICALL Java_com_couchbase_lite_internal_fleece_FLEncoder_writeLongArray
+  (JNIEnv *, jclass, jlong, jlongArray);
+
 /*
  * Class:     com_couchbase_lite_internal_fleece_FLEncoder
  * Method:    finish
@@ -617,6 +617,74 @@ JNIEXPORT jlong JNICALL Java_com_couchbase_lite_internal_core_C4Document_update2
     return (jlong) newDoc;
 }
 
+// A conflict is an expected outcome of an optimistic update.
+// Report it by returning 0, instead of throwing: creating a Java exception is expensive.
+static inline bool isConflict(const C4Error &error) {
+    return (error.domain == LiteCoreDomain) && (error.code == kC4ErrorConflict);
+}
+
+/*
+ * Class:     com_couchbase_lite_internal_core_C4Document
+ * Method:    tryUpdate
+ * Signature: (JJI)J
+ */
+JNIEXPORT jlong JNICALL Java_com_couchbase_lite_internal_core_C4Document_tryUpdate(
+        JNIEnv *env,
+        jclass ignore,
+        jlong jdoc,
+        jlong jbody,
+        jint flags) {
+    auto doc = (C4Document *) jdoc;
+    if (doc == nullptr) {
+        throwError(env, {LiteCoreDomain, kC4ErrorAssertionFailed});
+        return 0;
+    }
+
+    C4Slice body;
+    if (jbody != 0)
+        body = *(C4Slice *) jbody;
+    else
+        body = kC4SliceNull;
+
+    C4Error error;
+    C4Document *newDoc = c4doc_update(doc, body, (unsigned) flags, &error);
+    if (!newDoc) {
+        if (!isConflict(error))
+            throwError(env, error);
+        return 0;
+    }
+
+    return (jlong) newDoc;
+}
+
+/*
+ * Class:     com_couchbase_lite_internal_core_C4Document
+ * Method:    tryCreate
+ * Signature: (JLjava/lang/String;JI)J
+ */
+JNIEXPORT jlong JNICALL Java_com_couchbase_lite_internal_core_C4Document_tryCreate(
+        JNIEnv *env,
+        jclass ignore,
+        jlong jdb,
+        jstring jdocID,
+        jlong jbody,
+        jint flags) {
+    C4Slice body;
+    if (jbody != 0)
+        body = *(C4Slice *) jbody;
+    else
+        body = kC4SliceNull;
+    jstringSlice docID(env, jdocID);
+    C4Error error;
+    C4Document *doc = c4doc_create((C4Database *) jdb, docID, body, (unsigned) flags, &error);
+    if (!doc) {
+        if (!isConflict(error))
+            throwError(env, error);
+        return 0;
+    }
+    return (jlong) doc;
+}
+
 /*
  * Class:     com_couchbase_lite_internal_core_C4Document
  * Method:    dictContainsBlobs
@@ -336,6 +336,31 @@ Java_com_couchbase_lite_internal_core_impl_NativeC4Socket_received(
     c4socket_received(socket, data);
 }
 
+/*
+ * Class:     com_couchbase_lite_internal_core_impl_NativeC4Socket
+ * Method:    receivedBuffer
+ * Signature: (JLjava/nio/ByteBuffer;II)V
+ */
+JNIEXPORT void JNICALL
+Java_com_couchbase_lite_internal_core_impl_NativeC4Socket_receivedBuffer(
+        JNIEnv *env,
+        jclass ignore,
+        jlong jSocket,
+        jobject jbuffer,
+        jint offset,
+        jint length) {
+    auto socket = (C4Socket *) jSocket;
+
+    // A direct buffer can be read in place: no copy.
+    auto base = (const uint8_t *) env->GetDirectBufferAddress(jbuffer);
+    if (base == nullptr) {
+        C4Warn("receivedBuffer(): not a direct buffer");
+        return;
+    }
+
+    c4socket_received(socket, {base + offset, (size_t) length});
+}
+
 /*
  * Class:     com_couchbase_lite_internal_core_C4Socket
  * Method:    closeRequested
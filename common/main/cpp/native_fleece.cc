@@ -21,6 +21,7 @@
 #include "com_couchbase_lite_internal_fleece_FLArrayIterator.h"
 #include "com_couchbase_lite_internal_fleece_FLDict.h"
 #include "com_couchbase_lite_internal_fleece_FLDictIterator.h"
+#include "com_couchbase_lite_internal_fleece_FLDictKey.h"
 #include "com_couchbase_lite_internal_fleece_FLValue.h"
 #include "com_couchbase_lite_internal_fleece_FLEncoder.h"
 #include "com_couchbase_lite_internal_fleece_FLSliceResult.h"
@@ -57,6 +58,114 @@ Java_com_couchbase_lite_internal_fleece_FLArray_get(
     return (jlong) FLArray_Get((FLArray) jarray, (uint32_t) jindex);
 }
 
+/*
+ * Class:     com_couchbase_lite_internal_fleece_FLArray
+ * Method:    copyDoubles
+ * Signature: (J[D)I
+ *
+ * Copies the array's values, converted as by FLValue_AsDouble, into the Java array, in a single call.
+ * Returns the number of values copied: the lesser of the lengths of the two arrays.
+ */
+JNIEXPORT jint JNICALL
+Java_com_couchbase_lite_internal_fleece_FLArray_copyDoubles(
+        JNIEnv *env,
+        jclass ignore,
+        jlong jarray,
+        jdoubleArray jdst) {
+    auto array = (FLArray) jarray;
+    jsize n = env->GetArrayLength(jdst);
+    uint32_t count = FLArray_Count(array);
+    if (count < (uint32_t) n)
+        n = (jsize) count;
+
+    jdouble *dst = env->GetDoubleArrayElements(jdst, nullptr);
+    if (dst == nullptr)
+        return 0;
+
+    FLArrayIterator itr;
+    FLArrayIterator_Begin(array, &itr);
+    for (jsize i = 0; i < n; i++) {
+        FLValue value = FLArrayIterator_GetValue(&itr);
+        dst[i] = FLValue_AsDouble(value);
+        FLArrayIterator_Next(&itr);
+    }
+
+    env->ReleaseDoubleArrayElements(jdst, dst, 0);
+    return (jint) n;
+}
+
+/*
+ * Class:     com_couchbase_lite_internal_fleece_FLArray
+ * Method:    copyFloats
+ * Signature: (J[F)I
+ *
+ * Copies the array's values, converted as by FLValue_AsFloat, into the Java array, in a single call.
+ * Returns the number of values copied: the lesser of the lengths of the two arrays.
+ */
+JNIEXPORT jint JNICALL
+Java_com_couchbase_lite_internal_fleece_FLArray_copyFloats(
+        JNIEnv *env,
+        jclass ignore,
+        jlong jarray,
+        jfloatArray jdst) {
+    auto array = (FLArray) jarray;
+    jsize n = env->GetArrayLength(jdst);
+    uint32_t count = FLArray_Count(array);
+    if (count < (uint32_t) n)
+        n = (jsize) count;
+
+    jfloat *dst = env->GetFloatArrayElements(jdst, nullptr);
+    if (dst == nullptr)
+        return 0;
+
+    FLArrayIterator itr;
+    FLArrayIterator_Begin(array, &itr);
+    for (jsize i = 0; i < n; i++) {
+        FLValue value = FLArrayIterator_GetValue(&itr);
+        dst[i] = FLValue_AsFloat(value);
+        FLArrayIterator_Next(&itr);
+    }
+
+    env->ReleaseFloatArrayElements(jdst, dst, 0);
+    return (jint) n;
+}
+
+/*
+ * Class:     com_couchbase_lite_internal_fleece_FLArray
+ * Method:    copyLongs
+ * Signature: (J[J)I
+ *
+ * Copies the array's values, converted as by FLValue_AsInt, into the Java array, in a single call.
+ * Returns the number of values copied: the lesser of the lengths of the two arrays.
+ */
+JNIEXPORT jint JNICALL
+Java_com_couchbase_lite_internal_fleece_FLArray_copyLongs(
+        JNIEnv *env,
+        jclass ignore,
+        jlong jarray,
+        jlongArray jdst) {
+    auto array = (FLArray) jarray;
+    jsize n = env->GetArrayLength(jdst);
+    uint32_t count = FLArray_Count(array);
+    if (count < (uint32_t) n)
+        n = (jsize) count;
+
+    jlong *dst = env->GetLongArrayElements(jdst, nullptr);
+    if (dst == nullptr)
+        return 0;
+
+    FLArrayIterator itr;
+    FLArrayIterator_Begin(array, &itr);
+    for (jsize i = 0; i < n; i++) {
+        FLValue value = FLArrayIterator_GetValue(&itr);
+        dst[i] = (jlong) FLValue_AsInt(value);
+        FLArrayIterator_Next(&itr);
+    }
+
+    env->ReleaseLongArrayElements(jdst, dst, 0);
+    return (jint) n;
+}
+
 // ----------------------------------------------------------------------------
 // FLArrayIterator
 // ----------------------------------------------------------------------------
@@ -233,6 +342,72 @@ Java_com_couchbase_lite_internal_fleece_FLDictIterator_free(JNIEnv *env, jclass
     ::free((FLDictIterator *) jitr);
 }
 
+// ----------------------------------------------------------------------------
+// FLDictKey
+// ----------------------------------------------------------------------------
+
+// An FLDictKey refers to, but does not own, its key string.
+// Fleece binds an FLDictKey to the shared keys of the first dict in which it is used
+// and never re-resolves it: it must be re-initialized for a dict with different shared keys.
+// The shared keys are retained so that their address cannot be reused by another instance.
+struct DictKey {
+    std::string name;
+    FLDictKey key;
+    FLSharedKeys sharedKeys;
+};
+
+/*
+ * Class:     com_couchbase_lite_internal_fleece_FLDictKey
+ * Method:    init
+ * Signature: (Ljava/lang/String;)J
+ */
+JNIEXPORT jlong JNICALL
+Java_com_couchbase_lite_internal_fleece_FLDictKey_init(JNIEnv *env, jclass ignore, jstring jname) {
+    auto dictKey = new DictKey();
+    dictKey->name = JstringToUTF8(env, jname);
+    dictKey->key = FLDictKey_Init({dictKey->name.data(), dictKey->name.size()});
+    dictKey->sharedKeys = nullptr;
+    return (jlong) dictKey;
+}
+
+/*
+ * Class:     com_couchbase_lite_internal_fleece_FLDictKey
+ * Method:    get
+ * Signature: (JJ)J
+ */
+JNIEXPORT jlong JNICALL
+Java_com_couchbase_lite_internal_fleece_FLDictKey_get(JNIEnv *env, jclass ignore, jlong jkey, jlong jdict) {
+    auto dictKey = (DictKey *) jkey;
+    auto dict = (FLDict) jdict;
+
+    FLSharedKeys sharedKeys = nullptr;
+    FLDoc doc = FLValue_FindDoc((FLValue) dict);
+    if (doc != nullptr) {
+        sharedKeys = FLDoc_GetSharedKeys(doc);
+        FLDoc_Release(doc);
+    }
+
+    if (sharedKeys != dictKey->sharedKeys) {
+        FLSharedKeys_Release(dictKey->sharedKeys);
+        dictKey->sharedKeys = FLSharedKeys_Retain(sharedKeys);
+        dictKey->key = FLDictKey_Init({dictKey->name.data(), dictKey->name.size()});
+    }
+
+    return (jlong) FLDict_GetWithKey(dict, &dictKey->key);
+}
+
+/*
+ * Class:     com_couchbase_lite_internal_fleece_FLDictKey
+ * Method:    free
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL
+Java_com_couchbase_lite_internal_fleece_FLDictKey_free(JNIEnv *env, jclass ignore, jlong jkey) {
+    auto dictKey = (DictKey *) jkey;
+    FLSharedKeys_Release(dictKey->sharedKeys);
+    delete dictKey;
+}
+
 // ----------------------------------------------------------------------------
 // FLValue
 // ----------------------------------------------------------------------------
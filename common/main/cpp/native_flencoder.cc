@@ -15,6 +15,7 @@
 // See the License for the specific language governing permissions and
 // limitations under the License.
 //
+#include <unordered_set>
 #include "native_glue.hh"
 #include "com_couchbase_lite_internal_fleece_FLEncoder.h"
 
@@ -221,6 +222,147 @@ Java_com_couchbase_lite_internal_fleece_FLEncoder_writeKey(
     return (jboolean) FLEncoder_WriteKey((FLEncoder) jenc, key);
 }
 
+/*
+ * Class:     com_couchbase_lite_internal_fleece_FLEncoder
+ * Method:    writeJSON
+ * Signature: (J[B)Z
+ */
+JNIEXPORT jboolean JNICALL
+Java_com_couchbase_lite_internal_fleece_FLEncoder_writeJSON(
+        JNIEnv *env,
+        jclass ignore,
+        jlong jenc,
+        jbyteArray jjson) {
+    // Not critical: the parse may be long, and a critical region would block the GC for all of it.
+    jbyteArraySlice json(env, jjson);
+    return (jboolean) FLEncoder_ConvertJSON((FLEncoder) jenc, json);
+}
+
+/*
+ * Class:     com_couchbase_lite_internal_fleece_FLEncoder
+ * Method:    writeEntriesExcept
+ * Signature: (JJ[Ljava/lang/String;)Z
+ *
+ * Writes the entries of the dict, except those whose keys are in the array, in a single call.
+ * Unchanged values are copied without crossing the JNI boundary for each key.
+ */
+JNIEXPORT jboolean JNICALL
+Java_com_couchbase_lite_internal_fleece_FLEncoder_writeEntriesExcept(
+        JNIEnv *env,
+        jclass ignore,
+        jlong jenc,
+        jlong jdict,
+        jobjectArray jkeys) {
+    std::unordered_set<std::string> except;
+    jsize nKeys = (jkeys == nullptr) ? 0 : env->GetArrayLength(jkeys);
+    for (jsize i = 0; i < nKeys; i++) {
+        auto jkey = (jstring) env->GetObjectArrayElement(jkeys, i);
+        if (jkey == nullptr)
+            continue;
+        except.insert(JstringToUTF8(env, jkey));
+        env->DeleteLocalRef(jkey);
+    }
+
+    auto enc = (FLEncoder) jenc;
+    bool ok = true;
+    FLDictIterator itr;
+    FLDictIterator_Begin((FLDict) jdict, &itr);
+    FLValue value;
+    while (ok && ((value = FLDictIterator_GetValue(&itr)) != nullptr)) {
+        FLString key = FLDictIterator_GetKeyString(&itr);
+        if (except.empty() || (except.find(std::string((const char *) key.buf, key.size)) == except.end()))
+            ok = FLEncoder_WriteKey(enc, key) && FLEncoder_WriteValue(enc, value);
+        FLDictIterator_Next(&itr);
+    }
+    FLDictIterator_End(&itr);
+
+    return (jboolean) ok;
+}
+
+/*
+ * Class:     com_couchbase_lite_internal_fleece_FLEncoder
+ * Method:    writeDoubleArray
+ * Signature: (J[D)Z
+ *
+ * Writes the contents of a Java double[] as a Fleece array, in a single call.
+ */
+JNIEXPORT jboolean JNICALL
+Java_com_couchbase_lite_internal_fleece_FLEncoder_writeDoubleArray(
+        JNIEnv *env,
+        jclass ignore,
+        jlong jenc,
+        jdoubleArray jvalues) {
+    auto enc = (FLEncoder) jenc;
+    jsize n = env->GetArrayLength(jvalues);
+    jdouble *values = env->GetDoubleArrayElements(jvalues, nullptr);
+    if (values == nullptr)
+        return (jboolean) false;
+
+    bool ok = FLEncoder_BeginArray(enc, (size_t) n);
+    for (jsize i = 0; ok && (i < n); i++)
+        ok = FLEncoder_WriteDouble(enc, values[i]);
+    ok = ok && FLEncoder_EndArray(enc);
+
+    env->ReleaseDoubleArrayElements(jvalues, values, JNI_ABORT);
+    return (jboolean) ok;
+}
+
+/*
+ * Class:     com_couchbase_lite_internal_fleece_FLEncoder
+ * Method:    writeFloatArray
+ * Signature: (J[F)Z
+ *
+ * Writes the contents of a Java float[] as a Fleece array, in a single call.
+ */
+JNIEXPORT jboolean JNICALL
+Java_com_couchbase_lite_internal_fleece_FLEncoder_writeFloatArray(
+        JNIEnv *env,
+        jclass ignore,
+        jlong jenc,
+        jfloatArray jvalues) {
+    auto enc = (FLEncoder) jenc;
+    jsize n = env->GetArrayLength(jvalues);
+    jfloat *values = env->GetFloatArrayElements(jvalues, nullptr);
+    if (values == nullptr)
+        return (jboolean) false;
+
+    bool ok = FLEncoder_BeginArray(enc, (size_t) n);
+    for (jsize i = 0; ok && (i < n); i++)
+        ok = FLEncoder_WriteFloat(enc, values[i]);
+    ok = ok && FLEncoder_EndArray(enc);
+
+    env->ReleaseFloatArrayElements(jvalues, values, JNI_ABORT);
+    return (jboolean) ok;
+}
+
+/*
+ * Class:     com_couchbase_lite_internal_fleece_FLEncoder
+ * Method:    writeLongArray
+ * Signature: (J[J)Z
+ *
+ * Writes the contents of a Java long[] as a Fleece array, in a single call.
+ */
+JNIEXPORT jboolean JNICALL
+Java_com_couchbase_lite_internal_fleece_FLEncoder_writeLongArray(
+        JNIEnv *env,
+        jclass ignore,
+        jlong jenc,
+        jlongArray jvalues) {
+    auto enc = (FLEncoder) jenc;
+    jsize n = env->GetArrayLength(jvalues);
+    jlong *values = env->GetLongArrayElements(jvalues, nullptr);
+    if (values == nullptr)
+        return (jboolean) false;
+
+    bool ok = FLEncoder_BeginArray(enc, (size_t) n);
+    for (jsize i = 0; ok && (i < n); i++)
+        ok = FLEncoder_WriteInt(enc, (int64_t) values[i]);
+    ok = ok && FLEncoder_EndArray(enc);
+
+    env->ReleaseLongArrayElements(jvalues, values, JNI_ABORT);
+    return (jboolean) ok;
+}
+
 /*
  * Class:     com_couchbase_lite_internal_fleece_FLEncoder
  * Method:    finish
@@ -304,4 +446,25 @@ Java_com_couchbase_lite_internal_fleece_JSONEncoder_finishJSON(JNIEnv *env, jcla
 
     return json;
 }
-}
\ No newline at end of file
+
+/*
+ * Class:     com_couchbase_lite_internal_fleece_JSONEncoder
+ * Method:    finishJSONBytes
+ * Signature: (J)[B
+ */
+JNIEXPORT jbyteArray JNICALL
+Java_com_couchbase_lite_internal_fleece_JSONEncoder_finishJSONBytes(JNIEnv *env, jclass ignore, jlong jenc) {
+    FLError error = kFLNoError;
+    FLSliceResult result = FLEncoder_Finish((FLEncoder) jenc, &error);
+    if (error != kFLNoError) {
+        throwError(env, {FleeceDomain, error});
+        return nullptr;
+    }
+
+    jbyteArray json = toJByteArray(env, (C4Slice) result);
+
+    FLSliceResult_Release(result);
+
+    return json;
+}
+}
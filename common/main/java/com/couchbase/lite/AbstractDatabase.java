@@ -21,7 +21,12 @@ import androidx.annotation.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -45,6 +50,7 @@ import com.couchbase.lite.internal.core.C4Constants;
 import com.couchbase.lite.internal.core.C4Database;
 import com.couchbase.lite.internal.core.C4DatabaseChange;
 import com.couchbase.lite.internal.core.C4DatabaseObserver;
+import com.couchbase.lite.internal.core.C4DocEnumerator;
 import com.couchbase.lite.internal.core.C4Document;
 import com.couchbase.lite.internal.core.C4DocumentObserver;
 import com.couchbase.lite.internal.core.C4DocumentObserverListener;
@@ -55,17 +61,23 @@ import com.couchbase.lite.internal.core.C4ReplicatorListener;
 import com.couchbase.lite.internal.core.SharedKeys;
 import com.couchbase.lite.internal.exec.ClientTask;
 import com.couchbase.lite.internal.exec.ExecutionService;
+import com.couchbase.lite.internal.fleece.FLDict;
+import com.couchbase.lite.internal.fleece.FLDictIterator;
 import com.couchbase.lite.internal.fleece.FLEncoder;
 import com.couchbase.lite.internal.fleece.FLSliceResult;
 import com.couchbase.lite.internal.fleece.FLValue;
+import com.couchbase.lite.internal.fleece.JSONEncoder;
 import com.couchbase.lite.internal.listener.ChangeListenerToken;
 import com.couchbase.lite.internal.listener.ChangeNotifier;
+import com.couchbase.lite.internal.replicator.CBLCookieStore;
+import com.couchbase.lite.internal.replicator.CookieCache;
 import com.couchbase.lite.internal.sockets.MessageFraming;
 import com.couchbase.lite.internal.support.Log;
 import com.couchbase.lite.internal.utils.ClassUtils;
 import com.couchbase.lite.internal.utils.FileUtils;
 import com.couchbase.lite.internal.utils.Fn;
 import com.couchbase.lite.internal.utils.Internal;
+import com.couchbase.lite.internal.utils.JSONRecordWriter;
 import com.couchbase.lite.internal.utils.PlatformUtils;
 import com.couchbase.lite.internal.utils.Preconditions;
 
@@ -97,8 +109,38 @@ abstract class AbstractDatabase extends BaseDatabase {
 
     private static final LogDomain DOMAIN = LogDomain.DATABASE;
 
+    // The state of a single conflict, as it is resolved in a batch
+    private static final class BatchedConflict {
+        @NonNull
+        final String docId;
+        @NonNull
+        final Fn.NullableConsumer<CouchbaseLiteException> callback;
+
+        Document localDoc;
+        Document remoteDoc;
+        @Nullable
+        Document resolvedDoc;
+
+        boolean done;
+        @Nullable
+        CouchbaseLiteException err;
+
+        BatchedConflict(@NonNull String docId, @NonNull Fn.NullableConsumer<CouchbaseLiteException> callback) {
+            this.docId = docId;
+            this.callback = callback;
+        }
+
+        void complete(@Nullable CouchbaseLiteException error) {
+            done = true;
+            err = error;
+        }
+    }
+
     private static final int MAX_CHANGES = 100;
 
+    // The approximate amount of JSON exported while holding the db lock
+    private static final int EXPORT_CHUNK_BYTES = 1024 * 1024;
+
     private static final int DB_CLOSE_WAIT_SECS = 6; // > Core replicator timeout
     private static final int DB_CLOSE_MAX_RETRIES = 5; // random choice: wait for 5 replicators
     private static final int EXECUTOR_CLOSE_MAX_WAIT_SECS = 5;
@@ -223,6 +265,14 @@ abstract class AbstractDatabase extends BaseDatabase {
 
     private final SharedKeys sharedKeys;
 
+    // In-memory copy of the database's cookie store, shared by all of its replicators.
+    @NonNull
+    private final CookieCache cookieCache;
+
+    // Compiled queries shared by live queries with identical text and parameters.
+    @NonNull
+    private final SharedQueryRegistry sharedQueries = new SharedQueryRegistry();
+
     @GuardedBy("activeProcesses")
     private final Set<ActiveProcess<?>> activeProcesses;
 
@@ -264,6 +314,7 @@ abstract class AbstractDatabase extends BaseDatabase {
 
         this.postExecutor = CouchbaseLiteInternal.getExecutionService().getSerialExecutor();
         this.queryExecutor = CouchbaseLiteInternal.getExecutionService().getSerialExecutor();
+        this.cookieCache = new CookieCache(new AbstractReplicator.ReplicatorCookieStore(this), postExecutor);
 
         this.activeProcesses = new HashSet<>();
         this.docChangeNotifiers = new HashMap<>();
@@ -366,14 +417,24 @@ abstract class AbstractDatabase extends BaseDatabase {
      */
     public boolean save(@NonNull MutableDocument document, @NonNull ConcurrencyControl concurrencyControl)
         throws CouchbaseLiteException {
-        try {
-            saveInternal(document, null, false, concurrencyControl);
-            return true;
-        }
-        catch (CouchbaseLiteException e) {
-            if (!CouchbaseLiteException.isConflict(e)) { throw e; }
-        }
-        return false;
+        return trySave(document, concurrencyControl) == SaveResult.SAVED;
+    }
+
+    /**
+     * Attempts to save a document to the database.  This method behaves exactly like
+     * save(MutableDocument, ConcurrencyControl) except that it returns the outcome of the save.
+     * When used with FAIL_ON_CONFLICT concurrency control, a conflict is reported as SaveResult.CONFLICT.
+     * No exception is created for a conflict, making this method appropriate for frequently contended documents.
+     *
+     * @param document           The document.
+     * @param concurrencyControl The concurrency control.
+     * @return SAVED if the document was saved, CONFLICT if the FAIL_ON_CONFLICT concurrency control failed.
+     * @throws CouchbaseLiteException on error
+     */
+    @NonNull
+    public SaveResult trySave(@NonNull MutableDocument document, @NonNull ConcurrencyControl concurrencyControl)
+        throws CouchbaseLiteException {
+        return saveInternal(document, null, false, concurrencyControl);
     }
 
     /**
@@ -385,11 +446,40 @@ abstract class AbstractDatabase extends BaseDatabase {
      * @throws CouchbaseLiteException on error
      */
     public boolean save(@NonNull MutableDocument document, @NonNull ConflictHandler conflictHandler)
+        throws CouchbaseLiteException {
+        switch (trySave(document, conflictHandler)) {
+            case SAVED:
+                return true;
+            case REJECTED:
+                throw new CouchbaseLiteException(
+                    "Conflict handler returned false",
+                    CBLError.Domain.CBLITE,
+                    CBLError.Code.CONFLICT);
+            default:
+                throw new CouchbaseLiteException(
+                    "Too many attempts to resolve a conflicted document: " + (MAX_CONFLICT_RESOLUTION_RETRIES + 1),
+                    CBLError.Domain.CBLITE,
+                    CBLError.Code.UNEXPECTED_ERROR);
+        }
+    }
+
+    /**
+     * Attempts to save a document to the database, resolving conflicts with the passed ConflictHandler.
+     * This method behaves exactly like save(MutableDocument, ConflictHandler) except that it returns
+     * the outcome of the save, instead of throwing an exception, when the conflict cannot be resolved.
+     *
+     * @param document        The document.
+     * @param conflictHandler A conflict handler.
+     * @return SAVED if the document was saved, REJECTED if the conflict handler returned false,
+     * CONFLICT if the document was still conflicted after the maximum number of attempts to resolve it.
+     * @throws CouchbaseLiteException on error or if the conflict handler throws an exception
+     */
+    @NonNull
+    public SaveResult trySave(@NonNull MutableDocument document, @NonNull ConflictHandler conflictHandler)
         throws CouchbaseLiteException {
         Preconditions.assertNotNull(document, "document");
         Preconditions.assertNotNull(conflictHandler, "conflictHandler");
-        saveWithConflictHandler(document, conflictHandler);
-        return true;
+        return saveWithConflictHandler(document, conflictHandler);
     }
 
     /**
@@ -418,14 +508,7 @@ abstract class AbstractDatabase extends BaseDatabase {
     public boolean delete(@NonNull Document document, @NonNull ConcurrencyControl concurrencyControl)
         throws CouchbaseLiteException {
         // NOTE: synchronized in save(Document, boolean, ConcurrencyControl, ConflictHandler) method
-        try {
-            saveInternal(document, null, true, concurrencyControl);
-            return true;
-        }
-        catch (CouchbaseLiteException e) {
-            if (!CouchbaseLiteException.isConflict(e)) { throw e; }
-        }
-        return false;
+        return saveInternal(document, null, true, concurrencyControl) == SaveResult.SAVED;
     }
 
     // Batch operations:
@@ -539,6 +622,91 @@ abstract class AbstractDatabase extends BaseDatabase {
         postDatabaseChanged();
     }
 
+    /**
+     * Imports JSON documents from a stream.  The stream must contain either a sequence of JSON objects
+     * (e.g., NDJSON: one object per line) or a single JSON array of objects.  Each object becomes a document.
+     * The input is read incrementally and documents are saved in batches, each in its own transaction,
+     * so memory use does not depend on the size of the input.  A document with the same id
+     * as an existing document replaces it.  If the import fails, batches already committed remain in the database.
+     *
+     * @param in     the JSON input.  The caller is responsible for closing it.
+     * @param config the import configuration, or null to use the defaults
+     * @return the final status of the import
+     * @throws CouchbaseLiteException if the input is not valid or the documents cannot be saved
+     * @throws IOException            on failure to read the input
+     */
+    @NonNull
+    public JSONImportStatus importJSON(@NonNull InputStream in, @Nullable JSONImportConfiguration config)
+        throws CouchbaseLiteException, IOException {
+        return importJSON(Channels.newChannel(Preconditions.assertNotNull(in, "input stream")), config);
+    }
+
+    /**
+     * Imports JSON documents from a channel.  See {@link #importJSON(InputStream, JSONImportConfiguration)}.
+     *
+     * @param in     the JSON input.  The caller is responsible for closing it.
+     * @param config the import configuration, or null to use the defaults
+     * @return the final status of the import
+     * @throws CouchbaseLiteException if the input is not valid or the documents cannot be saved
+     * @throws IOException            on failure to read the input
+     */
+    @NonNull
+    public JSONImportStatus importJSON(@NonNull ReadableByteChannel in, @Nullable JSONImportConfiguration config)
+        throws CouchbaseLiteException, IOException {
+        Preconditions.assertNotNull(in, "input channel");
+        return new JSONImporter(this, (config != null) ? config : new JSONImportConfiguration()).run(in);
+    }
+
+    /**
+     * Exports all of the documents in the database as JSON.  Each document is written as a JSON object
+     * whose "_id" property is the document's id: the output can be imported with
+     * {@link #importJSON(InputStream, JSONImportConfiguration)}.  Documents are read in sequence order,
+     * a chunk at a time, and encoded directly from their stored form, so memory use does not depend
+     * on the size of the database and the database is not locked while the output is written.
+     * A document changed during the export may be exported more than once: the last copy is the latest.
+     * Deleted documents are not exported.
+     *
+     * @param out    the output stream.  The caller is responsible for closing it.
+     * @param format the layout of the JSON
+     * @return the number of documents written
+     * @throws CouchbaseLiteException if the documents cannot be read
+     * @throws IOException            on failure to write the output
+     */
+    public long exportJSON(@NonNull OutputStream out, @NonNull JSONExportFormat format)
+        throws CouchbaseLiteException, IOException {
+        return exportJSON(Channels.newChannel(Preconditions.assertNotNull(out, "output stream")), format);
+    }
+
+    /**
+     * Exports all of the documents in the database as JSON.
+     * See {@link #exportJSON(OutputStream, JSONExportFormat)}.
+     *
+     * @param out    the output channel.  The caller is responsible for closing it.
+     * @param format the layout of the JSON
+     * @return the number of documents written
+     * @throws CouchbaseLiteException if the documents cannot be read
+     * @throws IOException            on failure to write the output
+     */
+    public long exportJSON(@NonNull WritableByteChannel out, @NonNull JSONExportFormat format)
+        throws CouchbaseLiteException, IOException {
+        Preconditions.assertNotNull(format, "format");
+        final JSONRecordWriter writer = new JSONRecordWriter(out, format == JSONExportFormat.ARRAY);
+
+        final List<byte[]> chunk = new ArrayList<>();
+        try (JSONEncoder enc = new JSONEncoder()) {
+            long since = 0;
+            do {
+                chunk.clear();
+                synchronized (getDbLock()) { since = readJSONChunkLocked(enc, since, chunk); }
+                for (byte[] json: chunk) { writer.write(json); }
+            }
+            while (!chunk.isEmpty());
+        }
+
+        writer.finish();
+        return writer.getRecordCount();
+    }
+
     // Document changes:
 
     /**
@@ -850,6 +1018,9 @@ abstract class AbstractDatabase extends BaseDatabase {
         synchronized (getDbLock()) { return getOpenC4DbLocked().createN1qlQuery(n1ql); }
     }
 
+    @NonNull
+    SharedQueryRegistry getSharedQueries() { return sharedQueries; }
+
     @NonNull
     C4Document getC4Document(@NonNull String id) throws LiteCoreException {
         synchronized (getDbLock()) { return getOpenC4DbLocked().get(id); }
@@ -868,6 +1039,29 @@ abstract class AbstractDatabase extends BaseDatabase {
         synchronized (getDbLock()) { return getOpenC4DbLocked().createDocumentObserver(docID, context, listener); }
     }
 
+    // Save a batch of documents, in a single transaction.  Existing documents are replaced.
+    // The bodies are Fleece dictionaries encoded without the database's shared keys: they are re-encoded here.
+    // The top-level property named omitKey, if not null, is not saved.
+    void saveFleeceDocuments(@NonNull Map<String, FLDict> docs, @Nullable String omitKey)
+        throws CouchbaseLiteException {
+        synchronized (getDbLock()) {
+            final C4Database c4Db = getOpenC4DbLocked();
+            boolean commit = false;
+            beginTransaction();
+            try {
+                for (Map.Entry<String, FLDict> doc: docs.entrySet()) {
+                    saveFleeceDocumentLocked(c4Db, doc.getKey(), doc.getValue(), omitKey);
+                }
+                commit = true;
+            }
+            finally {
+                endTransaction(commit);
+            }
+        }
+
+        postDatabaseChanged();
+    }
+
     //////// REPLICATORS:
 
     @SuppressWarnings("PMD.ExcessiveParameterList")
@@ -1009,8 +1203,62 @@ abstract class AbstractDatabase extends BaseDatabase {
         callback.accept(err);
     }
 
+    // Resolve a group of conflicts:
+    // read all of the conflicting revisions while holding the db lock once,
+    // make a single trip to the client thread to run the resolver,
+    // and save all of the resolutions in a single transaction.
+    // Each document's callback is called exactly once, with its own result.
+    // A document that is changed locally during the resolution is resolved again, by itself.
+    void resolveReplicationConflicts(
+        @Nullable ConflictResolver resolver,
+        @Nullable BatchConflictResolver batchResolver,
+        @NonNull List<String> docIds,
+        @NonNull List<Fn.NullableConsumer<CouchbaseLiteException>> callbacks) {
+        final int n = docIds.size();
+        Preconditions.assertThat(callbacks, "callbacks must match docIds", cbs -> (cbs != null) && (cbs.size() == n));
+
+        final List<BatchedConflict> batch = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) { batch.add(new BatchedConflict(docIds.get(i), callbacks.get(i))); }
+
+        List<BatchedConflict> retries = Collections.emptyList();
+        try {
+            final List<BatchedConflict> conflicts = readConflicts(batch);
+            resolveConflicts(resolver, batchResolver, conflicts);
+            retries = saveResolvedConflicts(conflicts);
+        }
+        catch (RuntimeException e) {
+            final String msg = e.getMessage();
+            final CouchbaseLiteException err = new CouchbaseLiteException(
+                (msg != null) ? msg : "Conflict resolution failed",
+                e,
+                CBLError.Domain.CBLITE,
+                CBLError.Code.UNEXPECTED_ERROR);
+            for (BatchedConflict conflict: batch) {
+                if (!conflict.done) { conflict.complete(err); }
+            }
+        }
+
+        Log.d(DOMAIN, "Resolved %d conflicts as a batch: %d retries", n, retries.size());
+
+        for (BatchedConflict conflict: batch) {
+            if (conflict.done) { conflict.callback.accept(conflict.err); }
+        }
+
+        if (retries.isEmpty()) { return; }
+
+        final ConflictResolver retryResolver = (batchResolver == null)
+            ? resolver
+            : conflict -> batchResolver.resolve(Collections.singletonList(conflict)).get(0);
+        for (BatchedConflict conflict: retries) {
+            resolveReplicationConflict(retryResolver, conflict.docId, conflict.callback);
+        }
+    }
+
     //////// Cookie Store:
 
+    @NonNull
+    CBLCookieStore getCookieStore() { return cookieCache; }
+
     void setCookie(@NonNull URI uri, @NonNull String setCookieHeader) {
         try {
             synchronized (getDbLock()) { getOpenC4DbLocked().setCookie(uri, setCookieHeader); }
@@ -1255,6 +1503,133 @@ abstract class AbstractDatabase extends BaseDatabase {
         }
     }
 
+    // Read both revisions of each conflicted document, holding the db lock once.
+    // Returns the conflicts that need to be saved.
+    @NonNull
+    private List<BatchedConflict> readConflicts(@NonNull List<BatchedConflict> batch) {
+        final List<BatchedConflict> conflicts = new ArrayList<>(batch.size());
+        synchronized (getDbLock()) {
+            for (BatchedConflict conflict: batch) {
+                try {
+                    conflict.localDoc = Document.getDocument((Database) this, conflict.docId);
+                    conflict.remoteDoc = getConflictingRevision(conflict.docId);
+                    conflicts.add(conflict);
+                }
+                catch (CouchbaseLiteException e) { conflict.complete(e); }
+                catch (CBLInternalException e) {
+                    // See resolveReplicationConflict: another resolver has already fixed the conflict.
+                    conflict.complete((e.getCode() == CBLInternalException.FAILED_SELECTING_CONFLICTING_REVISION)
+                        ? null
+                        : new CouchbaseLiteException("Conflict resolution failed", e));
+                }
+            }
+        }
+        return conflicts;
+    }
+
+    // Run the resolver, for all of the conflicts, in a single client task.
+    // Conflicts that cannot be resolved are completed with an error.
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private void resolveConflicts(
+        @Nullable ConflictResolver resolver,
+        @Nullable BatchConflictResolver batchResolver,
+        @NonNull List<BatchedConflict> batch) {
+        final List<BatchedConflict> conflicts = new ArrayList<>(batch.size());
+        final List<Conflict> clientConflicts = new ArrayList<>(batch.size());
+        for (BatchedConflict conflict: batch) {
+            final Document localDoc = conflict.localDoc;
+            final Document remoteDoc = conflict.remoteDoc;
+            // If both docs have been deleted, we're done here
+            if (localDoc.isDeleted() && remoteDoc.isDeleted()) {
+                conflict.resolvedDoc = remoteDoc;
+                continue;
+            }
+            conflicts.add(conflict);
+            clientConflicts.add(
+                new Conflict(localDoc.isDeleted() ? null : localDoc, remoteDoc.isDeleted() ? null : remoteDoc));
+        }
+
+        final int n = conflicts.size();
+        if (n <= 0) { return; }
+
+        final ConflictResolver singleResolver = (resolver != null) ? resolver : ConflictResolver.DEFAULT;
+        final Exception[] failures = new Exception[n];
+        final ClientTask<List<Document>> task = new ClientTask<>(() -> {
+            if (batchResolver != null) { return batchResolver.resolve(clientConflicts); }
+            final List<Document> docs = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                Document doc = null;
+                try { doc = singleResolver.resolve(clientConflicts.get(i)); }
+                catch (RuntimeException e) { failures[i] = e; }
+                docs.add(doc);
+            }
+            return docs;
+        });
+        task.execute();
+
+        Exception err = task.getFailure();
+        final List<Document> resolvedDocs = task.getResult();
+        if ((err == null) && ((resolvedDocs == null) || (resolvedDocs.size() != n))) {
+            err = new IllegalStateException("Expected " + n + " resolved documents but got "
+                + ((resolvedDocs == null) ? "none" : resolvedDocs.size()));
+        }
+
+        for (int i = 0; i < n; i++) {
+            final BatchedConflict conflict = conflicts.get(i);
+
+            final Exception failure = (err != null) ? err : failures[i];
+            if (failure != null) {
+                final String msg = String.format(ERROR_RESOLVER_FAILED, conflict.docId, failure.getLocalizedMessage());
+                Log.w(DOMAIN, msg, failure);
+                conflict.complete(
+                    new CouchbaseLiteException(msg, failure, CBLError.Domain.CBLITE, CBLError.Code.UNEXPECTED_ERROR));
+                continue;
+            }
+
+            try { conflict.resolvedDoc = validateResolvedDocument(conflict.docId, resolvedDocs.get(i)); }
+            catch (CouchbaseLiteException e) { conflict.complete(e); }
+        }
+    }
+
+    // Save all of the resolved conflicts in a single transaction.
+    // Returns the conflicts that must be retried, because the local document changed while it was being resolved.
+    @NonNull
+    private List<BatchedConflict> saveResolvedConflicts(@NonNull List<BatchedConflict> conflicts) {
+        final List<BatchedConflict> retries = new ArrayList<>();
+        final List<BatchedConflict> saved = new ArrayList<>(conflicts.size());
+        synchronized (getDbLock()) {
+            try {
+                boolean commit = false;
+                beginTransaction();
+                try {
+                    for (BatchedConflict conflict: conflicts) {
+                        if (conflict.done) { continue; }
+                        try {
+                            saveResolvedDocument(conflict.resolvedDoc, conflict.localDoc, conflict.remoteDoc);
+                            saved.add(conflict);
+                        }
+                        catch (CouchbaseLiteException e) {
+                            if (CouchbaseLiteException.isConflict(e)) { retries.add(conflict); }
+                            else { conflict.complete(e); }
+                        }
+                    }
+                    commit = true;
+                }
+                finally { endTransaction(commit); }
+            }
+            catch (CouchbaseLiteException e) {
+                // the transaction failed: none of the resolutions were saved
+                for (BatchedConflict conflict: saved) { conflict.complete(e); }
+                for (BatchedConflict conflict: retries) { conflict.complete(e); }
+                return Collections.emptyList();
+            }
+        }
+
+        for (BatchedConflict conflict: saved) { conflict.complete(null); }
+
+        return retries;
+    }
+
     @NonNull
     private Document getConflictingRevision(@NonNull String docID)
         throws CouchbaseLiteException, CBLInternalException {
@@ -1299,7 +1674,13 @@ abstract class AbstractDatabase extends BaseDatabase {
             throw new CouchbaseLiteException(msg, err, CBLError.Domain.CBLITE, CBLError.Code.UNEXPECTED_ERROR);
         }
 
-        final Document doc = task.getResult();
+        return validateResolvedDocument(docID, task.getResult());
+    }
+
+    // Make sure that a document produced by a conflict resolver can be saved as the resolution of the conflict
+    @Nullable
+    private Document validateResolvedDocument(@NonNull String docID, @Nullable Document doc)
+        throws CouchbaseLiteException {
         if (doc == null) { return null; }
 
         final Database target = doc.getDatabase();
@@ -1383,38 +1764,26 @@ abstract class AbstractDatabase extends BaseDatabase {
         Log.d(DOMAIN, "Conflict resolved as doc '%s' rev %s", rawDoc.getDocID(), rawDoc.getRevID());
     }
 
-    private void saveWithConflictHandler(@NonNull MutableDocument document, @NonNull ConflictHandler handler)
+    @NonNull
+    private SaveResult saveWithConflictHandler(@NonNull MutableDocument document, @NonNull ConflictHandler handler)
         throws CouchbaseLiteException {
         Document oldDoc = null;
         int n = 0;
         while (true) {
-            if (n++ > MAX_CONFLICT_RESOLUTION_RETRIES) {
-                throw new CouchbaseLiteException(
-                    "Too many attempts to resolve a conflicted document: " + n,
-                    CBLError.Domain.CBLITE,
-                    CBLError.Code.UNEXPECTED_ERROR);
+            if (saveInternal(document, oldDoc, false, ConcurrencyControl.FAIL_ON_CONFLICT) == SaveResult.SAVED) {
+                return SaveResult.SAVED;
             }
 
-            try {
-                saveInternal(document, oldDoc, false, ConcurrencyControl.FAIL_ON_CONFLICT);
-                return;
-            }
-            catch (CouchbaseLiteException e) {
-                if (!CouchbaseLiteException.isConflict(e)) { throw e; }
+            // Conflict
+            if (++n > MAX_CONFLICT_RESOLUTION_RETRIES) {
+                Log.i(DOMAIN, "Too many attempts to resolve conflicted document %s: %d", document.getId(), n);
+                return SaveResult.CONFLICT;
             }
 
-            // Conflict
             synchronized (getDbLock()) { oldDoc = Document.getDocument((Database) this, document.getId()); }
 
-            try {
-                if (!handler.handle(document, (oldDoc.isDeleted()) ? null : oldDoc)) {
-                    throw new CouchbaseLiteException(
-                        "Conflict handler returned false",
-                        CBLError.Domain.CBLITE,
-                        CBLError.Code.CONFLICT
-                    );
-                }
-            }
+            final boolean resolved;
+            try { resolved = handler.handle(document, (oldDoc.isDeleted()) ? null : oldDoc); }
             catch (Exception e) {
                 throw new CouchbaseLiteException(
                     "Conflict handler threw an exception",
@@ -1423,11 +1792,16 @@ abstract class AbstractDatabase extends BaseDatabase {
                     CBLError.Code.CONFLICT
                 );
             }
+
+            if (!resolved) { return SaveResult.REJECTED; }
         }
     }
 
     // The main save method.
-    private void saveInternal(
+    // A conflict, when the concurrency control is FAIL_ON_CONFLICT, is a result, not an exception:
+    // on a contended document, creating the exception can cost more than the save itself.
+    @NonNull
+    private SaveResult saveInternal(
         @NonNull Document document,
         @Nullable Document baseDoc,
         boolean deleting,
@@ -1449,23 +1823,18 @@ abstract class AbstractDatabase extends BaseDatabase {
             boolean commit = false;
             beginTransaction();
             try {
-                try {
-                    saveInTransaction(document, (baseDoc == null) ? null : baseDoc.getC4doc(), deleting);
+                if (saveInTransaction(document, (baseDoc == null) ? null : baseDoc.getC4doc(), deleting)) {
                     commit = true;
-                    return;
-                }
-                catch (CouchbaseLiteException e) {
-                    if (!CouchbaseLiteException.isConflict(e)) { throw e; }
+                    return SaveResult.SAVED;
                 }
 
                 // Conflict
 
-                // return false if FAIL_ON_CONFLICT
-                if (concurrencyControl.equals(ConcurrencyControl.FAIL_ON_CONFLICT)) {
-                    throw new CouchbaseLiteException("Conflict", CBLError.Domain.CBLITE, CBLError.Code.CONFLICT);
-                }
+                // return CONFLICT if FAIL_ON_CONFLICT
+                if (concurrencyControl.equals(ConcurrencyControl.FAIL_ON_CONFLICT)) { return SaveResult.CONFLICT; }
 
                 commit = saveConflicted(document, deleting);
+                return SaveResult.SAVED;
             }
             finally {
                 endTransaction(commit);
@@ -1498,15 +1867,18 @@ abstract class AbstractDatabase extends BaseDatabase {
         }
 
         // Save changes on the current branch:
-        saveInTransaction(document, curDoc, deleting);
+        if (!saveInTransaction(document, curDoc, deleting)) {
+            throw new CouchbaseLiteException("Conflict", CBLError.Domain.CBLITE, CBLError.Code.CONFLICT);
+        }
 
         return true;
     }
 
     // Low-level save method
+    // Returns false, without throwing, if the save conflicts.
     @GuardedBy("getDbLock()")
     @SuppressFBWarnings("RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE")
-    private void saveInTransaction(@NonNull Document document, @Nullable C4Document base, boolean deleting)
+    private boolean saveInTransaction(@NonNull Document document, @Nullable C4Document base, boolean deleting)
         throws CouchbaseLiteException {
         FLSliceResult body = null;
         try {
@@ -1524,10 +1896,13 @@ abstract class AbstractDatabase extends BaseDatabase {
             C4Document c4Doc = (base != null) ? base : document.getC4doc();
 
             c4Doc = (c4Doc != null)
-                ? c4Doc.update(body, revFlags)
-                : getOpenC4DbLocked().create(document.getId(), body, revFlags);
+                ? c4Doc.tryUpdate(body, revFlags)
+                : getOpenC4DbLocked().tryCreate(document.getId(), body, revFlags);
+
+            if (c4Doc == null) { return false; }
 
             document.replaceC4Document(c4Doc);
+            return true;
         }
         catch (LiteCoreException e) {
             throw CouchbaseLiteException.convertException(e);
@@ -1537,6 +1912,104 @@ abstract class AbstractDatabase extends BaseDatabase {
         }
     }
 
+    // Read the JSON for the documents after the sequence 'since', up to about EXPORT_CHUNK_BYTES of it.
+    // Returns the sequence of the last document read.
+    @GuardedBy("getDbLock()")
+    private long readJSONChunkLocked(@NonNull JSONEncoder enc, long since, @NonNull List<byte[]> chunk)
+        throws CouchbaseLiteException {
+        long seq = since;
+        int nBytes = 0;
+        try (C4DocEnumerator docs
+                 = getOpenC4DbLocked().enumerateChanges(since, C4Constants.EnumeratorFlags.DEFAULT)) {
+            while ((nBytes < EXPORT_CHUNK_BYTES) && docs.next()) {
+                try (C4Document doc = docs.getDocument()) {
+                    seq = doc.getSelectedSequence();
+
+                    final String docId = doc.getDocID();
+                    if (docId == null) { continue; }
+
+                    final byte[] json = encodeDocJSON(enc, docId, doc.getSelectedBody2());
+                    chunk.add(json);
+                    nBytes += json.length;
+                }
+            }
+        }
+        catch (LiteCoreException e) { throw CouchbaseLiteException.convertException(e); }
+
+        return seq;
+    }
+
+    @NonNull
+    private byte[] encodeDocJSON(@NonNull JSONEncoder enc, @NonNull String docId, @Nullable FLDict body)
+        throws LiteCoreException {
+        enc.beginDict((body == null) ? 1 : body.count() + 1);
+        enc.writeKey(JSONImportConfiguration.DEFAULT_ID_PROPERTY);
+        enc.writeString(docId);
+        if (body != null) {
+            try (FLDictIterator itr = new FLDictIterator()) {
+                itr.begin(body);
+                String key;
+                while ((key = itr.getKeyString()) != null) {
+                    enc.writeKey(key);
+                    enc.writeValue(itr.getValue());
+                    itr.next();
+                }
+            }
+        }
+        enc.endDict();
+        return enc.finishJSONBytes();
+    }
+
+    @GuardedBy("getDbLock()")
+    private void saveFleeceDocumentLocked(
+        @NonNull C4Database c4Db,
+        @NonNull String docId,
+        @NonNull FLDict dict,
+        @Nullable String omitKey)
+        throws CouchbaseLiteException {
+        try (FLSliceResult body = encodeWithSharedKeysLocked(c4Db, dict, omitKey)) {
+            final int revFlags = (!C4Document.dictContainsBlobs(body, sharedKeys.getFLSharedKeys()))
+                ? 0
+                : C4Constants.RevisionFlags.HAS_ATTACHMENTS;
+
+            C4Document c4Doc = c4Db.tryCreate(docId, body, revFlags);
+            if (c4Doc == null) {
+                try (C4Document curDoc = c4Db.get(docId)) { c4Doc = curDoc.update(body, revFlags); }
+            }
+
+            if (c4Doc != null) { c4Doc.close(); }
+        }
+        catch (LiteCoreException e) { throw CouchbaseLiteException.convertException(e); }
+    }
+
+    @GuardedBy("getDbLock()")
+    @NonNull
+    private FLSliceResult encodeWithSharedKeysLocked(
+        @NonNull C4Database c4Db,
+        @NonNull FLDict dict,
+        @Nullable String omitKey)
+        throws LiteCoreException {
+        try (FLEncoder enc = c4Db.getSharedFleeceEncoder()) {
+            if (omitKey == null) { enc.writeValue(dict); }
+            else {
+                enc.beginDict(dict.count());
+                try (FLDictIterator itr = new FLDictIterator()) {
+                    itr.begin(dict);
+                    String key;
+                    while ((key = itr.getKeyString()) != null) {
+                        if (!omitKey.equals(key)) {
+                            enc.writeKey(key);
+                            enc.writeValue(itr.getValue());
+                        }
+                        itr.next();
+                    }
+                }
+                enc.endDict();
+            }
+            return enc.finish2();
+        }
+    }
+
     @GuardedBy("getDbLock()")
     private void purgeLocked(@NonNull String id) throws CouchbaseLiteException {
         boolean commit = false;
@@ -1585,6 +2058,10 @@ abstract class AbstractDatabase extends BaseDatabase {
             if (!(failIfClosed || open)) { return; }
 
             c4Db = getOpenC4DbLocked();
+
+            // Write any cached cookies before the database closes
+            cookieCache.flush();
+
             setC4DatabaseLocked(null);
             // mustBeOpen will now fail, which should prevent any new processes from being registered.
 
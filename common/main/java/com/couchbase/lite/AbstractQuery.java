@@ -27,7 +27,6 @@ import java.util.concurrent.Executor;
 import com.couchbase.lite.internal.CouchbaseLiteInternal;
 import com.couchbase.lite.internal.core.C4Query;
 import com.couchbase.lite.internal.core.C4QueryEnumerator;
-import com.couchbase.lite.internal.core.C4QueryObserver;
 import com.couchbase.lite.internal.core.C4QueryOptions;
 import com.couchbase.lite.internal.exec.ExecutionService;
 import com.couchbase.lite.internal.fleece.FLSliceResult;
@@ -44,9 +43,11 @@ abstract class AbstractQuery implements Query {
     // member variables
     //---------------------------------------------
 
-    private final Map<ChangeListenerToken<QueryChange>, C4QueryObserver> listeners = new HashMap<>();
-
     private final Object lock = new Object();
+
+    @GuardedBy("lock")
+    private final Map<ChangeListenerToken<QueryChange>, SharedQueryRegistry.Subscription> listeners = new HashMap<>();
+
     // column names
     @GuardedBy("lock")
     private Map<String, Integer> columnNames;
@@ -72,16 +73,22 @@ abstract class AbstractQuery implements Query {
      */
     @Override
     public void setParameters(@Nullable Parameters parameters) {
-        synchronized (lock) {
-            if (parameters != null) { parameters = parameters.readonlyCopy(); }
+        synchronized (getDbLock()) {
+            synchronized (lock) {
+                if (parameters != null) { parameters = parameters.readonlyCopy(); }
+
+                this.parameters = parameters;
 
-            this.parameters = parameters;
+                if (parameters == null) { return; }
 
-            if (parameters == null) { return; }
+                try { getC4QueryLocked().setParameters(parameters.encode()); }
+                catch (CouchbaseLiteException e) { throw new IllegalStateException("Failed creating query", e); }
+                catch (LiteCoreException e) { throw new IllegalArgumentException("Failed encoding parameters", e); }
 
-            try { getC4QueryLocked().setParameters(parameters.encode()); }
-            catch (CouchbaseLiteException e) { throw new IllegalStateException("Failed creating query", e); }
-            catch (LiteCoreException e) { throw new IllegalArgumentException("Failed encoding parameters", e); }
+                // Live listeners are subscribed to a query shared by key: move them to the one for the new parameters.
+                try { resubscribeListenersLocked(); }
+                catch (CouchbaseLiteException e) { throw new IllegalStateException("Failed creating query", e); }
+            }
         }
     }
 
@@ -176,20 +183,16 @@ abstract class AbstractQuery implements Query {
         Preconditions.assertNotNull(listener, "listener");
 
         final ChangeListenerToken<QueryChange> token = new ChangeListenerToken<>(executor, listener);
-        final C4QueryObserver queryObserver;
-        try {
-            queryObserver = C4QueryObserver.create(
-                getC4QueryLocked(),
-                (results, err) -> onQueryChanged(token, results, err));
+        final SharedQueryRegistry.Subscription subscription;
+        synchronized (getDbLock()) {
+            synchronized (lock) {
+                try { subscription = subscribeLocked(token); }
+                catch (CouchbaseLiteException e) { throw new IllegalStateException("Failed creating query", e); }
+                listeners.put(token, subscription);
+            }
         }
-        catch (CouchbaseLiteException e) { throw new IllegalStateException("Failed creating query", e); }
-        listeners.put(token, queryObserver);
 
-        final ExecutionService exec = CouchbaseLiteInternal.getExecutionService();
-        exec.postDelayedOnExecutor(
-            10, // !!! 10 ms delay. work around for CBL-2543. There won't be any delay after CBL-2543 is fixed
-            executor != null ? executor : exec.getDefaultExecutor(),
-            () -> queryObserver.setEnabled(true));
+        enableSubscription(executor, subscription);
 
         return token;
     }
@@ -202,8 +205,9 @@ abstract class AbstractQuery implements Query {
     @Override
     public void removeChangeListener(@NonNull ListenerToken token) {
         Preconditions.assertNotNull(token, "token");
-        final C4QueryObserver observer = listeners.remove(token);
-        if (observer != null) { observer.close(); }
+        final SharedQueryRegistry.Subscription subscription;
+        synchronized (lock) { subscription = listeners.remove(token); }
+        if (subscription != null) { subscription.close(); }
     }
 
     @Nullable
@@ -213,11 +217,20 @@ abstract class AbstractQuery implements Query {
     @NonNull
     protected abstract C4Query prepQueryLocked(@NonNull AbstractDatabase db) throws CouchbaseLiteException;
 
+    /**
+     * The text from which the query is compiled.
+     * Live queries with the same text and parameters share a single compiled query.
+     */
+    @Nullable
+    protected abstract String getQueryText();
+
     /**
      * Find out if a query has an observer
      */
     @VisibleForTesting
-    boolean isLive(ListenerToken token) { return listeners.get(token) != null; }
+    boolean isLive(ListenerToken token) {
+        synchronized (lock) { return listeners.get(token) != null; }
+    }
 
     @GuardedBy("lock")
     @NonNull
@@ -251,6 +264,57 @@ abstract class AbstractQuery implements Query {
         return c4query;
     }
 
+    @GuardedBy("lock")
+    @NonNull
+    private SharedQueryRegistry.Subscription subscribeLocked(@NonNull ChangeListenerToken<QueryChange> token)
+        throws CouchbaseLiteException {
+        // make sure that the query compiles and that the column names are available for result sets
+        getC4QueryLocked();
+
+        final AbstractDatabase db = getDatabase();
+        if (db == null) { throw new IllegalStateException("Attempt to observe query with no database"); }
+
+        final String queryText = getQueryText();
+        if (queryText == null) { throw new CouchbaseLiteException("Failed to generate query text."); }
+
+        final Parameters params = (parameters != null) ? parameters : new Parameters();
+        try (FLSliceResult encodedParams = params.encode()) {
+            return db.getSharedQueries().subscribe(
+                this,
+                new SharedQueryRegistry.Key(queryText, encodedParams.getBuf()),
+                () -> {
+                    final C4Query c4Q = prepQueryLocked(db);
+                    c4Q.setParameters(encodedParams);
+                    return c4Q;
+                },
+                (results, err) -> onQueryChanged(token, results, err));
+        }
+        catch (LiteCoreException e) { throw new IllegalArgumentException("Failed encoding parameters", e); }
+    }
+
+    @GuardedBy("lock")
+    private void resubscribeListenersLocked() throws CouchbaseLiteException {
+        if (listeners.isEmpty()) { return; }
+
+        for (Map.Entry<ChangeListenerToken<QueryChange>, SharedQueryRegistry.Subscription> entry
+            : listeners.entrySet()) {
+            final SharedQueryRegistry.Subscription subscription = subscribeLocked(entry.getKey());
+            entry.getValue().close();
+            entry.setValue(subscription);
+            enableSubscription(entry.getKey().getExecutor(), subscription);
+        }
+    }
+
+    private void enableSubscription(
+        @Nullable Executor executor,
+        @NonNull SharedQueryRegistry.Subscription subscription) {
+        final ExecutionService exec = CouchbaseLiteInternal.getExecutionService();
+        exec.postDelayedOnExecutor(
+            10, // !!! 10 ms delay. work around for CBL-2543. There won't be any delay after CBL-2543 is fixed
+            executor != null ? executor : exec.getDefaultExecutor(),
+            () -> subscription.setEnabled(true));
+    }
+
     private void onQueryChanged(
         ChangeListenerToken<QueryChange> token,
         C4QueryEnumerator enumerator,
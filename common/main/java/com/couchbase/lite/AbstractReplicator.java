@@ -29,11 +29,14 @@ import java.util.Collections;
 import java.util.Deque;
 import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import com.couchbase.lite.internal.CouchbaseLiteInternal;
@@ -42,7 +45,6 @@ import com.couchbase.lite.internal.SocketFactory;
 import com.couchbase.lite.internal.core.BaseReplicator;
 import com.couchbase.lite.internal.core.C4Constants;
 import com.couchbase.lite.internal.core.C4DocumentEnded;
-import com.couchbase.lite.internal.core.C4Error;
 import com.couchbase.lite.internal.core.C4ReplicationFilter;
 import com.couchbase.lite.internal.core.C4Replicator;
 import com.couchbase.lite.internal.core.C4ReplicatorListener;
@@ -70,14 +72,21 @@ import com.couchbase.lite.internal.utils.StringUtils;
 public abstract class AbstractReplicator extends BaseReplicator {
     private static final LogDomain DOMAIN = LogDomain.REPLICATOR;
 
+    // The maximum number of conflicts resolved as a single batch
+    private static final int MAX_CONFLICT_BATCH = 64;
+
     static class ReplicatorCookieStore implements CBLCookieStore {
         @NonNull
-        private final Database db;
+        private final AbstractDatabase db;
 
-        ReplicatorCookieStore(@NonNull Database db) { this.db = db; }
+        ReplicatorCookieStore(@NonNull AbstractDatabase db) { this.db = db; }
 
         @Override
-        public void setCookie(@NonNull URI uri, @NonNull String header) { db.setCookie(uri, header); }
+        public void setCookie(@NonNull URI uri, @NonNull String header) {
+            synchronized (db.getDbLock()) {
+                if (db.isOpen()) { db.setCookie(uri, header); }
+            }
+        }
 
         @Nullable
         @Override
@@ -106,11 +115,20 @@ public abstract class AbstractReplicator extends BaseReplicator {
     private final Set<ReplicatorChangeListenerToken> changeListeners = new HashSet<>();
     @GuardedBy("getReplicatorLock()")
     private final Set<DocumentReplicationListenerToken> docEndedListeners = new HashSet<>();
+    @GuardedBy("getReplicatorLock()")
+    private final Set<DocumentReplicationBatchListenerToken> docBatchListeners = new HashSet<>();
 
     @NonNull
     private final Set<Fn.NullableConsumer<CouchbaseLiteException>> pendingResolutions = new HashSet<>();
     @NonNull
     private final Deque<C4ReplicatorStatus> pendingStatusNotifications = new LinkedList<>();
+
+    // Conflicts waiting to be resolved: resolution task -> doc id
+    @GuardedBy("getReplicatorLock()")
+    @NonNull
+    private final Map<Fn.NullableConsumer<CouchbaseLiteException>, String> queuedConflicts = new LinkedHashMap<>();
+    @GuardedBy("getReplicatorLock()")
+    private boolean conflictResolutionScheduled;
     @NonNull
     private final C4ReplicatorListener c4ReplListener;
     @NonNull
@@ -133,6 +151,18 @@ public abstract class AbstractReplicator extends BaseReplicator {
     @Nullable
     private CouchbaseLiteException lastError;
 
+    // Progress notification rate limiting
+    @GuardedBy("getReplicatorLock()")
+    @Nullable
+    private ReplicatorActivityLevel lastNotifiedLevel;
+    @GuardedBy("getReplicatorLock()")
+    private long lastNotificationNs;
+    @GuardedBy("getReplicatorLock()")
+    @Nullable
+    private ExecutionService.Cancellable pendingProgressNotification;
+    @GuardedBy("getReplicatorLock()")
+    private long suppressedNotifications;
+
     private volatile String desc;
 
     //---------------------------------------------
@@ -149,7 +179,7 @@ public abstract class AbstractReplicator extends BaseReplicator {
         this.config = new ImmutableReplicatorConfiguration(config);
         this.socketFactory = new SocketFactory(
             config,
-            new ReplicatorCookieStore(getDatabase()),
+            getDatabase().getCookieStore(),
             this::setServerCertificates);
         this.c4ReplListener = new ReplicatorListener(dispatcher);
     }
@@ -360,15 +390,54 @@ public abstract class AbstractReplicator extends BaseReplicator {
     }
 
     /**
-     * Remove the given ReplicatorChangeListener or DocumentReplicationListener from the this replicator.
+     * Adds a listener for receiving the replication status of documents, in batches.
+     * Events are accumulated until either there are maxBatchSize of them
+     * or flushIntervalMs milliseconds have passed since the first of them arrived.
+     * They are then delivered, as a single batch, on the passed executor.  Any pending events
+     * are delivered when the replicator stops.
+     * <p>
+     * Batches are much less expensive than the individual events delivered to a DocumentReplicationListener:
+     * they are a good choice for replications that transfer very large numbers of documents.
      *
-     * @param token returned by a previous call to addChangeListener or addDocumentListener.
+     * @param executor        executor on which batches will be delivered.  If null, use the default executor.
+     * @param maxBatchSize    the maximum number of events in a batch
+     * @param flushIntervalMs the maximum time, in milliseconds, that an event will wait for delivery
+     * @param listener        callback
+     * @return A ListenerToken that can be used to remove the handler in the future.
+     */
+    @NonNull
+    public ListenerToken addDocumentReplicationBatchListener(
+        @Nullable Executor executor,
+        int maxBatchSize,
+        long flushIntervalMs,
+        @NonNull DocumentReplicationBatchListener listener) {
+        Preconditions.assertNotNull(listener, "listener");
+        final DocumentReplicationBatchListenerToken token = new DocumentReplicationBatchListenerToken(
+            (Replicator) this,
+            executor,
+            maxBatchSize,
+            flushIntervalMs,
+            listener);
+        synchronized (getReplicatorLock()) {
+            docBatchListeners.add(token);
+            setProgressLevel();
+            return token;
+        }
+    }
+
+    /**
+     * Remove the given ReplicatorChangeListener, DocumentReplicationListener or DocumentReplicationBatchListener
+     * from the this replicator.
+     *
+     * @param token returned by a previous call to addChangeListener, addDocumentListener or
+     *              addDocumentReplicationBatchListener.
      */
     public void removeChangeListener(@NonNull ListenerToken token) {
         Preconditions.assertNotNull(token, "token");
         synchronized (getReplicatorLock()) {
             if (token instanceof ReplicatorChangeListenerToken) { changeListeners.remove(token); }
             else if (token instanceof DocumentReplicationListenerToken) { docEndedListeners.remove(token); }
+            else if (token instanceof DocumentReplicationBatchListenerToken) { docBatchListeners.remove(token); }
             else { throw new IllegalArgumentException("unexpected token: " + token); }
             setProgressLevel();
         }
@@ -498,6 +567,7 @@ public abstract class AbstractReplicator extends BaseReplicator {
     void c4StatusChanged(@NonNull C4ReplicatorStatus c4Status) {
         final ReplicatorChange change;
         final List<ReplicatorChangeListenerToken> tokens;
+        List<DocumentReplicationBatchListenerToken> batchTokens = null;
         synchronized (getReplicatorLock()) {
             Log.i(
                 DOMAIN,
@@ -512,10 +582,24 @@ public abstract class AbstractReplicator extends BaseReplicator {
             // Update my properties:
             updateStatus(c4Status);
 
+            // Pure progress updates may be coalesced
+            if (!shouldNotifyLocked(c4Status)) { return; }
+
             // Post notification
             // Replicator.getStatus() creates a copy of Status.
             change = new ReplicatorChange((Replicator) this, this.getStatus());
             tokens = new ArrayList<>(changeListeners);
+            if (isStopped(c4Status)) {
+                batchTokens = new ArrayList<>(docBatchListeners);
+                if (suppressedNotifications > 0) {
+                    Log.i(DOMAIN, "%s: suppressed %d progress notifications", this, suppressedNotifications);
+                }
+            }
+        }
+
+        // deliver any document events that are still waiting for a batch
+        if (batchTokens != null) {
+            for (DocumentReplicationBatchListenerToken token: batchTokens) { token.flush(); }
         }
 
         // this will probably make this instance eligible for garbage collection...
@@ -525,27 +609,39 @@ public abstract class AbstractReplicator extends BaseReplicator {
     }
 
     void documentEnded(boolean pushing, @NonNull C4DocumentEnded... docEnds) {
-        final List<ReplicatedDocument> unconflictedDocs = new ArrayList<>();
+        final List<DocumentReplicationListenerToken> tokens;
+        final List<DocumentReplicationBatchListenerToken> batchTokens;
+        synchronized (getReplicatorLock()) {
+            tokens = (docEndedListeners.isEmpty()) ? null : new ArrayList<>(docEndedListeners);
+            batchTokens = (docBatchListeners.isEmpty()) ? null : new ArrayList<>(docBatchListeners);
+        }
+
+        // Don't create ReplicatedDocuments (and their exceptions) unless someone is going to look at them.
+        final List<ReplicatedDocument> unconflictedDocs = (tokens == null) ? null : new ArrayList<>(docEnds.length);
 
         for (C4DocumentEnded docEnd: docEnds) {
-            final String docId = docEnd.getDocID();
-            final C4Error c4Error = docEnd.getC4Error();
+            if (!pushing && docEnd.isConflicted()) {
+                queueConflictResolution(docEnd.getDocID(), docEnd.getFlags());
+                continue;
+            }
 
-            CouchbaseLiteException error = null;
+            if (batchTokens != null) {
+                for (DocumentReplicationBatchListenerToken token: batchTokens) { token.add(pushing, docEnd); }
+            }
 
-            if ((c4Error != null) && (c4Error.getCode() != 0)) {
-                if (!pushing && docEnd.isConflicted()) {
-                    queueConflictResolution(docId, docEnd.getFlags());
-                    continue;
-                }
+            if (unconflictedDocs == null) { continue; }
 
-                error = CouchbaseLiteException.convertC4Error(c4Error);
-            }
+            final CouchbaseLiteException error = (docEnd.getErrorCode() == 0)
+                ? null
+                : CouchbaseLiteException.convertC4Error(docEnd.getC4Error());
 
-            unconflictedDocs.add(new ReplicatedDocument(docId, docEnd.getFlags(), error, docEnd.errorIsTransient()));
+            unconflictedDocs.add(
+                new ReplicatedDocument(docEnd.getDocID(), docEnd.getFlags(), error, docEnd.errorIsTransient()));
         }
 
-        if (!unconflictedDocs.isEmpty()) { notifyDocumentEnded(pushing, unconflictedDocs); }
+        if ((unconflictedDocs != null) && !unconflictedDocs.isEmpty()) {
+            notifyDocumentEnded(tokens, new DocumentReplication((Replicator) this, pushing, unconflictedDocs));
+        }
     }
 
     // callback from queueConflictResolution
@@ -565,6 +661,10 @@ public abstract class AbstractReplicator extends BaseReplicator {
             }
         }
 
+        final List<DocumentReplicationBatchListenerToken> batchTokens;
+        synchronized (getReplicatorLock()) { batchTokens = new ArrayList<>(docBatchListeners); }
+        for (DocumentReplicationBatchListenerToken token: batchTokens) { token.add(false, docId, flags, err); }
+
         notifyDocumentEnded(false, Arrays.asList(new ReplicatedDocument(docId, flags, err, false)));
 
         if ((pendingNotifications != null) && (!pendingNotifications.isEmpty())) {
@@ -573,11 +673,32 @@ public abstract class AbstractReplicator extends BaseReplicator {
     }
 
     void notifyDocumentEnded(boolean pushing, List<ReplicatedDocument> docs) {
-        final DocumentReplication update = new DocumentReplication((Replicator) this, pushing, docs);
         final List<DocumentReplicationListenerToken> tokens;
         synchronized (getReplicatorLock()) { tokens = new ArrayList<>(docEndedListeners); }
-        for (DocumentReplicationListenerToken token: tokens) { token.notify(update); }
-        Log.i(DOMAIN, "notifyDocumentEnded: %s" + update);
+        notifyDocumentEnded(tokens, new DocumentReplication((Replicator) this, pushing, docs));
+    }
+
+    // Deliver the latest of a series of coalesced progress updates
+    void notifyCoalescedProgress() {
+        final ReplicatorChange change;
+        final List<ReplicatorChangeListenerToken> tokens;
+        synchronized (getReplicatorLock()) {
+            if (pendingProgressNotification == null) { return; }
+            pendingProgressNotification = null;
+            lastNotificationNs = System.nanoTime();
+            change = new ReplicatorChange((Replicator) this, this.getStatus());
+            tokens = new ArrayList<>(changeListeners);
+        }
+
+        for (ReplicatorChangeListenerToken token: tokens) { token.notify(change); }
+    }
+
+    /**
+     * The number of status updates that were not delivered to listeners as they arrived,
+     * because they were coalesced with later updates.
+     */
+    long getSuppressedNotificationCount() {
+        synchronized (getReplicatorLock()) { return suppressedNotifications; }
     }
 
     @NonNull
@@ -586,7 +707,9 @@ public abstract class AbstractReplicator extends BaseReplicator {
 
     @VisibleForTesting
     int getListenerCount() {
-        synchronized (getReplicatorLock()) { return changeListeners.size() + docEndedListeners.size(); }
+        synchronized (getReplicatorLock()) {
+            return changeListeners.size() + docEndedListeners.size() + docBatchListeners.size();
+        }
     }
 
     //---------------------------------------------
@@ -623,6 +746,49 @@ public abstract class AbstractReplicator extends BaseReplicator {
         }
     }
 
+    private void notifyDocumentEnded(
+        @NonNull List<DocumentReplicationListenerToken> tokens,
+        @NonNull DocumentReplication update) {
+        for (DocumentReplicationListenerToken token: tokens) { token.notify(update); }
+        Log.i(DOMAIN, "notifyDocumentEnded: %s", update);
+    }
+
+    // Activity level transitions and errors are always delivered immediately.
+    // A progress update is delivered immediately only if the notification interval has expired since the
+    // last notification.  Otherwise, a notification is scheduled for the end of the interval: it will deliver
+    // whatever the status is, at that time.
+    @GuardedBy("getReplicatorLock()")
+    private boolean shouldNotifyLocked(@NonNull C4ReplicatorStatus c4Status) {
+        final long intervalNs = TimeUnit.MILLISECONDS.toNanos(config.getProgressNotificationInterval());
+        final ReplicatorActivityLevel level = status.getActivityLevel();
+        final long now = System.nanoTime();
+        final long elapsedNs = now - lastNotificationNs;
+
+        if ((intervalNs <= 0)
+            || (level != lastNotifiedLevel)
+            || (c4Status.getErrorCode() != 0)
+            || (elapsedNs >= intervalNs)) {
+            if (pendingProgressNotification != null) {
+                pendingProgressNotification.cancel();
+                pendingProgressNotification = null;
+            }
+            lastNotifiedLevel = level;
+            lastNotificationNs = now;
+            return true;
+        }
+
+        suppressedNotifications++;
+
+        if (pendingProgressNotification == null) {
+            pendingProgressNotification = CouchbaseLiteInternal.getExecutionService().postDelayedOnExecutor(
+                TimeUnit.NANOSECONDS.toMillis(intervalNs - elapsedNs),
+                dispatcher,
+                this::notifyCoalescedProgress);
+        }
+
+        return false;
+    }
+
     @NonNull
     @GuardedBy("getReplicatorLock()")
     private C4ReplicatorStatus updateStatus(@NonNull C4ReplicatorStatus c4Status) {
@@ -646,20 +812,52 @@ public abstract class AbstractReplicator extends BaseReplicator {
     private void queueConflictResolution(@NonNull String docId, int flags) {
         Log.i(DOMAIN, "%s: pulled conflicting version of '%s'", this, docId);
 
-        final ExecutionService.CloseableExecutor executor
-            = CouchbaseLiteInternal.getExecutionService().getConcurrentExecutor();
-        final Database db = getDatabase();
-        final ConflictResolver resolver = config.getConflictResolver();
         final Fn.NullableConsumer<CouchbaseLiteException> task = new Fn.NullableConsumer<CouchbaseLiteException>() {
             public void accept(CouchbaseLiteException err) { onConflictResolved(this, docId, flags, err); }
         };
 
         synchronized (getReplicatorLock()) {
-            executor.execute(() -> db.resolveReplicationConflict(resolver, docId, task));
             pendingResolutions.add(task);
+            queuedConflicts.put(task, docId);
+            if (conflictResolutionScheduled) { return; }
+            conflictResolutionScheduled = true;
+            CouchbaseLiteInternal.getExecutionService().getConcurrentExecutor().execute(this::resolveQueuedConflicts);
         }
     }
 
+    // Resolve queued conflicts in batches.
+    // Conflicts that arrive while a batch is waiting for an executor thread join the batch.
+    private void resolveQueuedConflicts() {
+        final List<String> docIds = new ArrayList<>();
+        final List<Fn.NullableConsumer<CouchbaseLiteException>> tasks = new ArrayList<>();
+        synchronized (getReplicatorLock()) {
+            final Iterator<Map.Entry<Fn.NullableConsumer<CouchbaseLiteException>, String>> conflicts
+                = queuedConflicts.entrySet().iterator();
+            while (conflicts.hasNext() && (tasks.size() < MAX_CONFLICT_BATCH)) {
+                final Map.Entry<Fn.NullableConsumer<CouchbaseLiteException>, String> conflict = conflicts.next();
+                tasks.add(conflict.getKey());
+                docIds.add(conflict.getValue());
+                conflicts.remove();
+            }
+
+            if (queuedConflicts.isEmpty()) { conflictResolutionScheduled = false; }
+            else {
+                CouchbaseLiteInternal.getExecutionService().getConcurrentExecutor()
+                    .execute(this::resolveQueuedConflicts);
+            }
+        }
+
+        if (docIds.isEmpty()) { return; }
+
+        Log.i(DOMAIN, "%s: resolving %d conflicts", this, docIds.size());
+
+        getDatabase().resolveReplicationConflicts(
+            config.getConflictResolver(),
+            config.getBatchConflictResolver(),
+            docIds,
+            tasks);
+    }
+
     @Nullable
     private byte[] getFleeceOptions() {
         final Map<String, Object> options = config.getConnectionOptions();
@@ -678,16 +876,28 @@ public abstract class AbstractReplicator extends BaseReplicator {
 
     private void setupFilters() {
         synchronized (getReplicatorLock()) {
-            if (config.getPushFilter() != null) {
-                c4ReplPushFilter = (docID, revId, flags, dict, isPush, repl) ->
-                    repl.filterDocument(docID, revId, getDocumentFlags(flags), dict, isPush);
-            }
+            c4ReplPushFilter = makeC4Filter(config.getPushFilter());
+            c4ReplPullFilter = makeC4Filter(config.getPullFilter());
+        }
+    }
 
-            if (config.getPullFilter() != null) {
-                c4ReplPullFilter = (docID, revId, flags, dict, isPush, repl) ->
-                    repl.filterDocument(docID, revId, getDocumentFlags(flags), dict, isPush);
-            }
+    @Nullable
+    private C4ReplicationFilter makeC4Filter(@Nullable ReplicationFilter filter) {
+        if (filter == null) { return null; }
+
+        // An expression filter reads the revision body directly: no Document, no client task.
+        if (filter instanceof ExpressionReplicationFilter) {
+            final ExpressionReplicationFilter exprFilter = (ExpressionReplicationFilter) filter;
+            return (C4ReplicationFilter.Inline) (docID, revId, flags, dict, isPush, repl) ->
+                exprFilter.matches(
+                    docID,
+                    revId,
+                    (flags & C4Constants.RevisionFlags.DELETED) == C4Constants.RevisionFlags.DELETED,
+                    (dict == 0L) ? null : new FLDict(dict));
         }
+
+        return (docID, revId, flags, dict, isPush, repl) ->
+            repl.filterDocument(docID, revId, getDocumentFlags(flags), dict, isPush);
     }
 
     private int makeMode(boolean active, boolean continuous) {
@@ -716,7 +926,15 @@ public abstract class AbstractReplicator extends BaseReplicator {
         long dict,
         boolean isPush) {
         final ReplicationFilter filter = (isPush) ? config.getPushFilter() : config.getPullFilter();
-        return (filter != null) && filter.filtered(new Document(getDatabase(), docId, revId, new FLDict(dict)), flags);
+        if (filter == null) { return false; }
+
+        // A view filter doesn't need the whole Document.
+        if (filter instanceof ReplicationViewFilter) {
+            return ((ReplicationViewFilter) filter)
+                .filtered(new DocumentView(getDatabase(), docId, revId, new FLDict(dict)), flags);
+        }
+
+        return filter.filtered(new Document(getDatabase(), docId, revId, new FLDict(dict)), flags);
     }
 
     @GuardedBy("getReplicatorLock()")
@@ -726,7 +944,7 @@ public abstract class AbstractReplicator extends BaseReplicator {
 
         try {
             c4Repl.setProgressLevel(
-                docEndedListeners.isEmpty()
+                (docEndedListeners.isEmpty() && docBatchListeners.isEmpty())
                     ? C4Replicator.PROGRESS_OVERALL
                     : C4Replicator.PROGRESS_PER_DOC);
         }
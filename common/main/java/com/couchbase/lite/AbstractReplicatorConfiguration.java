@@ -95,6 +95,16 @@ public abstract class AbstractReplicatorConfiguration {
     private int maxAttemptWaitTime;
     private int heartbeat;
     private boolean enableAutoPurge = true;
+    private long progressNotificationInterval;
+    @Nullable
+    private BatchConflictResolver batchConflictResolver;
+    private long writeQueueHighWaterMark;
+    private boolean nioTransportEnabled;
+    private boolean messageCompressionEnabled = true;
+    private long messageCompressionThreshold;
+    private int messageCompressionLevel;
+    private int maxConnectionsPerHost;
+    private int tlsSessionCacheSize;
     @NonNull
     private final Endpoint target;
 
@@ -125,6 +135,15 @@ public abstract class AbstractReplicatorConfiguration {
             config.heartbeat,
             config.enableAutoPurge,
             config.target);
+        this.progressNotificationInterval = config.progressNotificationInterval;
+        this.batchConflictResolver = config.batchConflictResolver;
+        this.writeQueueHighWaterMark = config.writeQueueHighWaterMark;
+        this.nioTransportEnabled = config.nioTransportEnabled;
+        this.messageCompressionEnabled = config.messageCompressionEnabled;
+        this.messageCompressionThreshold = config.messageCompressionThreshold;
+        this.messageCompressionLevel = config.messageCompressionLevel;
+        this.maxConnectionsPerHost = config.maxConnectionsPerHost;
+        this.tlsSessionCacheSize = config.tlsSessionCacheSize;
     }
 
     protected AbstractReplicatorConfiguration(@NonNull BaseImmutableReplicatorConfiguration config) {
@@ -145,6 +164,15 @@ public abstract class AbstractReplicatorConfiguration {
             config.getHeartbeat(),
             config.isAutoPurgeEnabled(),
             config.getTarget());
+        this.progressNotificationInterval = config.getProgressNotificationInterval();
+        this.batchConflictResolver = config.getBatchConflictResolver();
+        this.writeQueueHighWaterMark = config.getWriteQueueHighWaterMark();
+        this.nioTransportEnabled = config.isNioTransportEnabled();
+        this.messageCompressionEnabled = config.isMessageCompressionEnabled();
+        this.messageCompressionThreshold = config.getMessageCompressionThreshold();
+        this.messageCompressionLevel = config.getMessageCompressionLevel();
+        this.maxConnectionsPerHost = config.getMaxConnectionsPerHost();
+        this.tlsSessionCacheSize = config.getTlsSessionCacheSize();
     }
 
     @SuppressWarnings({"PMD.ExcessiveParameterList", "PMD.ArrayIsStoredDirectly"})
@@ -228,6 +256,20 @@ public abstract class AbstractReplicatorConfiguration {
         return getReplicatorConfiguration();
     }
 
+    /**
+     * Sets the batch conflict resolver.
+     * If set, the batch conflict resolver is used instead of the conflict resolver.
+     *
+     * @param batchConflictResolver A batch conflict resolver.
+     * @return this.
+     */
+    @NonNull
+    public final ReplicatorConfiguration setBatchConflictResolver(
+        @Nullable BatchConflictResolver batchConflictResolver) {
+        this.batchConflictResolver = batchConflictResolver;
+        return getReplicatorConfiguration();
+    }
+
     /**
      * Sets whether the replicator stays active indefinitely to replicate
      * changed documents. The default value is false, which means that the
@@ -413,6 +455,132 @@ public abstract class AbstractReplicatorConfiguration {
         return getReplicatorConfiguration();
     }
 
+    /**
+     * Set the minimum interval, in milliseconds, between progress notifications.
+     * Status changes that only report progress and that arrive within this interval
+     * of the previous notification are coalesced: listeners receive only the latest of them,
+     * when the interval expires.  Changes in activity level and errors are always delivered immediately.
+     * Set to 0, the default, to deliver every status change.
+     *
+     * @param interval minimum interval between progress notifications, in milliseconds
+     * @return this.
+     */
+    @NonNull
+    public final ReplicatorConfiguration setProgressNotificationInterval(long interval) {
+        this.progressNotificationInterval = Preconditions.assertNotNegative(interval, "progress notification interval");
+        return getReplicatorConfiguration();
+    }
+
+    /**
+     * Set the maximum number of bytes that may be queued for transmission to the remote,
+     * before the replicator stops sending more data.  On a slow network, this keeps the replicator
+     * from queuing data much faster than it can be sent.
+     * Set to 0, the default, to use the default value (1MB).
+     *
+     * @param highWaterMark maximum number of bytes queued for transmission
+     * @return this.
+     */
+    @NonNull
+    public final ReplicatorConfiguration setWriteQueueHighWaterMark(long highWaterMark) {
+        this.writeQueueHighWaterMark = Preconditions.assertNotNegative(highWaterMark, "write queue high water mark");
+        return getReplicatorConfiguration();
+    }
+
+    /**
+     * Use a WebSocket transport built on non-blocking I/O.  Its connections share a small,
+     * fixed, number of threads, instead of using a thread each.  This matters to applications
+     * that run many replicators at once.  The transport supports only "ws:" URLs:
+     * "wss:" connections always use the default transport.  The default is false.
+     *
+     * @param enabled true to use the non-blocking transport.
+     * @return this.
+     */
+    @NonNull
+    public final ReplicatorConfiguration setNioTransportEnabled(boolean enabled) {
+        this.nioTransportEnabled = enabled;
+        return getReplicatorConfiguration();
+    }
+
+    /**
+     * Compress the messages sent to the remote, using the WebSocket permessage-deflate extension,
+     * if the remote supports it.  Compression reduces the bandwidth used by the replicator,
+     * at the cost of some CPU.  The non-blocking transport (see setNioTransportEnabled) supports
+     * all of the compression settings.  The default transport supports compression only if the version of
+     * OkHttp in use is 4.5 or later, and does not support the compression level: it logs a warning
+     * about any setting that it cannot apply.
+     * The default is true.
+     *
+     * @param enabled true to compress messages sent to the remote.
+     * @return this.
+     */
+    @NonNull
+    public final ReplicatorConfiguration setMessageCompressionEnabled(boolean enabled) {
+        this.messageCompressionEnabled = enabled;
+        return getReplicatorConfiguration();
+    }
+
+    /**
+     * Set the size of the smallest message that will be compressed.
+     * Compressing very small messages costs CPU and saves almost nothing.
+     * Set to 0, the default, to use the default value (1KB).
+     *
+     * @param threshold the size, in bytes, of the smallest message that will be compressed
+     * @return this.
+     */
+    @NonNull
+    public final ReplicatorConfiguration setMessageCompressionThreshold(long threshold) {
+        this.messageCompressionThreshold = Preconditions.assertNotNegative(threshold, "compression threshold");
+        return getReplicatorConfiguration();
+    }
+
+    /**
+     * Set the deflate compression level, from 1 (fastest) to 9 (smallest output).
+     * Set to 0, the default, to use the default level (6).
+     *
+     * @param level the compression level
+     * @return this.
+     */
+    @NonNull
+    public final ReplicatorConfiguration setMessageCompressionLevel(int level) {
+        Preconditions.assertThat(
+            level,
+            "compression level must be between 0 and 9",
+            l -> (l != null) && (l >= 0) && (l <= 9));
+        this.messageCompressionLevel = level;
+        return getReplicatorConfiguration();
+    }
+
+    /**
+     * Set the maximum number of replicators, using the default transport, that may be connected
+     * to a single host at the same time.  Replicators that set the same limit share HTTP resources,
+     * so the limit applies to all of them together.  Connections beyond the limit wait
+     * until another connection to the host closes.
+     * Set to 0, the default, to use the default value (5).
+     *
+     * @param maxConnections the maximum number of simultaneous connections to a single host
+     * @return this.
+     */
+    @NonNull
+    public final ReplicatorConfiguration setMaxConnectionsPerHost(int maxConnections) {
+        this.maxConnectionsPerHost = Preconditions.assertNotNegative(maxConnections, "max connections per host");
+        return getReplicatorConfiguration();
+    }
+
+    /**
+     * Set the number of TLS sessions that are cached for reuse.  Replicators connecting to the same
+     * host, with the same TLS settings, share their sessions: after a network interruption,
+     * they can reconnect without a full TLS handshake.
+     * Set to 0, the default, to use the platform's default cache size.
+     *
+     * @param cacheSize the maximum number of cached TLS sessions
+     * @return this.
+     */
+    @NonNull
+    public final ReplicatorConfiguration setTlsSessionCacheSize(int cacheSize) {
+        this.tlsSessionCacheSize = Preconditions.assertNotNegative(cacheSize, "TLS session cache size");
+        return getReplicatorConfiguration();
+    }
+
     //---------------------------------------------
     // Getters
     //---------------------------------------------
@@ -437,6 +605,12 @@ public abstract class AbstractReplicatorConfiguration {
     @Nullable
     public final ConflictResolver getConflictResolver() { return conflictResolver; }
 
+    /**
+     * Return the batch conflict resolver.
+     */
+    @Nullable
+    public final BatchConflictResolver getBatchConflictResolver() { return batchConflictResolver; }
+
     /**
      * Return the continuous flag indicating whether the replicator should stay
      * active indefinitely to replicate changed documents.
@@ -554,6 +728,67 @@ public abstract class AbstractReplicatorConfiguration {
      */
     public final boolean isAutoPurgeEnabled() { return enableAutoPurge; }
 
+    /**
+     * Return the minimum interval, in milliseconds, between progress notifications.
+     *
+     * @return progress notification interval in milliseconds
+     */
+    public final long getProgressNotificationInterval() { return progressNotificationInterval; }
+
+    /**
+     * Return the maximum number of bytes that may be queued for transmission to the remote.
+     * 0 means that the default is used.
+     *
+     * @return the write queue high water mark, in bytes
+     */
+    public final long getWriteQueueHighWaterMark() { return writeQueueHighWaterMark; }
+
+    /**
+     * Return whether the replicator uses the non-blocking WebSocket transport for "ws:" connections.
+     *
+     * @return true if the non-blocking transport is enabled
+     */
+    public final boolean isNioTransportEnabled() { return nioTransportEnabled; }
+
+    /**
+     * Return whether messages sent to the remote are compressed.
+     *
+     * @return true if message compression is enabled
+     */
+    public final boolean isMessageCompressionEnabled() { return messageCompressionEnabled; }
+
+    /**
+     * Return the size of the smallest message that will be compressed.
+     * 0 means that the default is used.
+     *
+     * @return the compression threshold, in bytes
+     */
+    public final long getMessageCompressionThreshold() { return messageCompressionThreshold; }
+
+    /**
+     * Return the deflate compression level.
+     * 0 means that the default is used.
+     *
+     * @return the compression level
+     */
+    public final int getMessageCompressionLevel() { return messageCompressionLevel; }
+
+    /**
+     * Return the maximum number of replicators that may be connected to a single host at the same time.
+     * 0 means that the default is used.
+     *
+     * @return the maximum number of simultaneous connections to a single host
+     */
+    public final int getMaxConnectionsPerHost() { return maxConnectionsPerHost; }
+
+    /**
+     * Return the number of TLS sessions that are cached for reuse.
+     * 0 means that the platform default is used.
+     *
+     * @return the TLS session cache size
+     */
+    public final int getTlsSessionCacheSize() { return tlsSessionCacheSize; }
+
     @SuppressWarnings("PMD.NPathComplexity")
     @NonNull
     @Override
@@ -579,7 +814,7 @@ public abstract class AbstractReplicatorConfiguration {
         if (pinnedServerCertificate != null) { buf.append('^'); }
         buf.append(')');
 
-        if (conflictResolver != null) { buf.append('!'); }
+        if ((conflictResolver != null) || (batchConflictResolver != null)) { buf.append('!'); }
 
         return "ReplicatorConfig{" + database + buf + target + '}';
     }
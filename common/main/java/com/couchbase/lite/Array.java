@@ -15,6 +15,7 @@
 //
 package com.couchbase.lite;
 
+import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -25,6 +26,7 @@ import java.util.List;
 import java.util.Objects;
 
 import com.couchbase.lite.internal.DbContext;
+import com.couchbase.lite.internal.fleece.FLArray;
 import com.couchbase.lite.internal.fleece.FLEncodable;
 import com.couchbase.lite.internal.fleece.FLEncoder;
 import com.couchbase.lite.internal.fleece.JSONEncoder;
@@ -33,6 +35,7 @@ import com.couchbase.lite.internal.fleece.MCollection;
 import com.couchbase.lite.internal.fleece.MContext;
 import com.couchbase.lite.internal.fleece.MValue;
 import com.couchbase.lite.internal.utils.JSONUtils;
+import com.couchbase.lite.internal.utils.Preconditions;
 
 
 /**
@@ -229,6 +232,21 @@ public class Array implements ArrayInterface, FLEncodable, Iterable<Object> {
         }
     }
 
+    /**
+     * Gets value at the given index as a TypedArray.
+     * Returns null if the value doesn't exist, or its value is not a TypedArray.
+     *
+     * @param index the index. This value must not exceed the bounds of the array.
+     * @return the TypedArray value or null.
+     */
+    @Nullable
+    public TypedArray getTypedArray(int index) {
+        synchronized (lock) {
+            final Object obj = getMValue(internalArray, index).asNative(internalArray);
+            return !(obj instanceof TypedArray) ? null : (TypedArray) obj;
+        }
+    }
+
     /**
      * Gets value at the given index as a Date.
      * JSON does not directly support dates, so the actual property value must be a string, which is
@@ -275,6 +293,92 @@ public class Array implements ArrayInterface, FLEncodable, Iterable<Object> {
         }
     }
 
+    /**
+     * Gets the content of the array as an array of doubles.
+     * Each value is converted as it is by getDouble(int).
+     * Unless the array has been changed, the values are copied from the database in a single operation:
+     * this is much faster than calling getDouble(int) for each value, for large numeric arrays.
+     *
+     * @return the array of doubles.
+     */
+    @NonNull
+    public double[] toDoubleArray() {
+        synchronized (lock) {
+            final double[] values = new double[(int) internalArray.count()];
+            copyToLocked(values);
+            return values;
+        }
+    }
+
+    /**
+     * Gets the content of the array as an array of floats.
+     * Each value is converted as it is by getFloat(int).
+     *
+     * @return the array of floats.
+     * @see #toDoubleArray()
+     */
+    @NonNull
+    public float[] toFloatArray() {
+        synchronized (lock) {
+            final float[] values = new float[(int) internalArray.count()];
+            copyToLocked(values);
+            return values;
+        }
+    }
+
+    /**
+     * Gets the content of the array as an array of longs.
+     * Each value is converted as it is by getLong(int).
+     *
+     * @return the array of longs.
+     * @see #toDoubleArray()
+     */
+    @NonNull
+    public long[] toLongArray() {
+        synchronized (lock) {
+            final long[] values = new long[(int) internalArray.count()];
+            copyToLocked(values);
+            return values;
+        }
+    }
+
+    /**
+     * Copies the content of the array, as doubles, into the passed buffer.
+     * Reusing a buffer avoids allocating a new Java array for each read.
+     *
+     * @param buf the buffer into which to copy the values.
+     * @return the number of values copied: the lesser of the count of this array and the length of the buffer.
+     * @see #toDoubleArray()
+     */
+    public int getDoubles(@NonNull double[] buf) {
+        Preconditions.assertNotNull(buf, "buffer");
+        synchronized (lock) { return copyToLocked(buf); }
+    }
+
+    /**
+     * Copies the content of the array, as floats, into the passed buffer.
+     *
+     * @param buf the buffer into which to copy the values.
+     * @return the number of values copied: the lesser of the count of this array and the length of the buffer.
+     * @see #getDoubles(double[])
+     */
+    public int getFloats(@NonNull float[] buf) {
+        Preconditions.assertNotNull(buf, "buffer");
+        synchronized (lock) { return copyToLocked(buf); }
+    }
+
+    /**
+     * Copies the content of the array, as longs, into the passed buffer.
+     *
+     * @param buf the buffer into which to copy the values.
+     * @return the number of values copied: the lesser of the count of this array and the length of the buffer.
+     * @see #getDoubles(double[])
+     */
+    public int getLongs(@NonNull long[] buf) {
+        Preconditions.assertNotNull(buf, "buffer");
+        synchronized (lock) { return copyToLocked(buf); }
+    }
+
     /**
      * Gets content of the current object as an List. The values contained in the returned
      * List object are all JSON based values.
@@ -294,6 +398,18 @@ public class Array implements ArrayInterface, FLEncodable, Iterable<Object> {
         }
     }
 
+    /**
+     * Gets a read-only List view of this Array.
+     * Unlike toList(), which converts every value in the array, the view gets values only as they are
+     * requested: it is much cheaper when only a few of the values will be used.
+     * Nested Dictionaries and Arrays are, themselves, presented as views.
+     * If this array is mutable, changes to it are visible in the view.
+     *
+     * @return a List view of this array.
+     */
+    @NonNull
+    public List<Object> asListView() { return new ArrayListView(this); }
+
     @NonNull
     @Override
     public String toJSON() {
@@ -371,6 +487,43 @@ public class Array implements ArrayInterface, FLEncodable, Iterable<Object> {
         return new Object();
     }
 
+    // If the array has not been changed, its Fleece array holds all of its values.
+    @GuardedBy("lock")
+    @Nullable
+    private FLArray getUnchangedBaseArray() {
+        return (internalArray.isMutated()) ? null : internalArray.getBaseArray();
+    }
+
+    @GuardedBy("lock")
+    private int copyToLocked(@NonNull double[] dst) {
+        final FLArray base = getUnchangedBaseArray();
+        if (base != null) { return base.copyTo(dst); }
+
+        final int n = Math.min(dst.length, (int) internalArray.count());
+        for (int i = 0; i < n; i++) { dst[i] = CBLConverter.asDouble(internalArray.get(i), internalArray); }
+        return n;
+    }
+
+    @GuardedBy("lock")
+    private int copyToLocked(@NonNull float[] dst) {
+        final FLArray base = getUnchangedBaseArray();
+        if (base != null) { return base.copyTo(dst); }
+
+        final int n = Math.min(dst.length, (int) internalArray.count());
+        for (int i = 0; i < n; i++) { dst[i] = CBLConverter.asFloat(internalArray.get(i), internalArray); }
+        return n;
+    }
+
+    @GuardedBy("lock")
+    private int copyToLocked(@NonNull long[] dst) {
+        final FLArray base = getUnchangedBaseArray();
+        if (base != null) { return base.copyTo(dst); }
+
+        final int n = Math.min(dst.length, (int) internalArray.count());
+        for (int i = 0; i < n; i++) { dst[i] = CBLConverter.asLong(internalArray.get(i), internalArray); }
+        return n;
+    }
+
     @NonNull
     private MValue getMValue(@NonNull MArray array, int index) {
         final MValue value = array.get(index);
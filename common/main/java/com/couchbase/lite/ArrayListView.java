@@ -0,0 +1,72 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+import com.couchbase.lite.internal.utils.Preconditions;
+
+
+/**
+ * A read-only List view of an Array or a Result.
+ * <p>
+ * The list counterpart of DictionaryMapView: values are got from the source only as they are requested
+ * and values from an immutable source are memoized.
+ */
+final class ArrayListView extends AbstractList<Object> implements RandomAccess {
+    // A memoized null value
+    private static final Object NULL = new Object();
+
+    @NonNull
+    private final ArrayInterface source;
+
+    // Null if the source is mutable
+    @GuardedBy("this")
+    @Nullable
+    private final Object[] memo;
+
+    ArrayListView(@NonNull ArrayInterface source) {
+        this.source = Preconditions.assertNotNull(source, "source");
+        this.memo = (source instanceof MutableArrayInterface) ? null : new Object[source.count()];
+    }
+
+    @Override
+    public int size() { return (memo != null) ? memo.length : source.count(); }
+
+    @Nullable
+    @Override
+    public Object get(int index) {
+        if (memo == null) { return DictionaryMapView.toView(source.getValue(index)); }
+
+        if ((index < 0) || (index >= memo.length)) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of range");
+        }
+
+        synchronized (this) {
+            Object value = memo[index];
+            if (value == null) {
+                value = DictionaryMapView.toView(source.getValue(index));
+                memo[index] = (value == null) ? NULL : value;
+            }
+            return (value == NULL) ? null : value;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+
+/**
+ * Conflict resolution strategies that can resolve several conflicts at once implement this interface.
+ * When a replicator is configured with a batch resolver, it groups the conflicts it detects:
+ * the conflicting revisions for each group are read together and the resolutions are saved
+ * in a single transaction.
+ */
+@FunctionalInterface
+public interface BatchConflictResolver {
+    /**
+     * Callback: called when there are conflicting changes in the local
+     * and remote versions of some documents during replication.
+     *
+     * @param conflicts Descriptions of the conflicting documents.
+     * @return the resolved docs: one for each conflict, in the same order.  A null entry resolves a conflict
+     * by deleting the document.
+     */
+    @NonNull
+    List<Document> resolve(@NonNull List<Conflict> conflicts);
+}
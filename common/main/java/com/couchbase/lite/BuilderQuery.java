@@ -75,6 +75,10 @@ abstract class BuilderQuery extends AbstractQuery {
     @Override
     protected final AbstractDatabase getDatabase() { return (AbstractDatabase) from.getSource(); }
 
+    @Nullable
+    @Override
+    protected final String getQueryText() { return marshalAsJSONSafely(); }
+
     @GuardedBy("lock")
     @NonNull
     @Override
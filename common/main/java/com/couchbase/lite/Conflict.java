@@ -26,10 +26,16 @@ public class Conflict {
     private final Document localDoc;
     @Nullable
     private final Document remoteDoc;
+    @Nullable
+    private final DocumentView localView;
+    @Nullable
+    private final DocumentView remoteView;
 
     Conflict(@Nullable Document localDoc, @Nullable Document remoteDoc) {
         this.localDoc = localDoc;
         this.remoteDoc = remoteDoc;
+        this.localView = (localDoc == null) ? null : new DocumentView(localDoc);
+        this.remoteView = (remoteDoc == null) ? null : new DocumentView(remoteDoc);
     }
 
     /**
@@ -57,4 +63,22 @@ public class Conflict {
      */
     @Nullable
     public Document getRemoteDocument() { return remoteDoc; }
+
+    /**
+     * A read-only view of the local instance of the document.
+     * A resolver that only needs to read a few properties in order to choose
+     * between the local and remote documents can read them from the views.
+     *
+     * @return a view of the local version of the document
+     */
+    @Nullable
+    public DocumentView getLocalView() { return localView; }
+
+    /**
+     * A read-only view of the remote instance of the document.
+     *
+     * @return a view of the remote version of the document
+     */
+    @Nullable
+    public DocumentView getRemoteView() { return remoteView; }
 }
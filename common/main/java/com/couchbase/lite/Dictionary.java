@@ -225,6 +225,22 @@ public class Dictionary implements DictionaryInterface, FLEncodable, Iterable<St
         }
     }
 
+    /**
+     * Gets a property's value as a TypedArray.
+     * Returns null if the value doesn't exist, or its value is not a TypedArray.
+     *
+     * @param key the key
+     * @return the TypedArray value or null.
+     */
+    @Nullable
+    public TypedArray getTypedArray(@NonNull String key) {
+        Preconditions.assertNotNull(key, "key");
+        synchronized (lock) {
+            final Object obj = internalDict.get(key).asNative(internalDict);
+            return obj instanceof TypedArray ? (TypedArray) obj : null;
+        }
+    }
+
     /**
      * Gets a property's value as a Date.
      * JSON does not directly support dates, so the actual property value must be a string, which is
@@ -294,6 +310,18 @@ public class Dictionary implements DictionaryInterface, FLEncodable, Iterable<St
         return result;
     }
 
+    /**
+     * Gets a read-only Map view of this Dictionary.
+     * Unlike toMap(), which converts every value in the dictionary, the view gets values only as they are
+     * requested: it is much cheaper when only a few of the values will be used.
+     * Nested Dictionaries and Arrays are, themselves, presented as views.
+     * If this dictionary is mutable, changes to it are visible in the view.
+     *
+     * @return a Map view of this dictionary.
+     */
+    @NonNull
+    public Map<String, Object> asMapView() { return new DictionaryMapView(this, this::getKeys); }
+
     @NonNull
     @Override
     public String toJSON() {
@@ -322,6 +350,113 @@ public class Dictionary implements DictionaryInterface, FLEncodable, Iterable<St
         synchronized (lock) { return !internalDict.get(key).isEmpty(); }
     }
 
+    //////// PropertyKey getters: these are the same as the String getters, but faster when reused.
+
+    /**
+     * Tests whether a property exists or not.
+     *
+     * @param key the property key
+     * @return the boolean value representing whether a property exists or not.
+     */
+    public boolean contains(@NonNull PropertyKey key) {
+        Preconditions.assertNotNull(key, "key");
+        synchronized (lock) { return internalDict.contains(key.getFLKey()); }
+    }
+
+    /**
+     * Gets a property's value as an object.
+     *
+     * @param key the property key
+     * @return the object value or null.
+     */
+    @Nullable
+    public Object getValue(@NonNull PropertyKey key) {
+        Preconditions.assertNotNull(key, "key");
+        synchronized (lock) { return internalDict.get(key.getFLKey()).asNative(internalDict); }
+    }
+
+    /**
+     * Gets a property's value as a String. Returns null if the value doesn't exist, or its value is not a String.
+     *
+     * @param key the property key
+     * @return the String or null.
+     */
+    @Nullable
+    public String getString(@NonNull PropertyKey key) {
+        final Object obj = getValue(key);
+        return obj instanceof String ? (String) obj : null;
+    }
+
+    /**
+     * Gets a property's value as a Number. Returns null if the value doesn't exist, or its value is not a Number.
+     *
+     * @param key the property key
+     * @return the Number or nil.
+     */
+    @Nullable
+    public Number getNumber(@NonNull PropertyKey key) { return CBLConverter.asNumber(getValue(key)); }
+
+    /**
+     * Gets a property's value as an int.
+     * Floating point values will be rounded. The value `true` is returned as 1, `false` as 0.
+     * Returns 0 if the value doesn't exist or does not have a numeric value.
+     *
+     * @param key the property key
+     * @return the int value.
+     */
+    public int getInt(@NonNull PropertyKey key) {
+        Preconditions.assertNotNull(key, "key");
+        synchronized (lock) { return CBLConverter.asInteger(internalDict.get(key.getFLKey()), internalDict); }
+    }
+
+    /**
+     * Gets a property's value as an long.
+     * Floating point values will be rounded. The value `true` is returned as 1, `false` as 0.
+     * Returns 0 if the value doesn't exist or does not have a numeric value.
+     *
+     * @param key the property key
+     * @return the long value.
+     */
+    public long getLong(@NonNull PropertyKey key) {
+        Preconditions.assertNotNull(key, "key");
+        synchronized (lock) { return CBLConverter.asLong(internalDict.get(key.getFLKey()), internalDict); }
+    }
+
+    /**
+     * Gets a property's value as an float.
+     * Integers will be converted to float. The value `true` is returned as 1.0, `false` as 0.0.
+     * Returns 0.0 if the value doesn't exist or does not have a numeric value.
+     *
+     * @param key the property key
+     * @return the float value.
+     */
+    public float getFloat(@NonNull PropertyKey key) {
+        Preconditions.assertNotNull(key, "key");
+        synchronized (lock) { return CBLConverter.asFloat(internalDict.get(key.getFLKey()), internalDict); }
+    }
+
+    /**
+     * Gets a property's value as an double.
+     * Integers will be converted to double. The value `true` is returned as 1.0, `false` as 0.0.
+     * Returns 0.0 if the property doesn't exist or does not have a numeric value.
+     *
+     * @param key the property key
+     * @return the double value.
+     */
+    public double getDouble(@NonNull PropertyKey key) {
+        Preconditions.assertNotNull(key, "key");
+        synchronized (lock) { return CBLConverter.asDouble(internalDict.get(key.getFLKey()), internalDict); }
+    }
+
+    /**
+     * Gets a property's value as a boolean. Returns true if the value exists, and is either `true`
+     * or a nonzero number.
+     *
+     * @param key the property key
+     * @return the boolean value.
+     */
+    public boolean getBoolean(@NonNull PropertyKey key) { return CBLConverter.asBoolean(getValue(key)); }
+
     //////// Implementation of FLEncodable
 
     /**
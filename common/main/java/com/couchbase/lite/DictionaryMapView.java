@@ -0,0 +1,181 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.couchbase.lite.internal.utils.Fn;
+import com.couchbase.lite.internal.utils.Preconditions;
+
+
+/**
+ * A read-only Map view of a Dictionary, a Document or a Result.
+ * <p>
+ * Unlike toMap(), which converts every value in the collection, a view gets values from its source
+ * only as they are requested.  Nested Dictionaries and Arrays are, themselves, presented as views.
+ * Values from an immutable source are memoized.  A view of a mutable source reads through to it,
+ * so changes to the source are visible in the view.
+ */
+final class DictionaryMapView extends AbstractMap<String, Object> {
+    private final class Entry implements Map.Entry<String, Object> {
+        @NonNull
+        private final String key;
+
+        Entry(@NonNull String key) { this.key = key; }
+
+        @NonNull
+        @Override
+        public String getKey() { return key; }
+
+        @Nullable
+        @Override
+        public Object getValue() { return get(key); }
+
+        @Override
+        public Object setValue(Object value) { throw new UnsupportedOperationException("Map view is read-only"); }
+
+        // As specified by Map.Entry
+        @Override
+        public int hashCode() {
+            final Object value = getValue();
+            return key.hashCode() ^ ((value == null) ? 0 : value.hashCode());
+        }
+
+        // As specified by Map.Entry
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) { return false; }
+            final Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+            final Object value = getValue();
+            return key.equals(other.getKey())
+                && ((value == null) ? (other.getValue() == null) : value.equals(other.getValue()));
+        }
+
+        @NonNull
+        @Override
+        public String toString() { return key + "=" + getValue(); }
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<String, Object>> {
+        @Override
+        public int size() { return DictionaryMapView.this.size(); }
+
+        @NonNull
+        @Override
+        public Iterator<Map.Entry<String, Object>> iterator() {
+            final Iterator<String> keys = getKeys().iterator();
+            return new Iterator<Map.Entry<String, Object>>() {
+                @Override
+                public boolean hasNext() { return keys.hasNext(); }
+
+                @Override
+                public Map.Entry<String, Object> next() { return new Entry(keys.next()); }
+            };
+        }
+    }
+
+    // Present nested collections as views
+    @Nullable
+    static Object toView(@Nullable Object value) {
+        if (value instanceof Dictionary) { return ((Dictionary) value).asMapView(); }
+        if (value instanceof Array) { return ((Array) value).asListView(); }
+        return value;
+    }
+
+
+    @NonNull
+    private final DictionaryInterface source;
+    @NonNull
+    private final Fn.Provider<List<String>> keyProvider;
+
+    // Null if the source is mutable
+    @GuardedBy("memo")
+    @Nullable
+    private final Map<String, Object> memo;
+    @GuardedBy("memo")
+    @Nullable
+    private List<String> keys;
+
+    DictionaryMapView(@NonNull DictionaryInterface source, @NonNull Fn.Provider<List<String>> keyProvider) {
+        this.source = Preconditions.assertNotNull(source, "source");
+        this.keyProvider = Preconditions.assertNotNull(keyProvider, "key provider");
+        this.memo = (source instanceof MutableDictionaryInterface) ? null : new HashMap<>();
+    }
+
+    @Override
+    public int size() { return getKeys().size(); }
+
+    @Override
+    public boolean containsKey(@Nullable Object key) {
+        return (key instanceof String) && source.contains((String) key);
+    }
+
+    @Nullable
+    @Override
+    public Object get(@Nullable Object key) {
+        if (!(key instanceof String)) { return null; }
+        final String k = (String) key;
+
+        if (memo == null) { return toView(source.getValue(k)); }
+
+        synchronized (memo) {
+            if (memo.containsKey(k)) { return memo.get(k); }
+            final Object value = toView(source.getValue(k));
+            memo.put(k, value);
+            return value;
+        }
+    }
+
+    @NonNull
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+            @Override
+            public int size() { return DictionaryMapView.this.size(); }
+
+            @Override
+            public boolean contains(@Nullable Object key) { return containsKey(key); }
+
+            @NonNull
+            @Override
+            public Iterator<String> iterator() { return getKeys().iterator(); }
+        };
+    }
+
+    @NonNull
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() { return new EntrySet(); }
+
+    @NonNull
+    private List<String> getKeys() {
+        if (memo == null) { return Preconditions.assertNotNull(keyProvider.get(), "keys"); }
+
+        synchronized (memo) {
+            if (keys == null) { keys = Preconditions.assertNotNull(keyProvider.get(), "keys"); }
+            return keys;
+        }
+    }
+}
@@ -110,8 +110,6 @@ public class Document implements DictionaryInterface, Iterable<String> {
     private Database database;
 
 
-    @SuppressFBWarnings("URF_UNREAD_FIELD")
-    @SuppressWarnings({"PMD.UnusedPrivateField", "PMD.SingularField", "FieldCanBeLocal"})
     @GuardedBy("lock")
     @Nullable
     private FLDict data;
@@ -326,6 +324,16 @@ public class Document implements DictionaryInterface, Iterable<String> {
     @Override
     public Blob getBlob(@NonNull String key) { return getContent().getBlob(key); }
 
+    /**
+     * Gets a property's value as a TypedArray.
+     * Returns null if the value doesn't exist, or its value is not a TypedArray.
+     *
+     * @param key the key
+     * @return the TypedArray value or null.
+     */
+    @Nullable
+    public TypedArray getTypedArray(@NonNull String key) { return getContent().getTypedArray(key); }
+
     /**
      * Gets a property's value as a Date.
      * JSON does not directly support dates, so the actual property value must be a string, which is
@@ -373,6 +381,20 @@ public class Document implements DictionaryInterface, Iterable<String> {
     @Override
     public Map<String, Object> toMap() { return getContent().toMap(); }
 
+    /**
+     * Gets a read-only Map view of the document's properties.
+     * Unlike toMap(), which converts every property, the view gets values only as they are requested:
+     * it is much cheaper when only a few of the properties will be used.
+     *
+     * @return a Map view of the document's properties.
+     * @see Dictionary#asMapView()
+     */
+    @NonNull
+    public Map<String, Object> asMapView() {
+        // A view of the document, not of its current content: saving a MutableDocument replaces its content.
+        return new DictionaryMapView(this, this::getKeys);
+    }
+
     @Nullable
     @Override
     public String toJSON() {
@@ -400,6 +422,94 @@ public class Document implements DictionaryInterface, Iterable<String> {
     @Override
     public boolean contains(@NonNull String key) { return getContent().contains(key); }
 
+    //---------------------------------------------
+    // PropertyKey getters
+    //---------------------------------------------
+
+    /**
+     * Tests whether a property exists or not.
+     * Same as the String version, but faster when the key is reused.
+     *
+     * @param key the property key
+     * @return the boolean value representing whether a property exists or not.
+     */
+    public boolean contains(@NonNull PropertyKey key) { return getContent().contains(key); }
+
+    /**
+     * Gets a property's value as an object.
+     * Same as the String version, but faster when the key is reused.
+     *
+     * @param key the property key
+     * @return the object value or null.
+     */
+    @Nullable
+    public Object getValue(@NonNull PropertyKey key) { return getContent().getValue(key); }
+
+    /**
+     * Gets a property's value as a String.
+     * Same as the String version, but faster when the key is reused.
+     *
+     * @param key the property key
+     * @return the String or null.
+     */
+    @Nullable
+    public String getString(@NonNull PropertyKey key) { return getContent().getString(key); }
+
+    /**
+     * Gets a property's value as a Number.
+     * Same as the String version, but faster when the key is reused.
+     *
+     * @param key the property key
+     * @return the Number or nil.
+     */
+    @Nullable
+    public Number getNumber(@NonNull PropertyKey key) { return getContent().getNumber(key); }
+
+    /**
+     * Gets a property's value as an int.
+     * Same as the String version, but faster when the key is reused.
+     *
+     * @param key the property key
+     * @return the int value.
+     */
+    public int getInt(@NonNull PropertyKey key) { return getContent().getInt(key); }
+
+    /**
+     * Gets a property's value as an long.
+     * Same as the String version, but faster when the key is reused.
+     *
+     * @param key the property key
+     * @return the long value.
+     */
+    public long getLong(@NonNull PropertyKey key) { return getContent().getLong(key); }
+
+    /**
+     * Gets a property's value as an float.
+     * Same as the String version, but faster when the key is reused.
+     *
+     * @param key the property key
+     * @return the float value.
+     */
+    public float getFloat(@NonNull PropertyKey key) { return getContent().getFloat(key); }
+
+    /**
+     * Gets a property's value as an double.
+     * Same as the String version, but faster when the key is reused.
+     *
+     * @param key the property key
+     * @return the double value.
+     */
+    public double getDouble(@NonNull PropertyKey key) { return getContent().getDouble(key); }
+
+    /**
+     * Gets a property's value as a boolean.
+     * Same as the String version, but faster when the key is reused.
+     *
+     * @param key the property key
+     * @return the boolean value.
+     */
+    public boolean getBoolean(@NonNull PropertyKey key) { return getContent().getBoolean(key); }
+
     //---------------------------------------------
     // Iterator implementation
     //---------------------------------------------
@@ -520,6 +630,12 @@ public class Document implements DictionaryInterface, Iterable<String> {
         synchronized (lock) { this.database = database; }
     }
 
+    // The Fleece body from which this document's content was created.
+    @Nullable
+    final FLDict getFLDict() {
+        synchronized (lock) { return data; }
+    }
+
     @Nullable
     final C4Document getC4doc() {
         synchronized (lock) { return c4Document; }
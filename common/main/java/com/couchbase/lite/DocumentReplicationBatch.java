@@ -0,0 +1,256 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.EnumSet;
+
+import com.couchbase.lite.internal.core.C4Constants;
+import com.couchbase.lite.internal.core.C4DocumentEnded;
+
+
+/**
+ * A batch of document replication events.
+ * <p>
+ * The events are stored in columns, indexed from 0 to {@link #getCount()} - 1.
+ * Per-document objects, in particular replication errors, are created only when requested.
+ */
+public final class DocumentReplicationBatch {
+
+    // Accumulates the columns for a batch.
+    static final class Builder {
+        private final int capacity;
+
+        private int count;
+        private String[] docIds;
+        private int[] flags;
+        private int[] errorDomains;
+        private int[] errorCodes;
+        private int[] errorInfos;
+        private boolean[] errorsTransient;
+        @Nullable
+        private CouchbaseLiteException[] errors;
+
+        Builder(int capacity) { this.capacity = capacity; }
+
+        boolean isEmpty() { return count <= 0; }
+
+        boolean isFull() { return count >= capacity; }
+
+        void add(@NonNull C4DocumentEnded docEnd) {
+            add(
+                docEnd.getDocID(),
+                docEnd.getFlags(),
+                docEnd.getErrorDomain(),
+                docEnd.getErrorCode(),
+                docEnd.getErrorInternalInfo(),
+                docEnd.errorIsTransient(),
+                null);
+        }
+
+        void add(@NonNull String docId, int docFlags, @Nullable CouchbaseLiteException err) {
+            add(docId, docFlags, 0, 0, 0, false, err);
+        }
+
+        @NonNull
+        DocumentReplicationBatch build(@NonNull Replicator replicator, boolean pushing) {
+            final DocumentReplicationBatch batch = new DocumentReplicationBatch(replicator, pushing, this);
+            count = 0;
+            docIds = null;
+            flags = null;
+            errorDomains = null;
+            errorCodes = null;
+            errorInfos = null;
+            errorsTransient = null;
+            errors = null;
+            return batch;
+        }
+
+        @SuppressWarnings("PMD.ExcessiveParameterList")
+        private void add(
+            @NonNull String docId,
+            int docFlags,
+            int errorDomain,
+            int errorCode,
+            int errorInfo,
+            boolean errorTransient,
+            @Nullable CouchbaseLiteException err) {
+            // the columns for a new batch are allocated lazily: a batch that is never used costs nothing.
+            if (docIds == null) {
+                docIds = new String[capacity];
+                flags = new int[capacity];
+                errorDomains = new int[capacity];
+                errorCodes = new int[capacity];
+                errorInfos = new int[capacity];
+                errorsTransient = new boolean[capacity];
+            }
+
+            docIds[count] = docId;
+            flags[count] = docFlags;
+            errorDomains[count] = errorDomain;
+            errorCodes[count] = errorCode;
+            errorInfos[count] = errorInfo;
+            errorsTransient[count] = errorTransient;
+
+            if (err != null) {
+                if (errors == null) { errors = new CouchbaseLiteException[capacity]; }
+                errors[count] = err;
+            }
+
+            count++;
+        }
+    }
+
+
+    //---------------------------------------------
+    // member variables
+    //---------------------------------------------
+    @NonNull
+    private final Replicator replicator;
+    private final boolean pushing;
+
+    private final int count;
+    @NonNull
+    private final String[] docIds;
+    @NonNull
+    private final int[] flags;
+    @NonNull
+    private final int[] errorDomains;
+    @NonNull
+    private final int[] errorCodes;
+    @NonNull
+    private final int[] errorInfos;
+    @NonNull
+    private final boolean[] errorsTransient;
+
+    // Created lazily.  Racing threads will, at worst, create equivalent exceptions.
+    @Nullable
+    private CouchbaseLiteException[] errors;
+
+    //---------------------------------------------
+    // Constructors
+    //---------------------------------------------
+    private DocumentReplicationBatch(@NonNull Replicator replicator, boolean pushing, @NonNull Builder builder) {
+        this.replicator = replicator;
+        this.pushing = pushing;
+        this.count = builder.count;
+        this.docIds = builder.docIds;
+        this.flags = builder.flags;
+        this.errorDomains = builder.errorDomains;
+        this.errorCodes = builder.errorCodes;
+        this.errorInfos = builder.errorInfos;
+        this.errorsTransient = builder.errorsTransient;
+        this.errors = builder.errors;
+    }
+
+    //---------------------------------------------
+    // API - public methods
+    //---------------------------------------------
+
+    /**
+     * Return the source replicator.
+     */
+    @NonNull
+    public Replicator getReplicator() { return replicator; }
+
+    /**
+     * The direction of replication for the documents in this batch.
+     */
+    public boolean isPush() { return pushing; }
+
+    /**
+     * The number of documents in this batch.
+     */
+    public int getCount() { return count; }
+
+    /**
+     * The id of the i-th document in this batch.
+     */
+    @NonNull
+    public String getDocumentId(int i) { return docIds[checkIndex(i)]; }
+
+    /**
+     * True if the i-th document in this batch was deleted.
+     */
+    public boolean isDeleted(int i) { return hasFlag(i, C4Constants.RevisionFlags.DELETED); }
+
+    /**
+     * True if access to the i-th document in this batch was removed.
+     */
+    public boolean isAccessRemoved(int i) { return hasFlag(i, C4Constants.RevisionFlags.PURGED); }
+
+    /**
+     * The status flags for the i-th document in this batch.
+     */
+    @NonNull
+    public EnumSet<DocumentFlag> getFlags(int i) {
+        final EnumSet<DocumentFlag> docFlags = EnumSet.noneOf(DocumentFlag.class);
+        if (isDeleted(i)) { docFlags.add(DocumentFlag.DELETED); }
+        if (isAccessRemoved(i)) { docFlags.add(DocumentFlag.ACCESS_REMOVED); }
+        return docFlags;
+    }
+
+    /**
+     * True if the replication of the i-th document in this batch failed.
+     */
+    public boolean hasError(int i) {
+        checkIndex(i);
+        return (errorCodes[i] != 0) || ((errors != null) && (errors[i] != null));
+    }
+
+    /**
+     * True if the replication of the i-th document in this batch failed with an error that is transient.
+     */
+    public boolean isErrorTransient(int i) { return errorsTransient[checkIndex(i)]; }
+
+    /**
+     * The replication error for the i-th document in this batch, if any.
+     * The exception is created on demand.
+     */
+    @Nullable
+    public CouchbaseLiteException getError(int i) {
+        if (!hasError(i)) { return null; }
+
+        CouchbaseLiteException[] errs = errors;
+        if (errs == null) {
+            errs = new CouchbaseLiteException[docIds.length];
+            errors = errs;
+        }
+
+        CouchbaseLiteException err = errs[i];
+        if (err == null) {
+            err = CouchbaseLiteException.toCouchbaseLiteException(errorDomains[i], errorCodes[i], errorInfos[i]);
+            errs[i] = err;
+        }
+
+        return err;
+    }
+
+    @Override
+    @NonNull
+    public String toString() {
+        return "DocumentReplicationBatch{repl=" + replicator + ", push=" + pushing + ", #docs=" + count + "}";
+    }
+
+    private boolean hasFlag(int i, int flag) { return (flags[checkIndex(i)] & flag) == flag; }
+
+    private int checkIndex(int i) {
+        if ((i < 0) || (i >= count)) { throw new IndexOutOfBoundsException("index " + i + " not in [0, " + count + ")"); }
+        return i;
+    }
+}
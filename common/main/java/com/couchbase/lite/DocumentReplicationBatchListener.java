@@ -0,0 +1,32 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import androidx.annotation.NonNull;
+
+
+/**
+ * The listener interface for receiving batches of Document replicated events.
+ */
+@FunctionalInterface
+public interface DocumentReplicationBatchListener {
+    /**
+     * The callback function from Replicator
+     *
+     * @param batch the information for a batch of replicated documents
+     */
+    void replicated(@NonNull DocumentReplicationBatch batch);
+}
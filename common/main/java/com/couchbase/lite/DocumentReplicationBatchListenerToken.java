@@ -0,0 +1,143 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.concurrent.Executor;
+
+import com.couchbase.lite.internal.CouchbaseLiteInternal;
+import com.couchbase.lite.internal.core.C4DocumentEnded;
+import com.couchbase.lite.internal.exec.ExecutionService;
+import com.couchbase.lite.internal.utils.Preconditions;
+
+
+/**
+ * Accumulates document replication events and delivers them to its listener
+ * either when a batch is full or when the flush interval expires, whichever happens first.
+ */
+final class DocumentReplicationBatchListenerToken implements ListenerToken {
+    @NonNull
+    private final Replicator replicator;
+    @NonNull
+    private final DocumentReplicationBatchListener listener;
+    @Nullable
+    private final Executor executor;
+    private final long flushIntervalMs;
+
+    @NonNull
+    private final Object lock = new Object();
+    @GuardedBy("lock")
+    @NonNull
+    private final DocumentReplicationBatch.Builder pushBatch;
+    @GuardedBy("lock")
+    @NonNull
+    private final DocumentReplicationBatch.Builder pullBatch;
+    @GuardedBy("lock")
+    @Nullable
+    private ExecutionService.Cancellable pendingFlush;
+
+    DocumentReplicationBatchListenerToken(
+        @NonNull Replicator replicator,
+        @Nullable Executor executor,
+        int maxBatchSize,
+        long flushIntervalMs,
+        @NonNull DocumentReplicationBatchListener listener) {
+        this.replicator = replicator;
+        this.executor = executor;
+        this.listener = Preconditions.assertNotNull(listener, "listener");
+        this.flushIntervalMs = Preconditions.assertPositive(flushIntervalMs, "flush interval");
+        Preconditions.assertPositive(maxBatchSize, "max batch size");
+        this.pushBatch = new DocumentReplicationBatch.Builder(maxBatchSize);
+        this.pullBatch = new DocumentReplicationBatch.Builder(maxBatchSize);
+    }
+
+    void add(boolean pushing, @NonNull C4DocumentEnded docEnd) {
+        DocumentReplicationBatch batch = null;
+        synchronized (lock) {
+            final DocumentReplicationBatch.Builder builder = getBuilderLocked(pushing);
+            builder.add(docEnd);
+            if (builder.isFull()) { batch = buildFullLocked(builder, pushing); }
+        }
+        deliver(batch);
+    }
+
+    void add(boolean pushing, @NonNull String docId, int flags, @Nullable CouchbaseLiteException err) {
+        DocumentReplicationBatch batch = null;
+        synchronized (lock) {
+            final DocumentReplicationBatch.Builder builder = getBuilderLocked(pushing);
+            builder.add(docId, flags, err);
+            if (builder.isFull()) { batch = buildFullLocked(builder, pushing); }
+        }
+        deliver(batch);
+    }
+
+    void flush() {
+        DocumentReplicationBatch push = null;
+        DocumentReplicationBatch pull = null;
+        synchronized (lock) {
+            if (pendingFlush != null) {
+                pendingFlush.cancel();
+                pendingFlush = null;
+            }
+            if (!pushBatch.isEmpty()) { push = pushBatch.build(replicator, true); }
+            if (!pullBatch.isEmpty()) { pull = pullBatch.build(replicator, false); }
+        }
+        deliver(push);
+        deliver(pull);
+    }
+
+    @VisibleForTesting
+    boolean isFlushPending() {
+        synchronized (lock) { return pendingFlush != null; }
+    }
+
+    // Schedule a flush when the first event arrives in an empty buffer.
+    @GuardedBy("lock")
+    @NonNull
+    private DocumentReplicationBatch.Builder getBuilderLocked(boolean pushing) {
+        if (pendingFlush == null) {
+            final ExecutionService exec = CouchbaseLiteInternal.getExecutionService();
+            pendingFlush = exec.postDelayedOnExecutor(flushIntervalMs, exec.getDefaultExecutor(), this::flush);
+        }
+        return (pushing) ? pushBatch : pullBatch;
+    }
+
+    // A full batch may leave both buffers empty: if so, there is nothing for the scheduled flush to do.
+    @GuardedBy("lock")
+    @NonNull
+    private DocumentReplicationBatch buildFullLocked(
+        @NonNull DocumentReplicationBatch.Builder builder,
+        boolean pushing) {
+        final DocumentReplicationBatch batch = builder.build(replicator, pushing);
+        if ((pendingFlush != null) && pushBatch.isEmpty() && pullBatch.isEmpty()) {
+            pendingFlush.cancel();
+            pendingFlush = null;
+        }
+        return batch;
+    }
+
+    private void deliver(@Nullable DocumentReplicationBatch batch) {
+        if (batch == null) { return; }
+        final Executor exec = (executor != null)
+            ? executor
+            : CouchbaseLiteInternal.getExecutionService().getDefaultExecutor();
+        exec.execute(() -> listener.replicated(batch));
+    }
+}
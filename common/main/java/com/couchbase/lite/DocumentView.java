@@ -0,0 +1,327 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.couchbase.lite.internal.fleece.FLConstants;
+import com.couchbase.lite.internal.fleece.FLDict;
+import com.couchbase.lite.internal.fleece.FLDictIterator;
+import com.couchbase.lite.internal.fleece.FLValue;
+import com.couchbase.lite.internal.utils.ClassUtils;
+import com.couchbase.lite.internal.utils.JSONUtils;
+import com.couchbase.lite.internal.utils.Preconditions;
+
+
+/**
+ * A lightweight, read-only view of a document revision.
+ * <p>
+ * A view reads properties directly from the revision's Fleece body, as they are requested.
+ * Each property is looked up only once: both the lookup and the converted scalar value are cached.
+ * Unlike a Document, a view does not build the tree of mutable Fleece values for the whole
+ * revision.  That tree is built, once, only if an Array, a Dictionary or a Blob is requested.
+ * <p>
+ * The getters follow the same conversion rules as those on Document.
+ * A view is valid only for the duration of the callback to which it was passed.
+ */
+public final class DocumentView implements DictionaryInterface, Iterable<String> {
+    @NonNull
+    private final Object lock = new Object();
+
+    @NonNull
+    private final String id;
+    @Nullable
+    private final String revId;
+
+    // The revision body.  Null if the revision is deleted.
+    @Nullable
+    private final FLDict body;
+
+    // Used to create the full Document, if necessary.
+    @Nullable
+    private final Database database;
+
+    // Key -> the Fleece value for the key, or null if the key is not in the body.
+    @GuardedBy("lock")
+    @NonNull
+    private final Map<String, FLValue> lookups = new HashMap<>();
+
+    // Key -> the converted scalar value for the key.
+    @GuardedBy("lock")
+    @NonNull
+    private final Map<String, Object> values = new HashMap<>();
+
+    @GuardedBy("lock")
+    @Nullable
+    private List<String> keys;
+
+    @GuardedBy("lock")
+    @Nullable
+    private Document document;
+
+    // Used by replication filters: the body is valid only during the call to the filter.
+    DocumentView(@NonNull Database database, @NonNull String id, @Nullable String revId, @Nullable FLDict body) {
+        this.database = Preconditions.assertNotNull(database, "database");
+        this.id = Preconditions.assertNotNull(id, "id");
+        this.revId = revId;
+        this.body = body;
+    }
+
+    // Used by conflict resolvers, and to adapt a Document to a view filter: the document owns the body.
+    // A MutableDocument may have changes that are not in its body.
+    DocumentView(@NonNull Document document) {
+        Preconditions.assertThat(document, "document must not be mutable", doc -> (doc != null) && !doc.isMutable());
+        this.database = document.getDatabase();
+        this.id = document.getId();
+        this.revId = document.getRevisionID();
+        this.body = document.getFLDict();
+        this.document = document;
+    }
+
+    //---------------------------------------------
+    // API - public methods
+    //---------------------------------------------
+
+    /**
+     * return the document's ID.
+     *
+     * @return the document's ID
+     */
+    @NonNull
+    public String getId() { return id; }
+
+    /**
+     * Get the revision id of the revision this view presents.
+     *
+     * @return the revision id
+     */
+    @Nullable
+    public String getRevisionID() { return revId; }
+
+    /**
+     * Get the full, read-only Document for this revision.
+     * The first call to this method creates the Document: views are cheaper.
+     *
+     * @return the Document
+     */
+    @NonNull
+    public Document toDocument() {
+        synchronized (lock) { return getDocumentLocked(); }
+    }
+
+    @Override
+    public int count() { return (body == null) ? 0 : (int) body.count(); }
+
+    @Override
+    public boolean contains(@NonNull String key) { return lookup(key) != null; }
+
+    @Override
+    public int getInt(@NonNull String key) {
+        final FLValue value = lookup(key);
+        return (value == null) ? 0 : (int) value.asInt();
+    }
+
+    @Override
+    public long getLong(@NonNull String key) {
+        final FLValue value = lookup(key);
+        return (value == null) ? 0L : value.asInt();
+    }
+
+    @Override
+    public float getFloat(@NonNull String key) {
+        final FLValue value = lookup(key);
+        return (value == null) ? 0.0F : value.asFloat();
+    }
+
+    @Override
+    public double getDouble(@NonNull String key) {
+        final FLValue value = lookup(key);
+        return (value == null) ? 0.0 : value.asDouble();
+    }
+
+    @Override
+    public boolean getBoolean(@NonNull String key) {
+        final FLValue value = lookup(key);
+        if (value == null) { return false; }
+        switch (value.getType()) {
+            case FLConstants.ValueType.ARRAY:
+            case FLConstants.ValueType.DICT:
+                // these are never null
+                return true;
+            default:
+                return CBLConverter.asBoolean(getValue(key));
+        }
+    }
+
+    @Nullable
+    @Override
+    public Number getNumber(@NonNull String key) { return CBLConverter.asNumber(getScalar(key)); }
+
+    @Nullable
+    @Override
+    public String getString(@NonNull String key) { return ClassUtils.castOrNull(String.class, getScalar(key)); }
+
+    @Nullable
+    @Override
+    public Date getDate(@NonNull String key) { return JSONUtils.toDate(getString(key)); }
+
+    @Nullable
+    @Override
+    public Blob getBlob(@NonNull String key) { return ClassUtils.castOrNull(Blob.class, getValue(key)); }
+
+    @Nullable
+    @Override
+    public Array getArray(@NonNull String key) {
+        return (!isType(key, FLConstants.ValueType.ARRAY)) ? null : toDocument().getArray(key);
+    }
+
+    @Nullable
+    @Override
+    public Dictionary getDictionary(@NonNull String key) {
+        return (!isType(key, FLConstants.ValueType.DICT)) ? null : toDocument().getDictionary(key);
+    }
+
+    /**
+     * Gets a property's value as an object.  Scalar values are read directly from the revision body.
+     * Array, Dictionary and Blob values are obtained from the full Document.
+     *
+     * @param key the key.
+     * @return the object value or null.
+     */
+    @Nullable
+    @Override
+    public Object getValue(@NonNull String key) {
+        final FLValue value = lookup(key);
+        if (value == null) { return null; }
+        switch (value.getType()) {
+            case FLConstants.ValueType.ARRAY:
+            case FLConstants.ValueType.DICT:
+                return toDocument().getValue(key);
+            default:
+                return getScalar(key);
+        }
+    }
+
+    @NonNull
+    @Override
+    public List<String> getKeys() {
+        synchronized (lock) {
+            if (keys == null) { keys = readKeysLocked(); }
+            return new ArrayList<>(keys);
+        }
+    }
+
+    @NonNull
+    @Override
+    public Map<String, Object> toMap() { return toDocument().toMap(); }
+
+    @Nullable
+    @Override
+    public String toJSON() { return (body == null) ? null : body.toFLValue().toJSON(); }
+
+    @NonNull
+    @Override
+    public Iterator<String> iterator() { return getKeys().iterator(); }
+
+    @NonNull
+    @Override
+    public String toString() { return "DocumentView{" + ClassUtils.objId(this) + id + "@" + revId + "}"; }
+
+    //---------------------------------------------
+    // Private methods
+    //---------------------------------------------
+
+    @Nullable
+    private FLValue lookup(@NonNull String key) {
+        Preconditions.assertNotNull(key, "key");
+        if (body == null) { return null; }
+        synchronized (lock) {
+            if (lookups.containsKey(key)) { return lookups.get(key); }
+            final FLValue value = body.get(key);
+            lookups.put(key, value);
+            return value;
+        }
+    }
+
+    private boolean isType(@NonNull String key, int type) {
+        final FLValue value = lookup(key);
+        return (value != null) && (value.getType() == type);
+    }
+
+    // Get the converted value of a scalar.  Returns null for Arrays and Dictionaries.
+    @Nullable
+    private Object getScalar(@NonNull String key) {
+        final FLValue value = lookup(key);
+        if (value == null) { return null; }
+
+        synchronized (lock) {
+            if (values.containsKey(key)) { return values.get(key); }
+
+            final Object obj;
+            switch (value.getType()) {
+                case FLConstants.ValueType.ARRAY:
+                case FLConstants.ValueType.DICT:
+                    obj = null;
+                    break;
+                case FLConstants.ValueType.DATA:
+                    obj = new Blob("application/octet-stream", value.asData());
+                    break;
+                default:
+                    obj = value.asObject();
+                    break;
+            }
+
+            values.put(key, obj);
+            return obj;
+        }
+    }
+
+    @GuardedBy("lock")
+    @NonNull
+    private List<String> readKeysLocked() {
+        if (body == null) { return Collections.emptyList(); }
+
+        final List<String> keyList = new ArrayList<>((int) body.count());
+        try (FLDictIterator itr = new FLDictIterator()) {
+            itr.begin(body);
+            String key;
+            while ((key = itr.getKeyString()) != null) {
+                keyList.add(key);
+                itr.next();
+            }
+        }
+        return keyList;
+    }
+
+    @GuardedBy("lock")
+    @NonNull
+    private Document getDocumentLocked() {
+        if (document == null) {
+            document = new Document(Preconditions.assertNotNull(database, "database"), id, revId, body);
+        }
+        return document;
+    }
+}
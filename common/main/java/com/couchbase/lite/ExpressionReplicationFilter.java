@@ -0,0 +1,619 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import com.couchbase.lite.internal.fleece.FLConstants;
+import com.couchbase.lite.internal.fleece.FLDict;
+import com.couchbase.lite.internal.fleece.FLValue;
+import com.couchbase.lite.internal.utils.Preconditions;
+
+
+/**
+ * A replication filter expressed as a query predicate.
+ * <p>
+ * The predicate is built with the same classes used to build queries: Expression, Meta and Function.
+ * It is compiled once, when the filter is created.  During replication it is evaluated directly against
+ * the Fleece body of each revision: the replicator does not create a Document for the revision and does
+ * not need to hand it off to a client thread.  A filter like
+ * <pre>
+ *     new ExpressionReplicationFilter(
+ *         Expression.property("type").equalTo(Expression.string("order"))
+ *             .and(Expression.property("region").in(Expression.string("us"), Expression.string("eu"))));
+ * </pre>
+ * <p>
+ * Only a subset of the query language is supported: document properties (not array elements),
+ * Meta.id, Meta.revisionID and Meta.deleted, literals, comparisons, IN, BETWEEN, LIKE, IS, IS VALUED,
+ * AND, OR, NOT, arithmetic, and the functions LOWER, UPPER and LENGTH.  The constructor throws
+ * an IllegalArgumentException if the predicate uses anything else.
+ * A revision passes the filter only if the predicate is true: null and missing values are not.
+ */
+public final class ExpressionReplicationFilter implements ReplicationFilter {
+    // The value of a property that does not exist
+    private static final Object MISSING = new Object();
+
+    private static final String META_ID = "_id";
+    private static final String META_REVISION_ID = "_revisionID";
+    private static final String META_DELETED = "_deleted";
+
+    // The things a predicate can look at
+    private interface Source {
+        // Returns MISSING if there is no such property
+        @Nullable
+        Object getProperty(@NonNull String[] path);
+
+        @Nullable
+        String getId();
+
+        @Nullable
+        String getRevisionId();
+
+        boolean isDeleted();
+    }
+
+    private interface Node {
+        // Returns a String, Number, Boolean, List, null or MISSING
+        @Nullable
+        Object eval(@NonNull Source src);
+    }
+
+    private interface BinaryOp {
+        @Nullable
+        Object apply(@NonNull Object lhs, @NonNull Object rhs);
+    }
+
+    private interface StringFunction {
+        @NonNull
+        Object apply(@NonNull String s);
+    }
+
+    private interface Comparison {
+        boolean test(int c);
+    }
+
+    // A revision being replicated: reads its Fleece body directly.
+    private static final class FleeceSource implements Source {
+        @Nullable
+        private final String docId;
+        @Nullable
+        private final String revId;
+        private final boolean deleted;
+        @Nullable
+        private final FLDict body;
+
+        FleeceSource(@Nullable String docId, @Nullable String revId, boolean deleted, @Nullable FLDict body) {
+            this.docId = docId;
+            this.revId = revId;
+            this.deleted = deleted;
+            this.body = body;
+        }
+
+        @Nullable
+        @Override
+        public Object getProperty(@NonNull String[] path) {
+            if (body == null) { return MISSING; }
+
+            FLValue val = body.get(path[0]);
+            for (int i = 1; i < path.length; i++) {
+                if ((val == null) || (val.getType() != FLConstants.ValueType.DICT)) { return MISSING; }
+                val = val.asFLDict().get(path[i]);
+            }
+            if (val == null) { return MISSING; }
+
+            switch (val.getType()) {
+                case FLConstants.ValueType.NULL:
+                    return null;
+                case FLConstants.ValueType.BOOLEAN:
+                    return val.asBool();
+                case FLConstants.ValueType.NUMBER:
+                    return (val.isInteger()) ? (Object) val.asInt() : (Object) val.asDouble();
+                case FLConstants.ValueType.STRING:
+                    return val.asString();
+                default:
+                    return val.asObject();
+            }
+        }
+
+        @Nullable
+        @Override
+        public String getId() { return docId; }
+
+        @Nullable
+        @Override
+        public String getRevisionId() { return revId; }
+
+        @Override
+        public boolean isDeleted() { return deleted; }
+    }
+
+    // A document that was passed to the filter by client code.
+    private static final class DocumentSource implements Source {
+        @NonNull
+        private final Document doc;
+        private final boolean deleted;
+
+        DocumentSource(@NonNull Document doc, boolean deleted) {
+            this.doc = doc;
+            this.deleted = deleted;
+        }
+
+        @Nullable
+        @Override
+        public Object getProperty(@NonNull String[] path) {
+            DictionaryInterface dict = doc;
+            for (int i = 0; i < path.length - 1; i++) {
+                dict = dict.getDictionary(path[i]);
+                if (dict == null) { return MISSING; }
+            }
+            final String key = path[path.length - 1];
+            if (!dict.contains(key)) { return MISSING; }
+            final Object val = dict.getValue(key);
+            return (val instanceof Dictionary) ? ((Dictionary) val).toMap()
+                : (val instanceof Array) ? ((Array) val).toList()
+                    : val;
+        }
+
+        @Nullable
+        @Override
+        public String getId() { return doc.getId(); }
+
+        @Nullable
+        @Override
+        public String getRevisionId() { return doc.getRevisionID(); }
+
+        @Override
+        public boolean isDeleted() { return deleted; }
+    }
+
+
+    @NonNull
+    private final Expression predicate;
+    @NonNull
+    private final Node root;
+
+    /**
+     * Create a filter from a query predicate.
+     *
+     * @param predicate the predicate that a revision must satisfy to be replicated.
+     * @throws IllegalArgumentException if the predicate cannot be used as a replication filter.
+     */
+    public ExpressionReplicationFilter(@NonNull Expression predicate) {
+        this.predicate = Preconditions.assertNotNull(predicate, "predicate");
+        this.root = compile(predicate.asJSON());
+    }
+
+    /**
+     * Get the predicate from which this filter was compiled.
+     *
+     * @return the predicate
+     */
+    @NonNull
+    public Expression getPredicate() { return predicate; }
+
+    /**
+     * Evaluate the predicate against a Document.
+     * The replicator does not use this method: it evaluates the predicate against the revision body.
+     */
+    @Override
+    public boolean filtered(@NonNull Document document, @NonNull EnumSet<DocumentFlag> flags) {
+        return Boolean.TRUE.equals(root.eval(new DocumentSource(document, flags.contains(DocumentFlag.DELETED))));
+    }
+
+    @NonNull
+    @Override
+    public String toString() { return "ExpressionReplicationFilter{" + predicate.asJSON() + "}"; }
+
+    // Evaluate the predicate against the Fleece body of a revision.
+    boolean matches(@Nullable String docId, @Nullable String revId, boolean deleted, @Nullable FLDict body) {
+        return Boolean.TRUE.equals(root.eval(new FleeceSource(docId, revId, deleted, body)));
+    }
+
+    //---------------------------------------------
+    // Compiler
+    //---------------------------------------------
+
+    @NonNull
+    private static Node compile(@Nullable Object json) {
+        if (!(json instanceof List)) { return compileLiteral(json); }
+
+        final List<?> expr = (List<?>) json;
+        if (expr.isEmpty() || !(expr.get(0) instanceof String)) { throw unsupported(json); }
+
+        final String op = (String) expr.get(0);
+        final List<?> args = expr.subList(1, expr.size());
+
+        if (op.startsWith(".")) {
+            if (!args.isEmpty()) { throw unsupported(json); }
+            return compileProperty(op.substring(1));
+        }
+
+        switch (op.toUpperCase(Locale.ROOT)) {
+            case "[]":
+                return compileArray(args);
+            case "MISSING":
+                return src -> MISSING;
+            case "AND":
+                return compileAnd(compileAll(args));
+            case "OR":
+                return compileOr(compileAll(args));
+            case "NOT":
+                return compileNot(compileOne(args, json));
+            case "=":
+                return compileBinary(args, json, (l, r) -> equalsOrNull(l, r, true));
+            case "!=":
+                return compileBinary(args, json, (l, r) -> equalsOrNull(l, r, false));
+            case "<":
+                return compileBinary(args, json, (l, r) -> compareOrNull(l, r, c -> c < 0));
+            case "<=":
+                return compileBinary(args, json, (l, r) -> compareOrNull(l, r, c -> c <= 0));
+            case ">":
+                return compileBinary(args, json, (l, r) -> compareOrNull(l, r, c -> c > 0));
+            case ">=":
+                return compileBinary(args, json, (l, r) -> compareOrNull(l, r, c -> c >= 0));
+            case "IS":
+                return compileIs(args, json, true);
+            case "IS NOT":
+                return compileIs(args, json, false);
+            case "IS VALUED":
+                return compileIsValued(compileOne(args, json));
+            case "IN":
+                return compileIn(args, json);
+            case "BETWEEN":
+                return compileBetween(args, json);
+            case "LIKE":
+                return compileLike(args, json);
+            case "+":
+            case "-":
+            case "*":
+            case "/":
+            case "%":
+                return compileBinary(args, json, (l, r) -> arithmetic(op, l, r));
+            case "LOWER()":
+                return compileString(compileOne(args, json), s -> s.toLowerCase(Locale.ROOT));
+            case "UPPER()":
+                return compileString(compileOne(args, json), s -> s.toUpperCase(Locale.ROOT));
+            case "LENGTH()":
+                return compileString(compileOne(args, json), s -> (long) s.length());
+            default:
+                throw unsupported(json);
+        }
+    }
+
+    @NonNull
+    private static Node compileLiteral(@Nullable Object json) {
+        if ((json == null) || (json instanceof String) || (json instanceof Boolean)) { return src -> json; }
+        if (json instanceof Number) {
+            final Object num = ((json instanceof Double) || (json instanceof Float))
+                ? (Object) ((Number) json).doubleValue()
+                : (Object) ((Number) json).longValue();
+            return src -> num;
+        }
+        throw unsupported(json);
+    }
+
+    @NonNull
+    private static Node compileProperty(@NonNull String keyPath) {
+        switch (keyPath) {
+            case META_ID:
+                return Source::getId;
+            case META_REVISION_ID:
+                return Source::getRevisionId;
+            case META_DELETED:
+                return Source::isDeleted;
+            default:
+                break;
+        }
+
+        if (keyPath.isEmpty() || keyPath.startsWith("_") || (keyPath.indexOf('[') >= 0)) {
+            throw new IllegalArgumentException("Property cannot be used in a replication filter: " + keyPath);
+        }
+
+        final String[] path = keyPath.split("\\.");
+        return src -> src.getProperty(path);
+    }
+
+    @NonNull
+    private static Node compileArray(@NonNull List<?> args) {
+        final List<Node> elements = compileAll(args);
+        return src -> {
+            final List<Object> vals = new ArrayList<>(elements.size());
+            for (Node element: elements) { vals.add(element.eval(src)); }
+            return vals;
+        };
+    }
+
+    @NonNull
+    private static List<Node> compileAll(@NonNull List<?> args) {
+        final List<Node> nodes = new ArrayList<>(args.size());
+        for (Object arg: args) { nodes.add(compile(arg)); }
+        return nodes;
+    }
+
+    @NonNull
+    private static Node compileOne(@NonNull List<?> args, @NonNull Object json) {
+        if (args.size() != 1) { throw unsupported(json); }
+        return compile(args.get(0));
+    }
+
+    @NonNull
+    private static Node compileAnd(@NonNull List<Node> operands) {
+        return src -> {
+            boolean unknown = false;
+            for (Node operand: operands) {
+                final Boolean val = truth(operand.eval(src));
+                if (val == null) { unknown = true; }
+                else if (!val) { return false; }
+            }
+            return (unknown) ? null : Boolean.TRUE;
+        };
+    }
+
+    @NonNull
+    private static Node compileOr(@NonNull List<Node> operands) {
+        return src -> {
+            boolean unknown = false;
+            for (Node operand: operands) {
+                final Boolean val = truth(operand.eval(src));
+                if (val == null) { unknown = true; }
+                else if (val) { return true; }
+            }
+            return (unknown) ? null : Boolean.FALSE;
+        };
+    }
+
+    @NonNull
+    private static Node compileNot(@NonNull Node operand) {
+        return src -> {
+            final Boolean val = truth(operand.eval(src));
+            return (val == null) ? null : !val;
+        };
+    }
+
+    @NonNull
+    private static Node compileBinary(@NonNull List<?> args, @NonNull Object json, @NonNull BinaryOp op) {
+        if (args.size() != 2) { throw unsupported(json); }
+        final Node lhs = compile(args.get(0));
+        final Node rhs = compile(args.get(1));
+        return src -> {
+            final Object l = lhs.eval(src);
+            if (l == MISSING) { return MISSING; }
+            final Object r = rhs.eval(src);
+            if (r == MISSING) { return MISSING; }
+            if ((l == null) || (r == null)) { return null; }
+            return op.apply(l, r);
+        };
+    }
+
+    @NonNull
+    private static Node compileIs(@NonNull List<?> args, @NonNull Object json, boolean is) {
+        if (args.size() != 2) { throw unsupported(json); }
+        final Node lhs = compile(args.get(0));
+        final Node rhs = compile(args.get(1));
+        return src -> {
+            final Object l = lhs.eval(src);
+            final Object r = rhs.eval(src);
+            final boolean same = ((l == MISSING) || (r == MISSING) || (l == null) || (r == null))
+                ? (l == r)
+                : Integer.valueOf(0).equals(compare(l, r));
+            return same == is;
+        };
+    }
+
+    @NonNull
+    private static Node compileIsValued(@NonNull Node operand) {
+        return src -> {
+            final Object val = operand.eval(src);
+            return (val != null) && (val != MISSING);
+        };
+    }
+
+    @NonNull
+    private static Node compileIn(@NonNull List<?> args, @NonNull Object json) {
+        if (args.size() != 2) { throw unsupported(json); }
+        final Node lhs = compile(args.get(0));
+        final Node rhs = compile(args.get(1));
+        return src -> {
+            final Object l = lhs.eval(src);
+            if (l == MISSING) { return MISSING; }
+            if (l == null) { return null; }
+            final Object r = rhs.eval(src);
+            if (!(r instanceof List)) { return null; }
+            for (Object val: (List<?>) r) {
+                if ((val != null) && (val != MISSING) && Integer.valueOf(0).equals(compare(l, val))) { return true; }
+            }
+            return false;
+        };
+    }
+
+    @NonNull
+    private static Node compileBetween(@NonNull List<?> args, @NonNull Object json) {
+        if (args.size() != 3) { throw unsupported(json); }
+        final Node val = compile(args.get(0));
+        final Node min = compile(args.get(1));
+        final Node max = compile(args.get(2));
+        final Node lower = src -> compareNodes(val, min, src, c -> c >= 0);
+        final Node upper = src -> compareNodes(val, max, src, c -> c <= 0);
+        return compileAnd(Arrays.asList(lower, upper));
+    }
+
+    @NonNull
+    private static Node compileLike(@NonNull List<?> args, @NonNull Object json) {
+        if (args.size() != 2) { throw unsupported(json); }
+        final Node lhs = compile(args.get(0));
+        final Object pattern = args.get(1);
+
+        // A literal pattern is compiled once
+        if (pattern instanceof String) {
+            final Pattern regex = likeToRegex((String) pattern);
+            return src -> {
+                final Object l = lhs.eval(src);
+                if (l == MISSING) { return MISSING; }
+                return (!(l instanceof String)) ? null : regex.matcher((String) l).matches();
+            };
+        }
+
+        return compileBinary(
+            args,
+            json,
+            (l, r) -> ((l instanceof String) && (r instanceof String))
+                ? likeToRegex((String) r).matcher((String) l).matches()
+                : null);
+    }
+
+    @NonNull
+    private static Node compileString(@NonNull Node operand, @NonNull StringFunction fn) {
+        return src -> {
+            final Object val = operand.eval(src);
+            if (val == MISSING) { return MISSING; }
+            return (!(val instanceof String)) ? null : fn.apply((String) val);
+        };
+    }
+
+    //---------------------------------------------
+    // Evaluation
+    //---------------------------------------------
+
+    @Nullable
+    private static Object compareNodes(
+        @NonNull Node lhs,
+        @NonNull Node rhs,
+        @NonNull Source src,
+        @NonNull Comparison test) {
+        final Object l = lhs.eval(src);
+        if (l == MISSING) { return MISSING; }
+        final Object r = rhs.eval(src);
+        if (r == MISSING) { return MISSING; }
+        if ((l == null) || (r == null)) { return null; }
+        return compareOrNull(l, r, test);
+    }
+
+    @Nullable
+    private static Object equalsOrNull(@NonNull Object l, @NonNull Object r, boolean equal) {
+        final Integer c = compare(l, r);
+        return ((c != null) && (c == 0)) == equal;
+    }
+
+    @Nullable
+    private static Object compareOrNull(@NonNull Object l, @NonNull Object r, @NonNull Comparison test) {
+        final Integer c = compare(l, r);
+        return (c == null) ? null : test.test(c);
+    }
+
+    // Returns null if the values are of types that can't be compared.
+    @Nullable
+    private static Integer compare(@NonNull Object l, @NonNull Object r) {
+        if ((l instanceof Number) && (r instanceof Number)) {
+            if (isIntegral(l) && isIntegral(r)) {
+                return Long.compare(((Number) l).longValue(), ((Number) r).longValue());
+            }
+            return Double.compare(((Number) l).doubleValue(), ((Number) r).doubleValue());
+        }
+        if ((l instanceof String) && (r instanceof String)) {
+            return Integer.signum(((String) l).compareTo((String) r));
+        }
+        if ((l instanceof Boolean) && (r instanceof Boolean)) { return Boolean.compare((Boolean) l, (Boolean) r); }
+        return l.equals(r) ? Integer.valueOf(0) : null;
+    }
+
+    @Nullable
+    private static Object arithmetic(@NonNull String op, @NonNull Object l, @NonNull Object r) {
+        if (!(l instanceof Number) || !(r instanceof Number)) { return null; }
+        final Number a = (Number) l;
+        final Number b = (Number) r;
+
+        if (isIntegral(a) && isIntegral(b) && !"/".equals(op)) {
+            final long x = a.longValue();
+            final long y = b.longValue();
+            switch (op) {
+                case "+":
+                    return x + y;
+                case "-":
+                    return x - y;
+                case "*":
+                    return x * y;
+                default:
+                    return (y == 0) ? null : (Object) (x % y);
+            }
+        }
+
+        final double x = a.doubleValue();
+        final double y = b.doubleValue();
+        switch (op) {
+            case "+":
+                return x + y;
+            case "-":
+                return x - y;
+            case "*":
+                return x * y;
+            case "/":
+                return (y == 0) ? null : (Object) (x / y);
+            default:
+                return (y == 0) ? null : (Object) (x % y);
+        }
+    }
+
+    // The truth value of a value: null if it is unknown.
+    @Nullable
+    private static Boolean truth(@Nullable Object val) {
+        if ((val == null) || (val == MISSING)) { return null; }
+        if (val instanceof Boolean) { return (Boolean) val; }
+        if (val instanceof Number) { return ((Number) val).doubleValue() != 0; }
+        if (val instanceof String) { return !((String) val).isEmpty(); }
+        return true;
+    }
+
+    private static boolean isIntegral(@NonNull Object val) {
+        return (val instanceof Long) || (val instanceof Integer) || (val instanceof Short) || (val instanceof Byte);
+    }
+
+    @NonNull
+    private static Pattern likeToRegex(@NonNull String like) {
+        final StringBuilder regex = new StringBuilder();
+        final StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < like.length(); i++) {
+            final char c = like.charAt(i);
+            if ((c == '\\') && (i + 1 < like.length())) {
+                literal.append(like.charAt(++i));
+                continue;
+            }
+            if ((c != '%') && (c != '_')) {
+                literal.append(c);
+                continue;
+            }
+            if (literal.length() > 0) {
+                regex.append(Pattern.quote(literal.toString()));
+                literal.setLength(0);
+            }
+            regex.append((c == '%') ? ".*" : ".");
+        }
+        if (literal.length() > 0) { regex.append(Pattern.quote(literal.toString())); }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    @NonNull
+    private static IllegalArgumentException unsupported(@Nullable Object json) {
+        return new IllegalArgumentException("Expression cannot be used in a replication filter: " + json);
+    }
+}
@@ -24,19 +24,43 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+import com.couchbase.lite.internal.DbContext;
 import com.couchbase.lite.internal.fleece.FLConstants;
+import com.couchbase.lite.internal.fleece.FLEncoder;
+import com.couchbase.lite.internal.fleece.FLSliceResult;
 import com.couchbase.lite.internal.fleece.FLValue;
+import com.couchbase.lite.internal.fleece.MArray;
 import com.couchbase.lite.internal.fleece.MCollection;
+import com.couchbase.lite.internal.fleece.MRoot;
 import com.couchbase.lite.internal.fleece.MValue;
 import com.couchbase.lite.internal.support.Log;
+import com.couchbase.lite.internal.utils.Fn;
 import com.couchbase.lite.internal.utils.JSONUtils;
+import com.couchbase.lite.internal.utils.Preconditions;
 
 
 final class Fleece {
     private Fleece() {}
 
     private static final String SUPPORTED_TYPES
-        = "MutableDictionary, Dictionary, MutableArray, Array, Map, List, Date, String, Number, Boolean, Blob or null";
+        = "MutableDictionary, Dictionary, MutableArray, Array, Map, List, Date, String, Number, Boolean, Blob,"
+        + " TypedArray or null";
+
+    // The context for content encoded in memory, e.g., parsed from JSON: it belongs to no database.
+    private static final class DataContext extends DbContext {
+        // keep a ref to prevent GC: the parsed collections point into this data
+        @SuppressFBWarnings("URF_UNREAD_FIELD")
+        @SuppressWarnings({"PMD.UnusedPrivateField", "FieldCanBeLocal"})
+        @NonNull
+        private final FLSliceResult data;
+
+        DataContext(@NonNull FLSliceResult data) {
+            super(null);
+            this.data = data;
+        }
+    }
 
     // Assume that array and dict values are always different to avoid expensive comparisons.
     static boolean willMutate(Object newValue, @NonNull MValue oldValue, MCollection container) {
@@ -59,6 +83,7 @@ final class Fleece {
             || (value instanceof Number)
             || (value instanceof String)
             || (value instanceof Blob)
+            || (value instanceof TypedArray)
             || (value instanceof MutableArray)
             || (value instanceof MutableDictionary)) {
             return value;
@@ -76,6 +101,47 @@ final class Fleece {
                 SUPPORTED_TYPES));
     }
 
+    // Parse JSON to Fleece, in native code, and return the root collection.
+    // Its content is decoded from the Fleece data lazily, as it is used.
+    @NonNull
+    static <T> T parseJSON(@NonNull String json, @NonNull Class<T> type) {
+        Preconditions.assertNotNull(json, "json");
+
+        final FLSliceResult data;
+        try (FLEncoder enc = FLEncoder.getManagedEncoder()) {
+            enc.writeJSON(json);
+            data = enc.finish2();
+        }
+        catch (LiteCoreException e) { throw new IllegalArgumentException("Failed parsing JSON", e); }
+
+        final Object root = toRoot(data);
+        if (!type.isInstance(root)) {
+            throw new IllegalArgumentException("Failed parsing JSON: not a " + type.getSimpleName());
+        }
+
+        return type.cast(root);
+    }
+
+    // Encode a primitive array, in a single native call, and return the root array.
+    // As with parsed JSON, its values are decoded lazily, without boxing them all.
+    @NonNull
+    static MArray encodeArray(@NonNull double[] values) {
+        Preconditions.assertNotNull(values, "values");
+        return encodeArray(enc -> enc.writeArray(values));
+    }
+
+    @NonNull
+    static MArray encodeArray(@NonNull float[] values) {
+        Preconditions.assertNotNull(values, "values");
+        return encodeArray(enc -> enc.writeArray(values));
+    }
+
+    @NonNull
+    static MArray encodeArray(@NonNull long[] values) {
+        Preconditions.assertNotNull(values, "values");
+        return encodeArray(enc -> enc.writeArray(values));
+    }
+
     @Nullable
     static Object toObject(@Nullable Object value) {
         if (value == null) { return null; }
@@ -83,4 +149,21 @@ final class Fleece {
         else if (value instanceof Array) { return ((Array) value).toList(); }
         else { return value; }
     }
+
+    @NonNull
+    private static MArray encodeArray(@NonNull Fn.Consumer<FLEncoder> writer) {
+        final FLSliceResult data;
+        try (FLEncoder enc = FLEncoder.getManagedEncoder()) {
+            writer.accept(enc);
+            data = enc.finish2();
+        }
+        catch (LiteCoreException e) { throw new IllegalStateException("Failed encoding array", e); }
+
+        return ((MutableArray) toRoot(data)).internalArray;
+    }
+
+    @Nullable
+    private static Object toRoot(@NonNull FLSliceResult data) {
+        return new MRoot(new DataContext(data), FLValue.fromData(data), true).asNative();
+    }
 }
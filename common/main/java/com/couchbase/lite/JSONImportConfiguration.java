@@ -0,0 +1,116 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.couchbase.lite.internal.utils.Preconditions;
+
+
+/**
+ * Configuration for importing JSON documents into a database.
+ */
+public final class JSONImportConfiguration {
+    /**
+     * The default name of the property that holds a document's id.
+     */
+    public static final String DEFAULT_ID_PROPERTY = "_id";
+
+    /**
+     * The default number of documents saved in a single transaction.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    //---------------------------------------------
+    // member variables
+    //---------------------------------------------
+
+    @NonNull
+    private String idProperty = DEFAULT_ID_PROPERTY;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    @Nullable
+    private JSONImportListener listener;
+
+    //---------------------------------------------
+    // Constructors
+    //---------------------------------------------
+
+    public JSONImportConfiguration() { }
+
+    public JSONImportConfiguration(@NonNull JSONImportConfiguration config) {
+        Preconditions.assertNotNull(config, "config");
+        this.idProperty = config.idProperty;
+        this.batchSize = config.batchSize;
+        this.listener = config.listener;
+    }
+
+    //---------------------------------------------
+    // Setters
+    //---------------------------------------------
+
+    /**
+     * Set the name of the top-level property that holds each document's id.
+     * A string value is used as is and an integer value is converted to its decimal representation.
+     * A document without a usable id is given a unique id.
+     * If the property name begins with an underscore, the property is not saved in the document.
+     *
+     * @param idProperty the name of the id property
+     * @return this
+     */
+    @NonNull
+    public JSONImportConfiguration setIdProperty(@NonNull String idProperty) {
+        this.idProperty = Preconditions.assertNotEmpty(idProperty, "id property");
+        return this;
+    }
+
+    /**
+     * Set the number of documents saved in a single transaction.
+     * Larger batches are faster but hold the database lock for longer.
+     *
+     * @param batchSize the number of documents in a batch
+     * @return this
+     */
+    @NonNull
+    public JSONImportConfiguration setBatchSize(int batchSize) {
+        this.batchSize = Preconditions.assertPositive(batchSize, "batch size");
+        return this;
+    }
+
+    /**
+     * Set a listener to be notified after each batch is committed.
+     *
+     * @param listener the listener, or null
+     * @return this
+     */
+    @NonNull
+    public JSONImportConfiguration setListener(@Nullable JSONImportListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    //---------------------------------------------
+    // Getters
+    //---------------------------------------------
+
+    @NonNull
+    public String getIdProperty() { return idProperty; }
+
+    public int getBatchSize() { return batchSize; }
+
+    @Nullable
+    public JSONImportListener getListener() { return listener; }
+}
@@ -0,0 +1,93 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+
+/**
+ * The status of a JSON import: the number of documents saved and the amount of input read, so far,
+ * and the rates at which they were processed.
+ */
+public final class JSONImportStatus {
+    //---------------------------------------------
+    // member variables
+    //---------------------------------------------
+
+    // The number of documents saved.
+    private final long documents;
+
+    // The number of bytes read from the input.
+    private final long bytesRead;
+
+    // The time since the import started.
+    private final long elapsedNs;
+
+    //---------------------------------------------
+    // Constructors
+    //---------------------------------------------
+
+    JSONImportStatus(long documents, long bytesRead, long elapsedNs) {
+        this.documents = documents;
+        this.bytesRead = bytesRead;
+        this.elapsedNs = elapsedNs;
+    }
+
+    //---------------------------------------------
+    // API - public methods
+    //---------------------------------------------
+
+    /**
+     * The number of documents saved.
+     */
+    public long getDocumentCount() { return documents; }
+
+    /**
+     * The number of bytes read from the input.
+     */
+    public long getBytesRead() { return bytesRead; }
+
+    /**
+     * The time since the import started, in milliseconds.
+     */
+    public long getElapsedMillis() { return elapsedNs / 1000000L; }
+
+    /**
+     * The average rate at which documents were saved, in documents per second.
+     */
+    public double getDocumentsPerSecond() { return rate(documents); }
+
+    /**
+     * The average rate at which the input was read, in bytes per second.
+     */
+    public double getBytesPerSecond() { return rate(bytesRead); }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format(
+            Locale.ENGLISH,
+            "JSONImportStatus{docs=%d, bytes=%d, %dms, %.1f docs/s}",
+            documents,
+            bytesRead,
+            getElapsedMillis(),
+            getDocumentsPerSecond());
+    }
+
+    private double rate(long n) { return (elapsedNs <= 0) ? 0.0 : (n * 1.0e9) / elapsedNs; }
+}
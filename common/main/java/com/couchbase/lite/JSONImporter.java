@@ -0,0 +1,148 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.couchbase.lite.internal.fleece.FLConstants;
+import com.couchbase.lite.internal.fleece.FLDict;
+import com.couchbase.lite.internal.fleece.FLEncoder;
+import com.couchbase.lite.internal.fleece.FLSliceResult;
+import com.couchbase.lite.internal.fleece.FLValue;
+import com.couchbase.lite.internal.utils.JSONRecordReader;
+import com.couchbase.lite.internal.utils.Preconditions;
+
+
+/**
+ * Imports a stream of JSON objects into a database.
+ * <p>
+ * The input is split into records, one object each, without parsing it.  Each record is then
+ * converted to Fleece, in native code, outside the database lock.  Only the final encoding
+ * (with the database's shared keys) and the save happen inside the lock, one transaction per batch.
+ * At most one batch of records is held in memory.
+ */
+final class JSONImporter {
+    @NonNull
+    private final AbstractDatabase db;
+    @NonNull
+    private final JSONImportConfiguration config;
+    // The id property, if it is to be omitted from the saved document
+    @Nullable
+    private final String omitKey;
+
+    JSONImporter(@NonNull AbstractDatabase db, @NonNull JSONImportConfiguration config) {
+        this.db = Preconditions.assertNotNull(db, "database");
+        this.config = new JSONImportConfiguration(config);
+        final String idProp = this.config.getIdProperty();
+        this.omitKey = (idProp.startsWith("_")) ? idProp : null;
+    }
+
+    @NonNull
+    JSONImportStatus run(@NonNull ReadableByteChannel in) throws CouchbaseLiteException, IOException {
+        final JSONRecordReader reader = new JSONRecordReader(in);
+        final int batchSize = config.getBatchSize();
+        final JSONImportListener listener = config.getListener();
+
+        final long start = System.nanoTime();
+        long nDocs = 0;
+
+        // The bodies must outlive the FLDicts in the batch
+        final List<FLSliceResult> bodies = new ArrayList<>(batchSize);
+        final Map<String, FLDict> batch = new LinkedHashMap<>();
+        try {
+            while (true) {
+                final byte[] json = reader.next();
+                if (json != null) { addRecord(json, bodies, batch); }
+
+                if ((bodies.size() >= batchSize) || ((json == null) && (!bodies.isEmpty()))) {
+                    db.saveFleeceDocuments(batch, omitKey);
+                    // a record whose id repeats within the batch replaces the earlier one
+                    nDocs += batch.size();
+                    closeAll(bodies);
+                    batch.clear();
+
+                    if (listener != null) {
+                        listener.progress(
+                            new JSONImportStatus(nDocs, reader.getBytesRead(), System.nanoTime() - start));
+                    }
+                }
+
+                if (json == null) { break; }
+            }
+        }
+        finally {
+            closeAll(bodies);
+        }
+
+        return new JSONImportStatus(nDocs, reader.getBytesRead(), System.nanoTime() - start);
+    }
+
+    private void addRecord(
+        @NonNull byte[] json,
+        @NonNull List<FLSliceResult> bodies,
+        @NonNull Map<String, FLDict> batch)
+        throws CouchbaseLiteException {
+        final FLSliceResult body;
+        try (FLEncoder enc = FLEncoder.getManagedEncoder()) {
+            enc.writeJSON(json);
+            body = enc.finish2();
+        }
+        catch (LiteCoreException e) { throw CouchbaseLiteException.convertException(e); }
+        bodies.add(body);
+
+        final FLValue root = FLValue.fromData(body);
+        if ((root == null) || (root.getType() != FLConstants.ValueType.DICT)) {
+            throw new CouchbaseLiteException(
+                "JSON record is not an object",
+                CBLError.Domain.CBLITE,
+                CBLError.Code.CORRUPT_DATA);
+        }
+
+        final FLDict dict = root.asFLDict();
+        batch.put(getDocId(dict.get(config.getIdProperty())), dict);
+    }
+
+    @NonNull
+    private String getDocId(@Nullable FLValue id) {
+        if (id != null) {
+            switch (id.getType()) {
+                case FLConstants.ValueType.STRING:
+                    final String docId = id.asString();
+                    if ((docId != null) && (!docId.isEmpty())) { return docId; }
+                    break;
+                case FLConstants.ValueType.NUMBER:
+                    if (id.isInteger()) { return Long.toString(id.asInt()); }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return MutableDocument.createUUID();
+    }
+
+    private void closeAll(@NonNull List<FLSliceResult> bodies) {
+        for (FLSliceResult body: bodies) { body.close(); }
+        bodies.clear();
+    }
+}
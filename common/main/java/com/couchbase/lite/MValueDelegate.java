@@ -87,12 +87,23 @@ final class MValueDelegate implements MValue.Delegate {
 
         final FLValue flType = flDict.get(Blob.META_PROP_TYPE);
         final String type = (flType == null) ? null : flType.asString();
-        if (type == null) {
-            if (isOldAttachment(parent, flDict)) { return createBlob(flDict, context); }
+
+        // A typed array's content is in the dictionary: it doesn't need a database.
+        if (TypedArray.TYPE_TYPED_ARRAY.equals(type)) {
+            final TypedArray typedArray = TypedArray.fromFLDict(flDict);
+            if (typedArray != null) { return typedArray; }
         }
-        else {
-            final Object obj = createSpecialObjectOfType(type, flDict, context);
-            if (obj != null) { return obj; }
+
+        // Content that does not belong to a database (e.g., parsed from JSON) can't contain Blobs:
+        // a blob's metadata is just a dictionary, until it is saved.
+        if ((context != null) && (context.getDatabase() != null)) {
+            if (type == null) {
+                if (isOldAttachment(parent, flDict)) { return createBlob(flDict, context); }
+            }
+            else {
+                final Object obj = createSpecialObjectOfType(type, flDict, context);
+                if (obj != null) { return obj; }
+            }
         }
 
         if (parent.hasMutableChildren()) { return new MutableDictionary(mv, parent); }
@@ -21,13 +21,9 @@ import androidx.annotation.Nullable;
 import java.util.Date;
 import java.util.Map;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
 import com.couchbase.lite.internal.fleece.MCollection;
 import com.couchbase.lite.internal.fleece.MDict;
 import com.couchbase.lite.internal.fleece.MValue;
-import com.couchbase.lite.internal.utils.JSONUtils;
 import com.couchbase.lite.internal.utils.Preconditions;
 
 
@@ -103,14 +99,14 @@ public final class MutableDictionary extends Dictionary implements MutableDictio
      * @param json the dictionary object.
      * @return this Document instance
      */
-    // !!! This is a ridiculously expensive way to do this...
+    // The JSON is parsed in native code. Nested Arrays and Dictionaries are decoded lazily.
     @NonNull
     @Override
     public MutableDictionary setJSON(@NonNull String json) {
+        final MutableDictionary dict = Fleece.parseJSON(json, MutableDictionary.class);
         synchronized (lock) {
             internalDict.clear();
-            try { setData(JSONUtils.fromJSON(new JSONObject(json))); }
-            catch (JSONException e) { throw new IllegalArgumentException("Failed parsing JSON", e); }
+            for (String key: dict) { internalDict.set(key, new MValue(dict.getValue(key))); }
             return this;
         }
     }
@@ -226,6 +222,18 @@ public final class MutableDictionary extends Dictionary implements MutableDictio
     @Override
     public MutableDictionary setBlob(@NonNull String key, @NonNull Blob value) { return setValue(key, value); }
 
+    /**
+     * Set a TypedArray object for the given key.
+     *
+     * @param key   The key
+     * @param value The TypedArray object.
+     * @return The self object.
+     */
+    @NonNull
+    public MutableDictionary setTypedArray(@NonNull String key, @Nullable TypedArray value) {
+        return setValue(key, value);
+    }
+
     /**
      * Set a Date object for the given key.
      *
@@ -248,6 +256,46 @@ public final class MutableDictionary extends Dictionary implements MutableDictio
     @Override
     public MutableDictionary setArray(@NonNull String key, @NonNull Array value) { return setValue(key, value); }
 
+    /**
+     * Set an Array, containing the numbers in the passed array, for the given key.
+     * The numbers are encoded in a single operation, without converting each to an object.
+     * Use Array.toDoubleArray() to read them back.
+     *
+     * @param key    the key.
+     * @param values the array of doubles.
+     * @return this MutableDictionary instance
+     */
+    @NonNull
+    public MutableDictionary setDoubleArray(@NonNull String key, @NonNull double[] values) {
+        return setValue(key, new MutableArray(values));
+    }
+
+    /**
+     * Set an Array, containing the numbers in the passed array, for the given key.
+     * See setDoubleArray(String, double[]).
+     *
+     * @param key    the key.
+     * @param values the array of floats.
+     * @return this MutableDictionary instance
+     */
+    @NonNull
+    public MutableDictionary setFloatArray(@NonNull String key, @NonNull float[] values) {
+        return setValue(key, new MutableArray(values));
+    }
+
+    /**
+     * Set an Array, containing the numbers in the passed array, for the given key.
+     * See setDoubleArray(String, double[]).
+     *
+     * @param key    the key.
+     * @param values the array of longs.
+     * @return this MutableDictionary instance
+     */
+    @NonNull
+    public MutableDictionary setLongArray(@NonNull String key, @NonNull long[] values) {
+        return setValue(key, new MutableArray(values));
+    }
+
     /**
      * Set a Dictionary object for the given key.
      *
@@ -32,7 +32,7 @@ import com.couchbase.lite.internal.core.C4Document;
 public final class MutableDocument extends Document implements MutableDictionaryInterface {
 
     @NonNull
-    private static String createUUID() { return UUID.randomUUID().toString().toLowerCase(Locale.ENGLISH); }
+    static String createUUID() { return UUID.randomUUID().toString().toLowerCase(Locale.ENGLISH); }
 
     //---------------------------------------------
     // Constructors
@@ -160,10 +160,12 @@ public final class MutableDocument extends Document implements MutableDictionary
      * @return this Document instance
      */
 
+    // The JSON is parsed in native code and becomes the new content of this document,
+    // from which properties are decoded lazily, just as they are for a document read from the database.
     @NonNull
     @Override
     public MutableDocument setJSON(@NonNull String json) {
-        getMutableContent().setJSON(json);
+        setContent(Fleece.parseJSON(json, MutableDictionary.class));
         return this;
     }
 
@@ -271,6 +273,18 @@ public final class MutableDocument extends Document implements MutableDictionary
     @Override
     public MutableDocument setBlob(@NonNull String key, @Nullable Blob value) { return setValue(key, value); }
 
+    /**
+     * Set a TypedArray value for the given key
+     *
+     * @param key   the key.
+     * @param value the TypedArray value.
+     * @return this MutableDocument instance
+     */
+    @NonNull
+    public MutableDocument setTypedArray(@NonNull String key, @Nullable TypedArray value) {
+        return setValue(key, value);
+    }
+
     /**
      * Set a Date value for the given key
      *
@@ -293,6 +307,46 @@ public final class MutableDocument extends Document implements MutableDictionary
     @Override
     public MutableDocument setArray(@NonNull String key, @Nullable Array value) { return setValue(key, value); }
 
+    /**
+     * Set an Array, containing the numbers in the passed array, for the given key.
+     * The numbers are encoded in a single operation, without converting each to an object.
+     * Use Array.toDoubleArray() to read them back.
+     *
+     * @param key    the key.
+     * @param values the array of doubles.
+     * @return this MutableDocument instance
+     */
+    @NonNull
+    public MutableDocument setDoubleArray(@NonNull String key, @NonNull double[] values) {
+        return setValue(key, new MutableArray(values));
+    }
+
+    /**
+     * Set an Array, containing the numbers in the passed array, for the given key.
+     * See setDoubleArray(String, double[]).
+     *
+     * @param key    the key.
+     * @param values the array of floats.
+     * @return this MutableDocument instance
+     */
+    @NonNull
+    public MutableDocument setFloatArray(@NonNull String key, @NonNull float[] values) {
+        return setValue(key, new MutableArray(values));
+    }
+
+    /**
+     * Set an Array, containing the numbers in the passed array, for the given key.
+     * See setDoubleArray(String, double[]).
+     *
+     * @param key    the key.
+     * @param values the array of longs.
+     * @return this MutableDocument instance
+     */
+    @NonNull
+    public MutableDocument setLongArray(@NonNull String key, @NonNull long[] values) {
+        return setValue(key, new MutableArray(values));
+    }
+
     /**
      * Set a Dictionary value for the given key
      *
@@ -44,6 +44,10 @@ final class N1qlQuery extends AbstractQuery {
     @Override
     protected AbstractDatabase getDatabase() { return db; }
 
+    @NonNull
+    @Override
+    protected String getQueryText() { return n1ql; }
+
     @GuardedBy("AbstractQuery.lock")
     @NonNull
     @Override
@@ -0,0 +1,61 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import androidx.annotation.NonNull;
+
+import com.couchbase.lite.internal.fleece.FLDictKey;
+import com.couchbase.lite.internal.utils.Preconditions;
+
+
+/**
+ * A reusable key for reading the same property from many documents or dictionaries.
+ * <p>
+ * Getters that take a PropertyKey return exactly the same values as those that take the property name.
+ * A PropertyKey, though, converts its name for the database once and caches the result,
+ * so it is faster in loops that read the same properties over and over.
+ * A PropertyKey may be used with documents from any database but, when it is used with
+ * a different database than it was last used with, the name must be converted again.
+ * Create a PropertyKey once and reuse it.  PropertyKeys may be shared across threads.
+ */
+public final class PropertyKey {
+    @NonNull
+    private final FLDictKey flKey;
+
+    /**
+     * Create a key for the named property.
+     *
+     * @param name the property name
+     */
+    public PropertyKey(@NonNull String name) {
+        flKey = new FLDictKey(Preconditions.assertNotEmpty(name, "name"));
+    }
+
+    /**
+     * Get the name of the property.
+     *
+     * @return the property name
+     */
+    @NonNull
+    public String getName() { return flKey.getName(); }
+
+    @NonNull
+    @Override
+    public String toString() { return "PropertyKey{" + getName() + "}"; }
+
+    @NonNull
+    FLDictKey getFLKey() { return flKey; }
+}
@@ -0,0 +1,37 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import androidx.annotation.NonNull;
+
+import java.util.EnumSet;
+
+
+/**
+ * A replication filter that reads each revision through a DocumentView.
+ * A view reads only the properties that the filter asks for, so it is much cheaper
+ * than a Document, for a filter that looks at only a few properties.
+ * Document push and pull will be allowed if the predicate returns true.
+ **/
+@FunctionalInterface
+public interface ReplicationViewFilter extends ReplicationFilter {
+    boolean filtered(@NonNull DocumentView document, @NonNull EnumSet<DocumentFlag> flags);
+
+    @Override
+    default boolean filtered(@NonNull Document document, @NonNull EnumSet<DocumentFlag> flags) {
+        return filtered(new DocumentView(document), flags);
+    }
+}
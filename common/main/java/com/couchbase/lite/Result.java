@@ -28,7 +28,10 @@ import java.util.Map;
 
 import com.couchbase.lite.internal.DbContext;
 import com.couchbase.lite.internal.core.C4QueryEnumerator;
+import com.couchbase.lite.internal.fleece.FLArray;
 import com.couchbase.lite.internal.fleece.FLArrayIterator;
+import com.couchbase.lite.internal.fleece.FLConstants;
+import com.couchbase.lite.internal.fleece.FLEncoder;
 import com.couchbase.lite.internal.fleece.FLValue;
 import com.couchbase.lite.internal.fleece.JSONEncoder;
 import com.couchbase.lite.internal.fleece.MRoot;
@@ -207,6 +210,20 @@ public final class Result implements ArrayInterface, DictionaryInterface, Iterab
         return !(obj instanceof Blob) ? null : (Blob) obj;
     }
 
+    /**
+     * The result at the given index interpreted as a TypedArray.
+     * Returns null if the value cannot be so interpreted.
+     *
+     * @param index the index of the required value.
+     * @return a TypedArray.
+     */
+    @Nullable
+    public TypedArray getTypedArray(int index) {
+        assertInBounds(index);
+        final Object obj = fleeceValueToObject(index);
+        return !(obj instanceof TypedArray) ? null : (TypedArray) obj;
+    }
+
     /**
      * The result at the given index interpreted as a Date.
      * Returns null if the value cannot be so interpreted.
@@ -251,6 +268,60 @@ public final class Result implements ArrayInterface, DictionaryInterface, Iterab
         return !(obj instanceof Dictionary) ? null : (Dictionary) obj;
     }
 
+    /**
+     * The result at the given index, which must be an array, as an array of doubles.
+     * The values are converted as they are by Array.getDouble(int), in a single operation.
+     * Returns null if the value is not an array.
+     *
+     * @param index the index of the required value.
+     * @return an array of doubles.
+     */
+    @Nullable
+    public double[] getDoubleArray(int index) {
+        assertInBounds(index);
+        final FLArray array = getFLArray(index);
+        if (array == null) { return null; }
+        final double[] vals = new double[(int) array.count()];
+        array.copyTo(vals);
+        return vals;
+    }
+
+    /**
+     * The result at the given index, which must be an array, as an array of floats.
+     * Returns null if the value is not an array.
+     *
+     * @param index the index of the required value.
+     * @return an array of floats.
+     * @see #getDoubleArray(int)
+     */
+    @Nullable
+    public float[] getFloatArray(int index) {
+        assertInBounds(index);
+        final FLArray array = getFLArray(index);
+        if (array == null) { return null; }
+        final float[] vals = new float[(int) array.count()];
+        array.copyTo(vals);
+        return vals;
+    }
+
+    /**
+     * The result at the given index, which must be an array, as an array of longs.
+     * Returns null if the value is not an array.
+     *
+     * @param index the index of the required value.
+     * @return an array of longs.
+     * @see #getDoubleArray(int)
+     */
+    @Nullable
+    public long[] getLongArray(int index) {
+        assertInBounds(index);
+        final FLArray array = getFLArray(index);
+        if (array == null) { return null; }
+        final long[] vals = new long[(int) array.count()];
+        array.copyTo(vals);
+        return vals;
+    }
+
     /**
      * Gets all the values as a List. The types of the values contained in the returned List
      * are Array, Blob, Dictionary, Number types, String, and null.
@@ -398,6 +469,19 @@ public final class Result implements ArrayInterface, DictionaryInterface, Iterab
         return (!isInBounds(index)) ? null : getBlob(index);
     }
 
+    /**
+     * The result value for the given key as a TypedArray
+     * Returns null if the key doesn't exist or if the value is not a TypedArray
+     *
+     * @param key The select result key.
+     * @return The TypedArray object.
+     */
+    @Nullable
+    public TypedArray getTypedArray(@NonNull String key) {
+        final int index = indexForColumnName(Preconditions.assertNotNull(key, "key"));
+        return (!isInBounds(index)) ? null : getTypedArray(index);
+    }
+
     /**
      * The result value for the given key as a Date
      * Returns null if the key doesn't exist or if the value is not a Date
@@ -440,6 +524,48 @@ public final class Result implements ArrayInterface, DictionaryInterface, Iterab
         return (!isInBounds(index)) ? null : getDictionary(index);
     }
 
+    /**
+     * The result value for the given key, which must be an array, as an array of doubles.
+     * Returns null if the key doesn't exist or the value is not an array.
+     *
+     * @param key The select result key.
+     * @return an array of doubles.
+     * @see #getDoubleArray(int)
+     */
+    @Nullable
+    public double[] getDoubleArray(@NonNull String key) {
+        final int index = indexForColumnName(Preconditions.assertNotNull(key, "key"));
+        return (!isInBounds(index)) ? null : getDoubleArray(index);
+    }
+
+    /**
+     * The result value for the given key, which must be an array, as an array of floats.
+     * Returns null if the key doesn't exist or the value is not an array.
+     *
+     * @param key The select result key.
+     * @return an array of floats.
+     * @see #getFloatArray(int)
+     */
+    @Nullable
+    public float[] getFloatArray(@NonNull String key) {
+        final int index = indexForColumnName(Preconditions.assertNotNull(key, "key"));
+        return (!isInBounds(index)) ? null : getFloatArray(index);
+    }
+
+    /**
+     * The result value for the given key, which must be an array, as an array of longs.
+     * Returns null if the key doesn't exist or the value is not an array.
+     *
+     * @param key The select result key.
+     * @return an array of longs.
+     * @see #getLongArray(int)
+     */
+    @Nullable
+    public long[] getLongArray(@NonNull String key) {
+        final int index = indexForColumnName(Preconditions.assertNotNull(key, "key"));
+        return (!isInBounds(index)) ? null : getLongArray(index);
+    }
+
     /**
      * Gets all values as a Map. The keys in the returned map are the names of columns that have
      * values.  The types of the values are Array, Blob, Dictionary, Number types, String, and null.
@@ -459,21 +585,32 @@ public final class Result implements ArrayInterface, DictionaryInterface, Iterab
         return dict;
     }
 
+    /**
+     * Gets a read-only Map view of the values in this result.
+     * Unlike toMap(), the view gets values only as they are requested:
+     * it is much cheaper when only a few of the values will be used.
+     * Its values are those returned by getValue(String), except that Dictionaries and Arrays
+     * are, themselves, presented as views.
+     *
+     * @return a Map view of this result's values.
+     */
+    @NonNull
+    public Map<String, Object> asMapView() { return new DictionaryMapView(this, this::getColumnsWithValues); }
+
+    /**
+     * Gets a read-only List view of the values in this result.
+     *
+     * @return a List view of this result's values.
+     * @see #asMapView()
+     */
+    @NonNull
+    public List<Object> asListView() { return new ArrayListView(this); }
+
     @NonNull
     @Override
     public String toJSON() {
-        final int nVals = values.size();
-
         try (JSONEncoder enc = new JSONEncoder()) {
-            enc.beginDict(nVals);
-            for (String columnName: rs.getColumnNames()) {
-                final int i = indexForColumnName(columnName);
-                if ((i < 0) || (i >= nVals)) { continue; }
-
-                enc.writeKey(columnName);
-                enc.writeValue(values.get(i));
-            }
-            enc.endDict();
+            encodeJSON(enc, rs.getColumnNames());
             return enc.finishJSON();
         }
         catch (LiteCoreException e) {
@@ -507,16 +644,50 @@ public final class Result implements ArrayInterface, DictionaryInterface, Iterab
     @Override
     public Iterator<String> iterator() { return getKeys().iterator(); }
 
+    //---------------------------------------------
+    // package access
+    //---------------------------------------------
+
+    // Write this result, as a JSON object, to the encoder.
+    // The column names are passed in so that a caller encoding many rows need get them only once.
+    void encodeJSON(@NonNull FLEncoder enc, @NonNull List<String> columnNames) {
+        final int nVals = values.size();
+        enc.beginDict(nVals);
+        for (String columnName: columnNames) {
+            final int i = indexForColumnName(columnName);
+            if ((i < 0) || (i >= nVals)) { continue; }
+
+            enc.writeKey(columnName);
+            enc.writeValue(values.get(i));
+        }
+        enc.endDict();
+    }
+
     //---------------------------------------------
     // private access
     //---------------------------------------------
 
+    @NonNull
+    private List<String> getColumnsWithValues() {
+        final List<String> columns = new ArrayList<>();
+        for (String name: rs.getColumnNames()) {
+            if (isInBounds(indexForColumnName(name))) { columns.add(name); }
+        }
+        return columns;
+    }
+
     private int indexForColumnName(@NonNull String name) {
         final int index = rs.getColumnIndex(name);
         if (index < 0) { return -1; }
         return ((missingColumns & (1L << index)) == 0) ? index : -1;
     }
 
+    @Nullable
+    private FLArray getFLArray(int index) {
+        final FLValue value = values.get(index);
+        return ((value == null) || (value.getType() != FLConstants.ValueType.ARRAY)) ? null : value.asFLArray();
+    }
+
     @Nullable
     private Object fleeceValueToObject(int index) {
         final FLValue value = values.get(index);
@@ -20,6 +20,10 @@ import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -27,7 +31,9 @@ import java.util.Map;
 
 import com.couchbase.lite.internal.DbContext;
 import com.couchbase.lite.internal.core.C4QueryEnumerator;
+import com.couchbase.lite.internal.fleece.JSONEncoder;
 import com.couchbase.lite.internal.support.Log;
+import com.couchbase.lite.internal.utils.JSONRecordWriter;
 import com.couchbase.lite.internal.utils.Preconditions;
 
 
@@ -133,6 +139,50 @@ public class ResultSet implements Iterable<Result>, AutoCloseable {
         return results;
     }
 
+    /**
+     * Write the remaining Results to a stream, as JSON.  Each Result is written as a JSON object,
+     * encoded directly from the query's data: no intermediate Strings are created.
+     * Memory use does not depend on the number of Results.
+     * <p>Caution:  This method consumes the Results, as does {@link ResultSet#next}.</p>
+     *
+     * @param out    the output stream.  The caller is responsible for closing it.
+     * @param format the layout of the JSON
+     * @return the number of Results written
+     * @throws IOException on failure to write the output
+     */
+    public long writeJSON(@NonNull OutputStream out, @NonNull JSONExportFormat format) throws IOException {
+        return writeJSON(Channels.newChannel(Preconditions.assertNotNull(out, "output stream")), format);
+    }
+
+    /**
+     * Write the remaining Results to a channel, as JSON.
+     * See {@link #writeJSON(OutputStream, JSONExportFormat)}.
+     *
+     * @param out    the output channel.  The caller is responsible for closing it.
+     * @param format the layout of the JSON
+     * @return the number of Results written
+     * @throws IOException on failure to write the output
+     */
+    public long writeJSON(@NonNull WritableByteChannel out, @NonNull JSONExportFormat format) throws IOException {
+        Preconditions.assertNotNull(format, "format");
+        final JSONRecordWriter writer = new JSONRecordWriter(out, format == JSONExportFormat.ARRAY);
+        final List<String> cols = getColumnNames();
+
+        try (JSONEncoder enc = new JSONEncoder()) {
+            Result result;
+            while ((result = next()) != null) {
+                result.encodeJSON(enc, cols);
+                writer.write(enc.finishJSONBytes());
+            }
+        }
+        catch (LiteCoreException e) {
+            throw new IOException("Failed encoding query result", CouchbaseLiteException.convertException(e));
+        }
+
+        writer.finish();
+        return writer.getRecordCount();
+    }
+
     //---------------------------------------------
     // Iterable implementation
     //---------------------------------------------
@@ -0,0 +1,35 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+/**
+ * The outcome of an attempt to save a document.
+ * Conflicts are reported as a result, instead of as an exception.
+ */
+public enum SaveResult {
+    /**
+     * The document was saved.
+     */
+    SAVED,
+    /**
+     * The document was not saved because it conflicts with the version in the database.
+     */
+    CONFLICT,
+    /**
+     * The document was not saved because the conflict handler declined to resolve the conflict.
+     */
+    REJECTED
+}
@@ -0,0 +1,284 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.couchbase.lite.internal.core.C4Query;
+import com.couchbase.lite.internal.core.C4QueryEnumerator;
+import com.couchbase.lite.internal.core.C4QueryObserver;
+import com.couchbase.lite.internal.support.Log;
+import com.couchbase.lite.internal.utils.ClassUtils;
+
+
+/**
+ * Live queries that have the same query text and the same parameters share a single C4Query.
+ * LiteCore runs a single background querier per C4Query and fans its results out
+ * to every C4QueryObserver attached to it.  Sharing the C4Query means that a database change
+ * causes the query to be re-run once, no matter how many Query objects are listening to it.
+ * Each listener still gets its own C4QueryObserver and, therefore, its own, independent, result set.
+ */
+final class SharedQueryRegistry {
+    private static final LogDomain DOMAIN = LogDomain.QUERY;
+
+    @FunctionalInterface
+    interface QueryFactory {
+        @NonNull
+        C4Query createQuery() throws CouchbaseLiteException;
+    }
+
+    /**
+     * Identifies a live query: its source text (JSON or N1QL) and its Fleece encoded parameters.
+     */
+    static final class Key {
+        @NonNull
+        private final String query;
+        @NonNull
+        private final byte[] params;
+        private final int hash;
+
+        Key(@NonNull String query, @Nullable byte[] params) {
+            this.query = query;
+            this.params = (params != null) ? params : new byte[0];
+            this.hash = (31 * query.hashCode()) + Arrays.hashCode(this.params);
+        }
+
+        @Override
+        public int hashCode() { return hash; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) { return true; }
+            if (!(o instanceof Key)) { return false; }
+            final Key other = (Key) o;
+            return query.equals(other.query) && Arrays.equals(params, other.params);
+        }
+
+        @NonNull
+        @Override
+        public String toString() { return "Key{" + query + ", " + params.length + "}"; }
+    }
+
+    private static final class SharedQuery {
+        @NonNull
+        final Key key;
+        @NonNull
+        final C4Query c4Query;
+
+        // Insertion ordered: the first subscription is the one that counts refreshes.
+        @NonNull
+        final Set<Subscription> subscriptions = new LinkedHashSet<>();
+
+        // The number of subscriptions held by each of the Query objects that share this query.
+        @NonNull
+        final Map<Object, Integer> sources = new HashMap<>();
+
+        long refreshes;
+        long savedExecutions;
+
+        SharedQuery(@NonNull Key key, @NonNull C4Query c4Query) {
+            this.key = key;
+            this.c4Query = c4Query;
+        }
+    }
+
+    /**
+     * A single listener's view of a shared query.
+     */
+    final class Subscription {
+        @NonNull
+        private final SharedQuery shared;
+        @NonNull
+        private final Object source;
+        @NonNull
+        private final C4QueryObserver.QueryChangeCallback callback;
+        @NonNull
+        private final C4QueryObserver observer;
+
+        Subscription(
+            @NonNull SharedQuery shared,
+            @NonNull Object source,
+            @NonNull C4QueryObserver.QueryChangeCallback callback) {
+            this.shared = shared;
+            this.source = source;
+            this.callback = callback;
+            // The observer will not call back until it is enabled.
+            this.observer = C4QueryObserver.create(shared.c4Query, this::onQueryChanged);
+        }
+
+        @NonNull
+        @Override
+        public String toString() { return "Subscription{" + ClassUtils.objId(this) + ", " + shared.key + "}"; }
+
+        public void setEnabled(boolean enabled) { observer.setEnabled(enabled); }
+
+        public void close() { unsubscribe(this); }
+
+        private void onQueryChanged(@Nullable C4QueryEnumerator results, @Nullable LiteCoreException err) {
+            recordRefresh(this);
+            callback.onQueryChanged(results, err);
+        }
+    }
+
+
+    @NonNull
+    private final Object lock = new Object();
+
+    @GuardedBy("lock")
+    @NonNull
+    private final Map<Key, SharedQuery> queries = new HashMap<>();
+
+    @NonNull
+    private final AtomicLong refreshes = new AtomicLong();
+    @NonNull
+    private final AtomicLong savedExecutions = new AtomicLong();
+
+    /**
+     * Subscribe to the live query identified by the passed key.
+     * If there is no such query, the factory is used to create one.
+     * The returned subscription is not enabled.
+     *
+     * @param source   the Query object to which the subscription belongs
+     * @param key      the identity of the query
+     * @param factory  a factory for a new, parameterized, C4Query, used only if there is no shared query for the key
+     * @param callback the listener's callback
+     * @return a new, disabled, subscription
+     * @throws CouchbaseLiteException on failure to create a new C4Query
+     */
+    @NonNull
+    Subscription subscribe(
+        @NonNull Object source,
+        @NonNull Key key,
+        @NonNull QueryFactory factory,
+        @NonNull C4QueryObserver.QueryChangeCallback callback)
+        throws CouchbaseLiteException {
+        Subscription subscription = subscribeExisting(source, key, callback);
+        if (subscription != null) { return subscription; }
+
+        // The factory will seize the db lock: don't call it while holding this lock.
+        final C4Query c4Query = factory.createQuery();
+
+        C4Query extra = null;
+        synchronized (lock) {
+            SharedQuery shared = queries.get(key);
+            if (shared != null) { extra = c4Query; }
+            else {
+                shared = new SharedQuery(key, c4Query);
+                queries.put(key, shared);
+            }
+            subscription = addSubscriptionLocked(shared, source, callback);
+        }
+
+        // Someone else created the query while we weren't holding the lock.
+        if (extra != null) { extra.close(); }
+
+        return subscription;
+    }
+
+    /**
+     * Total number of times that a shared query has been refreshed.
+     */
+    long getRefreshCount() { return refreshes.get(); }
+
+    /**
+     * Total number of query executions avoided because the query was shared.
+     * Each refresh of a query shared by N Query objects saves N - 1 executions.
+     */
+    long getSavedExecutionCount() { return savedExecutions.get(); }
+
+    @VisibleForTesting
+    int getSharedQueryCount() {
+        synchronized (lock) { return queries.size(); }
+    }
+
+    @Nullable
+    private Subscription subscribeExisting(
+        @NonNull Object source,
+        @NonNull Key key,
+        @NonNull C4QueryObserver.QueryChangeCallback callback) {
+        synchronized (lock) {
+            final SharedQuery shared = queries.get(key);
+            return (shared == null) ? null : addSubscriptionLocked(shared, source, callback);
+        }
+    }
+
+    @GuardedBy("lock")
+    @NonNull
+    private Subscription addSubscriptionLocked(
+        @NonNull SharedQuery shared,
+        @NonNull Object source,
+        @NonNull C4QueryObserver.QueryChangeCallback callback) {
+        final Subscription subscription = new Subscription(shared, source, callback);
+        shared.subscriptions.add(subscription);
+        final Integer n = shared.sources.get(source);
+        shared.sources.put(source, (n == null) ? 1 : n + 1);
+        return subscription;
+    }
+
+    private void unsubscribe(@NonNull Subscription subscription) {
+        subscription.observer.close();
+
+        final SharedQuery shared = subscription.shared;
+        synchronized (lock) {
+            if (!shared.subscriptions.remove(subscription)) { return; }
+
+            final Integer n = shared.sources.get(subscription.source);
+            if ((n == null) || (n <= 1)) { shared.sources.remove(subscription.source); }
+            else { shared.sources.put(subscription.source, n - 1); }
+
+            if (!shared.subscriptions.isEmpty()) { return; }
+
+            queries.remove(shared.key);
+        }
+
+        Log.d(
+            DOMAIN,
+            "Released shared query %s: %d refreshes, %d executions saved",
+            shared.key,
+            shared.refreshes,
+            shared.savedExecutions);
+
+        shared.c4Query.close();
+    }
+
+    // LiteCore notifies every observer of a query, each time it refreshes the query.
+    // Count the refresh only once: when the first subscription is notified.
+    private void recordRefresh(@NonNull Subscription subscription) {
+        final SharedQuery shared = subscription.shared;
+        final int saved;
+        synchronized (lock) {
+            final Iterator<Subscription> subscriptions = shared.subscriptions.iterator();
+            if (!subscriptions.hasNext() || (subscriptions.next() != subscription)) { return; }
+            saved = shared.sources.size() - 1;
+            shared.refreshes++;
+            shared.savedExecutions += saved;
+        }
+
+        refreshes.incrementAndGet();
+        if (saved > 0) { savedExecutions.addAndGet(saved); }
+    }
+}
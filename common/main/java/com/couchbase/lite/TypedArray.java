@@ -0,0 +1,350 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+import com.couchbase.lite.internal.fleece.FLConstants;
+import com.couchbase.lite.internal.fleece.FLDict;
+import com.couchbase.lite.internal.fleece.FLEncodable;
+import com.couchbase.lite.internal.fleece.FLEncoder;
+import com.couchbase.lite.internal.fleece.FLValue;
+import com.couchbase.lite.internal.utils.ClassUtils;
+import com.couchbase.lite.internal.utils.Preconditions;
+
+
+/**
+ * A compact, immutable array of numbers, all of the same primitive type.
+ * <p>
+ * A TypedArray is stored as a single binary value: the numbers are packed, little-endian,
+ * with no per-element overhead.  It is much smaller, and much faster to read and write,
+ * than an Array of the same numbers, making it a good choice for vectors and sensor samples.
+ * Like a Blob, it appears in its containing document as a dictionary, tagged with the property
+ * "@type": "typed_array".  Its content, however, is stored in the document itself.
+ * <p>
+ * The getters for a document property that is a TypedArray return a TypedArray.
+ * The buffer views of its content do not copy it.
+ */
+public final class TypedArray implements FLEncodable {
+    /**
+     * The type of the elements of a TypedArray.
+     */
+    public enum ElementType {
+        INT32("int32", 4),
+        INT64("int64", 8),
+        FLOAT32("float32", 4),
+        FLOAT64("float64", 8);
+
+        @NonNull
+        private final String tag;
+        private final int size;
+
+        ElementType(@NonNull String tag, int size) {
+            this.tag = tag;
+            this.size = size;
+        }
+
+        /**
+         * Get the size, in bytes, of an element of this type.
+         *
+         * @return the element size.
+         */
+        public int getSize() { return size; }
+
+        @Nullable
+        static ElementType fromTag(@Nullable String tag) {
+            for (ElementType type: values()) {
+                if (type.tag.equals(tag)) { return type; }
+            }
+            return null;
+        }
+    }
+
+    static final String TYPE_TYPED_ARRAY = "typed_array";
+    static final String PROP_ELEMENT_TYPE = "element_type";
+    static final String PROP_DATA = "data";
+
+    // Decode the stored form of a TypedArray.  Returns null if the dict is not a valid typed array.
+    @Nullable
+    static TypedArray fromFLDict(@NonNull FLDict props) {
+        final FLValue flType = props.get(PROP_ELEMENT_TYPE);
+        final ElementType type = (flType == null) ? null : ElementType.fromTag(flType.asString());
+        if (type == null) { return null; }
+
+        final FLValue flData = props.get(PROP_DATA);
+        if ((flData == null) || (flData.getType() != FLConstants.ValueType.DATA)) { return null; }
+
+        final byte[] data = flData.asData();
+        if ((data == null) || ((data.length % type.size) != 0)) { return null; }
+
+        return new TypedArray(type, data);
+    }
+
+
+    @NonNull
+    private final ElementType type;
+    @NonNull
+    private final byte[] data;
+
+    /**
+     * Create a TypedArray of 32 bit integers.  The values are copied.
+     *
+     * @param values the array content.
+     */
+    public TypedArray(@NonNull int[] values) {
+        this(ElementType.INT32, Preconditions.assertNotNull(values, "values").length);
+        buffer().asIntBuffer().put(values);
+    }
+
+    /**
+     * Create a TypedArray of 64 bit integers.  The values are copied.
+     *
+     * @param values the array content.
+     */
+    public TypedArray(@NonNull long[] values) {
+        this(ElementType.INT64, Preconditions.assertNotNull(values, "values").length);
+        buffer().asLongBuffer().put(values);
+    }
+
+    /**
+     * Create a TypedArray of 32 bit floats.  The values are copied.
+     *
+     * @param values the array content.
+     */
+    public TypedArray(@NonNull float[] values) {
+        this(ElementType.FLOAT32, Preconditions.assertNotNull(values, "values").length);
+        buffer().asFloatBuffer().put(values);
+    }
+
+    /**
+     * Create a TypedArray of 64 bit floats.  The values are copied.
+     *
+     * @param values the array content.
+     */
+    public TypedArray(@NonNull double[] values) {
+        this(ElementType.FLOAT64, Preconditions.assertNotNull(values, "values").length);
+        buffer().asDoubleBuffer().put(values);
+    }
+
+    private TypedArray(@NonNull ElementType type, int count) { this(type, new byte[count * type.size]); }
+
+    private TypedArray(@NonNull ElementType type, @NonNull byte[] data) {
+        this.type = type;
+        this.data = data;
+    }
+
+    //---------------------------------------------
+    // API - public methods
+    //---------------------------------------------
+
+    /**
+     * Get the type of the elements of this array.
+     *
+     * @return the element type.
+     */
+    @NonNull
+    public ElementType getElementType() { return type; }
+
+    /**
+     * Get the number of elements in this array.
+     *
+     * @return the element count.
+     */
+    public int count() { return data.length / type.size; }
+
+    /**
+     * Get a read-only, little-endian view of the array's content.
+     *
+     * @return a view of the content.
+     */
+    @NonNull
+    public ByteBuffer asByteBuffer() { return buffer().asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN); }
+
+    /**
+     * Get a read-only view of the content of an array of 32 bit integers.
+     *
+     * @return a view of the content.
+     * @throws IllegalStateException if the elements of this array are not INT32s
+     */
+    @NonNull
+    public IntBuffer asIntBuffer() { return checkedBuffer(ElementType.INT32).asIntBuffer(); }
+
+    /**
+     * Get a read-only view of the content of an array of 64 bit integers.
+     *
+     * @return a view of the content.
+     * @throws IllegalStateException if the elements of this array are not INT64s
+     */
+    @NonNull
+    public LongBuffer asLongBuffer() { return checkedBuffer(ElementType.INT64).asLongBuffer(); }
+
+    /**
+     * Get a read-only view of the content of an array of 32 bit floats.
+     *
+     * @return a view of the content.
+     * @throws IllegalStateException if the elements of this array are not FLOAT32s
+     */
+    @NonNull
+    public FloatBuffer asFloatBuffer() { return checkedBuffer(ElementType.FLOAT32).asFloatBuffer(); }
+
+    /**
+     * Get a read-only view of the content of an array of 64 bit floats.
+     *
+     * @return a view of the content.
+     * @throws IllegalStateException if the elements of this array are not FLOAT64s
+     */
+    @NonNull
+    public DoubleBuffer asDoubleBuffer() { return checkedBuffer(ElementType.FLOAT64).asDoubleBuffer(); }
+
+    /**
+     * Get the content of this array, of any element type, as an array of doubles.
+     * 64 bit integers may lose precision.
+     *
+     * @return the array of doubles.
+     */
+    @NonNull
+    public double[] toDoubleArray() {
+        final double[] values = new double[count()];
+        final ByteBuffer buf = asByteBuffer();
+        switch (type) {
+            case INT32:
+                for (int i = 0; i < values.length; i++) { values[i] = buf.getInt(); }
+                break;
+            case INT64:
+                for (int i = 0; i < values.length; i++) { values[i] = buf.getLong(); }
+                break;
+            case FLOAT32:
+                for (int i = 0; i < values.length; i++) { values[i] = buf.getFloat(); }
+                break;
+            case FLOAT64:
+                buf.asDoubleBuffer().get(values);
+                break;
+            default:
+                throw new IllegalStateException("Unrecognized element type: " + type);
+        }
+        return values;
+    }
+
+    /**
+     * Get the content of this array, of any element type, as an array of floats.
+     * Values may lose precision.
+     *
+     * @return the array of floats.
+     */
+    @NonNull
+    public float[] toFloatArray() {
+        if (type == ElementType.FLOAT32) {
+            final float[] values = new float[count()];
+            asFloatBuffer().get(values);
+            return values;
+        }
+
+        final double[] doubles = toDoubleArray();
+        final float[] values = new float[doubles.length];
+        for (int i = 0; i < values.length; i++) { values[i] = (float) doubles[i]; }
+        return values;
+    }
+
+    /**
+     * Get the content of this array, of any element type, as an array of longs.
+     * Floating point values are truncated.
+     *
+     * @return the array of longs.
+     */
+    @NonNull
+    public long[] toLongArray() {
+        final long[] values = new long[count()];
+        final ByteBuffer buf = asByteBuffer();
+        switch (type) {
+            case INT32:
+                for (int i = 0; i < values.length; i++) { values[i] = buf.getInt(); }
+                break;
+            case INT64:
+                buf.asLongBuffer().get(values);
+                break;
+            case FLOAT32:
+                for (int i = 0; i < values.length; i++) { values[i] = (long) buf.getFloat(); }
+                break;
+            case FLOAT64:
+                for (int i = 0; i < values.length; i++) { values[i] = (long) buf.getDouble(); }
+                break;
+            default:
+                throw new IllegalStateException("Unrecognized element type: " + type);
+        }
+        return values;
+    }
+
+    @NonNull
+    @Override
+    public String toString() { return "TypedArray{" + ClassUtils.objId(this) + ": " + type + "[" + count() + "]}"; }
+
+    @Override
+    public int hashCode() { return 31 * type.hashCode() + Arrays.hashCode(data); }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) { return true; }
+        if (!(o instanceof TypedArray)) { return false; }
+        final TypedArray other = (TypedArray) o;
+        return (type == other.type) && Arrays.equals(data, other.data);
+    }
+
+    //---------------------------------------------
+    // FLEncodable implementation
+    //---------------------------------------------
+
+    /**
+     * Internal method: Do not use.
+     */
+    // Public because of the FLEncodable interface
+    @Override
+    public void encodeTo(@NonNull FLEncoder encoder) {
+        encoder.beginDict(3);
+
+        encoder.writeKey(Blob.META_PROP_TYPE);
+        encoder.writeString(TYPE_TYPED_ARRAY);
+
+        encoder.writeKey(PROP_ELEMENT_TYPE);
+        encoder.writeString(type.tag);
+
+        encoder.writeKey(PROP_DATA);
+        encoder.writeData(data);
+
+        encoder.endDict();
+    }
+
+    //---------------------------------------------
+    // Private methods
+    //---------------------------------------------
+
+    @NonNull
+    private ByteBuffer buffer() { return ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN); }
+
+    @NonNull
+    private ByteBuffer checkedBuffer(@NonNull ElementType expected) {
+        if (type != expected) { throw new IllegalStateException("Elements are " + type + ", not " + expected); }
+        return asByteBuffer();
+    }
+}
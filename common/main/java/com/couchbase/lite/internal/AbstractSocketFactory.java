@@ -32,6 +32,7 @@ import com.couchbase.lite.URLEndpoint;
 import com.couchbase.lite.internal.core.C4Replicator;
 import com.couchbase.lite.internal.replicator.CBLCookieStore;
 import com.couchbase.lite.internal.replicator.CBLWebSocket;
+import com.couchbase.lite.internal.sockets.NioSocket;
 import com.couchbase.lite.internal.sockets.OkHttpSocket;
 import com.couchbase.lite.internal.sockets.SocketFromCore;
 import com.couchbase.lite.internal.sockets.SocketToCore;
@@ -53,6 +54,8 @@ public abstract class AbstractSocketFactory {
     @NonNull
     protected final Endpoint endpoint;
 
+    private final boolean nioTransportEnabled;
+
     // Test instrumentation
     @GuardedBy("endpoint")
     @Nullable
@@ -65,6 +68,7 @@ public abstract class AbstractSocketFactory {
         this.endpoint = config.getTarget();
         this.cookieStore = cookieStore;
         this.serverCertsListener = serverCertsListener;
+        this.nioTransportEnabled = config.isNioTransportEnabled();
     }
 
     @NonNull
@@ -115,12 +119,15 @@ public abstract class AbstractSocketFactory {
             return null;
         }
 
-
-            final SocketToRemote toRemote = new OkHttpSocket();
-            final CBLWebSocket socket = new CBLWebSocket(toRemote, toCore, uri, opts, cookieStore, serverCertsListener);
-            toRemote.init(socket);
-            return socket;
-     }
+        // The NIO transport doesn't do TLS.
+        final SocketToRemote toRemote
+            = (nioTransportEnabled && C4Replicator.WEBSOCKET_SCHEME.equals(uri.getScheme()))
+            ? new NioSocket()
+            : new OkHttpSocket();
+        final CBLWebSocket socket = new CBLWebSocket(toRemote, toCore, uri, opts, cookieStore, serverCertsListener);
+        toRemote.init(socket);
+        return socket;
+    }
 
     // OkHttp doesn't understand blip or blips
     @NonNull
@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 
 import com.couchbase.lite.Authenticator;
+import com.couchbase.lite.BatchConflictResolver;
 import com.couchbase.lite.ConflictResolver;
 import com.couchbase.lite.Database;
 import com.couchbase.lite.Endpoint;
@@ -74,6 +75,16 @@ public class BaseImmutableReplicatorConfiguration {
     private final int maxRetryAttemptWaitTime;
     private final int heartbeat;
     private final boolean enableAutoPurge;
+    private final long progressNotificationInterval;
+    @Nullable
+    private final BatchConflictResolver batchConflictResolver;
+    private final long writeQueueHighWaterMark;
+    private final boolean nioTransportEnabled;
+    private final boolean messageCompressionEnabled;
+    private final long messageCompressionThreshold;
+    private final int messageCompressionLevel;
+    private final int maxConnectionsPerHost;
+    private final int tlsSessionCacheSize;
     @NonNull
     private final Endpoint target;
 
@@ -96,6 +107,15 @@ public class BaseImmutableReplicatorConfiguration {
         this.maxRetryAttemptWaitTime = config.getMaxAttemptWaitTime();
         this.heartbeat = config.getHeartbeat();
         this.enableAutoPurge = config.isAutoPurgeEnabled();
+        this.progressNotificationInterval = config.getProgressNotificationInterval();
+        this.batchConflictResolver = config.getBatchConflictResolver();
+        this.writeQueueHighWaterMark = config.getWriteQueueHighWaterMark();
+        this.nioTransportEnabled = config.isNioTransportEnabled();
+        this.messageCompressionEnabled = config.isMessageCompressionEnabled();
+        this.messageCompressionThreshold = config.getMessageCompressionThreshold();
+        this.messageCompressionLevel = config.getMessageCompressionLevel();
+        this.maxConnectionsPerHost = config.getMaxConnectionsPerHost();
+        this.tlsSessionCacheSize = config.getTlsSessionCacheSize();
         this.target = config.getTarget();
     }
 
@@ -144,6 +164,9 @@ public class BaseImmutableReplicatorConfiguration {
     @Nullable
     public final ConflictResolver getConflictResolver() { return conflictResolver; }
 
+    @Nullable
+    public final BatchConflictResolver getBatchConflictResolver() { return batchConflictResolver; }
+
     public final int getMaxRetryAttempts() { return maxRetryAttempts; }
 
     public final int getMaxRetryAttemptWaitTime() { return maxRetryAttemptWaitTime; }
@@ -152,6 +175,22 @@ public class BaseImmutableReplicatorConfiguration {
 
     public final boolean isAutoPurgeEnabled() { return enableAutoPurge; }
 
+    public final long getProgressNotificationInterval() { return progressNotificationInterval; }
+
+    public final long getWriteQueueHighWaterMark() { return writeQueueHighWaterMark; }
+
+    public final boolean isNioTransportEnabled() { return nioTransportEnabled; }
+
+    public final boolean isMessageCompressionEnabled() { return messageCompressionEnabled; }
+
+    public final long getMessageCompressionThreshold() { return messageCompressionThreshold; }
+
+    public final int getMessageCompressionLevel() { return messageCompressionLevel; }
+
+    public final int getMaxConnectionsPerHost() { return maxConnectionsPerHost; }
+
+    public final int getTlsSessionCacheSize() { return tlsSessionCacheSize; }
+
     @NonNull
     public final Endpoint getTarget() { return target; }
 
@@ -188,6 +227,25 @@ public class BaseImmutableReplicatorConfiguration {
 
         if (!enableAutoPurge) { options.put(C4Replicator.REPLICATOR_OPTION_ENABLE_AUTO_PURGE, Boolean.FALSE); }
 
+        if (writeQueueHighWaterMark > 0) {
+            options.put(C4Replicator.SOCKET_OPTION_WRITE_HIGH_WATER_MARK, writeQueueHighWaterMark);
+        }
+
+        if (!messageCompressionEnabled) { options.put(C4Replicator.SOCKET_OPTION_COMPRESSION, Boolean.FALSE); }
+        if (messageCompressionThreshold > 0) {
+            options.put(C4Replicator.SOCKET_OPTION_COMPRESSION_THRESHOLD, messageCompressionThreshold);
+        }
+        if (messageCompressionLevel > 0) {
+            options.put(C4Replicator.SOCKET_OPTION_COMPRESSION_LEVEL, messageCompressionLevel);
+        }
+
+        if (maxConnectionsPerHost > 0) {
+            options.put(C4Replicator.SOCKET_OPTION_MAX_CONNECTIONS_PER_HOST, maxConnectionsPerHost);
+        }
+        if (tlsSessionCacheSize > 0) {
+            options.put(C4Replicator.SOCKET_OPTION_TLS_SESSION_CACHE_SIZE, tlsSessionCacheSize);
+        }
+
         final Map<String, Object> httpHeaders = new HashMap<>();
         httpHeaders.put("User-Agent", CBLVersion.getUserAgent());
 
@@ -268,6 +268,12 @@ public abstract class C4Database extends C4NativePeer {
         return new C4Document(getPeer(), docID, true);
     }
 
+    // Enumerate documents in sequence order, starting after the given sequence.
+    @NonNull
+    public C4DocEnumerator enumerateChanges(long since, int flags) throws LiteCoreException {
+        return new C4DocEnumerator(getPeer(), since, flags);
+    }
+
     // - Purging and Expiration
 
     public void setExpiration(@NonNull String docID, long timestamp) throws LiteCoreException {
@@ -283,6 +289,14 @@ public abstract class C4Database extends C4NativePeer {
         return new C4Document(C4Document.create2(getPeer(), docID, body != null ? body.getHandle() : 0, flags));
     }
 
+    // Like create, but returns null, instead of throwing, if the document already exists.
+    @Nullable
+    public C4Document tryCreate(@NonNull String docID, @Nullable FLSliceResult body, int flags)
+        throws LiteCoreException {
+        final long doc = C4Document.tryCreate(getPeer(), docID, body != null ? body.getHandle() : 0, flags);
+        return (doc == 0) ? null : new C4Document(doc);
+    }
+
     ////////////////////////////////////////////////////////////////
     // C4DatabaseObserver/C4DocumentObserver
     ////////////////////////////////////////////////////////////////
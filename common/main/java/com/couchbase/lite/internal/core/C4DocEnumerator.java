@@ -18,17 +18,11 @@ package com.couchbase.lite.internal.core;
 import androidx.annotation.CallSuper;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.annotation.VisibleForTesting;
 
 import com.couchbase.lite.LiteCoreException;
 import com.couchbase.lite.LogDomain;
 
 
-/**
- * Unfortunately, the build system depends on having all the classes with native methods
- * in the main source tree.  Moving this class to the test tree would require major changes
- */
-@VisibleForTesting
 public class C4DocEnumerator extends C4NativePeer {
 
     //-------------------------------------------------------------------------
@@ -103,6 +103,14 @@ public class C4Document extends C4NativePeer {
         return (newDoc == 0) ? null : new C4Document(newDoc);
     }
 
+    // Like update, but returns null, instead of throwing, if the update conflicts.
+    @Nullable
+    public C4Document tryUpdate(@Nullable FLSliceResult body, int flags) throws LiteCoreException {
+        final long bodyHandle = (body != null) ? body.getHandle() : 0;
+        final long newDoc = withPeer(0L, h -> tryUpdate(h, bodyHandle, flags));
+        return (newDoc == 0) ? null : new C4Document(newDoc);
+    }
+
     @VisibleForTesting
     @Nullable
     public C4Document update(@NonNull byte[] body, int flags) throws LiteCoreException {
@@ -201,6 +209,9 @@ public class C4Document extends C4NativePeer {
 
     static native long create2(long db, String docID, long body, int flags) throws LiteCoreException;
 
+    // returns 0 if the document already exists
+    static native long tryCreate(long db, String docID, long body, int flags) throws LiteCoreException;
+
     @SuppressWarnings("PMD.ExcessiveParameterList")
     static native long put(
         long db,
@@ -304,6 +315,9 @@ public class C4Document extends C4NativePeer {
 
     private static native long update2(long doc, long body, int flags) throws LiteCoreException;
 
+    // returns 0 if the update conflicts
+    private static native long tryUpdate(long doc, long body, int flags) throws LiteCoreException;
+
     // - Fleece-related
 
     // doc -> pointer to C4Document
@@ -102,7 +102,7 @@ public class C4QueryObserver extends C4NativePeer {
         return "C4QueryObserver{" + ClassUtils.objId(this) + "/" + super.toString() + ": " + token + "}";
     }
 
-    public void setEnabled(boolean enabled) { impl.nSetEnabled(getPeer(), enabled); }
+    public void setEnabled(boolean enabled) { withPeer(peer -> impl.nSetEnabled(peer, enabled)); }
 
     @Override
     protected void finalize() throws Throwable {
@@ -23,6 +23,13 @@ import com.couchbase.lite.AbstractReplicator;
 
 @FunctionalInterface
 public interface C4ReplicationFilter {
+    /**
+     * A filter that does not run client code.
+     * It is run directly on the replicator's thread, instead of being handed to a client task.
+     */
+    @FunctionalInterface
+    interface Inline extends C4ReplicationFilter { }
+
     boolean validationFunction(
         @Nullable String docID,
         @Nullable String revID,
@@ -102,6 +102,13 @@ public class C4Replicator extends C4NativePeer {
     // WebSocket protocol options (WebSocketInterface.hh)
     public static final String REPLICATOR_HEARTBEAT_INTERVAL = "heartbeat"; // Interval in secs to send a keep-alive: ping
     public static final String SOCKET_OPTION_WS_PROTOCOLS = "WS-Protocols"; ///< Sec-WebSocket-Protocol header value
+    // Platform only: not a LiteCore option
+    public static final String SOCKET_OPTION_WRITE_HIGH_WATER_MARK = "writeHighWaterMark"; // max bytes queued for send
+    public static final String SOCKET_OPTION_COMPRESSION = "compression"; // false to disable permessage-deflate
+    public static final String SOCKET_OPTION_COMPRESSION_THRESHOLD = "compressionThreshold"; // min bytes to compress
+    public static final String SOCKET_OPTION_COMPRESSION_LEVEL = "compressionLevel"; // deflate level: 1-9
+    public static final String SOCKET_OPTION_MAX_CONNECTIONS_PER_HOST = "maxConnectionsPerHost"; // OkHttp dispatcher
+    public static final String SOCKET_OPTION_TLS_SESSION_CACHE_SIZE = "tlsSessionCacheSize"; // cached TLS sessions
     static final String REPLICATOR_AUTH_OPTION = "auth";       // Auth settings: Dict
     // Auth dictionary keys:
     public static final String REPLICATOR_AUTH_TYPE = "type"; ///< Auth type; see [2] (string)
@@ -197,6 +204,14 @@ public class C4Replicator extends C4NativePeer {
 
         if (filter == null) { return true; }
 
+        if (filter instanceof C4ReplicationFilter.Inline) {
+            try { return filter.validationFunction(docID, revID, flags, dict, isPush, repl); }
+            catch (RuntimeException e) {
+                Log.w(LogDomain.REPLICATOR, "Replication filter failed", e);
+                return false;
+            }
+        }
+
         final ClientTask<Boolean> task
             = new ClientTask<>(() -> filter.validationFunction(docID, revID, flags, dict, isPush, repl));
         task.execute();
@@ -19,6 +19,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
+import java.nio.ByteBuffer;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -70,6 +71,8 @@ public final class C4Socket extends C4NativePeer implements SocketToCore {
         void nGotHTTPResponse(long peer, int httpStatus, @Nullable byte[] responseHeadersFleece);
         void nCompletedWrite(long peer, long byteCount);
         void nReceived(long peer, byte[] data);
+        // data must be a direct buffer
+        void nReceivedBuffer(long peer, ByteBuffer data, int offset, int length);
         void nCloseRequested(long peer, int status, @Nullable String message);
         void nClosed(long peer, int errorDomain, int errorCode, String message);
     }
@@ -310,6 +313,22 @@ public final class C4Socket extends C4NativePeer implements SocketToCore {
         withPeer(peer -> impl.nReceived(peer, data));
     }
 
+    // Native code reads a direct buffer in place.
+    @Override
+    public void writeToCore(@NonNull ByteBuffer data) {
+        final int len = data.remaining();
+        Log.d(LOG_DOMAIN, "%s.sendToCore(%d)", this, len);
+
+        if (!data.isDirect()) {
+            final byte[] bytes = new byte[len];
+            data.get(bytes);
+            writeToCore(bytes);
+            return;
+        }
+
+        withPeer(peer -> impl.nReceivedBuffer(peer, data, data.position(), len));
+    }
+
     @Override
     public void requestCoreClose(@NonNull CloseStatus status) {
         Log.d(LOG_DOMAIN, "%s.requestCoreClose(%d): '%s'", this, status.code, status.message);
@@ -17,6 +17,8 @@ package com.couchbase.lite.internal.core.impl;
 
 import androidx.annotation.Nullable;
 
+import java.nio.ByteBuffer;
+
 import com.couchbase.lite.internal.core.C4Socket;
 
 
@@ -47,6 +49,11 @@ public class NativeC4Socket implements C4Socket.NativeImpl {
     @Override
     public void nReceived(long peer, byte[] data) { received(peer, data); }
 
+    @Override
+    public void nReceivedBuffer(long peer, ByteBuffer data, int offset, int length) {
+        receivedBuffer(peer, data, offset, length);
+    }
+
     @Override
     public void nCloseRequested(long peer, int status, @Nullable String message) {
         closeRequested(peer, status, message);
@@ -80,6 +87,8 @@ public class NativeC4Socket implements C4Socket.NativeImpl {
 
     private static native void received(long peer, byte[] data);
 
+    private static native void receivedBuffer(long peer, ByteBuffer data, int offset, int length);
+
     private static native void closeRequested(long peer, int status, @Nullable String message);
 
     private static native void closed(long peer, int errorDomain, int errorCode, String message);
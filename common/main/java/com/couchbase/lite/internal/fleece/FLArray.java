@@ -57,6 +57,30 @@ public class FLArray {
     @NonNull
     public FLValue get(long index) { return new FLValue(get(peer, index)); }
 
+    /**
+     * Copy the array's values, as doubles, into the passed buffer, in a single native call.
+     *
+     * @param dst the buffer into which to copy the values
+     * @return the number of values copied: the lesser of the array's count and the buffer's length.
+     */
+    public int copyTo(@NonNull double[] dst) { return copyDoubles(peer, dst); }
+
+    /**
+     * Copy the array's values, as floats, into the passed buffer, in a single native call.
+     *
+     * @param dst the buffer into which to copy the values
+     * @return the number of values copied: the lesser of the array's count and the buffer's length.
+     */
+    public int copyTo(@NonNull float[] dst) { return copyFloats(peer, dst); }
+
+    /**
+     * Copy the array's values, as longs, into the passed buffer, in a single native call.
+     *
+     * @param dst the buffer into which to copy the values
+     * @return the number of values copied: the lesser of the array's count and the buffer's length.
+     */
+    public int copyTo(@NonNull long[] dst) { return copyLongs(peer, dst); }
+
     @NonNull
     public List<Object> asArray() { return asTypedArray(); }
 
@@ -90,4 +114,10 @@ public class FLArray {
     private static native long count(long array);
 
     private static native long get(long array, long index);
+
+    private static native int copyDoubles(long array, @NonNull double[] dst);
+
+    private static native int copyFloats(long array, @NonNull float[] dst);
+
+    private static native int copyLongs(long array, @NonNull long[] dst);
 }
@@ -53,6 +53,10 @@ public class FLDict {
         return hValue != 0L ? new FLValue(hValue) : null;
     }
 
+    // Look up a key, using the key's cached shared-key mapping.
+    @Nullable
+    public FLValue get(@NonNull FLDictKey key) { return key.getFrom(handle); }
+
     @NonNull
     public Map<String, Object> asDict() {
         final Map<String, Object> results = new HashMap<>();
@@ -0,0 +1,97 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal.fleece;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.couchbase.lite.LogDomain;
+import com.couchbase.lite.internal.core.C4NativePeer;
+import com.couchbase.lite.internal.utils.Preconditions;
+
+
+/**
+ * A key for fast, repeated lookups in FLDicts.
+ * The key string is converted to UTF-8 once.  The key's shared-key mapping is cached, but Fleece
+ * never re-resolves it: the native code remembers the shared keys for which the mapping was made
+ * and, when the key is used with a dict that has different shared keys (e.g., from another database),
+ * re-initializes it.  Alternating between databases, therefore, gives up most of the benefit.
+ * The cache is not thread-safe: lookups are serialized on the peer lock.
+ */
+public final class FLDictKey extends C4NativePeer {
+    @NonNull
+    private final String name;
+
+    //-------------------------------------------------------------------------
+    // Constructor
+    //-------------------------------------------------------------------------
+
+    public FLDictKey(@NonNull String name) {
+        super(init(Preconditions.assertNotNull(name, "name")));
+        this.name = name;
+    }
+
+    //-------------------------------------------------------------------------
+    // public methods
+    //-------------------------------------------------------------------------
+
+    @NonNull
+    public String getName() { return name; }
+
+    @NonNull
+    @Override
+    public String toString() { return "FLDictKey{" + name + "}"; }
+
+    @Override
+    public void close() { closePeer(null); }
+
+    //-------------------------------------------------------------------------
+    // package protected methods
+    //-------------------------------------------------------------------------
+
+    @Nullable
+    FLValue getFrom(long dict) {
+        final long hValue = withPeer(0L, peer -> get(peer, dict));
+        return (hValue == 0L) ? null : new FLValue(hValue);
+    }
+
+    //-------------------------------------------------------------------------
+    // protected methods
+    //-------------------------------------------------------------------------
+
+    @SuppressWarnings("NoFinalizer")
+    @Override
+    protected void finalize() throws Throwable {
+        try { closePeer(LogDomain.DATABASE); }
+        finally { super.finalize(); }
+    }
+
+    //-------------------------------------------------------------------------
+    // Private methods
+    //-------------------------------------------------------------------------
+
+    private void closePeer(@Nullable LogDomain domain) { releasePeer(domain, FLDictKey::free); }
+
+    //-------------------------------------------------------------------------
+    // native methods
+    //-------------------------------------------------------------------------
+
+    private static native long init(@NonNull String name);
+
+    private static native long get(long key, long dict);
+
+    private static native void free(long key);
+}
@@ -18,6 +18,8 @@ package com.couchbase.lite.internal.fleece;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -142,6 +144,28 @@ public abstract class FLEncoder extends C4NativePeer {
 
     public boolean writeKey(String slice) { return writeKey(getPeer(), slice); }
 
+    // Parses the JSON and writes it as a single value, entirely in native code.
+    // On failure, the parse error is thrown by finish.
+    public boolean writeJSON(@NonNull String json) { return writeJSON(json.getBytes(StandardCharsets.UTF_8)); }
+
+    // As above, for JSON that is already UTF-8 encoded.
+    public boolean writeJSON(@NonNull byte[] json) { return writeJSON(getPeer(), json); }
+
+    // Write the entries of the dict, except those whose keys are in the collection, in a single native call.
+    public boolean writeEntriesExcept(@NonNull FLDict dict, @NonNull Collection<String> keys) {
+        final long peer = getPeer();
+        final String[] except = keys.toArray(new String[0]);
+        final Boolean ok = dict.withContent(hdl -> writeEntriesExcept(peer, hdl, except));
+        return (ok != null) && ok;
+    }
+
+    // Write a primitive array as a Fleece array, in a single native call.
+    public boolean writeArray(@NonNull double[] values) { return writeDoubleArray(getPeer(), values); }
+
+    public boolean writeArray(@NonNull float[] values) { return writeFloatArray(getPeer(), values); }
+
+    public boolean writeArray(@NonNull long[] values) { return writeLongArray(getPeer(), values); }
+
     @SuppressWarnings({"unchecked", "PMD.NPathComplexity"})
     public boolean writeValue(@Nullable Object value) {
         final long peer = getPeer();
@@ -281,6 +305,16 @@ public abstract class FLEncoder extends C4NativePeer {
 
     private static native boolean writeKey(long encoder, String slice);
 
+    private static native boolean writeJSON(long encoder, byte[] json);
+
+    private static native boolean writeEntriesExcept(long encoder, long dict, String[] keys);
+
+    private static native boolean writeDoubleArray(long encoder, double[] values);
+
+    private static native boolean writeFloatArray(long encoder, float[] values);
+
+    private static native boolean writeLongArray(long encoder, long[] values);
+
     @NonNull
     private static native byte[] finish(long encoder) throws LiteCoreException;
 
@@ -195,6 +195,10 @@ public class FLValue {
     @NonNull
     public <T> List<T> asTypedArray() { return asFLArray().asTypedArray(); }
 
+    // The value must be an array.
+    @NonNull
+    public FLArray asFLArray() { return new FLArray(asArray(handle)); }
+
     /**
      * Returns the contents as a dictionary.
      *
@@ -246,9 +250,6 @@ public class FLValue {
     @Nullable
     <T> T withContent(@NonNull Fn.Function<Long, T> fn) { return fn.apply(handle); }
 
-    @NonNull
-    FLArray asFLArray() { return new FLArray(asArray(handle)); }
-
     //-------------------------------------------------------------------------
     // native methods
     //-------------------------------------------------------------------------
@@ -28,6 +28,10 @@ public final class JSONEncoder extends FLEncoder.ManagedFLEncoder {
     @NonNull
     public String finishJSON() throws LiteCoreException { return finishJSON(getPeer()); }
 
+    // The UTF-8 encoded JSON: this avoids creating a String when the JSON is going to be written to a stream.
+    @NonNull
+    public byte[] finishJSONBytes() throws LiteCoreException { return finishJSONBytes(getPeer()); }
+
     @NonNull
     public byte[] finish() throws LiteCoreException {
         throw new UnsupportedOperationException("finish not supported for JSONEncoders");
@@ -48,4 +52,7 @@ public final class JSONEncoder extends FLEncoder.ManagedFLEncoder {
 
     @NonNull
     static native String finishJSON(long peer);
+
+    @NonNull
+    static native byte[] finishJSONBytes(long peer) throws LiteCoreException;
 }
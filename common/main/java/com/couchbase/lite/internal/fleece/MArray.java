@@ -24,8 +24,11 @@ import java.util.List;
 
 // ??? Why isn't this iterable?
 public class MArray extends MCollection {
+    // The values list may be shared with copies of this array, or with the array of which this is a copy.
+    // A shared list is never changed: it is copied before the first change to either array.
     @NonNull
     private List<MValue> values = new ArrayList<>();
+    private boolean sharedValues;
 
     @Nullable
     private FLArray baseArray;
@@ -37,7 +40,9 @@ public class MArray extends MCollection {
     public void initAsCopyOf(@NonNull MArray array, boolean isMutable) {
         super.initAsCopyOf(array, isMutable);
         baseArray = array.getBaseArray();
-        values = new ArrayList<>(array.values);
+        values = array.values;
+        sharedValues = true;
+        array.sharedValues = true;
     }
 
     @Nullable
@@ -56,7 +61,7 @@ public class MArray extends MCollection {
         MValue value = values.get((int) index);
         if (value.isEmpty() && (baseArray != null)) {
             value = new MValue(baseArray.get(index));
-            values.set((int) index, value);
+            getOwnValues().set((int) index, value);
         }
 
         return value;
@@ -68,7 +73,7 @@ public class MArray extends MCollection {
         if ((index < 0) || (index >= count())) { return false; }
 
         mutate();
-        values.set((int) index, new MValue(value));
+        getOwnValues().set((int) index, new MValue(value));
 
         return true;
     }
@@ -81,7 +86,7 @@ public class MArray extends MCollection {
         if (index < count()) { populateValues(); }
 
         mutate();
-        values.add((int) index, new MValue(value));
+        getOwnValues().add((int) index, new MValue(value));
 
         return true;
     }
@@ -100,7 +105,7 @@ public class MArray extends MCollection {
         if (end < count) { populateValues(); }
 
         mutate();
-        values.subList((int) start, (int) end).clear();
+        getOwnValues().subList((int) start, (int) end).clear();
 
         return true;
     }
@@ -113,7 +118,8 @@ public class MArray extends MCollection {
         if (values.isEmpty()) { return true; }
 
         mutate();
-        values.clear();
+        values = new ArrayList<>();
+        sharedValues = false;
 
         return true;
     }
@@ -161,9 +167,10 @@ public class MArray extends MCollection {
 
     void resize(long newSize) {
         final int count = values.size();
-        if (newSize < count) { values.subList((int) newSize, count).clear(); }
+        if (newSize < count) { getOwnValues().subList((int) newSize, count).clear(); }
         else if (newSize > count) {
-            for (int i = 0; i < newSize - count; i++) { values.add(MValue.EMPTY); }
+            final List<MValue> vals = getOwnValues();
+            for (int i = 0; i < newSize - count; i++) { vals.add(MValue.EMPTY); }
         }
     }
 
@@ -172,7 +179,17 @@ public class MArray extends MCollection {
 
         final int size = values.size();
         for (int i = 0; i < size; i++) {
-            if (values.get(i).isEmpty()) { values.set(i, new MValue(baseArray.get(i))); }
+            if (values.get(i).isEmpty()) { getOwnValues().set(i, new MValue(baseArray.get(i))); }
         }
     }
+
+    // Get a values list that can be changed: copy the list if it is shared.
+    @NonNull
+    private List<MValue> getOwnValues() {
+        if (sharedValues) {
+            values = new ArrayList<>(values);
+            sharedValues = false;
+        }
+        return values;
+    }
 }
@@ -24,14 +24,58 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import com.couchbase.lite.internal.utils.Fn;
 import com.couchbase.lite.internal.utils.Preconditions;
 
 
 public class MDict extends MCollection implements Iterable<String> {
+    // Copies of a dict share the values cached or changed before the copy was made.
+    // The values are frozen in a chain of layers, newest first: neither the original nor the copy
+    // ever changes a layer.  Each keeps its own subsequent changes in its private valueMap.
+    // A copy, then, costs only the allocation of a layer, and the cost of a change is independent
+    // of the size of the dict.
+    private static final class Layer {
+        @NonNull
+        final Map<String, MValue> values;
+        @Nullable
+        final Layer parent;
+        final int depth;
+
+        Layer(@NonNull Map<String, MValue> values, @Nullable Layer parent) {
+            this.values = values;
+            this.parent = parent;
+            this.depth = (parent == null) ? 1 : parent.depth + 1;
+        }
+
+        @Nullable
+        MValue get(@NonNull String key) {
+            for (Layer layer = this; layer != null; layer = layer.parent) {
+                final MValue value = layer.values.get(key);
+                if (value != null) { return value; }
+            }
+            return null;
+        }
+
+        // A new map containing the values from all of the layers
+        @NonNull
+        Map<String, MValue> flatten() {
+            final Map<String, MValue> all = (parent == null) ? new HashMap<>() : parent.flatten();
+            all.putAll(values);
+            return all;
+        }
+    }
+
+    // Flatten the shared layers when there are more than this many.
+    private static final int MAX_LAYERS = 8;
+
     // ??? What is this for?
     private final List<String> newKey = new ArrayList<>();
+    // Values read or changed since this dict was last copied: private to this dict.
     @NonNull
     private Map<String, MValue> valueMap = new HashMap<>();
+    // Values shared with copies of this dict, or with the dict of which it is a copy.
+    @Nullable
+    private Layer shared;
     @Nullable
     private FLDict flDict;
     private long valCount;
@@ -50,7 +94,7 @@ public class MDict extends MCollection implements Iterable<String> {
     public MDict(@NonNull MDict mDict, boolean isMutable) {
         super.initAsCopyOf(mDict, isMutable);
         flDict = mDict.flDict;
-        valueMap = new HashMap<>(mDict.valueMap);
+        shared = mDict.share();
         valCount = mDict.valCount;
     }
 
@@ -64,20 +108,32 @@ public class MDict extends MCollection implements Iterable<String> {
     public MValue get(@NonNull String key) {
         Preconditions.assertNotNull(key, "key");
 
-        final MValue v = valueMap.get(key);
+        final MValue v = lookup(key);
         if (v != null) { return v; }
 
-        final FLValue value = (flDict == null) ? null: flDict.get(key);
+        final FLValue value = (flDict == null) ? null : flDict.get(key);
         return (value == null) ? MValue.EMPTY : setInMap(key, new MValue(value));
     }
 
+    // As above, but uses the key's cached shared-key mapping to look up values in the Fleece dict.
+    @NonNull
+    public MValue get(@NonNull FLDictKey key) {
+        final String name = key.getName();
+
+        final MValue v = lookup(name);
+        if (v != null) { return v; }
+
+        final FLValue value = (flDict == null) ? null : flDict.get(key);
+        return (value == null) ? MValue.EMPTY : setInMap(name, new MValue(value));
+    }
+
     public boolean set(String key, @NonNull MValue value) {
         Preconditions.assertNotNull(key, "key");
         Preconditions.assertThat(this, "Cannot call set() on an immutable MDict", MCollection::isMutable);
 
-        final MValue oValue = valueMap.get(key);
+        final MValue oValue = lookup(key);
         if (oValue != null) {
-            // Found in valueMap; update value:
+            // Found in the cached values; update value:
             if (value.isEmpty() && oValue.isEmpty()) { return true; }
             mutate();
             valCount += (value.isEmpty() ? 0 : 1) - (oValue.isEmpty() ? 0 : 1);
@@ -102,23 +158,26 @@ public class MDict extends MCollection implements Iterable<String> {
 
     public boolean contains(String key) {
         Preconditions.assertNotNull(key, "key");
-        final MValue mValue = valueMap.get(key);
+        final MValue mValue = lookup(key);
+        return (mValue != null) ? !mValue.isEmpty() : ((flDict != null) && (flDict.get(key) != null));
+    }
+
+    public boolean contains(@NonNull FLDictKey key) {
+        final MValue mValue = lookup(key.getName());
         return (mValue != null) ? !mValue.isEmpty() : ((flDict != null) && (flDict.get(key) != null));
     }
 
     @NonNull
     public List<String> getKeys() {
         final List<String> keys = new ArrayList<>();
-        for (Map.Entry<String, MValue> entry: valueMap.entrySet()) {
-            if (!entry.getValue().isEmpty()) { keys.add(entry.getKey()); }
-        }
+        forEachValue(entry -> { if (!entry.getValue().isEmpty()) { keys.add(entry.getKey()); } });
 
         if ((flDict != null) && (flDict.count() > 0)) {
             try (FLDictIterator itr = new FLDictIterator()) {
                 itr.begin(flDict);
                 String key;
                 while ((key = itr.getKeyString()) != null) {
-                    if (!valueMap.containsKey(key)) { keys.add(key); }
+                    if (lookup(key) == null) { keys.add(key); }
                     itr.next();
                 }
             }
@@ -136,6 +195,7 @@ public class MDict extends MCollection implements Iterable<String> {
 
         mutate();
         valueMap.clear();
+        shared = null;
 
         if ((flDict != null) && (flDict.count() > 0)) {
             try (FLDictIterator itr = new FLDictIterator()) {
@@ -173,27 +233,18 @@ public class MDict extends MCollection implements Iterable<String> {
         else {
             enc.beginDict(valCount);
 
-            for (Map.Entry<String, MValue> entry: valueMap.entrySet()) {
+            final List<String> cachedKeys = new ArrayList<>();
+            forEachValue(entry -> {
+                cachedKeys.add(entry.getKey());
                 final MValue value = entry.getValue();
                 if (!value.isEmpty()) {
                     enc.writeKey(entry.getKey());
                     value.encodeTo(enc);
                 }
-            }
+            });
 
-            if ((flDict != null) && (flDict.count() > 0)) {
-                try (FLDictIterator itr = new FLDictIterator()) {
-                    itr.begin(flDict);
-                    String key;
-                    while ((key = itr.getKeyString()) != null) {
-                        if (!valueMap.containsKey(key)) {
-                            enc.writeKey(key);
-                            enc.writeValue(itr.getValue());
-                        }
-                        itr.next();
-                    }
-                }
-            }
+            // Copy the values that have not been read or changed, straight from the Fleece dict.
+            if ((flDict != null) && (flDict.count() > 0)) { enc.writeEntriesExcept(flDict, cachedKeys); }
 
             enc.endDict();
         }
@@ -223,6 +274,43 @@ public class MDict extends MCollection implements Iterable<String> {
     // Private (in class only)
     //---------------------------------------------
 
+    // Freeze the values private to this dict into a new layer, that it shares with a copy.
+    @Nullable
+    private Layer share() {
+        if (!valueMap.isEmpty()) {
+            shared = new Layer(valueMap, shared);
+            valueMap = new HashMap<>();
+            if (shared.depth > MAX_LAYERS) { shared = new Layer(shared.flatten(), null); }
+        }
+        return shared;
+    }
+
+    @Nullable
+    private MValue lookup(@NonNull String key) {
+        final MValue value = valueMap.get(key);
+        return ((value != null) || (shared == null)) ? value : shared.get(key);
+    }
+
+    // Visit each of the cached or changed values, both private and shared, without copying them.
+    // A key may be in more than one of the maps: visit only its newest value.
+    private void forEachValue(@NonNull Fn.Consumer<Map.Entry<String, MValue>> visitor) {
+        for (Map.Entry<String, MValue> entry: valueMap.entrySet()) { visitor.accept(entry); }
+        for (Layer layer = shared; layer != null; layer = layer.parent) {
+            for (Map.Entry<String, MValue> entry: layer.values.entrySet()) {
+                if (!hasNewerValue(entry.getKey(), layer)) { visitor.accept(entry); }
+            }
+        }
+    }
+
+    // True if the value for the key is in a map newer than the given layer.
+    private boolean hasNewerValue(@NonNull String key, @NonNull Layer layer) {
+        if (valueMap.containsKey(key)) { return true; }
+        for (Layer newer = shared; newer != layer; newer = newer.parent) {
+            if (newer.values.containsKey(key)) { return true; }
+        }
+        return false;
+    }
+
     @NonNull
     private MValue setInMap(@NonNull String key, @NonNull MValue value) {
         newKey.add(key);
@@ -42,6 +42,9 @@ public class ChangeListenerToken<T> implements ListenerToken {
     @Nullable
     public Object getKey() { return key; }
 
+    @Nullable
+    public Executor getExecutor() { return executor; }
+
     public void setKey(@Nullable Object key) { this.key = key; }
 
     @NonNull
@@ -1,26 +1,37 @@
 package com.couchbase.lite.internal.replicator;
 
+import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.security.SignatureException;
 import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509TrustManager;
 
+import okio.ByteString;
+
 import com.couchbase.lite.LogDomain;
 import com.couchbase.lite.internal.support.Log;
 import com.couchbase.lite.internal.utils.Fn;
@@ -34,8 +45,52 @@ import com.couchbase.lite.internal.utils.StringUtils;
  * 3. Supports default trust manager for validating certs when the pinned server
  *      certificate and acceptOnlySelfSignedServerCertificate are not used.
  * 4. Allows to listen for the server certificates.
+ * 5. Caches chains that have been verified, so that reconnections don't pay for verification again.
+ *      A cached verification lasts until any certificate in the chain expires, or for an hour,
+ *      whichever is sooner.  The cache key includes the trust settings: changing the pinned
+ *      certificate invalidates cached verifications.
  */
 public abstract class AbstractCBLTrustManager implements X509TrustManager {
+    @VisibleForTesting
+    static final int MAX_TRUSTED_CHAINS = 64;
+    private static final long MAX_TRUST_AGE_MS = TimeUnit.HOURS.toMillis(1);
+
+    private static final class TrustedChain {
+        private final long expiresMs;
+        @Nullable
+        private final List<X509Certificate> verifiedChain;
+
+        TrustedChain(long expiresMs, @Nullable List<X509Certificate> verifiedChain) {
+            this.expiresMs = expiresMs;
+            this.verifiedChain = verifiedChain;
+        }
+    }
+
+    // Shared by all trust managers: the key identifies the trust settings.
+    @GuardedBy("TRUSTED_CHAINS")
+    @NonNull
+    private static final Map<String, TrustedChain> TRUSTED_CHAINS
+        = new LinkedHashMap<String, TrustedChain>(MAX_TRUSTED_CHAINS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TrustedChain> eldest) {
+            return size() > MAX_TRUSTED_CHAINS;
+        }
+    };
+
+    @NonNull
+    private static final AtomicLong CACHE_HITS = new AtomicLong();
+    @NonNull
+    private static final AtomicLong CACHE_MISSES = new AtomicLong();
+
+    public static long getTrustCacheHits() { return CACHE_HITS.get(); }
+
+    public static long getTrustCacheMisses() { return CACHE_MISSES.get(); }
+
+    @VisibleForTesting
+    static void clearTrustCache() {
+        synchronized (TRUSTED_CHAINS) { TRUSTED_CHAINS.clear(); }
+    }
+
     @Nullable
     private final X509Certificate pinnedServerCertificate;
 
@@ -75,14 +130,16 @@ public abstract class AbstractCBLTrustManager implements X509TrustManager {
 
         notifyListener(serverCerts);
 
-        if (useCBLTrustManagement()) {
-            cBLServerTrustCheck(serverCerts, authType);
-            return;
-        }
+        final String key = getTrustKey(serverCerts, authType, null);
+        if (getTrustedChain(key) != null) { return; }
 
-        Log.d(LogDomain.NETWORK, "Default trust check: %d, %s", (chain == null) ? 0 : chain.length, authType);
+        if (useCBLTrustManagement()) { cBLServerTrustCheck(serverCerts, authType); }
+        else {
+            Log.d(LogDomain.NETWORK, "Default trust check: %d, %s", (chain == null) ? 0 : chain.length, authType);
+            getDefaultTrustManager().checkServerTrusted(chain, authType);
+        }
 
-        getDefaultTrustManager().checkServerTrusted(chain, authType);
+        putTrustedChain(key, serverCerts, null);
     }
 
 
@@ -118,6 +175,82 @@ public abstract class AbstractCBLTrustManager implements X509TrustManager {
         }
     }
 
+    /**
+     * Compute the cache key for a chain: a digest of the trust settings, the auth type, the host (if any)
+     * and the chain itself.  Returns null if the chain cannot be cached.
+     */
+    @Nullable
+    protected final String getTrustKey(
+        @NonNull List<X509Certificate> certs,
+        @Nullable String authType,
+        @Nullable String host) {
+        if (certs.isEmpty() || StringUtils.isEmpty(authType)) { return null; }
+
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((byte) (acceptOnlySelfSignedServerCertificate ? 1 : 0));
+            if (pinnedServerCertificate != null) { digest.update(pinnedServerCertificate.getEncoded()); }
+            digest.update((byte) 0);
+            digest.update(authType.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            if (host != null) { digest.update(host.getBytes(StandardCharsets.UTF_8)); }
+            for (X509Certificate cert: certs) {
+                digest.update((byte) 0);
+                digest.update(cert.getEncoded());
+            }
+            return ByteString.of(digest.digest()).hex();
+        }
+        catch (NoSuchAlgorithmException | CertificateEncodingException e) {
+            Log.d(LogDomain.NETWORK, "Cannot cache certificate chain", e);
+            return null;
+        }
+    }
+
+    /**
+     * Look up a previously verified chain.
+     * Returns null if the chain has not been verified or if the verification has expired.
+     */
+    @Nullable
+    protected final List<X509Certificate> getTrustedChain(@Nullable String key) {
+        if (key == null) { return null; }
+
+        final TrustedChain trusted;
+        synchronized (TRUSTED_CHAINS) {
+            trusted = TRUSTED_CHAINS.get(key);
+            if ((trusted != null) && (trusted.expiresMs <= System.currentTimeMillis())) {
+                TRUSTED_CHAINS.remove(key);
+                CACHE_MISSES.incrementAndGet();
+                return null;
+            }
+        }
+
+        if (trusted == null) {
+            CACHE_MISSES.incrementAndGet();
+            return null;
+        }
+
+        CACHE_HITS.incrementAndGet();
+        return (trusted.verifiedChain != null) ? trusted.verifiedChain : Collections.emptyList();
+    }
+
+    /**
+     * Remember a verified chain.  The verification expires when the first of the certificates does.
+     */
+    protected final void putTrustedChain(
+        @Nullable String key,
+        @NonNull List<X509Certificate> certs,
+        @Nullable List<X509Certificate> verifiedChain) {
+        if (key == null) { return; }
+
+        long expiresMs = System.currentTimeMillis() + MAX_TRUST_AGE_MS;
+        for (X509Certificate cert: certs) { expiresMs = Math.min(expiresMs, cert.getNotAfter().getTime()); }
+
+        final TrustedChain trusted = new TrustedChain(
+            expiresMs,
+            (verifiedChain == null) ? null : Collections.unmodifiableList(verifiedChain));
+        synchronized (TRUSTED_CHAINS) { TRUSTED_CHAINS.put(key, trusted); }
+    }
+
     protected final void notifyListener(@NonNull List<X509Certificate> certs) {
         serverCertsListener.accept(Collections.unmodifiableList(certs));
     }
@@ -27,6 +27,7 @@ import java.net.PortUnreachableException;
 import java.net.SocketException;
 import java.net.URI;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
@@ -40,11 +41,9 @@ import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.KeyManager;
-import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLHandshakeException;
 import javax.net.ssl.SSLPeerUnverifiedException;
-import javax.net.ssl.TrustManager;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import okhttp3.Authenticator;
@@ -59,9 +58,11 @@ import okhttp3.Response;
 
 import com.couchbase.lite.LiteCoreException;
 import com.couchbase.lite.LogDomain;
+import com.couchbase.lite.internal.CouchbaseLiteInternal;
 import com.couchbase.lite.internal.core.C4Constants;
 import com.couchbase.lite.internal.core.C4Replicator;
 import com.couchbase.lite.internal.core.peers.TaggedWeakPeerBinding;
+import com.couchbase.lite.internal.exec.ExecutionService;
 import com.couchbase.lite.internal.fleece.FLEncoder;
 import com.couchbase.lite.internal.fleece.FLValue;
 import com.couchbase.lite.internal.sockets.CloseStatus;
@@ -123,6 +124,11 @@ public abstract class AbstractCBLWebSocket implements SocketFromCore, SocketFrom
     private static final int MAX_AUTH_RETRIES = 3;
     public static final int DEFAULT_HEARTBEAT_SEC = 300;
 
+    // Core's writes are not acknowledged while OkHttp has more than this many bytes queued for transmission
+    public static final long DEFAULT_WRITE_HIGH_WATER_MARK = 1024 * 1024;
+    // How often to check whether OkHttp's queue has drained, while acks are deferred
+    private static final long WRITE_QUEUE_POLL_MS = 10;
+
     private static final String CHALLENGE_BASIC = "Basic";
     private static final String HEADER_AUTH = "Authorization";
     public static final String HEADER_COOKIES = "Cookies"; // client customized cookies
@@ -159,12 +165,13 @@ public abstract class AbstractCBLWebSocket implements SocketFromCore, SocketFrom
          * <p>
          * 2. Database Cookie Store
          * - After receiving an HTTP request, a server can send one or more Set-Cookie headers with the response.
-         * OkHttp saves the cookies from the response in the CookieJar. The ReplicatorCookieStore then passes these
-         * cookies to C4Database, which then sends them to LiteCore. LiteCore saves these cookies in the database's
-         * cookie store until needed.
-         * - Whenever there's a request, we load these cookies from the CookieJar by calling cookieStore.getCookies.
-         * The actual implementation of this method is LiteCore function c4db_getCookie, which gets all the cookies in
-         * the database’s cookie store.
+         * OkHttp saves the cookies from the response in the CookieJar. The database's CookieCache then passes these
+         * cookies, asynchronously, to C4Database, which then sends them to LiteCore. LiteCore saves these cookies in
+         * the database's cookie store until needed.
+         * - Whenever there's a request, we load these cookies from the CookieJar by calling cookieStore.loadCookies.
+         * The database keeps an in-memory copy of its cookie store (CookieCache), so this call does not wait for the
+         * database lock.  The cache reads the cookies for a URL, once, with the LiteCore function c4db_getCookie, and
+         * writes new cookies back to LiteCore in the background.
          * <p>
          * This function combines the cookies stored in the options map and Set cookies stored in CookieStore into a
          * list and gives it to remote OkHttp to create a "Cookie" header.
@@ -190,8 +197,7 @@ public abstract class AbstractCBLWebSocket implements SocketFromCore, SocketFrom
                 }
 
                 // Set cookies in the CookieStore
-                final String setCookies = cookieStore.getCookies(url.uri());
-                if (setCookies != null) { cookies.addAll(CBLCookieStore.parseCookies(url, setCookies)); }
+                cookies.addAll(cookieStore.loadCookies(url));
 
                 return cookies;
             }
@@ -240,6 +246,28 @@ public abstract class AbstractCBLWebSocket implements SocketFromCore, SocketFrom
     @NonNull
     private final StateMachine<SocketState> state = SocketState.getSocketStateMachine();
 
+    // Write flow control: Core limits the number of bytes it has written but that have not been acknowledged.
+    // Acknowledging a write only once OkHttp has (nearly) transmitted it, keeps OkHttp's queue from growing
+    // without bound, when the network is slower than Core.
+    private final long writeHighWaterMark;
+    @NonNull
+    private final Object writeLock = new Object();
+    @GuardedBy("writeLock")
+    private long unackedBytes;
+    @GuardedBy("writeLock")
+    private boolean acksDeferred;
+    @GuardedBy("writeLock")
+    private long unackedSinceNs;
+    @GuardedBy("writeLock")
+    @Nullable
+    private ExecutionService.Cancellable pendingWriteAck;
+    @GuardedBy("writeLock")
+    private long maxQueuedBytes;
+    @GuardedBy("writeLock")
+    private long deferredAcks;
+    @GuardedBy("writeLock")
+    private long maxAckLatencyNs;
+
     //-------------------------------------------------------------------------
     // Constructor
     //-------------------------------------------------------------------------
@@ -257,6 +285,13 @@ public abstract class AbstractCBLWebSocket implements SocketFromCore, SocketFrom
         this.options = (opts == null) ? null : Collections.unmodifiableMap(FLValue.fromData(opts).asDict());
         this.cookieStore = cookieStore;
         this.serverCertsListener = serverCertsListener;
+
+        final Object highWaterMark = (options == null)
+            ? null
+            : options.get(C4Replicator.SOCKET_OPTION_WRITE_HIGH_WATER_MARK);
+        this.writeHighWaterMark = ((highWaterMark instanceof Number) && (((Number) highWaterMark).longValue() > 0))
+            ? ((Number) highWaterMark).longValue()
+            : DEFAULT_WRITE_HIGH_WATER_MARK;
     }
 
     @Override
@@ -269,6 +304,24 @@ public abstract class AbstractCBLWebSocket implements SocketFromCore, SocketFrom
     @VisibleForTesting
     public Map<String, Object> getOptions() { return options; }
 
+    @VisibleForTesting
+    public long getWriteHighWaterMark() { return writeHighWaterMark; }
+
+    // The largest number of bytes seen in OkHttp's outbound queue
+    public long getMaxQueuedBytes() {
+        synchronized (writeLock) { return maxQueuedBytes; }
+    }
+
+    // The number of times an ack was deferred because OkHttp's queue was too full
+    public long getDeferredAckCount() {
+        synchronized (writeLock) { return deferredAcks; }
+    }
+
+    // The longest time for which an ack was deferred
+    public long getMaxAckLatencyMs() {
+        synchronized (writeLock) { return TimeUnit.NANOSECONDS.toMillis(maxAckLatencyNs); }
+    }
+
     //-------------------------------------------------------------------------
     // Abstract methods
     //-------------------------------------------------------------------------
@@ -305,16 +358,25 @@ public abstract class AbstractCBLWebSocket implements SocketFromCore, SocketFrom
     // Core wants to send data to the remote
     // There is a race here: the socket could be closed between the write and the ack.  :shrug:
     // Note that, if the write fails, we depend on the remote closing the connection.
+    // The write is acknowledged immediately only if OkHttp's queue is below the high-water mark.
+    // Otherwise, the ack is deferred until the queue drains.
     @Override
     public final void coreWrites(@NonNull byte[] data) {
         final int len = data.length;
         Log.d(LOG_DOMAIN, "%s.coreWrites(%d)", this, len);
         if (!assertState(SocketState.OPEN, SocketState.CLOSING)) { return; }
-        if (toRemote.writeToRemote(data)) {
-            toCore.ackWriteToCore(len);
+        if (!toRemote.writeToRemote(data)) {
+            Log.i(LOG_DOMAIN, "CBLWebSocket failed to send data of length: " + len);
             return;
         }
-        Log.i(LOG_DOMAIN, "CBLWebSocket failed to send data of length: " + len);
+
+        final long ackBytes;
+        synchronized (writeLock) {
+            unackedBytes += len;
+            ackBytes = getAckableBytesLocked();
+        }
+
+        if (ackBytes > 0) { toCore.ackWriteToCore(ackBytes); }
     }
 
     // Core confirms the reception of n bytes.  The remote doesn't care...
@@ -392,6 +454,13 @@ public abstract class AbstractCBLWebSocket implements SocketFromCore, SocketFrom
         toCore.writeToCore(data);
     }
 
+    @Override
+    public void remoteWrites(@NonNull ByteBuffer data) {
+        Log.d(LOG_DOMAIN, "%s.remoteWrites(%d)", this, data.remaining());
+        if (!assertState(SocketState.OPEN, SocketState.CLOSING)) { return; }
+        toCore.writeToCore(data);
+    }
+
     @Override
     public void remoteRequestsClose(@NonNull CloseStatus status) {
         Log.d(LOG_DOMAIN, "%s.remoteRequestsClose: %s", this, status);
@@ -403,6 +472,7 @@ public abstract class AbstractCBLWebSocket implements SocketFromCore, SocketFrom
     public void remoteClosed(@NonNull CloseStatus status) {
         Log.d(LOG_DOMAIN, "%s.remoteClosed(%d): %s", this, status);
         if (!changeState(SocketState.CLOSED)) { return; }
+        stopWriteFlowControl();
         if (status.code == C4Constants.WebSocketError.NORMAL) {
             status = new CloseStatus(
                 C4Constants.ErrorDomain.LITE_CORE,
@@ -416,6 +486,7 @@ public abstract class AbstractCBLWebSocket implements SocketFromCore, SocketFrom
     public void remoteFailed(@NonNull Throwable err) {
         Log.d(LOG_DOMAIN, "%s.remoteFailed: %s", err, this);
         if (!changeState(SocketState.CLOSED)) { return; }
+        stopWriteFlowControl();
         toCore.closeCore(getStatusForError(err));
     }
 
@@ -423,6 +494,86 @@ public abstract class AbstractCBLWebSocket implements SocketFromCore, SocketFrom
     // private methods
     //-------------------------------------------------------------------------
 
+    // Return the number of bytes that can be acknowledged to Core, now.
+    // If OkHttp's queue is too full, return 0 and make sure that a check is scheduled for later.
+    @GuardedBy("writeLock")
+    private long getAckableBytesLocked() {
+        if (unackedBytes <= 0) { return 0; }
+
+        final long queued = toRemote.getQueueSize();
+        if (queued > maxQueuedBytes) { maxQueuedBytes = queued; }
+
+        final long now = System.nanoTime();
+        if (queued > writeHighWaterMark) {
+            if (!acksDeferred) {
+                acksDeferred = true;
+                deferredAcks++;
+                unackedSinceNs = now;
+            }
+            if (pendingWriteAck == null) {
+                final ExecutionService exec = CouchbaseLiteInternal.getExecutionService();
+                pendingWriteAck = exec.postDelayedOnExecutor(
+                    WRITE_QUEUE_POLL_MS,
+                    exec.getDefaultExecutor(),
+                    this::pollWriteQueue);
+            }
+            return 0;
+        }
+
+        if (pendingWriteAck != null) {
+            pendingWriteAck.cancel();
+            pendingWriteAck = null;
+        }
+
+        if (acksDeferred) {
+            acksDeferred = false;
+            final long latency = now - unackedSinceNs;
+            if (latency > maxAckLatencyNs) { maxAckLatencyNs = latency; }
+        }
+
+        final long ackBytes = unackedBytes;
+        unackedBytes = 0;
+        return ackBytes;
+    }
+
+    private void pollWriteQueue() {
+        if (!assertState(SocketState.OPEN, SocketState.CLOSING)) { return; }
+
+        final long ackBytes;
+        synchronized (writeLock) {
+            pendingWriteAck = null;
+            ackBytes = getAckableBytesLocked();
+        }
+
+        if (ackBytes > 0) { toCore.ackWriteToCore(ackBytes); }
+    }
+
+    private void stopWriteFlowControl() {
+        final long maxQueued;
+        final long deferred;
+        final long maxLatency;
+        synchronized (writeLock) {
+            if (pendingWriteAck != null) {
+                pendingWriteAck.cancel();
+                pendingWriteAck = null;
+            }
+            unackedBytes = 0;
+            maxQueued = maxQueuedBytes;
+            deferred = deferredAcks;
+            maxLatency = TimeUnit.NANOSECONDS.toMillis(maxAckLatencyNs);
+        }
+
+        if (deferred <= 0) { return; }
+
+        Log.i(
+            LOG_DOMAIN,
+            "%s: write flow control: max queued %d bytes, %d deferred acks, max ack latency %dms",
+            this,
+            maxQueued,
+            deferred,
+            maxLatency);
+    }
+
     // change state.
     private boolean changeState(@NonNull SocketState newState) {
         synchronized (getLock()) { return state.setState(newState); }
@@ -545,7 +696,8 @@ public abstract class AbstractCBLWebSocket implements SocketFromCore, SocketFrom
     private void setupSSLSocketFactory(@NonNull OkHttpClient.Builder builder) throws GeneralSecurityException {
         X509Certificate pinnedServerCert = null;
         boolean acceptOnlySelfSignedServerCert = false;
-        KeyManager[] keyManagers = null;
+        KeyManager keyManager = null;
+        int sessionCacheSize = 0;
         if (options != null) {
             // Pinned Certificate:
             Object opt = options.get(C4Replicator.REPLICATOR_OPTION_PINNED_SERVER_CERT);
@@ -564,17 +716,24 @@ public abstract class AbstractCBLWebSocket implements SocketFromCore, SocketFrom
             if (opt instanceof Boolean) { acceptOnlySelfSignedServerCert = (boolean) opt; }
 
             // KeyManager for client cert authentication:
-            final KeyManager clientCertAuthKeyManager = getAuthenticator();
-            if (clientCertAuthKeyManager != null) { keyManagers = new KeyManager[] {clientCertAuthKeyManager}; }
-        }
+            keyManager = getAuthenticator();
 
-        // TrustManager for server cert verification:
-        final CBLTrustManager trustManager
-            = new CBLTrustManager(pinnedServerCert, acceptOnlySelfSignedServerCert, serverCertsListener);
+            // TLS session cache size
+            opt = options.get(C4Replicator.SOCKET_OPTION_TLS_SESSION_CACHE_SIZE);
+            if (opt instanceof Number) { sessionCacheSize = ((Number) opt).intValue(); }
+        }
 
-        final SSLContext sslContext = SSLContext.getInstance("TLS");
-        sslContext.init(keyManagers, new TrustManager[] {trustManager}, null);
-        builder.sslSocketFactory(sslContext.getSocketFactory(), trustManager);
+        // Connections to the same host, with the same settings, share an SSLContext: they can resume TLS sessions.
+        // The context's TrustManager verifies server certs.
+        final TlsContextCache.Context tlsContext = TlsContextCache.getContext(
+            String.valueOf(uri.getHost()),
+            uri.getPort(),
+            pinnedServerCert,
+            acceptOnlySelfSignedServerCert,
+            keyManager,
+            sessionCacheSize,
+            serverCertsListener);
+        builder.sslSocketFactory(tlsContext.getSslContext().getSocketFactory(), tlsContext.getTrustManager());
 
         // HostnameVerifier:
         if (pinnedServerCert != null || acceptOnlySelfSignedServerCert) {
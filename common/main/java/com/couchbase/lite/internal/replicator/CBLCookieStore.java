@@ -49,4 +49,14 @@ public interface CBLCookieStore {
 
     @Nullable
     String getCookies(@NonNull URI uri);
+
+    /**
+     * Get the cookies for the url, as OkHttp Cookies.
+     * Stores that keep parsed cookies should override this.
+     */
+    @NonNull
+    default List<Cookie> loadCookies(@NonNull HttpUrl url) {
+        final String cookies = getCookies(url.uri());
+        return (cookies == null) ? new ArrayList<>() : parseCookies(url, cookies);
+    }
 }
@@ -0,0 +1,296 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal.replicator;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import okhttp3.Cookie;
+import okhttp3.HttpUrl;
+
+import com.couchbase.lite.LogDomain;
+import com.couchbase.lite.internal.support.Log;
+
+
+/**
+ * An in-memory, write-through cache in front of a database's persistent cookie store.
+ * <p>
+ * The persistent store is LiteCore's cookie store: every access to it takes the database lock.
+ * A replicator that is reconnecting should not have to wait for some long-running write to finish,
+ * just to get its session cookie.  This cache loads the cookies for a URL from the persistent store
+ * once, and then serves them without taking any lock.  New cookies are visible immediately and
+ * are written to the persistent store, in order, on the given (serial) executor.
+ * <p>
+ * The persistent store returns only the names and values of the cookies for a URL.  The cache
+ * can't tell when those cookies expire, so it reloads them, in the background, every now and then.
+ */
+public final class CookieCache implements CBLCookieStore {
+    private static final LogDomain DOMAIN = LogDomain.NETWORK;
+
+    @VisibleForTesting
+    static final long REFRESH_INTERVAL_MS = 5 * 60 * 1000;
+
+    // A cookie that has been cached but not yet written to the persistent store.
+    // Instances are compared by identity.
+    private static final class PendingCookie {
+        @NonNull
+        final URI uri;
+        @NonNull
+        final String header;
+        @Nullable
+        final Cookie cookie;
+
+        PendingCookie(@NonNull URI uri, @NonNull String header, @Nullable Cookie cookie) {
+            this.uri = uri;
+            this.header = header;
+            this.cookie = cookie;
+        }
+    }
+
+    // The cookies for a single URL.  Reads are lock-free: the list is an immutable snapshot.
+    private static final class Entry {
+        @NonNull
+        final HttpUrl url;
+
+        @Nullable
+        volatile List<Cookie> cookies;
+
+        @GuardedBy("this")
+        long loadedAt;
+        // Incremented by every change: a background reload must not overwrite a newer cookie.
+        @GuardedBy("this")
+        int version;
+
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(@NonNull HttpUrl url) { this.url = url; }
+
+        // Replace any cookie with the same name.  An expired cookie is a deletion.
+        @GuardedBy("this")
+        void apply(@NonNull Cookie cookie, long now) {
+            final List<Cookie> current = cookies;
+            final List<Cookie> updated = new ArrayList<>();
+            if (current != null) {
+                for (Cookie c: current) {
+                    if (!c.name().equals(cookie.name())) { updated.add(c); }
+                }
+            }
+            if (cookie.expiresAt() > now) { updated.add(cookie); }
+            cookies = Collections.unmodifiableList(updated);
+            version++;
+        }
+    }
+
+
+    @NonNull
+    private final CBLCookieStore store;
+    @NonNull
+    private final Executor executor;
+
+    @NonNull
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    @NonNull
+    private final Queue<PendingCookie> pending = new ConcurrentLinkedQueue<>();
+
+    public CookieCache(@NonNull CBLCookieStore store, @NonNull Executor executor) {
+        this.store = store;
+        this.executor = executor;
+    }
+
+    @Override
+    public void setCookie(@NonNull URI uri, @NonNull String setCookieHeader) {
+        final HttpUrl url = HttpUrl.get(uri);
+        final Cookie cookie = (url == null) ? null : Cookie.parse(url, setCookieHeader);
+
+        // Queue the cookie before updating the entries.  An entry that this loop doesn't see
+        // was created after the cookie was queued: its load will find the cookie in the queue.
+        final PendingCookie pendingCookie = new PendingCookie(uri, setCookieHeader, cookie);
+        pending.add(pendingCookie);
+
+        if (cookie != null) {
+            final long now = System.currentTimeMillis();
+            for (Entry entry: entries.values()) {
+                if (!cookie.matches(entry.url)) { continue; }
+                synchronized (entry) {
+                    if (entry.cookies != null) { entry.apply(cookie, now); }
+                }
+            }
+        }
+
+        try { executor.execute(this::flush); }
+        catch (RejectedExecutionException e) {
+            Log.w(DOMAIN, "Cannot persist cookie for %s: the database is closed", uri);
+            pending.remove(pendingCookie);
+        }
+    }
+
+    @Nullable
+    @Override
+    public String getCookies(@NonNull URI uri) {
+        final HttpUrl url = HttpUrl.get(uri);
+        if (url == null) { return store.getCookies(uri); }
+
+        final List<Cookie> cookies = loadCookies(url);
+        if (cookies.isEmpty()) { return null; }
+
+        final StringBuilder buf = new StringBuilder();
+        for (Cookie cookie: cookies) {
+            if (buf.length() > 0) { buf.append("; "); }
+            buf.append(cookie.name()).append('=').append(cookie.value());
+        }
+        return buf.toString();
+    }
+
+    @NonNull
+    @Override
+    public List<Cookie> loadCookies(@NonNull HttpUrl url) {
+        final Entry entry = getEntry(url);
+
+        List<Cookie> cookies = entry.cookies;
+        if (cookies == null) { cookies = load(entry); }
+        else if (isStale(entry)) { refresh(entry); }
+
+        final long now = System.currentTimeMillis();
+        for (Cookie cookie: cookies) {
+            if (cookie.expiresAt() <= now) { return removeExpired(cookies, now); }
+        }
+
+        return cookies;
+    }
+
+    /**
+     * Write any cached cookies to the persistent store, in the order they were set.
+     * This is the task run on the executor.  It must also be run, synchronously,
+     * before the persistent store is closed.
+     */
+    public void flush() {
+        // An item is removed from the queue only after it has been written:
+        // an entry that is loading takes a snapshot of the queue before it reads the store,
+        // so it finds every cookie either in that snapshot or in the store.
+        PendingCookie pendingCookie;
+        while ((pendingCookie = pending.peek()) != null) {
+            store.setCookie(pendingCookie.uri, pendingCookie.header);
+            pending.remove(pendingCookie);
+        }
+    }
+
+    @VisibleForTesting
+    int getPendingCount() { return pending.size(); }
+
+    @NonNull
+    private Entry getEntry(@NonNull HttpUrl url) {
+        final String key = url.newBuilder().query(null).fragment(null).build().toString();
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            final Entry newEntry = new Entry(url);
+            entry = entries.putIfAbsent(key, newEntry);
+            if (entry == null) { entry = newEntry; }
+        }
+        return entry;
+    }
+
+    // The first load for a URL is synchronous: there is no other way to get the cookies.
+    @NonNull
+    private List<Cookie> load(@NonNull Entry entry) {
+        synchronized (entry) {
+            final List<Cookie> cached = entry.cookies;
+            if (cached != null) { return cached; }
+
+            // Cookies that were set, but had not been persisted when the store was read.
+            // flush() may persist, and dequeue, some of these while the store is being read:
+            // a snapshot taken after the read might miss them.
+            final List<PendingCookie> unwritten = new ArrayList<>(pending);
+
+            entry.cookies = Collections.unmodifiableList(readStore(entry.url));
+            entry.loadedAt = System.currentTimeMillis();
+
+            applyPending(entry, unwritten);
+
+            return entry.cookies;
+        }
+    }
+
+    private boolean isStale(@NonNull Entry entry) {
+        synchronized (entry) { return (System.currentTimeMillis() - entry.loadedAt) > REFRESH_INTERVAL_MS; }
+    }
+
+    // Reload the entry, in the background.  Because the executor is serial, the reload happens after
+    // all of the cookies that have already been set, have been persisted.
+    private void refresh(@NonNull Entry entry) {
+        if (!entry.refreshing.compareAndSet(false, true)) { return; }
+
+        final Runnable task = () -> {
+            try {
+                final int version;
+                synchronized (entry) { version = entry.version; }
+
+                final List<Cookie> cookies = readStore(entry.url);
+
+                synchronized (entry) {
+                    entry.loadedAt = System.currentTimeMillis();
+                    // If a cookie was set during the reload, keep the cached cookies: they are newer.
+                    if (version != entry.version) { return; }
+                    entry.cookies = Collections.unmodifiableList(cookies);
+                    // flush() runs on the same executor: the queue can't have changed during the read.
+                    applyPending(entry, pending);
+                }
+            }
+            finally { entry.refreshing.set(false); }
+        };
+
+        try { executor.execute(task); }
+        catch (RejectedExecutionException e) { entry.refreshing.set(false); }
+    }
+
+    @GuardedBy("entry")
+    private void applyPending(@NonNull Entry entry, @NonNull Collection<PendingCookie> cookies) {
+        final long now = System.currentTimeMillis();
+        for (PendingCookie pendingCookie: cookies) {
+            final Cookie cookie = pendingCookie.cookie;
+            if ((cookie != null) && cookie.matches(entry.url)) { entry.apply(cookie, now); }
+        }
+    }
+
+    @NonNull
+    private List<Cookie> readStore(@NonNull HttpUrl url) {
+        final String cookies = store.getCookies(url.uri());
+        return (cookies == null) ? new ArrayList<>() : CBLCookieStore.parseCookies(url, cookies);
+    }
+
+    @NonNull
+    private List<Cookie> removeExpired(@NonNull List<Cookie> cookies, long now) {
+        final List<Cookie> live = new ArrayList<>();
+        for (Cookie cookie: cookies) {
+            if (cookie.expiresAt() > now) { live.add(cookie); }
+        }
+        return live;
+    }
+}
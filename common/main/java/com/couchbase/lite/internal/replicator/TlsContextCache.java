@@ -0,0 +1,324 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal.replicator;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.lang.ref.WeakReference;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedKeyManager;
+import javax.net.ssl.X509KeyManager;
+
+import com.couchbase.lite.internal.utils.Fn;
+
+
+/**
+ * SSLContexts shared by the connections to a single host, that use the same TLS settings.
+ * <p>
+ * A TLS session can only be resumed by a connection made with the SSLContext that created it.
+ * Creating a new context for each connection means that every connection does a full handshake.
+ * Sharing the context means that, after a network blip, reconnecting replicators can resume
+ * their sessions, instead.
+ * <p>
+ * The trust manager is part of the shared context, so it reports server certificates to every
+ * replicator that uses the context: they are all connecting to the same host.  A resumed session
+ * doesn't call the trust manager, so a replicator that starts using a context is told about the
+ * last certificates that the context saw.
+ * <p>
+ * A client key manager belongs to a single authenticator and is held only weakly, both by the key
+ * and by the context: the cache must not keep a client identity alive after its replicators are gone.
+ * A context whose key manager has been collected is dropped.
+ */
+final class TlsContextCache {
+    @VisibleForTesting
+    static final int MAX_CONTEXTS = 32;
+
+    private static final class Key {
+        @NonNull
+        private final String host;
+        private final int port;
+        @Nullable
+        private final byte[] pinnedCert;
+        private final boolean acceptOnlySelfSignedCert;
+        // Key managers are compared by identity: they are bound to a single authenticator.
+        @Nullable
+        private final WeakReference<KeyManager> keyManager;
+        private final int keyManagerHash;
+        private final int sessionCacheSize;
+
+        Key(
+            @NonNull String host,
+            int port,
+            @Nullable byte[] pinnedCert,
+            boolean acceptOnlySelfSignedCert,
+            @Nullable KeyManager keyManager,
+            int sessionCacheSize) {
+            this.host = host;
+            this.port = port;
+            this.pinnedCert = pinnedCert;
+            this.acceptOnlySelfSignedCert = acceptOnlySelfSignedCert;
+            this.keyManager = (keyManager == null) ? null : new WeakReference<>(keyManager);
+            this.keyManagerHash = System.identityHashCode(keyManager);
+            this.sessionCacheSize = sessionCacheSize;
+        }
+
+        // True if this key had a key manager that has since been collected
+        boolean isStale() { return (keyManager != null) && (keyManager.get() == null); }
+
+        @Nullable
+        private KeyManager getKeyManager() { return (keyManager == null) ? null : keyManager.get(); }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (this == o) { return true; }
+            if (!(o instanceof Key)) { return false; }
+            final Key key = (Key) o;
+            if ((keyManager == null) != (key.keyManager == null)) { return false; }
+            final KeyManager km = getKeyManager();
+            if ((keyManager != null) && ((km == null) || (km != key.getKeyManager()))) { return false; }
+            return (port == key.port)
+                && (acceptOnlySelfSignedCert == key.acceptOnlySelfSignedCert)
+                && (sessionCacheSize == key.sessionCacheSize)
+                && host.equals(key.host)
+                && Arrays.equals(pinnedCert, key.pinnedCert);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(
+                host,
+                port,
+                Arrays.hashCode(pinnedCert),
+                acceptOnlySelfSignedCert,
+                keyManagerHash,
+                sessionCacheSize);
+        }
+    }
+
+    // Delegates to a key manager that it holds only weakly.
+    // Once the key manager has been collected, it has no client identity to offer.
+    private static final class WeakKeyManager extends X509ExtendedKeyManager {
+        @NonNull
+        private final WeakReference<X509KeyManager> keyManager;
+
+        WeakKeyManager(@NonNull X509KeyManager keyManager) { this.keyManager = new WeakReference<>(keyManager); }
+
+        @Nullable
+        @Override
+        public String[] getClientAliases(String keyType, Principal[] issuers) {
+            final X509KeyManager km = keyManager.get();
+            return (km == null) ? null : km.getClientAliases(keyType, issuers);
+        }
+
+        @Nullable
+        @Override
+        public String chooseClientAlias(String[] keyType, Principal[] issuers, Socket socket) {
+            final X509KeyManager km = keyManager.get();
+            return (km == null) ? null : km.chooseClientAlias(keyType, issuers, socket);
+        }
+
+        @Nullable
+        @Override
+        public String chooseEngineClientAlias(String[] keyType, Principal[] issuers, SSLEngine engine) {
+            final X509KeyManager km = keyManager.get();
+            if (km instanceof X509ExtendedKeyManager) {
+                return ((X509ExtendedKeyManager) km).chooseEngineClientAlias(keyType, issuers, engine);
+            }
+            return (km == null) ? null : km.chooseClientAlias(keyType, issuers, null);
+        }
+
+        @Nullable
+        @Override
+        public String[] getServerAliases(String keyType, Principal[] issuers) {
+            final X509KeyManager km = keyManager.get();
+            return (km == null) ? null : km.getServerAliases(keyType, issuers);
+        }
+
+        @Nullable
+        @Override
+        public String chooseServerAlias(String keyType, Principal[] issuers, Socket socket) {
+            final X509KeyManager km = keyManager.get();
+            return (km == null) ? null : km.chooseServerAlias(keyType, issuers, socket);
+        }
+
+        @Nullable
+        @Override
+        public X509Certificate[] getCertificateChain(String alias) {
+            final X509KeyManager km = keyManager.get();
+            return (km == null) ? null : km.getCertificateChain(alias);
+        }
+
+        @Nullable
+        @Override
+        public PrivateKey getPrivateKey(String alias) {
+            final X509KeyManager km = keyManager.get();
+            return (km == null) ? null : km.getPrivateKey(alias);
+        }
+    }
+
+    static final class Context {
+        @NonNull
+        private final SSLContext sslContext;
+        @NonNull
+        private final CBLTrustManager trustManager;
+
+        // The listeners are held weakly: a replicator's listener lives as long as the replicator.
+        @GuardedBy("listeners")
+        @NonNull
+        private final Set<Fn.Consumer<List<Certificate>>> listeners
+            = Collections.newSetFromMap(new WeakHashMap<>());
+        @GuardedBy("listeners")
+        @Nullable
+        private List<Certificate> lastCerts;
+
+        Context(
+            @Nullable X509Certificate pinnedCert,
+            boolean acceptOnlySelfSignedCert,
+            @Nullable KeyManager[] keyManagers,
+            int sessionCacheSize)
+            throws GeneralSecurityException {
+            trustManager = new CBLTrustManager(pinnedCert, acceptOnlySelfSignedCert, this::notifyListeners);
+            sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(keyManagers, new TrustManager[] {trustManager}, null);
+            if (sessionCacheSize > 0) {
+                final SSLSessionContext sessions = sslContext.getClientSessionContext();
+                if (sessions != null) { sessions.setSessionCacheSize(sessionCacheSize); }
+            }
+        }
+
+        @NonNull
+        SSLContext getSslContext() { return sslContext; }
+
+        @NonNull
+        CBLTrustManager getTrustManager() { return trustManager; }
+
+        void addListener(@NonNull Fn.Consumer<List<Certificate>> listener) {
+            final List<Certificate> certs;
+            synchronized (listeners) {
+                listeners.add(listener);
+                certs = lastCerts;
+            }
+            if (certs != null) { listener.accept(certs); }
+        }
+
+        private void notifyListeners(@NonNull List<Certificate> certs) {
+            final List<Fn.Consumer<List<Certificate>>> targets;
+            synchronized (listeners) {
+                lastCerts = certs;
+                targets = new ArrayList<>(listeners);
+            }
+            for (Fn.Consumer<List<Certificate>> listener: targets) { listener.accept(certs); }
+        }
+    }
+
+
+    @GuardedBy("CONTEXTS")
+    @NonNull
+    private static final Map<Key, Context> CONTEXTS = new LinkedHashMap<Key, Context>(MAX_CONTEXTS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Context> eldest) { return size() > MAX_CONTEXTS; }
+    };
+
+    @NonNull
+    static Context getContext(
+        @NonNull String host,
+        int port,
+        @Nullable X509Certificate pinnedCert,
+        boolean acceptOnlySelfSignedCert,
+        @Nullable KeyManager keyManager,
+        int sessionCacheSize,
+        @NonNull Fn.Consumer<List<Certificate>> serverCertsListener)
+        throws GeneralSecurityException {
+        final Key key = new Key(
+            host,
+            port,
+            (pinnedCert == null) ? null : pinnedCert.getEncoded(),
+            acceptOnlySelfSignedCert,
+            keyManager,
+            sessionCacheSize);
+
+        Context ctxt;
+        // A key manager that can't be wrapped would be held strongly by the context's SSLContext:
+        // don't cache its context.  The JSSE uses only X509KeyManagers, anyway.
+        if ((keyManager != null) && (!(keyManager instanceof X509KeyManager))) {
+            ctxt = new Context(pinnedCert, acceptOnlySelfSignedCert, new KeyManager[] {keyManager}, sessionCacheSize);
+        }
+        else {
+            synchronized (CONTEXTS) {
+                purgeStaleLocked();
+                ctxt = CONTEXTS.get(key);
+                if (ctxt == null) {
+                    final KeyManager[] keyManagers = (keyManager == null)
+                        ? null
+                        : new KeyManager[] {new WeakKeyManager((X509KeyManager) keyManager)};
+                    ctxt = new Context(pinnedCert, acceptOnlySelfSignedCert, keyManagers, sessionCacheSize);
+                    CONTEXTS.put(key, ctxt);
+                }
+            }
+        }
+
+        ctxt.addListener(serverCertsListener);
+
+        return ctxt;
+    }
+
+    @VisibleForTesting
+    static int size() {
+        synchronized (CONTEXTS) {
+            purgeStaleLocked();
+            return CONTEXTS.size();
+        }
+    }
+
+    @VisibleForTesting
+    static void clear() {
+        synchronized (CONTEXTS) { CONTEXTS.clear(); }
+    }
+
+    @GuardedBy("CONTEXTS")
+    private static void purgeStaleLocked() {
+        final Iterator<Key> keys = CONTEXTS.keySet().iterator();
+        while (keys.hasNext()) {
+            if (keys.next().isStale()) { keys.remove(); }
+        }
+    }
+
+    private TlsContextCache() { }
+}
@@ -0,0 +1,225 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal.sockets;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.net.SocketFactory;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+
+
+/**
+ * A socket factory that counts the bytes that pass through the sockets it creates.
+ * OkHttp layers TLS on top of the plain socket, so the counts include TLS overhead.
+ * Android TLS implementations that read and write the socket's file descriptor directly
+ * bypass the counting streams: on those, the counts will be zero.
+ * <p>
+ * OkHttp shares a pooled connection only among clients with the same socket factory, so there is
+ * a single instance of this factory.  The bytes on a socket are attributed to the WireStats of the
+ * OkHttpSocket whose call acquires the connection, by the EventListener from {@link #attributeTo}.
+ * Bytes counted before that are held by the socket until then.
+ */
+final class CountingSocketFactory extends SocketFactory {
+    @NonNull
+    static final CountingSocketFactory SHARED = new CountingSocketFactory();
+
+    private final class CountingSocket extends Socket {
+        @Nullable
+        private volatile WireStats stats;
+        @GuardedBy("this")
+        private long unattributedSent;
+        @GuardedBy("this")
+        private long unattributedReceived;
+
+        @Nullable
+        private InputStream countingIn;
+        @Nullable
+        private OutputStream countingOut;
+
+        @Override
+        public void connect(@NonNull SocketAddress endpoint, int timeout) throws IOException {
+            super.connect(endpoint, timeout);
+            sockets.put(getLocalSocketAddress(), this);
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            final SocketAddress addr = getLocalSocketAddress();
+            if (addr != null) { sockets.remove(addr, this); }
+            super.close();
+        }
+
+        @NonNull
+        @Override
+        public synchronized InputStream getInputStream() throws IOException {
+            if (countingIn == null) {
+                countingIn = new FilterInputStream(super.getInputStream()) {
+                    @Override
+                    public int read() throws IOException {
+                        final int b = super.read();
+                        if (b >= 0) { received(1); }
+                        return b;
+                    }
+
+                    @Override
+                    public int read(@NonNull byte[] buf, int off, int len) throws IOException {
+                        final int n = super.read(buf, off, len);
+                        if (n > 0) { received(n); }
+                        return n;
+                    }
+                };
+            }
+            return countingIn;
+        }
+
+        @NonNull
+        @Override
+        public synchronized OutputStream getOutputStream() throws IOException {
+            if (countingOut == null) {
+                countingOut = new FilterOutputStream(super.getOutputStream()) {
+                    @Override
+                    public void write(int b) throws IOException {
+                        super.write(b);
+                        sent(1);
+                    }
+
+                    // FilterOutputStream would write the array a byte at a time.
+                    @Override
+                    public void write(@NonNull byte[] buf, int off, int len) throws IOException {
+                        out.write(buf, off, len);
+                        sent(len);
+                    }
+                };
+            }
+            return countingOut;
+        }
+
+        // Count future bytes to the given stats, and move the bytes counted so far to them.
+        synchronized void attribute(@NonNull WireStats newStats) {
+            if (stats == newStats) { return; }
+            stats = newStats;
+            newStats.wireSent(unattributedSent);
+            newStats.wireReceived(unattributedReceived);
+            unattributedSent = 0;
+            unattributedReceived = 0;
+        }
+
+        private void sent(int n) {
+            WireStats wireStats = stats;
+            if (wireStats == null) {
+                synchronized (this) {
+                    wireStats = stats;
+                    if (wireStats == null) {
+                        unattributedSent += n;
+                        return;
+                    }
+                }
+            }
+            wireStats.wireSent(n);
+        }
+
+        private void received(int n) {
+            WireStats wireStats = stats;
+            if (wireStats == null) {
+                synchronized (this) {
+                    wireStats = stats;
+                    if (wireStats == null) {
+                        unattributedReceived += n;
+                        return;
+                    }
+                }
+            }
+            wireStats.wireReceived(n);
+        }
+    }
+
+
+    // Connected sockets, by local address.  A TLS socket reports the local address of the socket it wraps.
+    @NonNull
+    private final Map<SocketAddress, CountingSocket> sockets = new ConcurrentHashMap<>();
+
+    private CountingSocketFactory() { }
+
+    /**
+     * Get an EventListener that attributes the bytes on the connections used by a call to the given stats.
+     */
+    @NonNull
+    EventListener attributeTo(@NonNull WireStats stats) {
+        return new EventListener() {
+            @Override
+            public void connectionAcquired(@NonNull Call call, @NonNull Connection connection) {
+                final CountingSocket socket = sockets.get(connection.socket().getLocalSocketAddress());
+                if (socket != null) { socket.attribute(stats); }
+            }
+        };
+    }
+
+    @NonNull
+    @Override
+    public Socket createSocket() { return new CountingSocket(); }
+
+    @NonNull
+    @Override
+    public Socket createSocket(@NonNull String host, int port) throws IOException {
+        return connect(new InetSocketAddress(host, port), null, 0);
+    }
+
+    @NonNull
+    @Override
+    public Socket createSocket(@NonNull String host, int port, @NonNull InetAddress localHost, int localPort)
+        throws IOException {
+        return connect(new InetSocketAddress(host, port), localHost, localPort);
+    }
+
+    @NonNull
+    @Override
+    public Socket createSocket(@NonNull InetAddress host, int port) throws IOException {
+        return connect(new InetSocketAddress(host, port), null, 0);
+    }
+
+    @NonNull
+    @Override
+    public Socket createSocket(@NonNull InetAddress host, int port, @NonNull InetAddress localHost, int localPort)
+        throws IOException {
+        return connect(new InetSocketAddress(host, port), localHost, localPort);
+    }
+
+    @NonNull
+    private Socket connect(@NonNull InetSocketAddress addr, @Nullable InetAddress localHost, int localPort)
+        throws IOException {
+        final Socket socket = createSocket();
+        if (localHost != null) { socket.bind(new InetSocketAddress(localHost, localPort)); }
+        socket.connect(addr);
+        return socket;
+    }
+}
@@ -0,0 +1,83 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal.sockets;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+
+/**
+ * A small pool of direct ByteBuffers.
+ * Native code can read a direct buffer in place: passing one across the JNI boundary doesn't copy it.
+ * Allocating a direct buffer is expensive, though, so they are recycled.
+ * Buffers larger than the pool's buffer size are allocated as needed and are not pooled.
+ */
+public final class DirectBufferPool {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    public static final int DEFAULT_MAX_POOLED = 8;
+
+    private final int bufferSize;
+    private final int maxPooled;
+
+    @NonNull
+    @GuardedBy("pool")
+    private final Deque<ByteBuffer> pool = new ArrayDeque<>();
+
+    public DirectBufferPool() { this(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_POOLED); }
+
+    @VisibleForTesting
+    DirectBufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * Get a cleared, direct buffer with at least the requested capacity.
+     * The buffer's limit is set to the requested size.
+     */
+    @NonNull
+    public ByteBuffer acquire(int size) {
+        if (size > bufferSize) { return ByteBuffer.allocateDirect(size); }
+
+        ByteBuffer buf;
+        synchronized (pool) { buf = pool.poll(); }
+        if (buf == null) { buf = ByteBuffer.allocateDirect(bufferSize); }
+
+        buf.clear();
+        buf.limit(size);
+        return buf;
+    }
+
+    /**
+     * Return a buffer to the pool.  The caller must not use the buffer after this call.
+     */
+    public void release(@NonNull ByteBuffer buf) {
+        if (buf.capacity() != bufferSize) { return; }
+        synchronized (pool) {
+            if (pool.size() < maxPooled) { pool.push(buf); }
+        }
+    }
+
+    @VisibleForTesting
+    int getPooledCount() {
+        synchronized (pool) { return pool.size(); }
+    }
+}
@@ -0,0 +1,217 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal.sockets;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.couchbase.lite.internal.core.C4Replicator;
+
+
+/**
+ * The WebSocket permessage-deflate extension (RFC 7692), as configured by the replicator options.
+ * <p>
+ * The NioSocket, which does its own framing, uses this codec.  The OkHttpSocket uses only the settings:
+ * OkHttp, beginning with version 4.5, negotiates the extension and compresses messages itself.
+ * The codec never asks the server to use a smaller window: Java's Deflater always uses a 32K window.
+ */
+public final class MessageCompression {
+    public static final String EXTENSION = "permessage-deflate";
+
+    // Same as OkHttp 4: messages smaller than this are not worth compressing
+    public static final long DEFAULT_THRESHOLD = 1024;
+
+    private static final String CLIENT_NO_CONTEXT_TAKEOVER = "client_no_context_takeover";
+    private static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+    private static final String SERVER_MAX_WINDOW_BITS = "server_max_window_bits";
+
+    // A sync flush ends with an empty stored block.  The extension strips it from each message (RFC 7692, 7.2.1).
+    private static final byte[] EMPTY_BLOCK_TAIL = {0x00, 0x00, (byte) 0xFF, (byte) 0xFF};
+
+    private static final int MIN_BUFFER_SIZE = 1024;
+
+    @NonNull
+    public static MessageCompression fromOptions(@Nullable Map<String, Object> options) {
+        if (options == null) { return new MessageCompression(true, DEFAULT_THRESHOLD, Deflater.DEFAULT_COMPRESSION); }
+
+        final Object enabled = options.get(C4Replicator.SOCKET_OPTION_COMPRESSION);
+        final Object threshold = options.get(C4Replicator.SOCKET_OPTION_COMPRESSION_THRESHOLD);
+        final Object level = options.get(C4Replicator.SOCKET_OPTION_COMPRESSION_LEVEL);
+        return new MessageCompression(
+            !Boolean.FALSE.equals(enabled),
+            ((threshold instanceof Number) && (((Number) threshold).longValue() > 0))
+                ? ((Number) threshold).longValue()
+                : DEFAULT_THRESHOLD,
+            ((level instanceof Number)
+                && (((Number) level).intValue() >= Deflater.BEST_SPEED)
+                && (((Number) level).intValue() <= Deflater.BEST_COMPRESSION))
+                ? ((Number) level).intValue()
+                : Deflater.DEFAULT_COMPRESSION);
+    }
+
+
+    /**
+     * The compression state for a single connection, once the extension has been negotiated.
+     * The deflater and the inflater each keep their own sliding window, so messages must be
+     * compressed in the order in which they are sent, and decompressed in the order in which they
+     * are received.
+     */
+    public final class Codec {
+        @NonNull
+        private final Deflater deflater = new Deflater(level, true);
+        @NonNull
+        private final Inflater inflater = new Inflater(true);
+        private final boolean resetDeflater;
+        private final boolean resetInflater;
+
+        Codec(boolean resetDeflater, boolean resetInflater) {
+            this.resetDeflater = resetDeflater;
+            this.resetInflater = resetInflater;
+        }
+
+        // Return true if this message should be compressed.
+        public boolean shouldCompress(int len) { return len >= threshold; }
+
+        // Compress a whole message.  The returned buffer is ready to be framed.
+        @NonNull
+        public ByteBuffer deflate(@NonNull ByteBuffer msg) {
+            final byte[] in = new byte[msg.remaining()];
+            msg.get(in);
+
+            deflater.setInput(in);
+            byte[] out = new byte[Math.max(MIN_BUFFER_SIZE, in.length / 2)];
+            int n = 0;
+            while (true) {
+                n += deflater.deflate(out, n, out.length - n, Deflater.SYNC_FLUSH);
+                if (n < out.length) { break; }
+                out = grow(out, out.length * 2);
+            }
+            if (resetDeflater) { deflater.reset(); }
+
+            // A sync flush always ends with the empty block
+            return ByteBuffer.wrap(out, 0, n - EMPTY_BLOCK_TAIL.length);
+        }
+
+        // Decompress a whole message.
+        @NonNull
+        public ByteBuffer inflate(@NonNull ByteBuffer msg, int maxSize) throws ProtocolException {
+            final int len = msg.remaining();
+            final byte[] in = new byte[len + EMPTY_BLOCK_TAIL.length];
+            msg.get(in, 0, len);
+            System.arraycopy(EMPTY_BLOCK_TAIL, 0, in, len, EMPTY_BLOCK_TAIL.length);
+
+            inflater.setInput(in);
+            byte[] out = new byte[Math.max(MIN_BUFFER_SIZE, len * 4)];
+            int n = 0;
+            try {
+                while (true) {
+                    n += inflater.inflate(out, n, out.length - n);
+                    if (n > maxSize) { throw new ProtocolException("Message too large"); }
+                    if ((n < out.length) && (inflater.needsInput() || inflater.finished())) { break; }
+                    if (n >= out.length) { out = grow(out, out.length * 2); }
+                }
+            }
+            catch (DataFormatException e) {
+                throw (ProtocolException) new ProtocolException("Bad compressed message").initCause(e);
+            }
+            if (resetInflater) { inflater.reset(); }
+
+            return ByteBuffer.wrap(out, 0, n);
+        }
+
+        public void close() {
+            deflater.end();
+            inflater.end();
+        }
+    }
+
+
+    private final boolean enabled;
+    private final long threshold;
+    private final int level;
+
+    private MessageCompression(boolean enabled, long threshold, int level) {
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.level = level;
+    }
+
+    @NonNull
+    @Override
+    public String toString() { return "MessageCompression{" + enabled + ", " + threshold + ", " + level + "}"; }
+
+    public boolean isEnabled() { return enabled; }
+
+    public long getThreshold() { return threshold; }
+
+    public int getLevel() { return level; }
+
+    // The value of the Sec-WebSocket-Extensions request header, or null if compression is disabled.
+    @Nullable
+    public String getOffer() { return (!enabled) ? null : EXTENSION; }
+
+    /**
+     * Parse the server's Sec-WebSocket-Extensions response header.
+     * Returns null if the server did not accept the extension.
+     * Throws if the server's response is not acceptable.
+     */
+    @Nullable
+    public Codec negotiate(@Nullable String header) throws ProtocolException {
+        if ((header == null) || header.trim().isEmpty()) { return null; }
+
+        if (!enabled) { throw new ProtocolException("Unexpected WebSocket extensions: " + header); }
+
+        Codec codec = null;
+        for (String extension: header.split(",")) {
+            final String[] params = extension.split(";");
+            if (!EXTENSION.equalsIgnoreCase(params[0].trim()) || (codec != null)) {
+                throw new ProtocolException("Unsupported WebSocket extensions: " + header);
+            }
+
+            boolean clientNoContextTakeover = false;
+            boolean serverNoContextTakeover = false;
+            for (int i = 1; i < params.length; i++) {
+                final String[] param = params[i].split("=", 2);
+                final String name = param[0].trim().toLowerCase(Locale.ROOT);
+                if (CLIENT_NO_CONTEXT_TAKEOVER.equals(name)) { clientNoContextTakeover = true; }
+                else if (SERVER_NO_CONTEXT_TAKEOVER.equals(name)) { serverNoContextTakeover = true; }
+                // Any server window smaller than 32K can be inflated with a 32K window.
+                else if (!SERVER_MAX_WINDOW_BITS.equals(name)) {
+                    throw new ProtocolException("Unsupported permessage-deflate parameter: " + params[i]);
+                }
+            }
+
+            codec = new Codec(clientNoContextTakeover, serverNoContextTakeover);
+        }
+
+        return codec;
+    }
+
+    @NonNull
+    private static byte[] grow(@NonNull byte[] buf, int size) {
+        final byte[] newBuf = new byte[size];
+        System.arraycopy(buf, 0, newBuf, 0, buf.length);
+        return newBuf;
+    }
+}
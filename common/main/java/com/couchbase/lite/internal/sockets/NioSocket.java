@@ -0,0 +1,979 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal.sockets;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.Cookie;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.ByteString;
+
+import com.couchbase.lite.LogDomain;
+import com.couchbase.lite.internal.CouchbaseLiteInternal;
+import com.couchbase.lite.internal.core.C4Constants;
+import com.couchbase.lite.internal.core.C4Replicator;
+import com.couchbase.lite.internal.exec.ExecutionService;
+import com.couchbase.lite.internal.support.Log;
+import com.couchbase.lite.internal.utils.ClassUtils;
+import com.couchbase.lite.internal.utils.Fn;
+
+
+/**
+ * A WebSocket client built on non-blocking NIO channels.
+ * <p>
+ * OkHttp dedicates a reader thread to each WebSocket: a process with thousands of replicators
+ * needs thousands of threads.  The sockets created by this class share the few threads of a SelectorLoop.
+ * <p>
+ * This implementation supports only unencrypted (ws:) connections. It uses the OkHttp client
+ * configured by the CBLWebSocket for its heartbeat interval, cookies and authenticator.
+ * It delivers messages to core exactly as OkHttpSocket does: complete messages, in order.
+ * It supports the permessage-deflate extension, with the threshold and level from the replicator options.
+ * Redirects are not followed.
+ */
+public final class NioSocket implements SocketToRemote, SelectorLoop.Handler {
+    private static final LogDomain LOG_DOMAIN = LogDomain.NETWORK;
+
+    private static final String WS_ACCEPT_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    private static final int OPCODE_CONTINUATION = 0x0;
+    private static final int OPCODE_TEXT = 0x1;
+    private static final int OPCODE_BINARY = 0x2;
+    private static final int OPCODE_CLOSE = 0x8;
+    private static final int OPCODE_PING = 0x9;
+    private static final int OPCODE_PONG = 0xA;
+
+    private static final int CLOSE_NO_STATUS = 1005;
+    private static final int MAX_CONTROL_PAYLOAD = 125;
+    private static final int MAX_CLOSE_REASON = MAX_CONTROL_PAYLOAD - 2;
+
+    private static final int INITIAL_READ_BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_HANDSHAKE_SIZE = 16 * 1024;
+    private static final int MAX_MESSAGE_SIZE = 16 * 1024 * 1024;
+
+    // Same as OkHttp: how long to wait for the remote to acknowledge a close.
+    private static final long CLOSE_TIMEOUT_MS = 60 * 1000;
+
+    private static final int DEFAULT_PORT = 80;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private enum State {UNOPENED, CONNECTING, HANDSHAKING, OPEN, CLOSED}
+
+
+    //-------------------------------------------------------------------------
+    // Instance members
+    //-------------------------------------------------------------------------
+
+    // The selector thread that services this socket.
+    @NonNull
+    private final SelectorLoop.Worker loop;
+
+    // Lifecycle is null -> valid -> null, as in OkHttpSocket.
+    @NonNull
+    private final AtomicReference<SocketFromRemote> toCore = new AtomicReference<>(SocketFromRemote.Constants.NULL);
+
+    @NonNull
+    private final AtomicReference<State> state = new AtomicReference<>(State.UNOPENED);
+
+    // Frames waiting to be written, and their total size.  Only the loop thread removes frames.
+    @NonNull
+    private final Queue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<>();
+    @NonNull
+    private final AtomicLong queuedBytes = new AtomicLong();
+    @NonNull
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    @NonNull
+    private final AtomicBoolean closeSent = new AtomicBoolean();
+
+    @NonNull
+    private final WireStats stats = new WireStats();
+
+    // Frame masks need not be cryptographically strong, only unpredictable to the network (RFC 6455, 10.3).
+    // A per-socket generator, seeded once, keeps the shared, synchronized SecureRandom off the send path.
+    @NonNull
+    private final Random masks = new Random(RANDOM.nextLong());
+
+    // Set once, when the socket is opened
+    @NonNull
+    private volatile MessageCompression compression = MessageCompression.fromOptions(null);
+    // Non-null only if the remote accepted the permessage-deflate extension
+    @Nullable
+    private volatile MessageCompression.Codec codec;
+
+    @Nullable
+    private volatile ExecutionService.Cancellable closeTimeout;
+
+    // The following are used only on the loop thread
+    @Nullable
+    private OkHttpClient client;
+    @Nullable
+    private InetSocketAddress address;
+    @Nullable
+    private SocketChannel channel;
+    @Nullable
+    private SelectionKey key;
+    @Nullable
+    private Request request;
+    @Nullable
+    private Response priorResponse;
+    @Nullable
+    private String expectedAccept;
+    @NonNull
+    private ByteBuffer readBuf = ByteBuffer.allocateDirect(INITIAL_READ_BUFFER_SIZE);
+    @Nullable
+    private ByteArrayOutputStream fragments;
+    private boolean fragmentsCompressed;
+    private boolean closeReceived;
+    private int remoteCloseCode = CLOSE_NO_STATUS;
+    @NonNull
+    private String remoteCloseReason = "";
+    private boolean awaitingPong;
+    @Nullable
+    private ExecutionService.Cancellable pingTask;
+
+    //-------------------------------------------------------------------------
+    // Constructors
+    //-------------------------------------------------------------------------
+
+    public NioSocket() { this(SelectorLoop.getDefault()); }
+
+    @VisibleForTesting
+    NioSocket(@NonNull SelectorLoop selectorLoop) { this.loop = selectorLoop.nextWorker(); }
+
+    //-------------------------------------------------------------------------
+    // Public methods
+    //-------------------------------------------------------------------------
+
+    @NonNull
+    @Override
+    public String toString() { return "NioSocket" + ClassUtils.objId(this); }
+
+    @NonNull
+    public WireStats getWireStats() { return stats; }
+
+    //-------------------------------------------------------------------------
+    // Implementation of AutoCloseable
+    //-------------------------------------------------------------------------
+
+    @Override
+    public void close() {
+        final CloseStatus status = new CloseStatus(
+            C4Constants.ErrorDomain.WEB_SOCKET,
+            C4Constants.WebSocketError.GOING_AWAY,
+            "Closed by client");
+        final SocketFromRemote core = toCore.getAndSet(null);
+        loop.execute(this::abort);
+        if ((core != null) && (!SocketFromRemote.Constants.NULL.equals(core))) { core.remoteClosed(status); }
+    }
+
+    //-------------------------------------------------------------------------
+    // Implementation of SocketToRemote (Outbound: Core to Remote)
+    //-------------------------------------------------------------------------
+
+    @Override
+    public void init(@NonNull SocketFromRemote core) {
+        Log.d(LOG_DOMAIN, "%s.init: %s", this, core);
+        if (toCore.compareAndSet(SocketFromRemote.Constants.NULL, core)) { return; }
+
+        final SocketFromRemote prevCore = toCore.get();
+        if (prevCore == null) {
+            Log.w(LOG_DOMAIN, "Ignoring attempt to initialize a closed socket socket: %s", this);
+            return;
+        }
+        if (core.equals(prevCore)) {
+            Log.w(LOG_DOMAIN, "Ignoring socket re-initialization: %s", this);
+            return;
+        }
+        throw new IllegalStateException("Attempt to re-initialize socket(" + prevCore + "): " + core);
+    }
+
+    @Override
+    public boolean openRemote(@NonNull URI uri, @Nullable Map<String, Object> options) {
+        Log.d(LOG_DOMAIN, "%s.open: %s, %s", this, uri, options);
+        final SocketFromRemote core = getOpenCore();
+        if (core == null) { return false; }
+
+        if (!C4Replicator.WEBSOCKET_SCHEME.equalsIgnoreCase(uri.getScheme())) {
+            Log.w(LOG_DOMAIN, "NioSocket does not support scheme: %s", uri.getScheme());
+            return false;
+        }
+
+        if (!state.compareAndSet(State.UNOPENED, State.CONNECTING)) {
+            Log.d(LOG_DOMAIN, "Attempt to re-open open socket: %s", this);
+            return false;
+        }
+
+        // The builder is used only to collect the CBLWebSocket's configuration: it never creates a connection.
+        final OkHttpClient.Builder builder = new OkHttpClient.Builder();
+        try { core.setupRemoteSocketFactory(builder); }
+        catch (Exception e) {
+            Log.w(LOG_DOMAIN, "Failed creating socket factory", e);
+            state.set(State.CLOSED);
+            return false;
+        }
+        final OkHttpClient httpClient = builder.build();
+        compression = MessageCompression.fromOptions(options);
+        final Request req = newRequest(uri, options);
+
+        // Name resolution may block: don't do it on the selector thread.
+        final String host = uri.getHost();
+        final int port = (uri.getPort() >= 0) ? uri.getPort() : DEFAULT_PORT;
+        CouchbaseLiteInternal.getExecutionService().getConcurrentExecutor().execute(() -> {
+            final InetSocketAddress addr = new InetSocketAddress(host, port);
+            loop.execute(() -> {
+                client = httpClient;
+                address = addr;
+                connect(req, null);
+            });
+        });
+
+        return true;
+    }
+
+    @Override
+    public boolean writeToRemote(@NonNull byte[] data) {
+        final int nBytes = (data == null) ? -1 : data.length;
+        Log.d(LOG_DOMAIN, "%s.write(%d)", this, nBytes);
+        if (nBytes <= 0) { return true; }
+        getOpenCore();
+        if ((state.get() != State.OPEN) || closeSent.get()) { return false; }
+        stats.rawSent(nBytes);
+
+        final MessageCompression.Codec deflater = codec;
+        if ((deflater == null) || (!deflater.shouldCompress(nBytes))) {
+            sendFrame(OPCODE_BINARY, false, ByteBuffer.wrap(data));
+            return true;
+        }
+
+        // The deflater's window depends on the order of the messages: compress and queue atomically.
+        synchronized (deflater) {
+            if (codec != deflater) { return false; }
+            sendFrame(OPCODE_BINARY, true, deflater.deflate(ByteBuffer.wrap(data)));
+        }
+        return true;
+    }
+
+    // Bytes that have been framed but not yet written to the channel
+    @Override
+    public long getQueueSize() { return queuedBytes.get(); }
+
+    @Override
+    public boolean closeRemote(@NonNull CloseStatus status) {
+        Log.d(LOG_DOMAIN, "%s.close: %s", this, status);
+        getOpenCore();
+        if ((state.get() != State.OPEN) || (!closeSent.compareAndSet(false, true))) { return false; }
+
+        sendFrame(OPCODE_CLOSE, false, encodeClose(status));
+
+        closeTimeout = CouchbaseLiteInternal.getExecutionService().postDelayedOnExecutor(
+            CLOSE_TIMEOUT_MS,
+            loop,
+            () -> fail(new SocketTimeoutException("Timed out waiting for remote close")));
+
+        return true;
+    }
+
+    @Override
+    public void cancelRemote() {
+        Log.d(LOG_DOMAIN, "%s.cancel", this);
+        closeSocket(core -> { });
+        loop.execute(this::abort);
+    }
+
+    //-------------------------------------------------------------------------
+    // Implementation of SelectorLoop.Handler (Inbound: Remote to Core)
+    //-------------------------------------------------------------------------
+
+    @Override
+    public void onReady(@NonNull SelectionKey readyKey) {
+        try {
+            if (readyKey.isConnectable()) {
+                final SocketChannel chan = channel;
+                if ((chan == null) || (!chan.finishConnect())) { return; }
+                onConnected();
+            }
+            if (readyKey.isValid() && readyKey.isReadable()) { onReadable(); }
+            if (readyKey.isValid() && readyKey.isWritable()) { flush(); }
+        }
+        catch (IOException e) { fail(e); }
+    }
+
+    //-------------------------------------------------------------------------
+    // Package protected methods
+    //-------------------------------------------------------------------------
+
+    @VisibleForTesting
+    @Nullable
+    SocketFromRemote getCore() { return toCore.get(); }
+
+    // Call only from the loop thread, or after something that the loop thread did later has been observed
+    @VisibleForTesting
+    int getReadBufferCapacity() { return readBuf.capacity(); }
+
+    //-------------------------------------------------------------------------
+    // Private methods: connection
+    //-------------------------------------------------------------------------
+
+    @NonNull
+    private Request newRequest(@NonNull URI uri, @Nullable Map<String, Object> options) {
+        final Request.Builder builder = new Request.Builder();
+
+        builder.url(uri.toString());
+
+        String host = uri.getHost();
+        if (uri.getPort() >= 0) { host = host + ":" + uri.getPort(); }
+        builder.header("Host", host);
+
+        if (options != null) {
+            final Object extraHeaders = options.get(C4Replicator.REPLICATOR_OPTION_EXTRA_HEADERS);
+            if (extraHeaders instanceof Map<?, ?>) {
+                for (Map.Entry<?, ?> header: ((Map<?, ?>) extraHeaders).entrySet()) {
+                    builder.header(header.getKey().toString(), header.getValue().toString());
+                }
+            }
+
+            final Object protocols = options.get(C4Replicator.SOCKET_OPTION_WS_PROTOCOLS);
+            if (protocols instanceof String) { builder.header("Sec-WebSocket-Protocol", (String) protocols); }
+        }
+
+        builder.header("Upgrade", "websocket");
+        builder.header("Connection", "Upgrade");
+        builder.header("Sec-WebSocket-Version", "13");
+
+        final String extensions = compression.getOffer();
+        if (extensions != null) { builder.header("Sec-WebSocket-Extensions", extensions); }
+
+        return builder.build();
+    }
+
+    // Open a new connection and queue the handshake.  The request may be a retry, after an auth challenge.
+    private void connect(@NonNull Request req, @Nullable Response prior) {
+        final OkHttpClient httpClient = client;
+        final InetSocketAddress addr = address;
+        if ((httpClient == null) || (addr == null) || (state.get() != State.CONNECTING)) { return; }
+
+        if (addr.isUnresolved()) {
+            fail(new IOException("Cannot resolve host: " + addr.getHostString()));
+            return;
+        }
+
+        final byte[] nonce = new byte[16];
+        RANDOM.nextBytes(nonce);
+        final String wsKey = ByteString.of(nonce).base64();
+        expectedAccept = ByteString.encodeUtf8(wsKey + WS_ACCEPT_GUID).sha1().base64();
+
+        final Request.Builder builder = req.newBuilder().header("Sec-WebSocket-Key", wsKey);
+        final List<Cookie> cookies = httpClient.cookieJar().loadForRequest(req.url());
+        if (!cookies.isEmpty()) { builder.header("Cookie", encodeCookies(cookies)); }
+        request = builder.build();
+        priorResponse = prior;
+
+        try {
+            final SocketChannel chan = SocketChannel.open();
+            channel = chan;
+            chan.configureBlocking(false);
+            chan.socket().setTcpNoDelay(true);
+
+            enqueue(encodeRequest(request));
+
+            if (!chan.connect(addr)) {
+                key = loop.register(chan, SelectionKey.OP_CONNECT, this);
+                return;
+            }
+
+            onConnected();
+        }
+        catch (IOException e) { fail(e); }
+    }
+
+    private void onConnected() throws IOException {
+        Log.d(LOG_DOMAIN, "%s.connected: %s", this, address);
+        state.compareAndSet(State.CONNECTING, State.HANDSHAKING);
+
+        final SocketChannel chan = channel;
+        if (chan == null) { return; }
+
+        final SelectionKey selectionKey = key;
+        if (selectionKey == null) { key = loop.register(chan, SelectionKey.OP_READ, this); }
+        else { selectionKey.interestOps(SelectionKey.OP_READ); }
+
+        flush();
+    }
+
+    // Returns true if the handshake is complete and the socket is open.
+    private boolean readHandshakeResponse() throws IOException {
+        final int end = findHeaderEnd(readBuf);
+        if (end < 0) {
+            if (readBuf.position() < MAX_HANDSHAKE_SIZE) { return false; }
+            throw new ProtocolException("Handshake response too long");
+        }
+
+        final byte[] head = new byte[end];
+        readBuf.flip();
+        readBuf.get(head);
+        readBuf.compact();
+
+        final String[] lines = new String(head, StandardCharsets.ISO_8859_1).split("\r\n");
+        final String[] statusLine = lines[0].split(" ", 3);
+        final int code;
+        try { code = Integer.parseInt(statusLine[1]); }
+        catch (RuntimeException e) { throw new ProtocolException("Bad status line: " + lines[0]); }
+        final String message = (statusLine.length < 3) ? "" : statusLine[2];
+
+        final Headers.Builder headerBuilder = new Headers.Builder();
+        try {
+            for (int i = 1; i < lines.length; i++) {
+                if (!lines[i].isEmpty()) { headerBuilder.add(lines[i]); }
+            }
+        }
+        catch (IllegalArgumentException e) { throw new ProtocolException("Bad header: " + e.getMessage()); }
+        final Headers headers = headerBuilder.build();
+
+        final Request req = request;
+        final OkHttpClient httpClient = client;
+        if ((req == null) || (httpClient == null)) { throw new IllegalStateException("Handshake without request"); }
+
+        final HttpUrl url = req.url();
+        final List<Cookie> cookies = Cookie.parseAll(url, headers);
+        if (!cookies.isEmpty()) { httpClient.cookieJar().saveFromResponse(url, cookies); }
+
+        if (code != 101) {
+            if (((code == 401) || (code == 407)) && retryWithAuth(httpClient, req, code, message, headers)) {
+                return false;
+            }
+
+            Log.d(LOG_DOMAIN, "%s.handshake failed: %d %s", this, code, message);
+            final CloseStatus status = new CloseStatus(C4Constants.ErrorDomain.WEB_SOCKET, code, message);
+            if (state.getAndSet(State.CLOSED) == State.CLOSED) { return false; }
+            closeChannel();
+            closeSocket(core -> core.remoteClosed(status));
+            return false;
+        }
+
+        if (!"websocket".equalsIgnoreCase(headers.get("Upgrade"))) {
+            throw new ProtocolException("Expected 'Upgrade: websocket' but was: " + headers.get("Upgrade"));
+        }
+        final String connection = headers.get("Connection");
+        if ((connection == null) || (!connection.toLowerCase(Locale.ROOT).contains("upgrade"))) {
+            throw new ProtocolException("Expected 'Connection: Upgrade' but was: " + connection);
+        }
+        final String accept = headers.get("Sec-WebSocket-Accept");
+        if ((accept == null) || (!accept.equals(expectedAccept))) {
+            throw new ProtocolException("Bad Sec-WebSocket-Accept: " + accept);
+        }
+
+        codec = compression.negotiate(headers.get("Sec-WebSocket-Extensions"));
+
+        if (!state.compareAndSet(State.HANDSHAKING, State.OPEN)) { return false; }
+        startHeartbeat(httpClient.pingIntervalMillis());
+
+        Map<String, Object> coreHeaders = null;
+        if (headers.size() > 0) {
+            coreHeaders = new HashMap<>();
+            for (int i = 0; i < headers.size(); i++) { coreHeaders.put(headers.name(i), headers.value(i)); }
+        }
+        final Map<String, Object> openHeaders = coreHeaders;
+        withCore(core -> core.remoteOpened(code, openHeaders));
+
+        return true;
+    }
+
+    // The CBLWebSocket's authenticator decides whether, and how, to retry.
+    private boolean retryWithAuth(
+        @NonNull OkHttpClient httpClient,
+        @NonNull Request req,
+        int code,
+        @NonNull String message,
+        @NonNull Headers headers)
+        throws IOException {
+        final Response resp = new Response.Builder()
+            .request(req)
+            .protocol(Protocol.HTTP_1_1)
+            .code(code)
+            .message(message)
+            .headers(headers)
+            .priorResponse(priorResponse)
+            .build();
+
+        final Request retry = httpClient.authenticator().authenticate(null, resp);
+        if (retry == null) { return false; }
+
+        Log.d(LOG_DOMAIN, "%s.retry with authentication", this);
+        closeChannel();
+        readBuf.clear();
+        state.set(State.CONNECTING);
+        connect(retry, resp);
+        return true;
+    }
+
+    private void startHeartbeat(long intervalMs) {
+        if (intervalMs <= 0) { return; }
+        pingTask = CouchbaseLiteInternal.getExecutionService()
+            .postDelayedOnExecutor(intervalMs, loop, () -> heartbeat(intervalMs));
+    }
+
+    // Like OkHttp: if the previous ping hasn't been answered, the connection is dead.
+    private void heartbeat(long intervalMs) {
+        if (state.get() != State.OPEN) { return; }
+        if (awaitingPong) {
+            fail(new SocketTimeoutException("sent ping but didn't receive pong within " + intervalMs + "ms"));
+            return;
+        }
+        awaitingPong = true;
+        sendFrame(OPCODE_PING, false, EMPTY);
+        startHeartbeat(intervalMs);
+    }
+
+    //-------------------------------------------------------------------------
+    // Private methods: reading
+    //-------------------------------------------------------------------------
+
+    private void onReadable() throws IOException {
+        final SocketChannel chan = channel;
+        if (chan == null) { return; }
+
+        if (!readBuf.hasRemaining()) { growReadBuffer(readBuf.capacity() * 2); }
+
+        final int n = chan.read(readBuf);
+        if (n < 0) {
+            fail(new EOFException("Connection closed by remote"));
+            return;
+        }
+        stats.wireReceived(n);
+
+        if ((state.get() == State.HANDSHAKING) && (!readHandshakeResponse())) { return; }
+
+        if (state.get() == State.OPEN) { readFrames(); }
+    }
+
+    // Parse and dispatch every complete frame in the read buffer.
+    // Complete, unfragmented messages are passed to core as a slice of the (direct) read buffer: no copy.
+    private void readFrames() throws IOException {
+        int needed = 0;
+        readBuf.flip();
+        while (state.get() == State.OPEN) {
+            final int start = readBuf.position();
+            final int avail = readBuf.remaining();
+            if (avail < 2) { break; }
+
+            final int b0 = readBuf.get(start) & 0xFF;
+            final int b1 = readBuf.get(start + 1) & 0xFF;
+            // RSV1 marks the first frame of a compressed message
+            final boolean compressed = (b0 & 0x40) != 0;
+            final int opcode = b0 & 0x0F;
+            if (((b0 & 0x30) != 0)
+                || (compressed && ((codec == null) || ((opcode != OPCODE_TEXT) && (opcode != OPCODE_BINARY))))) {
+                throw new ProtocolException("Unexpected reserved flags: " + Integer.toHexString(b0));
+            }
+            if ((b1 & 0x80) != 0) { throw new ProtocolException("Server-sent frames must not be masked"); }
+
+            int headerLen = 2;
+            long payloadLen = b1 & 0x7F;
+            if (payloadLen == 126) {
+                headerLen = 4;
+                if (avail < headerLen) { break; }
+                payloadLen = readBuf.getShort(start + 2) & 0xFFFF;
+            }
+            else if (payloadLen == 127) {
+                headerLen = 10;
+                if (avail < headerLen) { break; }
+                payloadLen = readBuf.getLong(start + 2);
+            }
+            if ((payloadLen < 0) || (payloadLen > MAX_MESSAGE_SIZE)) {
+                throw new ProtocolException("Frame too large: " + payloadLen);
+            }
+
+            final int frameLen = headerLen + (int) payloadLen;
+            if (avail < frameLen) {
+                needed = frameLen;
+                break;
+            }
+
+            final ByteBuffer payload = readBuf.duplicate();
+            payload.limit(start + frameLen);
+            payload.position(start + headerLen);
+            readBuf.position(start + frameLen);
+
+            onFrame((b0 & 0x80) != 0, opcode, compressed, payload.slice());
+        }
+        readBuf.compact();
+
+        if (needed > readBuf.capacity()) {
+            growReadBuffer(needed);
+            return;
+        }
+
+        // Don't let one large message pin a large direct buffer for the life of the socket
+        if ((readBuf.position() <= 0) && (readBuf.capacity() > INITIAL_READ_BUFFER_SIZE)) {
+            readBuf = ByteBuffer.allocateDirect(INITIAL_READ_BUFFER_SIZE);
+        }
+    }
+
+    private void onFrame(boolean fin, int opcode, boolean compressed, @NonNull ByteBuffer payload)
+        throws IOException {
+        if ((opcode >= OPCODE_CLOSE) && ((!fin) || (payload.remaining() > MAX_CONTROL_PAYLOAD))) {
+            throw new ProtocolException("Bad control frame: " + opcode);
+        }
+
+        switch (opcode) {
+            case OPCODE_TEXT:
+            case OPCODE_BINARY:
+                if (fragments != null) { throw new ProtocolException("Expected continuation frame"); }
+                if (fin) {
+                    deliver(compressed, payload);
+                    return;
+                }
+                fragments = new ByteArrayOutputStream();
+                fragmentsCompressed = compressed;
+                appendFragment(payload);
+                return;
+
+            case OPCODE_CONTINUATION:
+                if (fragments == null) { throw new ProtocolException("Unexpected continuation frame"); }
+                appendFragment(payload);
+                if (fin) {
+                    final ByteBuffer msg = ByteBuffer.wrap(fragments.toByteArray());
+                    fragments = null;
+                    deliver(fragmentsCompressed, msg);
+                }
+                return;
+
+            case OPCODE_PING:
+                sendFrame(OPCODE_PONG, false, payload);
+                return;
+
+            case OPCODE_PONG:
+                awaitingPong = false;
+                return;
+
+            case OPCODE_CLOSE:
+                onCloseFrame(payload);
+                return;
+
+            default:
+                throw new ProtocolException("Unknown opcode: " + opcode);
+        }
+    }
+
+    private void appendFragment(@NonNull ByteBuffer payload) throws ProtocolException {
+        final ByteArrayOutputStream buf = fragments;
+        if (buf == null) { return; }
+        if ((buf.size() + payload.remaining()) > MAX_MESSAGE_SIZE) { throw new ProtocolException("Message too large"); }
+        final byte[] data = new byte[payload.remaining()];
+        payload.get(data);
+        buf.write(data, 0, data.length);
+    }
+
+    // A compressed message is inflated into a heap buffer.
+    private void deliver(boolean compressed, @NonNull ByteBuffer payload) throws ProtocolException {
+        final ByteBuffer msg;
+        if (!compressed) { msg = payload; }
+        else {
+            final MessageCompression.Codec inflater = codec;
+            if (inflater == null) { return; }
+            msg = inflater.inflate(payload, MAX_MESSAGE_SIZE);
+        }
+        final int len = msg.remaining();
+        Log.d(LOG_DOMAIN, "%s.onBytes(%d)", this, len);
+        if (len <= 0) { return; }
+        stats.rawReceived(len);
+        withCore(core -> core.remoteWrites(msg));
+    }
+
+    private void onCloseFrame(@NonNull ByteBuffer payload) throws IOException {
+        final int len = payload.remaining();
+        if (len == 1) { throw new ProtocolException("Malformed close frame"); }
+
+        int code = CLOSE_NO_STATUS;
+        String reason = "";
+        if (len >= 2) {
+            code = payload.getShort() & 0xFFFF;
+            final byte[] msg = new byte[payload.remaining()];
+            payload.get(msg);
+            reason = new String(msg, StandardCharsets.UTF_8);
+        }
+
+        Log.d(LOG_DOMAIN, "%s.onClosing(%d): '%s'", this, code, reason);
+        closeReceived = true;
+        remoteCloseCode = code;
+        remoteCloseReason = reason;
+
+        // We started the close: this is the acknowledgement.  Otherwise, ask core to close.
+        if (closeSent.get()) {
+            if (writeQueue.isEmpty()) { finishClose(); }
+            return;
+        }
+
+        final CloseStatus status = new CloseStatus(code, reason);
+        withCore(core -> core.remoteRequestsClose(status));
+    }
+
+    private void growReadBuffer(int size) {
+        final ByteBuffer buf = ByteBuffer.allocateDirect(size);
+        readBuf.flip();
+        buf.put(readBuf);
+        readBuf = buf;
+    }
+
+    //-------------------------------------------------------------------------
+    // Private methods: writing
+    //-------------------------------------------------------------------------
+
+    private void sendFrame(int opcode, boolean compressed, @NonNull ByteBuffer payload) {
+        enqueue(encodeFrame(opcode, compressed, payload, masks.nextInt()));
+        if (flushScheduled.compareAndSet(false, true)) {
+            loop.execute(() -> {
+                flushScheduled.set(false);
+                try { flush(); }
+                catch (IOException e) { fail(e); }
+            });
+        }
+    }
+
+    private void enqueue(@NonNull ByteBuffer buf) {
+        queuedBytes.addAndGet(buf.remaining());
+        writeQueue.add(buf);
+    }
+
+    // Write as much of the queue as the channel will accept.  Ask to be called back when it will take more.
+    private void flush() throws IOException {
+        final SocketChannel chan = channel;
+        final SelectionKey selectionKey = key;
+        if ((chan == null) || (selectionKey == null) || (!chan.isConnected()) || (!selectionKey.isValid())) {
+            return;
+        }
+
+        ByteBuffer buf;
+        while ((buf = writeQueue.peek()) != null) {
+            final int n = chan.write(buf);
+            queuedBytes.addAndGet(-n);
+            stats.wireSent(n);
+            if (buf.hasRemaining()) {
+                selectionKey.interestOps(selectionKey.interestOps() | SelectionKey.OP_WRITE);
+                return;
+            }
+            writeQueue.poll();
+        }
+        selectionKey.interestOps(selectionKey.interestOps() & ~SelectionKey.OP_WRITE);
+
+        if (closeSent.get() && closeReceived) { finishClose(); }
+    }
+
+    //-------------------------------------------------------------------------
+    // Private methods: shutdown
+    //-------------------------------------------------------------------------
+
+    // Both sides have sent a close frame.
+    private void finishClose() {
+        if (state.getAndSet(State.CLOSED) == State.CLOSED) { return; }
+        closeChannel();
+        final CloseStatus status
+            = new CloseStatus(C4Constants.ErrorDomain.WEB_SOCKET, remoteCloseCode, remoteCloseReason);
+        Log.d(LOG_DOMAIN, "%s.onClosed: %s", this, status);
+        closeSocket(core -> core.remoteClosed(status));
+    }
+
+    private void fail(@NonNull Throwable err) {
+        if (state.getAndSet(State.CLOSED) == State.CLOSED) { return; }
+        Log.d(LOG_DOMAIN, "%s.onFailure", err, this);
+        closeChannel();
+        closeSocket(core -> core.remoteFailed(err));
+    }
+
+    private void abort() {
+        state.set(State.CLOSED);
+        closeChannel();
+    }
+
+    private void closeChannel() {
+        final ExecutionService.Cancellable ping = pingTask;
+        pingTask = null;
+        if (ping != null) { ping.cancel(); }
+
+        final ExecutionService.Cancellable timeout = closeTimeout;
+        closeTimeout = null;
+        if (timeout != null) { timeout.cancel(); }
+
+        final SelectionKey selectionKey = key;
+        key = null;
+        if (selectionKey != null) { selectionKey.cancel(); }
+
+        final SocketChannel chan = channel;
+        channel = null;
+        if (chan != null) {
+            try { chan.close(); }
+            catch (IOException e) { Log.d(LOG_DOMAIN, "Failed closing channel", e); }
+        }
+
+        writeQueue.clear();
+        queuedBytes.set(0);
+        fragments = null;
+
+        final MessageCompression.Codec deflater = codec;
+        codec = null;
+        if (deflater != null) {
+            synchronized (deflater) { deflater.close(); }
+        }
+
+        if (state.get() == State.CLOSED) { Log.i(LOG_DOMAIN, "%s: %s", this, stats); }
+    }
+
+    //-------------------------------------------------------------------------
+    // Private methods: core
+    //-------------------------------------------------------------------------
+
+    private void withCore(@NonNull Fn.Consumer<SocketFromRemote> op) {
+        final SocketFromRemote core = toCore.get();
+        if ((core != null) && (!SocketFromRemote.Constants.NULL.equals(core))) { op.accept(core); }
+    }
+
+    private void closeSocket(@NonNull Fn.Consumer<SocketFromRemote> delegate) {
+        final SocketFromRemote core = toCore.getAndSet(null);
+        if ((core != null) && (!SocketFromRemote.Constants.NULL.equals(core))) { delegate.accept(core); }
+    }
+
+    @Nullable
+    private SocketFromRemote getOpenCore() {
+        final SocketFromRemote core = toCore.get();
+        if (SocketFromRemote.Constants.NULL.equals(core)) {
+            throw new IllegalStateException("Attempt to use socket before initialization");
+        }
+        return core;
+    }
+
+    //-------------------------------------------------------------------------
+    // Private methods: encoding
+    //-------------------------------------------------------------------------
+
+    @NonNull
+    private static ByteBuffer encodeRequest(@NonNull Request req) {
+        final HttpUrl url = req.url();
+        final StringBuilder buf = new StringBuilder("GET ").append(url.encodedPath());
+        final String query = url.encodedQuery();
+        if (query != null) { buf.append('?').append(query); }
+        buf.append(" HTTP/1.1\r\n");
+
+        final Headers headers = req.headers();
+        for (int i = 0; i < headers.size(); i++) {
+            buf.append(headers.name(i)).append(": ").append(headers.value(i)).append("\r\n");
+        }
+        buf.append("\r\n");
+
+        return ByteBuffer.wrap(buf.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    @NonNull
+    private static String encodeCookies(@NonNull List<Cookie> cookies) {
+        final StringBuilder buf = new StringBuilder();
+        for (Cookie cookie: cookies) {
+            if (buf.length() > 0) { buf.append("; "); }
+            buf.append(cookie.name()).append('=').append(cookie.value());
+        }
+        return buf.toString();
+    }
+
+    @NonNull
+    private static ByteBuffer encodeClose(@NonNull CloseStatus status) {
+        byte[] reason = (status.message == null) ? new byte[0] : status.message.getBytes(StandardCharsets.UTF_8);
+        if (reason.length > MAX_CLOSE_REASON) {
+            final byte[] truncated = new byte[MAX_CLOSE_REASON];
+            System.arraycopy(reason, 0, truncated, 0, MAX_CLOSE_REASON);
+            reason = truncated;
+        }
+        final ByteBuffer payload = ByteBuffer.allocate(2 + reason.length);
+        payload.putShort((short) status.code);
+        payload.put(reason);
+        payload.flip();
+        return payload;
+    }
+
+    // Client frames are always masked (RFC 6455, 5.3).  Messages are never fragmented.
+    // RSV1 marks a compressed message (RFC 7692, 6).
+    @NonNull
+    private static ByteBuffer encodeFrame(int opcode, boolean compressed, @NonNull ByteBuffer payload, int maskKey) {
+        final int len = payload.remaining();
+        final int headerLen = (len < 126) ? 2 : ((len <= 0xFFFF) ? 4 : 10);
+        final ByteBuffer frame = ByteBuffer.allocate(headerLen + 4 + len);
+
+        frame.put((byte) (0x80 | (compressed ? 0x40 : 0) | opcode));
+        if (len < 126) { frame.put((byte) (0x80 | len)); }
+        else if (len <= 0xFFFF) {
+            frame.put((byte) (0x80 | 126));
+            frame.putShort((short) len);
+        }
+        else {
+            frame.put((byte) (0x80 | 127));
+            frame.putLong(len);
+        }
+
+        final byte[] mask = {(byte) (maskKey >>> 24), (byte) (maskKey >>> 16), (byte) (maskKey >>> 8), (byte) maskKey};
+        frame.put(mask);
+
+        final byte[] out = frame.array();
+        final int offset = frame.arrayOffset() + frame.position();
+        final int start = payload.position();
+        for (int i = 0; i < len; i++) { out[offset + i] = (byte) (payload.get(start + i) ^ mask[i & 0x03]); }
+
+        frame.position(frame.position() + len);
+        frame.flip();
+        return frame;
+    }
+
+    // Return the length of the HTTP response head (including the blank line), or -1 if it is not complete.
+    private static int findHeaderEnd(@NonNull ByteBuffer buf) {
+        final int end = buf.position() - 3;
+        for (int i = 0; i < end; i++) {
+            if ((buf.get(i) == '\r') && (buf.get(i + 1) == '\n')
+                && (buf.get(i + 2) == '\r') && (buf.get(i + 3) == '\n')) {
+                return i + 4;
+            }
+        }
+        return -1;
+    }
+}
@@ -19,15 +19,19 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
+import java.lang.reflect.Method;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
 import okhttp3.Headers;
+import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
@@ -66,6 +70,27 @@ public final class OkHttpSocket extends WebSocketListener implements SocketToRem
 
         .build();
 
+    // Buffers for inbound frames
+    @NonNull
+    private static final DirectBufferPool BUFFER_POOL = new DirectBufferPool();
+
+    private static final String HEADER_WS_EXTENSIONS = "Sec-WebSocket-Extensions";
+
+    // OkHttp negotiates permessage-deflate itself, beginning with version 4.5: it always offers the extension.
+    // This is its setter for the compression threshold, or null if the OkHttp on the classpath is older.
+    @Nullable
+    private static final Method SET_COMPRESSION_THRESHOLD = getCompressionThresholdSetter();
+
+    // Compression is enabled by default: without explicit configuration, say that it is unsupported only once.
+    @NonNull
+    private static final AtomicBoolean COMPRESSION_UNSUPPORTED_LOGGED = new AtomicBoolean();
+
+    // Removes OkHttp's offer of permessage-deflate, when compression is disabled.
+    // Application interceptors see the WebSocket upgrade request: network interceptors don't.
+    @NonNull
+    private static final Interceptor NO_COMPRESSION
+        = chain -> chain.proceed(chain.request().newBuilder().removeHeader(HEADER_WS_EXTENSIONS).build());
+
     // A singleton WebSocket
     @NonNull
     private static final WebSocket NULL_WS = new WebSocket() {
@@ -96,6 +121,9 @@ public final class OkHttpSocket extends WebSocketListener implements SocketToRem
 
     private final SocketFactory socketFactory;
 
+    @NonNull
+    private final WireStats stats = new WireStats();
+
     // This is the OkHttp connection outbound to the remote.
     // Its value has lifecycle SocketFromRemote.NULL -> valid -> null and never changes again.
     // It would be final, if the initialization process happened in the other order...
@@ -125,6 +153,9 @@ public final class OkHttpSocket extends WebSocketListener implements SocketToRem
     @Override
     public String toString() { return "OkHttpSocket" + ClassUtils.objId(this); }
 
+    @NonNull
+    public WireStats getWireStats() { return stats; }
+
     //-------------------------------------------------------------------------
     // Implementation of AutoCloseable
     //-------------------------------------------------------------------------
@@ -177,13 +208,21 @@ public final class OkHttpSocket extends WebSocketListener implements SocketToRem
 
         // This bleeds a bit of the the OkHttp API into the CBLWebsocket.
         // It's just a builder, though: probably ok.
-        final OkHttpClient.Builder builder = BASE_HTTP_CLIENT.newBuilder();
+        // Clients built from the same shared client share its dispatcher and connection pool.
+        final OkHttpClient.Builder builder = SharedHttpClients.getClient(BASE_HTTP_CLIENT, options).newBuilder();
         try { core.setupRemoteSocketFactory(builder); }
         catch (Exception e) {
             Log.w(LOG_DOMAIN, "Failed creating socket factory", e);
             return false;
         }
 
+        configureCompression(builder, options);
+
+        // Count the bytes on the wire.  The factory is shared so that pooled connections can be shared too:
+        // the listener attributes a connection's bytes to this socket, when it gets the connection.
+        builder.socketFactory(CountingSocketFactory.SHARED)
+            .eventListener(CountingSocketFactory.SHARED.attributeTo(stats));
+
         if (!toRemote.compareAndSet(NULL_WS, socketFactory.create(builder.build(), newRequest(uri, options), this))) {
             throw new IllegalStateException("Failed setting remote web socket: this can't happen!!");
         }
@@ -198,9 +237,17 @@ public final class OkHttpSocket extends WebSocketListener implements SocketToRem
         Log.d(LOG_DOMAIN, "%s.write(%d)", this, nBytes);
         if (nBytes <= 0) { return true; }
         getOpenCore();
+        stats.rawSent(nBytes);
         return withRemote(remote -> remote.send(ByteString.of(data, 0, data.length)));
     }
 
+    // Bytes that OkHttp has accepted but not yet transmitted
+    @Override
+    public long getQueueSize() {
+        final WebSocket remote = toRemote.get();
+        return ((remote == null) || (remote == NULL_WS)) ? 0 : remote.queueSize();
+    }
+
     // Close the remote connection
     @Override
     public boolean closeRemote(@NonNull CloseStatus status) {
@@ -246,16 +293,30 @@ public final class OkHttpSocket extends WebSocketListener implements SocketToRem
         final int len = (text == null) ? -1 : text.length();
         Log.d(LOG_DOMAIN, "%s.onText(%d)", this, len);
         if (len <= 0) { return; }
-        withCore(ws, core -> core.remoteWrites(text.getBytes(StandardCharsets.UTF_8)));
+        final byte[] data = text.getBytes(StandardCharsets.UTF_8);
+        stats.rawReceived(data.length);
+        withCore(ws, core -> core.remoteWrites(data));
     }
 
     // Receive data from the remote
+    // The frame is copied once, into a pooled direct buffer, from which native code can read it in place.
     @Override
     public void onMessage(@NonNull WebSocket ws, @NonNull ByteString bytes) {
         final int len = (bytes == null) ? -1 : bytes.size();
         Log.d(LOG_DOMAIN, "%s.onBytes(%d)", this, len);
         if (len <= 0) { return; }
-        withCore(ws, core -> core.remoteWrites(bytes.toByteArray()));
+        stats.rawReceived(len);
+        withCore(ws, core -> {
+            final ByteBuffer buf = BUFFER_POOL.acquire(len);
+            try {
+                buf.put(bytes.asByteBuffer());
+                buf.flip();
+                core.remoteWrites(buf);
+            }
+            finally {
+                BUFFER_POOL.release(buf);
+            }
+        });
     }
 
     // Remote wants to close the connection
@@ -313,6 +374,44 @@ public final class OkHttpSocket extends WebSocketListener implements SocketToRem
     // Private methods
     //-------------------------------------------------------------------------
 
+    @Nullable
+    private static Method getCompressionThresholdSetter() {
+        try { return OkHttpClient.Builder.class.getMethod("minWebSocketMessageToCompress", long.class); }
+        catch (NoSuchMethodException e) { return null; }
+    }
+
+    // OkHttp negotiates the extension, when it supports it, and does the compression.
+    // It does not support setting the compression level.
+    private void configureCompression(@NonNull OkHttpClient.Builder builder, @Nullable Map<String, Object> options) {
+        final MessageCompression compression = MessageCompression.fromOptions(options);
+        final boolean configured = (options != null)
+            && (options.containsKey(C4Replicator.SOCKET_OPTION_COMPRESSION_THRESHOLD)
+            || options.containsKey(C4Replicator.SOCKET_OPTION_COMPRESSION_LEVEL));
+
+        if (SET_COMPRESSION_THRESHOLD == null) {
+            if (!compression.isEnabled()) { return; }
+            final String msg = "%s: this version of OkHttp does not support message compression:"
+                + " messages will not be compressed.  The NIO transport can compress messages on ws: connections";
+            if (configured) { Log.w(LOG_DOMAIN, msg, this); }
+            else if (COMPRESSION_UNSUPPORTED_LOGGED.compareAndSet(false, true)) { Log.i(LOG_DOMAIN, msg, this); }
+            return;
+        }
+
+        if (!compression.isEnabled()) {
+            builder.addInterceptor(NO_COMPRESSION);
+            return;
+        }
+
+        try { SET_COMPRESSION_THRESHOLD.invoke(builder, compression.getThreshold()); }
+        catch (ReflectiveOperationException e) {
+            Log.w(LOG_DOMAIN, "%s: failed setting the compression threshold", e, this);
+        }
+
+        if ((options != null) && options.containsKey(C4Replicator.SOCKET_OPTION_COMPRESSION_LEVEL)) {
+            Log.w(LOG_DOMAIN, "%s: OkHttp does not support setting the compression level: using its default", this);
+        }
+    }
+
     @NonNull
     private Request newRequest(@NonNull URI uri, @Nullable Map<String, Object> options) {
         final Request.Builder builder = new Request.Builder();
@@ -364,7 +463,9 @@ public final class OkHttpSocket extends WebSocketListener implements SocketToRem
             }
         }
         final SocketFromRemote core = toCore.getAndSet(null);
-        if ((core != null) && (!SocketFromRemote.Constants.NULL.equals(core))) { delegate.accept(core); }
+        if ((core == null) || (SocketFromRemote.Constants.NULL.equals(core))) { return; }
+        Log.i(LOG_DOMAIN, "%s: %s", this, stats);
+        delegate.accept(core);
     }
 
     @Nullable
@@ -0,0 +1,164 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal.sockets;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.couchbase.lite.LogDomain;
+import com.couchbase.lite.internal.support.Log;
+import com.couchbase.lite.internal.utils.Preconditions;
+
+
+/**
+ * A small, fixed, group of threads, each of which multiplexes many non-blocking channels
+ * with a single NIO Selector.  Channels are assigned to threads round-robin.
+ * <p>
+ * Each thread is also an Executor: tasks submitted to it run on the selector thread,
+ * between selects.  Handlers and tasks must never block.
+ */
+public final class SelectorLoop {
+    private static final LogDomain LOG_DOMAIN = LogDomain.NETWORK;
+
+    public static final int DEFAULT_THREADS = 2;
+
+    /**
+     * Called on the selector thread when a channel registered with the handler is ready.
+     */
+    interface Handler {
+        void onReady(@NonNull SelectionKey key);
+    }
+
+    private static final class DefaultHolder {
+        @NonNull
+        static final SelectorLoop DEFAULT = new SelectorLoop("CBL-nio", DEFAULT_THREADS);
+    }
+
+    /**
+     * The shared loop used by every NioSocket that doesn't specify another.
+     */
+    @NonNull
+    public static SelectorLoop getDefault() { return DefaultHolder.DEFAULT; }
+
+    static final class Worker implements Executor, Runnable {
+        @NonNull
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        @NonNull
+        private final Selector selector;
+        @NonNull
+        private final Thread thread;
+
+        private volatile boolean running = true;
+
+        Worker(@NonNull String name) {
+            try { selector = Selector.open(); }
+            catch (IOException e) { throw new IllegalStateException("Failed opening selector", e); }
+            thread = new Thread(this, name);
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void execute(@NonNull Runnable task) {
+            tasks.add(Preconditions.assertNotNull(task, "task"));
+            selector.wakeup();
+        }
+
+        // must be called on the loop thread: registration blocks while the selector is selecting.
+        @NonNull
+        SelectionKey register(@NonNull SelectableChannel channel, int ops, @NonNull Handler handler)
+            throws ClosedChannelException {
+            if (Thread.currentThread() != thread) {
+                throw new IllegalStateException("Registration must happen on the selector thread");
+            }
+            return channel.register(selector, ops, handler);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try { selector.select(); }
+                catch (IOException e) {
+                    Log.w(LOG_DOMAIN, "Select failed on %s", e, thread.getName());
+                    continue;
+                }
+
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    try { task.run(); }
+                    catch (RuntimeException e) { Log.w(LOG_DOMAIN, "Task failed on %s", e, thread.getName()); }
+                }
+
+                final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) { continue; }
+                    try { ((Handler) key.attachment()).onReady(key); }
+                    catch (RuntimeException e) { Log.w(LOG_DOMAIN, "Handler failed on %s", e, thread.getName()); }
+                }
+            }
+
+            try { selector.close(); }
+            catch (IOException e) { Log.d(LOG_DOMAIN, "Failed closing selector", e); }
+        }
+
+        void start() { thread.start(); }
+
+        void stop() {
+            running = false;
+            selector.wakeup();
+        }
+    }
+
+
+    @NonNull
+    private final Worker[] workers;
+    @NonNull
+    private final AtomicInteger next = new AtomicInteger();
+
+    public SelectorLoop(@NonNull String name, int nThreads) {
+        Preconditions.assertPositive(nThreads, "thread count");
+        workers = new Worker[nThreads];
+        for (int i = 0; i < nThreads; i++) {
+            workers[i] = new Worker(name + "-" + i);
+            workers[i].start();
+        }
+    }
+
+    public int getThreadCount() { return workers.length; }
+
+    /**
+     * Stop all of the selector threads.  Channels still registered with the loop are abandoned.
+     */
+    @VisibleForTesting
+    public void shutdown() {
+        for (Worker worker: workers) { worker.stop(); }
+    }
+
+    @NonNull
+    Worker nextWorker() { return workers[(next.getAndIncrement() & Integer.MAX_VALUE) % workers.length]; }
+}
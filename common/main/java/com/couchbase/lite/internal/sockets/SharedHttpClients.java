@@ -0,0 +1,79 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal.sockets;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+import com.couchbase.lite.internal.core.C4Replicator;
+
+
+/**
+ * OkHttp clients shared by all of the sockets that use the same transport settings.
+ * <p>
+ * Clients built from one of these share its dispatcher and connection pool.  In this version of OkHttp,
+ * an open WebSocket holds one of its dispatcher's request slots for as long as it is open.  The dispatcher's
+ * per-host limit is, therefore, the number of replicators that can be connected to a single host at once.
+ * Sockets that don't set a limit use the base client: the OkHttp defaults.
+ */
+final class SharedHttpClients {
+    // OkHttp's default
+    private static final int MIN_MAX_REQUESTS = 64;
+
+    @GuardedBy("CLIENTS")
+    @NonNull
+    private static final Map<Integer, OkHttpClient> CLIENTS = new HashMap<>();
+
+    @NonNull
+    static OkHttpClient getClient(@NonNull OkHttpClient baseClient, @Nullable Map<String, Object> options) {
+        final Object opt = (options == null) ? null : options.get(C4Replicator.SOCKET_OPTION_MAX_CONNECTIONS_PER_HOST);
+        if (!(opt instanceof Number)) { return baseClient; }
+        final int maxPerHost = ((Number) opt).intValue();
+        if (maxPerHost <= 0) { return baseClient; }
+
+        // There is one client for each distinct limit: in practice, very few.
+        synchronized (CLIENTS) {
+            OkHttpClient client = CLIENTS.get(maxPerHost);
+            if (client == null) {
+                final Dispatcher dispatcher = new Dispatcher();
+                dispatcher.setMaxRequests(Math.max(MIN_MAX_REQUESTS, maxPerHost));
+                dispatcher.setMaxRequestsPerHost(maxPerHost);
+                client = baseClient.newBuilder()
+                    .dispatcher(dispatcher)
+                    .connectionPool(new ConnectionPool())
+                    .build();
+                CLIENTS.put(maxPerHost, client);
+            }
+            return client;
+        }
+    }
+
+    @VisibleForTesting
+    static int getClientCount() {
+        synchronized (CLIENTS) { return CLIENTS.size(); }
+    }
+
+    private SharedHttpClients() { }
+}
@@ -18,6 +18,7 @@ package com.couchbase.lite.internal.sockets;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.nio.ByteBuffer;
 import java.util.Map;
 
 import okhttp3.OkHttpClient;
@@ -47,6 +48,9 @@ public interface SocketFromRemote {
         @Override
         public void remoteWrites(@NonNull byte[] data) { }
 
+        @Override
+        public void remoteWrites(@NonNull ByteBuffer data) { }
+
         @Override
         public void remoteRequestsClose(@NonNull CloseStatus status) { }
 
@@ -73,6 +77,9 @@ public interface SocketFromRemote {
     // Remote sent data
     void remoteWrites(@NonNull byte[] data);
 
+    // Remote sent data: the buffer is valid only for the duration of the call
+    void remoteWrites(@NonNull ByteBuffer data);
+
     // Remote wants to close the connection
     void remoteRequestsClose(@NonNull CloseStatus status);
 
@@ -18,6 +18,8 @@ package com.couchbase.lite.internal.sockets;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.nio.ByteBuffer;
+
 
 /**
  * +------+                                                                      +--------+
@@ -35,6 +37,8 @@ public interface SocketToCore extends AutoCloseable {
     void ackOpenToCore(int httpStatus, @Nullable byte[] responseHeadersFleece);
     void ackWriteToCore(long byteCount);
     void writeToCore(@NonNull byte[] data);
+    // the buffer is valid only for the duration of the call
+    void writeToCore(@NonNull ByteBuffer data);
     void requestCoreClose(@NonNull CloseStatus status);
     void closeCore(@NonNull CloseStatus status);
 }
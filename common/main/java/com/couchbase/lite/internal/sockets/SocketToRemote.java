@@ -36,6 +36,8 @@ public interface SocketToRemote extends AutoCloseable {
     void init(@NonNull SocketFromRemote listener);
     boolean openRemote(@NonNull URI uri, @Nullable Map<String, Object> options);
     boolean writeToRemote(@NonNull byte[] data);
+    // the number of bytes that have been written but not yet transmitted
+    long getQueueSize();
     boolean closeRemote(@NonNull CloseStatus status);
     void cancelRemote();
 }
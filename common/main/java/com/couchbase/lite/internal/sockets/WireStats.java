@@ -0,0 +1,61 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal.sockets;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Byte counts for a single WebSocket connection.
+ * Raw bytes are the message payloads exchanged with core.  Wire bytes are the bytes actually
+ * written to and read from the network: they include the HTTP handshake, WebSocket framing and,
+ * for OkHttp connections, TLS.  Comparing the two shows the effect of message compression.
+ */
+public final class WireStats {
+    @NonNull
+    private final AtomicLong rawBytesSent = new AtomicLong();
+    @NonNull
+    private final AtomicLong wireBytesSent = new AtomicLong();
+    @NonNull
+    private final AtomicLong rawBytesReceived = new AtomicLong();
+    @NonNull
+    private final AtomicLong wireBytesReceived = new AtomicLong();
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "sent " + rawBytesSent.get() + " (" + wireBytesSent.get() + " on the wire)"
+            + ", received " + rawBytesReceived.get() + " (" + wireBytesReceived.get() + " on the wire)";
+    }
+
+    public long getRawBytesSent() { return rawBytesSent.get(); }
+
+    public long getWireBytesSent() { return wireBytesSent.get(); }
+
+    public long getRawBytesReceived() { return rawBytesReceived.get(); }
+
+    public long getWireBytesReceived() { return wireBytesReceived.get(); }
+
+    void rawSent(long n) { rawBytesSent.addAndGet(n); }
+
+    void wireSent(long n) { wireBytesSent.addAndGet(n); }
+
+    void rawReceived(long n) { rawBytesReceived.addAndGet(n); }
+
+    void wireReceived(long n) { wireBytesReceived.addAndGet(n); }
+}
@@ -0,0 +1,285 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * A fast codec for ISO-8601 dates, as stored in documents: e.g., "2019-02-21T05:37:22.014Z".
+ * <p>
+ * Dates are formatted in UTC, with milliseconds.  The parser accepts dates with or without
+ * milliseconds, with a zone that is either 'Z' or a numeric offset (+hh:mm, +hhmm or +hh).
+ * Both work directly with epoch milliseconds: neither creates Calendars or other intermediate objects.
+ * Recently parsed strings are cached.
+ * <p>
+ * Dates outside the years 1583-9999, fractions that are not exactly three digits,
+ * and strings the fast parser does not recognize, are handled,
+ * as they always have been, by a lenient SimpleDateFormat: its Julian/Gregorian calendar is not
+ * the proleptic Gregorian calendar used by the fast path.
+ */
+public final class ISO8601 {
+    private ISO8601() { }
+
+    /**
+     * Returned by parse when the string is not a valid date.
+     */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final long MS_PER_SECOND = 1000L;
+    private static final long MS_PER_MINUTE = 60L * MS_PER_SECOND;
+    private static final long MS_PER_HOUR = 60L * MS_PER_MINUTE;
+    private static final long MS_PER_DAY = 24L * MS_PER_HOUR;
+
+    // The fast path handles dates in [1583-01-01T00:00:00Z, 10000-01-01T00:00:00Z)
+    private static final int MIN_YEAR = 1583;
+    private static final int MAX_YEAR = 9999;
+    private static final long MIN_MILLIS = -12212553600000L;
+    private static final long MAX_MILLIS = 253402300800000L;
+
+    // Length of "yyyy-MM-ddTHH:mm:ss.SSSZ"
+    private static final int FORMATTED_LENGTH = 24;
+
+    // Must be a power of 2
+    private static final int CACHE_SIZE = 64;
+
+    private static final class CacheEntry {
+        @NonNull
+        final String str;
+        final long millis;
+
+        CacheEntry(@NonNull String str, long millis) {
+            this.str = str;
+            this.millis = millis;
+        }
+    }
+
+    // A direct-mapped cache of recently parsed strings.  Entries are immutable, so races are harmless.
+    private static final AtomicReferenceArray<CacheEntry> CACHE = new AtomicReferenceArray<>(CACHE_SIZE);
+
+    private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @NonNull
+        protected synchronized SimpleDateFormat initialValue() {
+            final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.ENGLISH);
+            sdf.setTimeZone(TimeZone.getTimeZone("GMT"));
+            return sdf;
+        }
+    };
+
+    /**
+     * Format a time as an ISO-8601 string, in UTC, with milliseconds.
+     *
+     * @param millis the time, in milliseconds since the epoch.
+     * @return the formatted date.
+     */
+    @NonNull
+    public static String format(long millis) {
+        if ((millis < MIN_MILLIS) || (millis >= MAX_MILLIS)) { return DATE_FORMAT.get().format(new Date(millis)); }
+
+        long days = millis / MS_PER_DAY;
+        long msOfDay = millis % MS_PER_DAY;
+        if (msOfDay < 0) {
+            msOfDay += MS_PER_DAY;
+            days--;
+        }
+
+        // civil_from_days: Howard Hinnant, "chrono-Compatible Low-Level Date Algorithms"
+        final long z = days + 719468;
+        final long era = ((z >= 0) ? z : (z - 146096)) / 146097;
+        final long doe = z - (era * 146097);
+        final long yoe = (doe - (doe / 1460) + (doe / 36524) - (doe / 146096)) / 365;
+        final long doy = doe - ((365 * yoe) + (yoe / 4) - (yoe / 100));
+        final long mp = ((5 * doy) + 2) / 153;
+        final int day = (int) (doy - (((153 * mp) + 2) / 5) + 1);
+        final int month = (int) ((mp < 10) ? (mp + 3) : (mp - 9));
+        final int year = (int) (yoe + (era * 400) + ((month <= 2) ? 1 : 0));
+
+        final int ms = (int) msOfDay;
+        final char[] buf = new char[FORMATTED_LENGTH];
+        put4(buf, 0, year);
+        buf[4] = '-';
+        put2(buf, 5, month);
+        buf[7] = '-';
+        put2(buf, 8, day);
+        buf[10] = 'T';
+        put2(buf, 11, ms / (int) MS_PER_HOUR);
+        buf[13] = ':';
+        put2(buf, 14, (ms / (int) MS_PER_MINUTE) % 60);
+        buf[16] = ':';
+        put2(buf, 17, (ms / (int) MS_PER_SECOND) % 60);
+        buf[19] = '.';
+        put3(buf, 20, ms % 1000);
+        buf[23] = 'Z';
+        return new String(buf);
+    }
+
+    /**
+     * Parse an ISO-8601 date.
+     *
+     * @param str the string to parse.
+     * @return the time, in milliseconds since the epoch, or INVALID if the string is not a valid date.
+     */
+    public static long parse(@Nullable String str) {
+        if (str == null) { return INVALID; }
+
+        final int slot = str.hashCode() & (CACHE_SIZE - 1);
+        final CacheEntry entry = CACHE.get(slot);
+        if ((entry != null) && entry.str.equals(str)) { return entry.millis; }
+
+        long millis = parseFast(str);
+        if (millis == INVALID) { millis = parseWithFormatter(str); }
+        if (millis != INVALID) { CACHE.lazySet(slot, new CacheEntry(str, millis)); }
+
+        return millis;
+    }
+
+    //-------------------------------------------------------------------------
+    // Private methods
+    //-------------------------------------------------------------------------
+
+    @SuppressWarnings({"PMD.NPathComplexity", "PMD.CyclomaticComplexity"})
+    // Returns INVALID for anything it does not handle.
+    private static long parseFast(@NonNull String str) {
+        final int len = str.length();
+        // shortest valid string: yyyy-MM-ddTHH:mm:ssZ
+        if ((len < 20)
+            || (str.charAt(4) != '-')
+            || (str.charAt(7) != '-')
+            || ((str.charAt(10) != 'T') && (str.charAt(10) != 't'))
+            || (str.charAt(13) != ':')
+            || (str.charAt(16) != ':')) {
+            return INVALID;
+        }
+
+        final int year = digits(str, 0, 4);
+        final int month = digits(str, 5, 2);
+        final int day = digits(str, 8, 2);
+        final int hour = digits(str, 11, 2);
+        final int minute = digits(str, 14, 2);
+        final int second = digits(str, 17, 2);
+        if ((year < MIN_YEAR) || (year > MAX_YEAR)
+            || (month < 1) || (month > 12) || (day < 1) || (day > daysInMonth(year, month))
+            || (hour < 0) || (hour > 23) || (minute < 0) || (minute > 59) || (second < 0) || (second > 59)) {
+            return INVALID;
+        }
+
+        // fractional seconds: exactly three digits.  SimpleDateFormat reads any other
+        // number of digits as a count of milliseconds (".5" is 5ms): leave those to it.
+        int pos = 19;
+        int ms = 0;
+        if (str.charAt(pos) == '.') {
+            ms = digits(str, pos + 1, 3);
+            pos += 4;
+            if ((ms < 0) || ((pos < len) && isDigit(str.charAt(pos)))) { return INVALID; }
+        }
+
+        // zone
+        if (pos >= len) { return INVALID; }
+        long offset = 0;
+        final char zone = str.charAt(pos++);
+        if ((zone == 'Z') || (zone == 'z')) {
+            if (pos != len) { return INVALID; }
+        }
+        else if ((zone == '+') || (zone == '-')) {
+            final int offHours = digits(str, pos, 2);
+            pos += 2;
+            int offMinutes = 0;
+            if (pos < len) {
+                if (str.charAt(pos) == ':') { pos++; }
+                offMinutes = digits(str, pos, 2);
+                pos += 2;
+            }
+            if ((pos != len) || (offHours < 0) || (offHours > 23) || (offMinutes < 0) || (offMinutes > 59)) {
+                return INVALID;
+            }
+            offset = (offHours * MS_PER_HOUR) + (offMinutes * MS_PER_MINUTE);
+            if (zone == '-') { offset = -offset; }
+        }
+        else {
+            return INVALID;
+        }
+
+        return (daysFromCivil(year, month, day) * MS_PER_DAY)
+            + (hour * MS_PER_HOUR) + (minute * MS_PER_MINUTE) + (second * MS_PER_SECOND) + ms
+            - offset;
+    }
+
+    private static long parseWithFormatter(@NonNull String str) {
+        final Date date = DATE_FORMAT.get().parse(str, new ParsePosition(0));
+        return (date == null) ? INVALID : date.getTime();
+    }
+
+    // days_from_civil: Howard Hinnant, "chrono-Compatible Low-Level Date Algorithms"
+    private static long daysFromCivil(int year, int month, int day) {
+        final long y = (month <= 2) ? (year - 1) : year;
+        final long era = ((y >= 0) ? y : (y - 399)) / 400;
+        final long yoe = y - (era * 400);
+        final long doy = ((153 * ((month > 2) ? (month - 3) : (month + 9))) + 2) / 5 + (day - 1);
+        final long doe = (yoe * 365) + (yoe / 4) - (yoe / 100) + doy;
+        return (era * 146097) + doe - 719468;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (((year % 4) == 0) && (((year % 100) != 0) || ((year % 400) == 0))) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    // Parse n decimal digits at pos: returns -1 if they are not all digits or the string is too short
+    private static int digits(@NonNull String str, int pos, int n) {
+        if (pos + n > str.length()) { return -1; }
+        int val = 0;
+        for (int i = pos; i < pos + n; i++) {
+            final char c = str.charAt(i);
+            if (!isDigit(c)) { return -1; }
+            val = (val * 10) + (c - '0');
+        }
+        return val;
+    }
+
+    private static boolean isDigit(char c) { return (c >= '0') && (c <= '9'); }
+
+    private static void put2(@NonNull char[] buf, int pos, int val) {
+        buf[pos] = (char) ('0' + (val / 10));
+        buf[pos + 1] = (char) ('0' + (val % 10));
+    }
+
+    private static void put3(@NonNull char[] buf, int pos, int val) {
+        buf[pos] = (char) ('0' + (val / 100));
+        put2(buf, pos + 1, val % 100);
+    }
+
+    private static void put4(@NonNull char[] buf, int pos, int val) {
+        put2(buf, pos, val / 100);
+        put2(buf, pos + 2, val % 100);
+    }
+}
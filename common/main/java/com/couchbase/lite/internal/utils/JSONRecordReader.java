@@ -0,0 +1,199 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.util.Arrays;
+
+import com.couchbase.lite.CBLError;
+import com.couchbase.lite.CouchbaseLiteException;
+
+
+/**
+ * Splits a stream of JSON objects into records, one object per record, without parsing them.
+ * <p>
+ * The stream may be either a sequence of objects (e.g., NDJSON: one object per line)
+ * or a single top-level array of objects.  The reader tracks only nesting and strings,
+ * so it can find the end of each object: the objects themselves are validated by whoever parses them.
+ * Only one record is held in memory at a time.
+ * <p>
+ * The input channel must be blocking.
+ */
+public final class JSONRecordReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int INITIAL_RECORD_SIZE = 4 * 1024;
+
+    private enum Mode {UNKNOWN, SEQUENCE, ARRAY_START, ARRAY_NEXT, DONE}
+
+    @NonNull
+    private final ReadableByteChannel in;
+    @NonNull
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    @NonNull
+    private byte[] record = new byte[INITIAL_RECORD_SIZE];
+
+    @NonNull
+    private Mode mode = Mode.UNKNOWN;
+    private boolean eof;
+    private long bytesRead;
+    private long records;
+
+    public JSONRecordReader(@NonNull ReadableByteChannel in) {
+        this.in = Preconditions.assertNotNull(in, "input channel");
+        if ((in instanceof SelectableChannel) && !((SelectableChannel) in).isBlocking()) {
+            throw new IllegalArgumentException("input channel must be blocking");
+        }
+        buffer.flip();
+    }
+
+    // The number of bytes read from the input, so far.
+    public long getBytesRead() { return bytesRead; }
+
+    /**
+     * Get the next record: the UTF-8 bytes of a complete top-level JSON object.
+     *
+     * @return the next record or null if there are no more records.
+     * @throws IOException            on failure to read the input.
+     * @throws CouchbaseLiteException if the input is not a sequence or an array of objects.
+     */
+    @Nullable
+    public byte[] next() throws IOException, CouchbaseLiteException {
+        while (true) {
+            final int b = nextNonWhitespace();
+            if (b < 0) { return endOfInput(); }
+
+            switch (mode) {
+                case UNKNOWN:
+                    if (b == '[') {
+                        mode = Mode.ARRAY_START;
+                        continue;
+                    }
+                    mode = Mode.SEQUENCE;
+                    // fall through
+                case SEQUENCE:
+                    return readRecord(b);
+                case ARRAY_START:
+                    if (b == ']') {
+                        mode = Mode.DONE;
+                        continue;
+                    }
+                    mode = Mode.ARRAY_NEXT;
+                    return readRecord(b);
+                case ARRAY_NEXT:
+                    if (b == ']') {
+                        mode = Mode.DONE;
+                        continue;
+                    }
+                    if (b != ',') { throw formatError("Expected ',' or ']'"); }
+                    return readRecord(nextNonWhitespace());
+                case DONE:
+                    throw formatError("Unexpected data after the end of the array");
+                default:
+                    throw new IllegalStateException("Unrecognized mode: " + mode);
+            }
+        }
+    }
+
+    // Copy a single object, starting with the byte b, into the record buffer
+    @NonNull
+    private byte[] readRecord(int b) throws IOException, CouchbaseLiteException {
+        if (b != '{') { throw formatError((b < 0) ? "Unexpected end of input" : "Expected an object"); }
+
+        int len = 0;
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+        while (true) {
+            if (b < 0) { throw formatError("Unexpected end of input in an object"); }
+
+            if (len >= record.length) { record = Arrays.copyOf(record, record.length * 2); }
+            record[len++] = (byte) b;
+
+            if (inString) {
+                if (escaped) { escaped = false; }
+                else if (b == '\\') { escaped = true; }
+                else if (b == '"') { inString = false; }
+            }
+            else {
+                switch (b) {
+                    case '"':
+                        inString = true;
+                        break;
+                    case '{':
+                    case '[':
+                        depth++;
+                        break;
+                    case '}':
+                    case ']':
+                        if (--depth <= 0) {
+                            records++;
+                            return Arrays.copyOf(record, len);
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+
+            b = nextByte();
+        }
+    }
+
+    @Nullable
+    private byte[] endOfInput() throws CouchbaseLiteException {
+        if (mode == Mode.ARRAY_START || mode == Mode.ARRAY_NEXT) {
+            throw formatError("Unexpected end of input in an array");
+        }
+        return null;
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        int b;
+        do { b = nextByte(); }
+        while ((b == ' ') || (b == '\n') || (b == '\r') || (b == '\t'));
+        return b;
+    }
+
+    // Returns the next byte of input, as an unsigned value, or -1 at the end of the input
+    private int nextByte() throws IOException {
+        while (!buffer.hasRemaining()) {
+            if (eof) { return -1; }
+            buffer.clear();
+            final int n = in.read(buffer);
+            buffer.flip();
+            if (n < 0) { eof = true; }
+            // A blocking channel never reads nothing into an empty buffer: don't spin.
+            else if (n == 0) { throw new IOException("Read no data from the input channel"); }
+            else { bytesRead += n; }
+        }
+        return buffer.get() & 0xff;
+    }
+
+    @NonNull
+    private CouchbaseLiteException formatError(@NonNull String msg) {
+        return new CouchbaseLiteException(
+            "Invalid JSON input after record " + records + ": " + msg,
+            CBLError.Domain.CBLITE,
+            CBLError.Code.CORRUPT_DATA);
+    }
+}
@@ -0,0 +1,116 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal.utils;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+
+/**
+ * Writes a stream of JSON records, each already encoded as UTF-8,
+ * either as a sequence of lines (NDJSON) or as a single top-level array.
+ * Records are collected in a buffer and written to the output in large chunks.
+ * The counterpart of {@link JSONRecordReader}.
+ */
+public final class JSONRecordWriter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @NonNull
+    private final WritableByteChannel out;
+    private final boolean asArray;
+    @NonNull
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private long records;
+    private long bytesWritten;
+    private boolean finished;
+
+    public JSONRecordWriter(@NonNull WritableByteChannel out, boolean asArray) {
+        this.out = Preconditions.assertNotNull(out, "output channel");
+        this.asArray = asArray;
+    }
+
+    // The number of records written, so far.
+    public long getRecordCount() { return records; }
+
+    // The number of bytes written to the output, so far.
+    public long getBytesWritten() { return bytesWritten; }
+
+    /**
+     * Write a single record.  The record must be a complete JSON value.
+     *
+     * @param record the UTF-8 encoded JSON
+     * @throws IOException on failure to write the output
+     */
+    public void write(@NonNull byte[] record) throws IOException {
+        if (finished) { throw new IllegalStateException("Attempt to write to a finished JSON stream"); }
+
+        if (asArray) { put((byte) ((records <= 0) ? '[' : ',')); }
+        put(record);
+        put((byte) '\n');
+
+        records++;
+    }
+
+    /**
+     * Complete the stream and write any buffered data to the output.
+     * This method does not close the output.
+     *
+     * @throws IOException on failure to write the output
+     */
+    public void finish() throws IOException {
+        if (finished) { return; }
+        finished = true;
+
+        if (asArray) {
+            if (records <= 0) { put((byte) '['); }
+            put((byte) ']');
+            put((byte) '\n');
+        }
+
+        flush();
+    }
+
+    private void put(byte b) throws IOException {
+        if (!buffer.hasRemaining()) { flush(); }
+        buffer.put(b);
+    }
+
+    private void put(@NonNull byte[] data) throws IOException {
+        // records larger than the buffer are written directly
+        if (data.length > buffer.capacity()) {
+            flush();
+            writeFully(ByteBuffer.wrap(data));
+            return;
+        }
+
+        if (data.length > buffer.remaining()) { flush(); }
+        buffer.put(data);
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(@NonNull ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) { bytesWritten += out.write(data); }
+    }
+}
@@ -18,16 +18,12 @@ package com.couchbase.lite.internal.utils;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
-import java.util.TimeZone;
 
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -37,15 +33,6 @@ import org.json.JSONObject;
 public final class JSONUtils {
     private JSONUtils() { }
 
-    private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT = new ThreadLocal<SimpleDateFormat>() {
-        @NonNull
-        protected synchronized SimpleDateFormat initialValue() {
-            final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.ENGLISH);
-            sdf.setTimeZone(TimeZone.getTimeZone("GMT"));
-            return sdf;
-        }
-    };
-
     @NonNull
     public static JSONObject toJSON(@NonNull Map<?, ?> map) throws JSONException {
         final JSONObject json = new JSONObject();
@@ -61,7 +48,7 @@ public final class JSONUtils {
     }
 
     @NonNull
-    public static String toJSONString(@NonNull Date date) { return DATE_FORMAT.get().format(date); }
+    public static String toJSONString(@NonNull Date date) { return ISO8601.format(date.getTime()); }
 
     @Nullable
     public static Object toJSON(@Nullable Object val) throws JSONException {
@@ -100,11 +87,7 @@ public final class JSONUtils {
 
     @Nullable
     public static Date toDate(@Nullable String json) {
-        if (json == null) { return null; }
-
-        try { return DATE_FORMAT.get().parse(json); }
-        catch (ParseException ignore) { }
-
-        return null;
+        final long millis = ISO8601.parse(json);
+        return (millis == ISO8601.INVALID) ? null : new Date(millis);
     }
 }
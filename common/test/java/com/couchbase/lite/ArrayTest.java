@@ -15,6 +15,8 @@
 //
 package com.couchbase.lite;
 
+import androidx.annotation.NonNull;
+
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -1998,4 +2000,107 @@ public class ArrayTest extends BaseDbTest {
         assertArrayEquals(BLOB_CONTENT.getBytes(StandardCharsets.UTF_8), contents);
         assertEquals(BLOB_CONTENT, new String(contents));
     }
+
+    // Copies share their values until one of them changes
+    @Test
+    public void testCopiesAreIndependent() throws CouchbaseLiteException {
+        final MutableDocument mDoc = new MutableDocument("doc1");
+        mDoc.setArray("array", new MutableArray().addInt(0).addInt(1).addInt(2));
+        final Array array = saveDocInBaseTestDb(mDoc).getArray("array");
+        assertNotNull(array);
+
+        final MutableArray copy1 = array.toMutable();
+        final MutableArray copy2 = copy1.toMutable();
+        copy1.setInt(0, 100);
+        copy2.addInt(3);
+        copy2.remove(1);
+
+        assertArrayContents(array, 0, 1, 2);
+        assertArrayContents(copy1, 100, 1, 2);
+        assertArrayContents(copy2, 0, 2, 3);
+    }
+
+    @Test
+    public void testPrimitiveArrays() throws CouchbaseLiteException {
+        final double[] doubles = {1.5, -2.25, 0.0, Double.MAX_VALUE};
+        final float[] floats = {1.5F, -2.25F, 0.0F};
+        final long[] longs = {1L, -2L, 0L, Long.MAX_VALUE};
+
+        final MutableDocument mDoc = new MutableDocument("doc1");
+        mDoc.setDoubleArray("doubles", doubles);
+        mDoc.setFloatArray("floats", floats);
+        mDoc.setLongArray("longs", longs);
+
+        // before saving
+        assertArrayEquals(doubles, mDoc.getArray("doubles").toDoubleArray(), 0.0);
+        assertEquals(-2.25, mDoc.getArray("doubles").getDouble(1), 0.0);
+
+        final Document doc = saveDocInBaseTestDb(mDoc);
+        assertArrayEquals(doubles, doc.getArray("doubles").toDoubleArray(), 0.0);
+        assertArrayEquals(floats, doc.getArray("floats").toFloatArray(), 0.0F);
+        assertArrayEquals(longs, doc.getArray("longs").toLongArray());
+        assertEquals(Long.MAX_VALUE, doc.getArray("longs").getLong(3));
+
+        // conversions
+        assertArrayEquals(new long[] {1L, -2L, 0L}, doc.getArray("floats").toLongArray());
+        assertArrayEquals(new double[] {1.0, -2.0, 0.0, Long.MAX_VALUE}, doc.getArray("longs").toDoubleArray(), 0.0);
+    }
+
+    @Test
+    public void testPrimitiveArrayConversions() throws CouchbaseLiteException {
+        final MutableArray mArray = new MutableArray()
+            .addInt(1)
+            .addDouble(2.5)
+            .addBoolean(true)
+            .addString("str")
+            .addValue(null)
+            .addArray(new MutableArray().addInt(7));
+
+        final double[] expected = {1.0, 2.5, 1.0, 0.0, 0.0, 0.0};
+        assertArrayEquals(expected, mArray.toDoubleArray(), 0.0);
+
+        final MutableDocument mDoc = new MutableDocument("doc1");
+        mDoc.setArray("array", mArray);
+        final Array array = saveDocInBaseTestDb(mDoc).getArray("array");
+        assertArrayEquals(expected, array.toDoubleArray(), 0.0);
+        for (int i = 0; i < expected.length; i++) { assertEquals(expected[i], array.getDouble(i), 0.0); }
+    }
+
+    // Changes that are not in the Fleece array must be visible
+    @Test
+    public void testPrimitiveArrayChanged() throws CouchbaseLiteException {
+        final MutableDocument mDoc = new MutableDocument("doc1");
+        mDoc.setLongArray("array", new long[] {1L, 2L, 3L});
+        final MutableArray array = saveDocInBaseTestDb(mDoc).getArray("array").toMutable();
+        array.setLong(1, 20L);
+        array.addLong(4L);
+        assertArrayEquals(new long[] {1L, 20L, 3L, 4L}, array.toLongArray());
+
+        final MutableArray created = new MutableArray(new double[] {1.0, 2.0});
+        created.addDouble(3.0);
+        assertArrayEquals(new double[] {1.0, 2.0, 3.0}, created.toDoubleArray(), 0.0);
+    }
+
+    @Test
+    public void testPrimitiveArrayBuffer() throws CouchbaseLiteException {
+        final MutableDocument mDoc = new MutableDocument("doc1");
+        mDoc.setFloatArray("array", new float[] {1.0F, 2.0F, 3.0F});
+        final Array array = saveDocInBaseTestDb(mDoc).getArray("array");
+
+        final float[] small = new float[2];
+        assertEquals(2, array.getFloats(small));
+        assertArrayEquals(new float[] {1.0F, 2.0F}, small, 0.0F);
+
+        final float[] large = new float[] {9.0F, 9.0F, 9.0F, 9.0F};
+        assertEquals(3, array.getFloats(large));
+        assertArrayEquals(new float[] {1.0F, 2.0F, 3.0F, 9.0F}, large, 0.0F);
+
+        assertEquals(0, new MutableArray().getDoubles(new double[4]));
+        assertEquals(0, new MutableArray().toLongArray().length);
+    }
+
+    private void assertArrayContents(@NonNull Array array, int... expected) {
+        assertEquals(expected.length, array.count());
+        for (int i = 0; i < expected.length; i++) { assertEquals(expected[i], array.getInt(i)); }
+    }
 }
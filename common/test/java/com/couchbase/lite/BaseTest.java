@@ -22,6 +22,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -59,6 +60,10 @@ public abstract class BaseTest extends PlatformBaseTest {
 
     private static final List<String> SCRATCH_DIRS = new ArrayList<>();
 
+    // One run of a benchmark task.  Runs are numbered from 0.
+    @FunctionalInterface
+    protected interface BenchmarkTask<E extends Exception> { void run(int i) throws E; }
+
     @BeforeClass
     public static void setUpPlatformSuite() { Report.log(LogLevel.INFO, ">>>>>>>>>>>> Suite started"); }
 
@@ -222,6 +227,39 @@ public abstract class BaseTest extends PlatformBaseTest {
             : FileUtils.eraseFileOrDir(db.getDbFile());
     }
 
+    /**
+     * Time a benchmark task.  The task is first run runs/10 times, to warm up, and then timed over
+     * the given number of runs.  Warm-up runs are numbered after the timed runs, so that each run
+     * has a distinct number: a task may use it, for instance, to create a unique document id.
+     *
+     * @return the mean time for a single run, in ns.
+     */
+    protected final <E extends Exception> double timePerRunNs(int runs, @NonNull BenchmarkTask<E> task) throws E {
+        final int warmups = Math.max(1, runs / 10);
+        for (int i = 0; i < warmups; i++) { task.run(runs + i); }
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) { task.run(i); }
+        return (System.nanoTime() - start) / (double) runs;
+    }
+
+    // Log the mean times, per run, of two ways of doing the same thing.
+    protected final void reportComparison(
+        @NonNull String what,
+        @NonNull String name1,
+        double ns1,
+        @NonNull String name2,
+        double ns2) {
+        Report.log("%s: %s %s, %s %s (%.1fx)", what, name1, formatNs(ns1), name2, formatNs(ns2), ns1 / ns2);
+    }
+
+    @NonNull
+    protected final String formatNs(double ns) {
+        if (ns < 1000.0) { return String.format(Locale.ENGLISH, "%.0fns", ns); }
+        if (ns < 1000000.0) { return String.format(Locale.ENGLISH, "%.2fus", ns / 1000.0); }
+        return String.format(Locale.ENGLISH, "%.3fms", ns / 1000000.0);
+    }
+
     protected final String formatInterval(long ms) {
         final long min = TimeUnit.MILLISECONDS.toMinutes(ms);
         ms -= TimeUnit.MINUTES.toMillis(min);
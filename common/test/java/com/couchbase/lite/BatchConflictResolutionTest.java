@@ -0,0 +1,290 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.couchbase.lite.internal.utils.Fn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Conflicts created by pulling concurrent changes from a local stand-in for Sync Gateway,
+ * and resolved in batches.
+ */
+public class BatchConflictResolutionTest extends BaseReplicatorTest {
+    private static final String KEY = "value";
+    private static final String LOCAL = "local";
+    private static final String REMOTE = "remote";
+
+    private static final ConflictResolver FAILING_RESOLVER = conflict -> {
+        throw new IllegalStateException("Leave the conflict unresolved");
+    };
+
+    private LoopbackSyncServer server;
+
+    @Before
+    public final void setUpBatchConflictResolutionTest() throws IOException {
+        server = new LoopbackSyncServer(otherDB);
+    }
+
+    @After
+    public final void tearDownBatchConflictResolutionTest() throws IOException { server.close(); }
+
+    // The replicator hands every conflict it pulls to the batch resolver, in batches no larger than 64.
+    @Test
+    public void testPullWithBatchResolver() throws CouchbaseLiteException, InterruptedException {
+        final List<String> ids = makeConflicts(100);
+
+        final List<Integer> batches = Collections.synchronizedList(new ArrayList<>());
+        final ReplicatorConfiguration config = makeConfig(server.getEndpoint(), ReplicatorType.PULL, false)
+            .setBatchConflictResolver(conflicts -> {
+                batches.add(conflicts.size());
+                final List<Document> resolved = new ArrayList<>(conflicts.size());
+                for (Conflict conflict: conflicts) {
+                    assertEquals(LOCAL, conflict.getLocalDocument().getString(KEY));
+                    resolved.add(conflict.getRemoteDocument());
+                }
+                return resolved;
+            });
+
+        final Map<String, CouchbaseLiteException> errors = pull(config, ids);
+        for (String id: ids) { assertNull(errors.get(id)); }
+
+        int total = 0;
+        for (int n: batches) {
+            assertTrue(n <= 64);
+            total += n;
+        }
+        assertEquals(ids.size(), total);
+
+        assertResolved(ids, REMOTE);
+    }
+
+    // Resolutions for a batch are saved in a single transaction:
+    // a single database change notification reports them all.
+    // Without a batch resolver, the conflict resolver is called once for each document.
+    @Test
+    public void testResolveBatchInOneTransaction() throws CouchbaseLiteException, InterruptedException {
+        final List<String> ids = makeUnresolvedConflicts(20);
+
+        final AtomicInteger calls = new AtomicInteger();
+        final ConflictResolver resolver = conflict -> {
+            calls.incrementAndGet();
+            final MutableDocument doc = conflict.getLocalDocument().toMutable();
+            doc.setString(KEY, "merged");
+            return doc;
+        };
+
+        final BlockingQueue<DatabaseChange> dbChanges = new LinkedBlockingQueue<>();
+        final ListenerToken token = baseTestDb.addChangeListener(testSerialExecutor, dbChanges::add);
+        try {
+            nextChanges(dbChanges, "marker-1");
+
+            final CouchbaseLiteException[] errors = resolve(resolver, null, ids);
+            for (CouchbaseLiteException err: errors) { assertNull(err); }
+            assertEquals(ids.size(), calls.get());
+
+            int notifications = 0;
+            for (DatabaseChange change: nextChanges(dbChanges, "marker-2")) {
+                if (!change.getDocumentIDs().contains(ids.get(0))) { continue; }
+                assertTrue(change.getDocumentIDs().containsAll(ids));
+                notifications++;
+            }
+            assertEquals(1, notifications);
+        }
+        finally {
+            baseTestDb.removeChangeListener(token);
+        }
+
+        assertResolved(ids, "merged");
+    }
+
+    // A document that changes while its batch is being resolved is resolved again, by itself.
+    // The other documents in the batch are saved.
+    @Test
+    public void testRetryDocChangedDuringResolution() throws CouchbaseLiteException, InterruptedException {
+        final List<String> ids = makeUnresolvedConflicts(3);
+        final String changedId = ids.get(1);
+
+        final List<List<Conflict>> batches = Collections.synchronizedList(new ArrayList<>());
+        final BatchConflictResolver resolver = conflicts -> {
+            batches.add(conflicts);
+            if (batches.size() == 1) {
+                try {
+                    final MutableDocument doc = baseTestDb.getDocument(changedId).toMutable();
+                    doc.setString(KEY, "changed");
+                    baseTestDb.save(doc);
+                }
+                catch (CouchbaseLiteException e) { throw new IllegalStateException("Failed changing doc", e); }
+            }
+
+            final List<Document> resolved = new ArrayList<>(conflicts.size());
+            for (Conflict conflict: conflicts) { resolved.add(conflict.getRemoteDocument()); }
+            return resolved;
+        };
+
+        final CouchbaseLiteException[] errors = resolve(null, resolver, ids);
+        for (CouchbaseLiteException err: errors) { assertNull(err); }
+
+        assertEquals(2, batches.size());
+        assertEquals(ids.size(), batches.get(0).size());
+
+        // the retry sees the change
+        final List<Conflict> retry = batches.get(1);
+        assertEquals(1, retry.size());
+        assertEquals(changedId, retry.get(0).getDocumentId());
+        assertEquals("changed", retry.get(0).getLocalDocument().getString(KEY));
+
+        assertResolved(ids, REMOTE);
+    }
+
+    // Create docs on both sides and then change each of them, differently, on each side.
+    @NonNull
+    private List<String> makeConflicts(int n) throws CouchbaseLiteException {
+        final List<String> ids = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) { ids.add(String.format(Locale.ENGLISH, "doc-%04d", i)); }
+
+        setValues(baseTestDb, ids, "original");
+        run(makeConfig(server.getEndpoint(), ReplicatorType.PUSH, false));
+        assertEquals(n, otherDB.getCount());
+
+        setValues(otherDB, ids, REMOTE);
+        setValues(baseTestDb, ids, LOCAL);
+
+        return ids;
+    }
+
+    // Pull the conflicts with a resolver that fails, so that they are still there to be resolved.
+    @NonNull
+    private List<String> makeUnresolvedConflicts(int n) throws CouchbaseLiteException, InterruptedException {
+        final List<String> ids = makeConflicts(n);
+        final Map<String, CouchbaseLiteException> errors = pull(
+            makeConfig(server.getEndpoint(), ReplicatorType.PULL, false).setConflictResolver(FAILING_RESOLVER),
+            ids);
+        for (String id: ids) {
+            assertNotNull(errors.get(id));
+            assertEquals(LOCAL, baseTestDb.getDocument(id).getString(KEY));
+        }
+        return ids;
+    }
+
+    // Run a pull replication and wait for each of the conflicted documents to be reported.
+    @NonNull
+    private Map<String, CouchbaseLiteException> pull(@NonNull ReplicatorConfiguration config, @NonNull List<String> ids)
+        throws CouchbaseLiteException, InterruptedException {
+        final Map<String, CouchbaseLiteException> errors = new ConcurrentHashMap<>();
+        final CountDownLatch latch = new CountDownLatch(ids.size());
+        run(
+            config,
+            repl -> repl.addDocumentReplicationListener(replication -> {
+                for (ReplicatedDocument doc: replication.getDocuments()) {
+                    final CouchbaseLiteException err = doc.getError();
+                    if (err != null) { errors.put(doc.getID(), err); }
+                    if (ids.contains(doc.getID())) { latch.countDown(); }
+                }
+            }));
+        assertTrue(latch.await(STD_TIMEOUT_SEC, TimeUnit.SECONDS));
+        return errors;
+    }
+
+    // Resolve the conflicts directly, as a single batch.  Returns the error reported for each doc.
+    @NonNull
+    private CouchbaseLiteException[] resolve(
+        @Nullable ConflictResolver resolver,
+        @Nullable BatchConflictResolver batchResolver,
+        @NonNull List<String> ids) {
+        final int n = ids.size();
+        final CouchbaseLiteException[] errors = new CouchbaseLiteException[n];
+        final boolean[] called = new boolean[n];
+        final List<Fn.NullableConsumer<CouchbaseLiteException>> callbacks = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            final int idx = i;
+            callbacks.add(err -> {
+                assertFalse(called[idx]);
+                called[idx] = true;
+                errors[idx] = err;
+            });
+        }
+
+        baseTestDb.resolveReplicationConflicts(resolver, batchResolver, ids, callbacks);
+
+        for (boolean c: called) { assertTrue(c); }
+        return errors;
+    }
+
+    // Save a marker doc and collect change notifications up to and including the one that reports it.
+    @NonNull
+    private List<DatabaseChange> nextChanges(@NonNull BlockingQueue<DatabaseChange> queue, @NonNull String marker)
+        throws CouchbaseLiteException, InterruptedException {
+        baseTestDb.save(new MutableDocument(marker));
+        final List<DatabaseChange> changes = new ArrayList<>();
+        while (true) {
+            final DatabaseChange change = queue.poll(STD_TIMEOUT_SEC, TimeUnit.SECONDS);
+            assertNotNull(change);
+            changes.add(change);
+            if (change.getDocumentIDs().contains(marker)) { return changes; }
+        }
+    }
+
+    private void setValues(@NonNull Database db, @NonNull List<String> ids, @NonNull String value)
+        throws CouchbaseLiteException {
+        db.inBatch(() -> {
+            for (String id: ids) {
+                final Document doc = db.getDocument(id);
+                final MutableDocument mDoc = (doc == null) ? new MutableDocument(id) : doc.toMutable();
+                mDoc.setString(KEY, value);
+                db.save(mDoc);
+            }
+        });
+    }
+
+    // Every doc has the expected value and is no longer in conflict.
+    private void assertResolved(@NonNull List<String> ids, @NonNull String value) throws CouchbaseLiteException {
+        for (String id: ids) {
+            final Document doc = baseTestDb.getDocument(id);
+            assertNotNull(doc);
+            assertEquals(value, doc.getString(KEY));
+        }
+
+        // the resolutions are pushed without conflict
+        run(makeConfig(server.getEndpoint(), ReplicatorType.PUSH, false));
+        for (String id: ids) { assertEquals(value, otherDB.getDocument(id).getString(KEY)); }
+    }
+}
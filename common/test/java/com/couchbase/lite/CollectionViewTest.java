@@ -0,0 +1,237 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.couchbase.lite.internal.utils.SlowTest;
+
+import static com.couchbase.lite.internal.utils.TestUtils.assertThrows;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+public class CollectionViewTest extends BaseDbTest {
+
+    // A view has the same content as the map from toMap()
+    @Test
+    public void testDocumentMapView() throws CouchbaseLiteException {
+        final Document doc = saveDocInBaseTestDb(makeDocument());
+        final Map<String, Object> view = doc.asMapView();
+        final Map<String, Object> map = doc.toMap();
+
+        assertEquals(map.size(), view.size());
+        assertEquals(map.keySet(), view.keySet());
+        assertEquals(map, view);
+        assertEquals(view, map);
+        assertEquals(map.hashCode(), view.hashCode());
+
+        assertTrue(view.get("dict") instanceof Map);
+        assertTrue(view.get("array") instanceof List);
+        assertTrue(view.get("blob") instanceof Blob);
+    }
+
+    @Test
+    public void testMissingKeys() throws CouchbaseLiteException {
+        final MutableDocument mDoc = new MutableDocument();
+        mDoc.setValue("null", null);
+        final Map<String, Object> view = saveDocInBaseTestDb(mDoc).asMapView();
+
+        assertTrue(view.containsKey("null"));
+        assertNull(view.get("null"));
+        assertFalse(view.containsKey("missing"));
+        assertNull(view.get("missing"));
+        assertNull(view.get(42));
+        assertFalse(view.containsKey(null));
+    }
+
+    // Values from an immutable source are memoized
+    @Test
+    public void testMemoized() throws CouchbaseLiteException {
+        final Map<String, Object> view = saveDocInBaseTestDb(makeDocument()).asMapView();
+        final Object dict = view.get("dict");
+        assertNotNull(dict);
+        assertSame(dict, view.get("dict"));
+
+        final List<?> list = (List<?>) view.get("array");
+        assertNotNull(list);
+        assertSame(list.get(0), list.get(0));
+    }
+
+    // A view of a mutable source sees changes to it
+    @Test
+    public void testMutableSource() {
+        final MutableDocument mDoc = new MutableDocument();
+        mDoc.setString("foo", "bar");
+        final Map<String, Object> view = mDoc.asMapView();
+        assertEquals("bar", view.get("foo"));
+
+        mDoc.setString("foo", "baz");
+        mDoc.setInt("count", 3);
+        assertEquals("baz", view.get("foo"));
+        assertEquals(2, view.size());
+        assertEquals(3L, ((Number) view.get("count")).longValue());
+
+        final MutableArray array = new MutableArray().addString("a");
+        final List<Object> listView = array.asListView();
+        array.addString("b");
+        assertEquals(2, listView.size());
+        assertEquals("b", listView.get(1));
+    }
+
+    // A view of a mutable document sees edits made after the document is saved or its content replaced
+    @Test
+    public void testMutableDocumentViewAfterSave() throws CouchbaseLiteException {
+        final MutableDocument mDoc = new MutableDocument("doc1");
+        mDoc.setString("foo", "bar");
+        final Map<String, Object> view = mDoc.asMapView();
+
+        baseTestDb.save(mDoc);
+        mDoc.setString("foo", "baz");
+        assertEquals("baz", view.get("foo"));
+
+        mDoc.setJSON("{\"count\":3}");
+        assertFalse(view.containsKey("foo"));
+        mDoc.setInt("count", 4);
+        assertEquals(4L, ((Number) view.get("count")).longValue());
+        assertEquals(1, view.size());
+    }
+
+    @Test
+    public void testReadOnly() throws CouchbaseLiteException {
+        final Document doc = saveDocInBaseTestDb(makeDocument());
+        final Map<String, Object> view = doc.asMapView();
+        assertThrows(UnsupportedOperationException.class, () -> view.put("foo", "bar"));
+        assertThrows(UnsupportedOperationException.class, () -> view.remove("dict"));
+        assertThrows(UnsupportedOperationException.class, () -> view.entrySet().iterator().next().setValue("x"));
+
+        final List<Object> list = doc.getArray("array").asListView();
+        assertThrows(UnsupportedOperationException.class, () -> list.add("foo"));
+        assertThrows(UnsupportedOperationException.class, () -> list.set(0, "foo"));
+    }
+
+    @Test
+    public void testArrayListView() throws CouchbaseLiteException {
+        final Array array = saveDocInBaseTestDb(makeDocument()).getArray("array");
+        assertNotNull(array);
+        final List<Object> view = array.asListView();
+        final List<Object> list = array.toList();
+
+        assertEquals(list.size(), view.size());
+        assertEquals(list, view);
+        assertEquals(view, list);
+        assertEquals(list.hashCode(), view.hashCode());
+
+        assertThrows(IndexOutOfBoundsException.class, () -> view.get(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> view.get(view.size()));
+    }
+
+    @Test
+    public void testResultViews() throws CouchbaseLiteException {
+        final MutableDocument mDoc = new MutableDocument("doc1");
+        mDoc.setString("name", "Alice");
+        mDoc.setInt("age", 42);
+        mDoc.setDictionary("address", new MutableDictionary().setString("city", "Springfield"));
+        saveDocInBaseTestDb(mDoc);
+
+        final Query query = QueryBuilder
+            .select(
+                SelectResult.property("name"),
+                SelectResult.property("age"),
+                SelectResult.property("address"),
+                SelectResult.property("missing"))
+            .from(DataSource.database(baseTestDb));
+
+        try (ResultSet results = query.execute()) {
+            final Result result = results.next();
+            assertNotNull(result);
+
+            final Map<String, Object> view = result.asMapView();
+            assertEquals(result.toMap(), view);
+            assertEquals(3, view.size());
+            assertFalse(view.containsKey("missing"));
+            assertEquals("Springfield", ((Map<?, ?>) view.get("address")).get("city"));
+
+            final List<Object> list = result.asListView();
+            assertEquals(4, list.size());
+            assertEquals("Alice", list.get(0));
+            assertNull(list.get(3));
+        }
+    }
+
+    // Compares building a REST response, which uses a handful of each document's properties,
+    // from toMap() and from asMapView().
+    @SlowTest
+    @Test
+    public void testResponseBenchmark() throws CouchbaseLiteException {
+        final int nDocs = 10000;
+        final int nProps = 50;
+
+        baseTestDb.inBatch(() -> {
+            for (int i = 0; i < nDocs; i++) {
+                final MutableDocument mDoc = new MutableDocument(String.format(Locale.ENGLISH, "doc-%05d", i));
+                for (int j = 0; j < nProps; j++) {
+                    mDoc.setString(String.format(Locale.ENGLISH, "prop-%02d", j), "value-" + i + "-" + j);
+                }
+                mDoc.setDictionary("owner", new MutableDictionary().setString("name", "owner-" + i).setInt("id", i));
+                mDoc.setArray("tags", new MutableArray().addString("a").addString("b").addString("c"));
+                baseTestDb.save(mDoc);
+            }
+        });
+
+        final List<String> ids = new ArrayList<>(nDocs);
+        for (int i = 0; i < nDocs; i++) { ids.add(String.format(Locale.ENGLISH, "doc-%05d", i)); }
+
+        final int[] lengths = new int[2];
+        final double mapNs = timePerRunNs(1, i -> lengths[0] = buildResponse(ids, false));
+        final double viewNs = timePerRunNs(1, i -> lengths[1] = buildResponse(ids, true));
+
+        assertEquals(lengths[0], lengths[1]);
+        reportComparison(
+            "Build response per doc from " + nDocs + " docs",
+            "toMap",
+            mapNs / nDocs,
+            "asMapView",
+            viewNs / nDocs);
+    }
+
+    // Read each document and build a response from a few of its properties
+    private int buildResponse(List<String> ids, boolean useView) throws CouchbaseLiteException {
+        final StringBuilder response = new StringBuilder();
+        for (String id: ids) {
+            final Document doc = baseTestDb.getDocument(id);
+            assertNotNull(doc);
+            final Map<String, Object> props = (useView) ? doc.asMapView() : doc.toMap();
+            final Map<?, ?> owner = (Map<?, ?>) props.get("owner");
+            response.append("{\"id\":\"").append(id)
+                .append("\",\"p0\":\"").append(props.get("prop-00"))
+                .append("\",\"p7\":\"").append(props.get("prop-07"))
+                .append("\",\"owner\":\"").append(owner.get("name"))
+                .append("\",\"tags\":").append(((List<?>) props.get("tags")).size())
+                .append("}\n");
+        }
+        return response.length();
+    }
+}
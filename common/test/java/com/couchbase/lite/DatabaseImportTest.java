@@ -0,0 +1,273 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.couchbase.lite.internal.utils.JSONRecordReader;
+import com.couchbase.lite.internal.utils.Report;
+import com.couchbase.lite.internal.utils.SlowTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class DatabaseImportTest extends BaseDbTest {
+    @Test
+    public void testImportNDJSON() throws CouchbaseLiteException, IOException {
+        final JSONImportStatus status = baseTestDb.importJSON(
+            asStream("{\"_id\":\"doc-1\",\"name\":\"one\",\"n\":1}\n"
+                + "{\"_id\":\"doc-2\",\"name\":\"two\",\"tags\":[\"a\",\"}\"],\"nested\":{\"x\":\"{\\\"\"}}\n"
+                + "\n"
+                + "{\"_id\":\"doc-3\",\"name\":\"three\"}"),
+            null);
+
+        assertEquals(3, status.getDocumentCount());
+        assertEquals(3, baseTestDb.getCount());
+
+        final Document doc1 = baseTestDb.getDocument("doc-1");
+        assertNotNull(doc1);
+        assertEquals("one", doc1.getString("name"));
+        assertEquals(1, doc1.getInt("n"));
+        // the id property, beginning with '_', is not saved
+        assertFalse(doc1.contains("_id"));
+
+        final Document doc2 = baseTestDb.getDocument("doc-2");
+        assertNotNull(doc2);
+        assertEquals("}", doc2.getArray("tags").getString(1));
+        assertEquals("{\"", doc2.getDictionary("nested").getString("x"));
+    }
+
+    @Test
+    public void testImportArray() throws CouchbaseLiteException, IOException {
+        final JSONImportStatus status = baseTestDb.importJSON(
+            asStream(" [ {\"_id\":\"doc-1\",\"a\":[1,2,[3]]} ,\n{\"_id\":\"doc-2\",\"b\":{}} ] \n"),
+            null);
+
+        assertEquals(2, status.getDocumentCount());
+        final Document doc1 = baseTestDb.getDocument("doc-1");
+        assertNotNull(doc1);
+        assertEquals(3, doc1.getArray("a").getArray(2).getInt(0));
+        assertNotNull(baseTestDb.getDocument("doc-2"));
+    }
+
+    @Test
+    public void testImportEmpty() throws CouchbaseLiteException, IOException {
+        assertEquals(0, baseTestDb.importJSON(asStream("  \n"), null).getDocumentCount());
+        assertEquals(0, baseTestDb.importJSON(asStream("[ ]"), null).getDocumentCount());
+        assertEquals(0, baseTestDb.getCount());
+    }
+
+    @Test
+    public void testImportIds() throws CouchbaseLiteException, IOException {
+        baseTestDb.importJSON(
+            asStream("{\"key\":\"doc-a\",\"v\":1}{\"key\":42,\"v\":2}{\"key\":true,\"v\":3}{\"v\":4}"),
+            new JSONImportConfiguration().setIdProperty("key"));
+
+        assertEquals(4, baseTestDb.getCount());
+
+        // a property that doesn't begin with '_' is saved
+        final Document docA = baseTestDb.getDocument("doc-a");
+        assertNotNull(docA);
+        assertEquals("doc-a", docA.getString("key"));
+
+        final Document doc42 = baseTestDb.getDocument("42");
+        assertNotNull(doc42);
+        assertEquals(2, doc42.getInt("v"));
+    }
+
+    @Test
+    public void testImportReplaces() throws CouchbaseLiteException, IOException {
+        final MutableDocument mDoc = new MutableDocument("doc-1");
+        mDoc.setString("name", "old");
+        mDoc.setString("extra", "gone");
+        saveDocInBaseTestDb(mDoc);
+
+        baseTestDb.importJSON(asStream("{\"_id\":\"doc-1\",\"name\":\"new\"}"), null);
+
+        final Document doc = baseTestDb.getDocument("doc-1");
+        assertNotNull(doc);
+        assertEquals("new", doc.getString("name"));
+        assertFalse(doc.contains("extra"));
+    }
+
+    // Within a batch, the last record with an id wins and is counted once.
+    @Test
+    public void testImportRepeatedId() throws CouchbaseLiteException, IOException {
+        final JSONImportStatus status = baseTestDb.importJSON(
+            asStream("{\"_id\":\"doc-1\",\"v\":1}\n{\"_id\":\"doc-2\",\"v\":2}\n{\"_id\":\"doc-1\",\"v\":3}\n"),
+            null);
+
+        assertEquals(2, status.getDocumentCount());
+        assertEquals(2, baseTestDb.getCount());
+
+        final Document doc = baseTestDb.getDocument("doc-1");
+        assertNotNull(doc);
+        assertEquals(3, doc.getInt("v"));
+    }
+
+    @Test
+    public void testImportBatches() throws CouchbaseLiteException, IOException {
+        final List<JSONImportStatus> progress = new ArrayList<>();
+        final JSONImportStatus status = baseTestDb.importJSON(
+            asStream(makeNDJSON(25)),
+            new JSONImportConfiguration().setBatchSize(10).setListener(progress::add));
+
+        assertEquals(25, status.getDocumentCount());
+        assertEquals(25, baseTestDb.getCount());
+
+        assertEquals(3, progress.size());
+        assertEquals(10, progress.get(0).getDocumentCount());
+        assertEquals(20, progress.get(1).getDocumentCount());
+        assertEquals(25, progress.get(2).getDocumentCount());
+        assertTrue(progress.get(2).getBytesRead() > 0);
+    }
+
+    // Batches before the bad record are committed; the one containing it is not.
+    @Test
+    public void testImportNotAnObject() throws IOException {
+        assertImportFails(makeNDJSON(10) + "[1, 2]\n" + makeNDJSON(5), 5);
+    }
+
+    @Test
+    public void testImportBadJSON() throws IOException {
+        assertImportFails(makeNDJSON(5) + "{\"_id\":\"bad\",\"a\":}\n", 5);
+    }
+
+    @Test
+    public void testImportTruncated() throws IOException {
+        assertImportFails(makeNDJSON(5) + "{\"_id\":\"bad\",\"a\":{\"b\":1}", 5);
+    }
+
+    @Test
+    public void testImportUnterminatedArray() throws IOException {
+        assertImportFails("[{\"_id\":\"doc-1\"},", 0);
+    }
+
+    @Test
+    public void testImportTruncatedArray() throws IOException {
+        assertImportFails("[", 0);
+        assertImportFails("[{\"_id\":\"doc-1\"}", 0);
+    }
+
+    // A non-blocking channel could return no data: the reader would spin
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonBlockingInputRejected() throws IOException {
+        final Pipe pipe = Pipe.open();
+        try (Pipe.SourceChannel source = pipe.source(); Pipe.SinkChannel ignore = pipe.sink()) {
+            source.configureBlocking(false);
+            new JSONRecordReader(source);
+        }
+    }
+
+    @Test
+    public void testImportTrailingData() throws IOException {
+        assertImportFails("[{\"_id\":\"doc-1\"}] {\"_id\":\"doc-2\"}", 0);
+    }
+
+    // Imports a stream too large to hold in memory, in batches, and reports throughput.
+    @SlowTest
+    @Test
+    public void testImportThroughput() throws CouchbaseLiteException, IOException {
+        final int nDocs = 200000;
+        final JSONImportStatus status = baseTestDb.importJSON(
+            generatedStream(nDocs),
+            new JSONImportConfiguration()
+                .setBatchSize(5000)
+                .setListener(s -> Report.log("JSON import progress: %s", s)));
+
+        assertEquals(nDocs, status.getDocumentCount());
+        assertEquals(nDocs, baseTestDb.getCount());
+        Report.log(
+            "JSON import: %d docs, %.1fMB in %dms: %.0f docs/s, %.2fMB/s",
+            status.getDocumentCount(),
+            status.getBytesRead() / (1024.0 * 1024.0),
+            status.getElapsedMillis(),
+            status.getDocumentsPerSecond(),
+            status.getBytesPerSecond() / (1024.0 * 1024.0));
+    }
+
+    private void assertImportFails(@NonNull String json, long expectedCount) throws IOException {
+        try {
+            baseTestDb.importJSON(asStream(json), new JSONImportConfiguration().setBatchSize(5));
+            fail("Import of bad JSON should fail");
+        }
+        catch (CouchbaseLiteException ignore) { }
+        assertEquals(expectedCount, baseTestDb.getCount());
+        assertNull(baseTestDb.getDocument("bad"));
+    }
+
+    @NonNull
+    private InputStream asStream(@NonNull String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @NonNull
+    private String makeNDJSON(int n) {
+        final StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < n; i++) { buf.append(makeRecord(i)).append('\n'); }
+        return buf.toString();
+    }
+
+    @NonNull
+    private static String makeRecord(int i) {
+        return String.format(
+            Locale.ENGLISH,
+            "{\"_id\":\"%s\",\"type\":\"import\",\"n\":%d,\"score\":%d.5,"
+                + "\"tags\":[\"t%d\"],\"address\":{\"zip\":\"%05d\"}}",
+            UUID.randomUUID(),
+            i,
+            i % 100,
+            i % 7,
+            i % 100000);
+    }
+
+    // An NDJSON stream whose records are generated as they are read.
+    @NonNull
+    private static InputStream generatedStream(int nDocs) {
+        return new SequenceInputStream(new Enumeration<InputStream>() {
+            private int next;
+
+            @Override
+            public boolean hasMoreElements() { return next < nDocs; }
+
+            @Override
+            public InputStream nextElement() {
+                if (next >= nDocs) { throw new NoSuchElementException(); }
+                return new ByteArrayInputStream((makeRecord(next++) + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        });
+    }
+}
@@ -1416,6 +1416,39 @@ public class DatabaseTest extends BaseDbTest {
         }
     }
 
+    // A batch of conflicts reports a result for each document
+    @Test
+    public void testResolveReplicationConflictsReportsPerDocument() throws CouchbaseLiteException {
+        createSingleDocInBaseTestDb("doc1");
+
+        final CouchbaseLiteException[] errs = new CouchbaseLiteException[2];
+        final boolean[] called = new boolean[2];
+        baseTestDb.resolveReplicationConflicts(
+            null,
+            conflicts -> { throw new AssertionError("Resolver should not be called"); },
+            Arrays.asList("doc1", "doc2"),
+            Arrays.asList(
+                err -> {
+                    called[0] = true;
+                    errs[0] = err;
+                },
+                err -> {
+                    called[1] = true;
+                    errs[1] = err;
+                }));
+
+        // doc1 is not conflicted: nothing to do
+        assertTrue(called[0]);
+        assertNull(errs[0]);
+
+        // doc2 does not exist
+        assertTrue(called[1]);
+        assertNotNull(errs[1]);
+        assertEquals(CBLError.Code.NOT_FOUND, errs[1].getCode());
+
+        verifyGetDocument("doc1");
+    }
+
     private Database openDatabase() throws CouchbaseLiteException { return verifyDb(createDb("test_db")); }
 
     private Database duplicateBaseTestDb() throws CouchbaseLiteException {
@@ -781,4 +781,76 @@ public class DictionaryTest extends BaseDbTest {
     public void testDictFromArray() throws IOException {
         new MutableDocument("fromJSON", readJSONResource("array.json"));
     }
+
+    // Nested values parsed from JSON are decoded lazily, but can be modified before they are saved
+    @Test
+    public void testDictFromJSONModifyNested() throws CouchbaseLiteException {
+        final MutableDictionary mDict = new MutableDictionary("{\"address\":{\"city\":\"Tahoe\"},\"zip\":96150}");
+        final MutableDictionary address = mDict.getDictionary("address");
+        assertNotNull(address);
+        address.setString("city", "Truckee");
+
+        final Dictionary dbDict = saveDocInBaseTestDb(new MutableDocument().setDictionary("dict", mDict))
+            .getDictionary("dict");
+        assertNotNull(dbDict);
+        assertEquals(96150, dbDict.getInt("zip"));
+        assertEquals("Truckee", dbDict.getDictionary("address").getString("city"));
+    }
+
+    // Copies share their values until one of them changes
+    @Test
+    public void testCopiesAreIndependent() throws CouchbaseLiteException {
+        final MutableDocument mDoc = new MutableDocument("doc1");
+        for (int i = 0; i < 10; i++) { mDoc.setInt("key-" + i, i); }
+        final Document doc = saveDocInBaseTestDb(mDoc);
+
+        final MutableDocument copy1 = doc.toMutable();
+        copy1.setInt("key-1", 100);
+        copy1.remove("key-2");
+
+        final MutableDocument copy2 = copy1.toMutable();
+        copy2.setInt("key-3", 300);
+        copy2.setInt("key-2", 200);
+        copy1.setInt("key-4", 400);
+
+        assertEquals(1, doc.getInt("key-1"));
+        assertEquals(2, doc.getInt("key-2"));
+        assertEquals(3, doc.getInt("key-3"));
+        assertEquals(10, doc.count());
+
+        assertEquals(100, copy1.getInt("key-1"));
+        assertFalse(copy1.contains("key-2"));
+        assertEquals(3, copy1.getInt("key-3"));
+        assertEquals(400, copy1.getInt("key-4"));
+        assertEquals(9, copy1.count());
+        assertEquals(9, copy1.getKeys().size());
+
+        assertEquals(100, copy2.getInt("key-1"));
+        assertEquals(200, copy2.getInt("key-2"));
+        assertEquals(300, copy2.getInt("key-3"));
+        assertEquals(4, copy2.getInt("key-4"));
+        assertEquals(10, copy2.count());
+
+        final Document saved = saveDocInBaseTestDb(copy2);
+        assertEquals(200, saved.getInt("key-2"));
+        assertEquals(4, saved.getInt("key-4"));
+        assertEquals(10, saved.count());
+    }
+
+    // A long chain of copies of copies
+    @Test
+    public void testManyCopies() {
+        MutableDictionary dict = new MutableDictionary();
+        for (int i = 0; i < 50; i++) {
+            dict.setInt("key-" + i, i);
+            dict = dict.toMutable();
+        }
+
+        assertEquals(50, dict.count());
+        for (int i = 0; i < 50; i++) { assertEquals(i, dict.getInt("key-" + i)); }
+
+        dict.clear();
+        assertEquals(0, dict.count());
+        assertTrue(dict.getKeys().isEmpty());
+    }
 }
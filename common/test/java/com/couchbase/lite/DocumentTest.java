@@ -2529,4 +2529,58 @@ public class DocumentTest extends BaseDbTest {
     public void testMutableFromArray() throws IOException {
         new MutableDocument("fromJSON", readJSONResource("array.json"));
     }
+
+    // Nested values in a document created from JSON are decoded lazily, but can be modified before it is saved
+    @Test
+    public void testDocFromJSONModifyNested() throws CouchbaseLiteException {
+        final MutableDocument mDoc = new MutableDocument(
+            "fromJSON",
+            "{\"name\":\"Scott\",\"address\":{\"city\":\"Tahoe\"},\"tags\":[1,2]}");
+
+        final MutableDictionary address = mDoc.getDictionary("address");
+        assertNotNull(address);
+        address.setString("city", "Truckee");
+        final MutableArray tags = mDoc.getArray("tags");
+        assertNotNull(tags);
+        tags.addInt(3);
+
+        final Document doc = saveDocInBaseTestDb(mDoc);
+        assertEquals("Scott", doc.getString("name"));
+        assertEquals("Truckee", doc.getDictionary("address").getString("city"));
+        assertEquals(Arrays.asList(1L, 2L, 3L), doc.getArray("tags").toList());
+    }
+
+    // setJSON replaces the content of a document read from the database
+    @Test
+    public void testSetJSONOnSavedDoc() throws CouchbaseLiteException {
+        final MutableDocument mDoc = new MutableDocument("fromJSON");
+        mDoc.setString("foo", "bar");
+
+        final Document doc = saveDocInBaseTestDb(saveDocInBaseTestDb(mDoc).toMutable().setJSON("{\"baz\":42}"));
+        assertFalse(doc.contains("foo"));
+        assertEquals(42, doc.getInt("baz"));
+    }
+
+    // Saving a changed document keeps the properties that were neither read nor changed
+    @Test
+    public void testUpdateSingleProperty() throws CouchbaseLiteException {
+        final MutableDocument mDoc = new MutableDocument("update");
+        for (int i = 0; i < 20; i++) { mDoc.setInt("key-" + i, i); }
+        mDoc.setDictionary("address", new MutableDictionary().setString("city", "Tahoe"));
+
+        final MutableDocument update = saveDocInBaseTestDb(mDoc).toMutable();
+        assertEquals(3, update.getInt("key-3"));
+        update.setInt("key-5", 500);
+        update.remove("key-7");
+        update.setString("new", "value");
+
+        final Document doc = saveDocInBaseTestDb(update);
+        assertEquals(21, doc.count());
+        assertEquals(3, doc.getInt("key-3"));
+        assertEquals(500, doc.getInt("key-5"));
+        assertFalse(doc.contains("key-7"));
+        assertEquals(19, doc.getInt("key-19"));
+        assertEquals("value", doc.getString("new"));
+        assertEquals("Tahoe", doc.getDictionary("address").getString("city"));
+    }
 }
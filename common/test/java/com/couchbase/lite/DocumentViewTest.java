@@ -0,0 +1,148 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import java.util.EnumSet;
+import java.util.Locale;
+
+import org.junit.Test;
+
+import com.couchbase.lite.internal.fleece.FLDict;
+import com.couchbase.lite.internal.utils.SlowTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+public class DocumentViewTest extends BaseDbTest {
+    private static final EnumSet<DocumentFlag> NO_FLAGS = EnumSet.noneOf(DocumentFlag.class);
+
+    // A view created the way the replicator creates one for a filter
+    @Test
+    public void testFilterView() throws CouchbaseLiteException {
+        final Document doc = saveDocInBaseTestDb(makeDocument());
+        final DocumentView view = new DocumentView(baseTestDb, doc.getId(), doc.getRevisionID(), doc.getFLDict());
+        assertEquals(doc.getId(), view.getId());
+        assertEquals(doc.getRevisionID(), view.getRevisionID());
+        verifyDocument(view);
+        assertEquals(doc.getKeys().size(), view.getKeys().size());
+        assertTrue(view.getKeys().containsAll(doc.getKeys()));
+    }
+
+    // A view of a document, as used in a Conflict
+    @Test
+    public void testDocumentView() throws CouchbaseLiteException {
+        final Document doc = saveDocInBaseTestDb(makeDocument());
+        final DocumentView view = new DocumentView(doc);
+        verifyDocument(view);
+        assertSame(doc, view.toDocument());
+    }
+
+    @Test
+    public void testMissingProperty() throws CouchbaseLiteException {
+        final MutableDocument mDoc = new MutableDocument();
+        mDoc.setString("foo", "bar");
+        final Document doc = saveDocInBaseTestDb(mDoc);
+        final DocumentView view = new DocumentView(baseTestDb, doc.getId(), doc.getRevisionID(), doc.getFLDict());
+
+        assertFalse(view.contains("baz"));
+        assertNull(view.getValue("baz"));
+        assertNull(view.getString("baz"));
+        assertEquals(0, view.getInt("baz"));
+        assertFalse(view.getBoolean("baz"));
+        assertNull(view.getDictionary("baz"));
+
+        // asking twice gives the same answer
+        assertEquals("bar", view.getString("foo"));
+        assertEquals("bar", view.getString("foo"));
+        assertNull(view.getDictionary("foo"));
+        assertNull(view.getArray("foo"));
+    }
+
+    @Test
+    public void testDeletedRevision() {
+        final DocumentView view = new DocumentView(baseTestDb, "doc", "2-abc", null);
+        assertEquals(0, view.count());
+        assertTrue(view.getKeys().isEmpty());
+        assertNull(view.getValue("foo"));
+        assertNull(view.toJSON());
+        assertEquals(0, view.toDocument().count());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMutableDocument() { new DocumentView(new MutableDocument()); }
+
+    // A view filter can be called with a Document
+    @Test
+    public void testViewFilterWithDocument() throws CouchbaseLiteException {
+        final MutableDocument mDoc = new MutableDocument();
+        mDoc.setString("type", "order");
+        final Document doc = saveDocInBaseTestDb(mDoc);
+
+        final ReplicationViewFilter filter = (view, flags) -> "order".equals(view.getString("type"));
+        assertTrue(filter.filtered(doc, NO_FLAGS));
+    }
+
+    @Test
+    public void testConflictViews() throws CouchbaseLiteException {
+        final MutableDocument mDoc = new MutableDocument();
+        mDoc.setLong("updated", 42L);
+        final Document doc = saveDocInBaseTestDb(mDoc);
+
+        final Conflict conflict = new Conflict(doc, null);
+        final DocumentView localView = conflict.getLocalView();
+        assertNotNull(localView);
+        assertEquals(42L, localView.getLong("updated"));
+        assertNull(conflict.getRemoteView());
+    }
+
+    // Compares the per-revision cost of a filter that reads two properties from a Document and from a view.
+    @SlowTest
+    @Test
+    public void testFilterOverhead() throws CouchbaseLiteException {
+        final int iterations = 100000;
+
+        final MutableDocument mDoc = new MutableDocument();
+        for (int i = 0; i < 20; i++) { mDoc.setString(String.format(Locale.ENGLISH, "prop-%02d", i), "value-" + i); }
+        mDoc.setString("type", "order");
+        mDoc.setInt("qty", 3);
+        mDoc.setDictionary("address", makeDict());
+        final Document doc = saveDocInBaseTestDb(mDoc);
+
+        final String id = doc.getId();
+        final String revId = doc.getRevisionID();
+        final FLDict body = doc.getFLDict();
+        assertNotNull(body);
+
+        final ReplicationFilter docFilter
+            = (document, flags) -> "order".equals(document.getString("type")) && (document.getInt("qty") > 1);
+        final ReplicationViewFilter viewFilter
+            = (view, flags) -> "order".equals(view.getString("type")) && (view.getInt("qty") > 1);
+
+        final double docNs = timePerRunNs(
+            iterations,
+            i -> assertTrue(docFilter.filtered(new Document(baseTestDb, id, revId, body), NO_FLAGS)));
+        final double viewNs = timePerRunNs(
+            iterations,
+            i -> assertTrue(viewFilter.filtered(new DocumentView(baseTestDb, id, revId, body), NO_FLAGS)));
+
+        reportComparison("Filter cost per revision, document vs. view", "document", docNs, "view", viewNs);
+    }
+}
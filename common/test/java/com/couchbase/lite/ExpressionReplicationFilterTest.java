@@ -0,0 +1,215 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.couchbase.lite.internal.fleece.FLDict;
+import com.couchbase.lite.internal.fleece.FLEncoder;
+import com.couchbase.lite.internal.fleece.FLSliceResult;
+import com.couchbase.lite.internal.fleece.FLValue;
+import com.couchbase.lite.internal.utils.Report;
+import com.couchbase.lite.internal.utils.SlowTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class ExpressionReplicationFilterTest extends BaseReplicatorTest {
+    private static final EnumSet<DocumentFlag> NO_FLAGS = EnumSet.noneOf(DocumentFlag.class);
+
+    private static final Expression ORDERS_IN_REGION = Expression.property("type").equalTo(Expression.string("order"))
+        .and(Expression.property("region").in(Expression.string("us"), Expression.string("eu")));
+
+    private static final ReplicationFilter JAVA_ORDERS_IN_REGION = (doc, flags) ->
+        "order".equals(doc.getString("type"))
+            && ("us".equals(doc.getString("region")) || "eu".equals(doc.getString("region")));
+
+    @Test
+    public void testPropertyPredicate() throws CouchbaseLiteException, LiteCoreException {
+        final ExpressionReplicationFilter filter = new ExpressionReplicationFilter(ORDERS_IN_REGION);
+
+        assertFilter(filter, true, "type", "order", "region", "us");
+        assertFilter(filter, true, "type", "order", "region", "eu");
+        assertFilter(filter, false, "type", "order", "region", "asia");
+        assertFilter(filter, false, "type", "invoice", "region", "us");
+        assertFilter(filter, false, "region", "us");
+    }
+
+    @Test
+    public void testNumericAndNested() throws CouchbaseLiteException, LiteCoreException {
+        final ExpressionReplicationFilter filter = new ExpressionReplicationFilter(
+            Expression.property("qty").multiply(Expression.property("price")).greaterThan(Expression.intValue(100))
+                .and(Expression.property("address.city").like(Expression.string("San%"))));
+
+        final Map<String, Object> address = new HashMap<>();
+        address.put("city", "San Jose");
+        assertFilter(filter, true, "qty", 3, "price", 40.5, "address", address);
+        assertFilter(filter, false, "qty", 2, "price", 40.5, "address", address);
+
+        address.put("city", "Oakland");
+        assertFilter(filter, false, "qty", 3, "price", 40.5, "address", address);
+    }
+
+    @Test
+    public void testMetaAndMissing() throws CouchbaseLiteException, LiteCoreException {
+        assertFilter(
+            new ExpressionReplicationFilter(Meta.id.like(Expression.string("filter-doc%"))),
+            true,
+            "type", "order");
+        assertFilter(
+            new ExpressionReplicationFilter(Expression.property("region").isNotValued()),
+            true,
+            "type", "order");
+        assertFilter(
+            new ExpressionReplicationFilter(
+                Expression.negated(Expression.property("region").equalTo(Expression.string("us")))),
+            false,
+            "type", "order");
+    }
+
+    @Test
+    public void testDeleted() {
+        final ExpressionReplicationFilter filter = new ExpressionReplicationFilter(
+            Meta.deleted.equalTo(Expression.booleanValue(false)));
+        assertTrue(filter.matches("doc", "1-abc", false, null));
+        assertFalse(filter.matches("doc", "1-abc", true, null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedMeta() {
+        new ExpressionReplicationFilter(Meta.sequence.greaterThan(Expression.intValue(1)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedParameter() {
+        new ExpressionReplicationFilter(Expression.property("type").equalTo(Expression.parameter("type")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedFunction() {
+        new ExpressionReplicationFilter(Function.abs(Expression.property("qty")).greaterThan(Expression.intValue(1)));
+    }
+
+    // Compares the per-revision cost of the expression filter and the equivalent Java filter.
+    @SlowTest
+    @Test
+    public void testFilterOverhead() throws LiteCoreException {
+        final int iterations = 100000;
+        final ExpressionReplicationFilter exprFilter = new ExpressionReplicationFilter(ORDERS_IN_REGION);
+
+        final Map<String, Object> props = new HashMap<>();
+        props.put("type", "order");
+        props.put("region", "eu");
+        props.put("qty", 3);
+        props.put("notes", "Knox on fox in socks in box.");
+        try (FLSliceResult data = encode(props)) {
+            measureFilterOverhead(iterations, exprFilter, FLValue.fromData(data).asFLDict());
+        }
+    }
+
+    // Compares push replication throughput with the expression filter and the equivalent Java filter.
+    @SlowTest
+    @Test
+    public void testFilteredPushBenchmark() throws CouchbaseLiteException, IOException {
+        final int nDocs = 2000;
+        final String[] regions = {"us", "eu", "asia", "africa"};
+        baseTestDb.inBatch(() -> {
+            for (int i = 0; i < nDocs; i++) {
+                final MutableDocument doc = new MutableDocument(String.format(Locale.ENGLISH, "doc-%06d", i));
+                doc.setString("type", ((i % 3) == 0) ? "invoice" : "order");
+                doc.setString("region", regions[i % regions.length]);
+                doc.setInt("qty", i);
+                baseTestDb.save(doc);
+            }
+        });
+
+        long expected = 0;
+        for (int i = 0; i < nDocs; i++) {
+            if (((i % 3) != 0) && ((i % regions.length) < 2)) { expected++; }
+        }
+
+        try (LoopbackSyncServer server = new LoopbackSyncServer(otherDB)) {
+            timedPush(server, JAVA_ORDERS_IN_REGION);
+            assertEquals(expected, otherDB.getCount());
+        }
+
+        otherDB = recreateDb(otherDB);
+
+        try (LoopbackSyncServer server = new LoopbackSyncServer(otherDB)) {
+            timedPush(server, new ExpressionReplicationFilter(ORDERS_IN_REGION));
+            assertEquals(expected, otherDB.getCount());
+        }
+    }
+
+    private void measureFilterOverhead(
+        int iterations,
+        @NonNull ExpressionReplicationFilter exprFilter,
+        @NonNull FLDict body) {
+        final double javaNs = timePerRunNs(
+            iterations,
+            i -> assertTrue(
+                JAVA_ORDERS_IN_REGION.filtered(new Document(baseTestDb, "doc", "1-abc", body), NO_FLAGS)));
+        final double exprNs
+            = timePerRunNs(iterations, i -> assertTrue(exprFilter.matches("doc", "1-abc", false, body)));
+
+        reportComparison("Filter cost per revision, java vs. expression", "java", javaNs, "expression", exprNs);
+    }
+
+    private void timedPush(@NonNull LoopbackSyncServer server, @NonNull ReplicationFilter filter)
+        throws CouchbaseLiteException {
+        final ReplicatorConfiguration config = makeConfig(server.getEndpoint(), ReplicatorType.PUSH, false)
+            .setPushFilter(filter);
+        final long start = System.nanoTime();
+        run(config);
+        final long elapsedMs = (System.nanoTime() - start) / 1000000;
+        Report.log("Filtered push with %s: %dms", filter.getClass().getSimpleName(), elapsedMs);
+    }
+
+    // Check that the filter gives the same answer for a saved Document and for its Fleece body.
+    private void assertFilter(@NonNull ExpressionReplicationFilter filter, boolean expected, Object... kvs)
+        throws CouchbaseLiteException, LiteCoreException {
+        final Map<String, Object> props = new HashMap<>();
+        for (int i = 0; i < kvs.length; i += 2) { props.put((String) kvs[i], kvs[i + 1]); }
+
+        final MutableDocument mDoc = new MutableDocument("filter-doc-" + props.hashCode(), props);
+        baseTestDb.save(mDoc);
+        final Document doc = baseTestDb.getDocument(mDoc.getId());
+        assertEquals(expected, filter.filtered(doc, NO_FLAGS));
+
+        try (FLSliceResult data = encode(props)) {
+            final FLDict body = FLValue.fromData(data).asFLDict();
+            assertEquals(expected, filter.matches(doc.getId(), doc.getRevisionID(), false, body));
+        }
+    }
+
+    @NonNull
+    private FLSliceResult encode(@NonNull Map<String, Object> props) throws LiteCoreException {
+        try (FLEncoder enc = FLEncoder.getManagedEncoder()) {
+            enc.write(props);
+            return enc.finish2();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import com.couchbase.lite.internal.utils.Report;
+import com.couchbase.lite.internal.utils.SlowTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class JSONExportTest extends BaseDbTest {
+    @Test
+    public void testWriteResultsNDJSON() throws CouchbaseLiteException, IOException, JSONException {
+        createDocsInDb(0, 10, baseTestDb);
+
+        final List<Result> expected;
+        try (ResultSet rs = makeQuery().execute()) { expected = rs.allResults(); }
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ResultSet rs = makeQuery().execute()) { assertEquals(10, rs.writeJSON(out, JSONExportFormat.NDJSON)); }
+
+        final String[] lines = out.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertEquals(10, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            final JSONObject row = new JSONObject(lines[i]);
+            assertEquals(expected.get(i).getString("id"), row.getString("id"));
+            assertEquals(expected.get(i).getInt("count"), row.getInt("count"));
+            assertEquals(expected.get(i).toJSON(), lines[i]);
+        }
+    }
+
+    @Test
+    public void testWriteResultsArray() throws CouchbaseLiteException, IOException, JSONException {
+        createDocsInDb(0, 10, baseTestDb);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ResultSet rs = makeQuery().execute()) { rs.writeJSON(out, JSONExportFormat.ARRAY); }
+
+        final JSONArray rows = new JSONArray(out.toString(StandardCharsets.UTF_8.name()));
+        assertEquals(10, rows.length());
+        for (int i = 0; i < rows.length(); i++) { assertEquals(i, rows.getJSONObject(i).getInt("count")); }
+    }
+
+    @Test
+    public void testWriteEmptyResults() throws CouchbaseLiteException, IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ResultSet rs = makeQuery().execute()) { assertEquals(0, rs.writeJSON(out, JSONExportFormat.ARRAY)); }
+        assertEquals("[]\n", out.toString(StandardCharsets.UTF_8.name()));
+
+        out.reset();
+        try (ResultSet rs = makeQuery().execute()) { assertEquals(0, rs.writeJSON(out, JSONExportFormat.NDJSON)); }
+        assertEquals(0, out.size());
+    }
+
+    // A database export can be imported into another database
+    @Test
+    public void testExportImport() throws CouchbaseLiteException, IOException {
+        final MutableDocument mDoc = new MutableDocument("nested");
+        mDoc.setDictionary("address", new MutableDictionary().setString("city", "Oakland").setInt("zip", 94612));
+        mDoc.setArray("tags", new MutableArray().addString("a").addBoolean(true).addValue(null));
+        saveDocInBaseTestDb(mDoc);
+        createDocsInDb(0, 5, baseTestDb);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(6, baseTestDb.exportJSON(out, JSONExportFormat.ARRAY));
+
+        final Database copyDb = createDb("export_copy_db");
+        try {
+            final JSONImportStatus status
+                = copyDb.importJSON(new ByteArrayInputStream(out.toByteArray()), null);
+            assertEquals(6, status.getDocumentCount());
+            assertEquals(6, copyDb.getCount());
+
+            final Document copy = copyDb.getDocument("nested");
+            assertNotNull(copy);
+            assertEquals("Oakland", copy.getDictionary("address").getString("city"));
+            assertEquals(94612, copy.getDictionary("address").getInt("zip"));
+            assertEquals(3, copy.getArray("tags").count());
+            assertTrue(copy.getArray("tags").getBoolean(1));
+            assertNull(copy.getArray("tags").getValue(2));
+
+            final Document doc3 = copyDb.getDocument("doc-3");
+            assertNotNull(doc3);
+            assertEquals("minus-3", doc3.getString("inverse"));
+        }
+        finally {
+            deleteDb(copyDb);
+        }
+    }
+
+    @Test
+    public void testExportSkipsDeleted() throws CouchbaseLiteException, IOException, JSONException {
+        createDocsInDb(0, 3, baseTestDb);
+        final Document doc = baseTestDb.getDocument("doc-1");
+        assertNotNull(doc);
+        baseTestDb.delete(doc);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(2, baseTestDb.exportJSON(out, JSONExportFormat.NDJSON));
+
+        for (String line: out.toString(StandardCharsets.UTF_8.name()).split("\n")) {
+            final JSONObject json = new JSONObject(line);
+            assertEquals(2, json.length() - 1);
+            assertNotEquals("doc-1", json.getString("_id"));
+        }
+    }
+
+    // Compares exporting results as per-row toJSON Strings with streaming them.
+    @SlowTest
+    @Test
+    public void testWriteResultsBenchmark() throws Exception {
+        final int nDocs = 50000;
+        createDocsInDb(0, nDocs, baseTestDb);
+
+        final CountingOutputStream strOut = new CountingOutputStream();
+        final double stringsNs = timePerRunNs(1, i -> {
+            strOut.count = 0;
+            try (ResultSet rs = makeQuery().execute()) {
+                Result result;
+                while ((result = rs.next()) != null) {
+                    strOut.write(result.toJSON().getBytes(StandardCharsets.UTF_8));
+                    strOut.write('\n');
+                }
+            }
+        });
+
+        final CountingOutputStream streamOut = new CountingOutputStream();
+        final double streamNs = timePerRunNs(1, i -> {
+            streamOut.count = 0;
+            try (ResultSet rs = makeQuery().execute()) { rs.writeJSON(streamOut, JSONExportFormat.NDJSON); }
+        });
+
+        assertEquals(strOut.count, streamOut.count);
+
+        final double dbNs = timePerRunNs(
+            1,
+            i -> assertEquals(nDocs, baseTestDb.exportJSON(new CountingOutputStream(), JSONExportFormat.NDJSON)));
+
+        reportComparison(
+            "JSON export of " + nDocs + " rows (" + (streamOut.count / 1024) + "KB)",
+            "toJSON",
+            stringsNs,
+            "writeJSON",
+            streamNs);
+        Report.log("JSON database export of %d docs: %s", nDocs, formatNs(dbNs));
+    }
+
+    @NonNull
+    private Query makeQuery() {
+        return QueryBuilder
+            .select(SelectResult.expression(Meta.id), SelectResult.property("count"), SelectResult.property("inverse"))
+            .from(DataSource.database(baseTestDb))
+            .orderBy(Ordering.property("count"));
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) { count++; }
+
+        @Override
+        public void write(@NonNull byte[] b, int off, int len) { count += len; }
+    }
+}
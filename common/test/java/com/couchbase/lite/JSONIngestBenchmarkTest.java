@@ -0,0 +1,124 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.Random;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import com.couchbase.lite.internal.utils.JSONUtils;
+import com.couchbase.lite.internal.utils.Report;
+import com.couchbase.lite.internal.utils.SlowTest;
+
+import static org.junit.Assert.assertNotNull;
+
+
+/**
+ * Compares creating documents from JSON in native code with the old path,
+ * that parsed the JSON with org.json and then encoded the resulting Java objects.
+ */
+public class JSONIngestBenchmarkTest extends BaseDbTest {
+    private static final long SEED = 0x15_0A_D1L;
+
+    private interface DocFactory {
+        @NonNull
+        MutableDocument create(@NonNull String id, @NonNull String json) throws JSONException;
+    }
+
+    @SlowTest
+    @Test
+    public void testIngest1K() throws Exception { benchmark(1024, 1000); }
+
+    @SlowTest
+    @Test
+    public void testIngest100K() throws Exception { benchmark(100 * 1024, 50); }
+
+    @SlowTest
+    @Test
+    public void testIngest5M() throws Exception { benchmark(5 * 1024 * 1024, 3); }
+
+    private void benchmark(int size, int iterations) throws Exception {
+        final String json = makeJSON(size);
+
+        final double orgJsonNs = time(
+            "org.json",
+            size,
+            iterations,
+            (id, js) -> new MutableDocument(id, JSONUtils.fromJSON(new JSONObject(js))),
+            json);
+        final double nativeNs = time("native", size, iterations, MutableDocument::new, json);
+
+        assertNotNull(baseTestDb.getDocument(docId("org.json", size, iterations - 1)));
+        assertNotNull(baseTestDb.getDocument(docId("native", size, iterations - 1)));
+        reportComparison(
+            "JSON ingest " + (json.length() / 1024) + "KB per doc",
+            "org.json",
+            orgJsonNs,
+            "native",
+            nativeNs);
+    }
+
+    // Create, and then create and save, the documents.  Returns the time per saved document, in ns.
+    private double time(
+        @NonNull String name,
+        int size,
+        int iterations,
+        @NonNull DocFactory factory,
+        @NonNull String json)
+        throws Exception {
+        final double createNs = timePerRunNs(iterations, i -> factory.create(docId(name, size, i), json));
+        final double totalNs
+            = timePerRunNs(iterations, i -> baseTestDb.save(factory.create(docId(name, size, i), json)));
+
+        Report.log(
+            "JSON ingest %s %dKB: create %s/doc, create and save %s/doc",
+            name,
+            json.length() / 1024,
+            formatNs(createNs),
+            formatNs(totalNs));
+
+        return totalNs;
+    }
+
+    @NonNull
+    private String docId(@NonNull String name, int size, int i) {
+        return String.format(Locale.ENGLISH, "%s-%d-%05d", name, size, i);
+    }
+
+    // A JSON document of at least the given size, with a mix of types and nesting.
+    @NonNull
+    private String makeJSON(int size) {
+        final Random rand = new Random(SEED);
+        final StringBuilder buf = new StringBuilder(size + 1024).append("{\"type\":\"bulk\",\"records\":[");
+        for (int i = 0; buf.length() < size; i++) {
+            if (i > 0) { buf.append(','); }
+            buf.append("{\"id\":").append(i)
+                .append(",\"name\":\"name-").append(rand.nextInt(100000)).append('"')
+                .append(",\"score\":").append(rand.nextDouble())
+                .append(",\"active\":").append(rand.nextBoolean())
+                .append(",\"address\":{\"street\":\"").append(rand.nextInt(1000)).append(" Main St\"")
+                .append(",\"zip\":\"").append(10000 + rand.nextInt(90000)).append("\"}")
+                .append(",\"tags\":[\"t").append(rand.nextInt(10)).append("\",\"t").append(rand.nextInt(10))
+                .append("\"]}");
+        }
+        return buf.append("]}").toString();
+    }
+}
@@ -281,6 +281,71 @@ public class LiveQueryTest extends BaseDbTest {
         }
     }
 
+    // Identical queries, observed through different Query objects, should share a single compiled query
+    @Test
+    public void testIdenticalQueriesShareCompiledQuery() throws CouchbaseLiteException, InterruptedException {
+        final SharedQueryRegistry registry = baseTestDb.getSharedQueries();
+        final long savedExecutions = registry.getSavedExecutionCount();
+
+        final Query query1 = baseTestDb.createQuery("SELECT meta().id FROM _ WHERE number > 0");
+        final Query query2 = baseTestDb.createQuery("SELECT meta().id FROM _ WHERE number > 0");
+
+        final AtomicReference<CountDownLatch> latch1 = new AtomicReference<>(new CountDownLatch(1));
+        final AtomicReference<CountDownLatch> latch2 = new AtomicReference<>(new CountDownLatch(1));
+
+        final ListenerToken token1 = query1.addChangeListener(testSerialExecutor, change -> latch1.get().countDown());
+        final ListenerToken token2 = query2.addChangeListener(testSerialExecutor, change -> latch2.get().countDown());
+        try {
+            assertTrue(latch1.get().await(LONG_TIMEOUT_SEC, TimeUnit.SECONDS));
+            assertTrue(latch2.get().await(LONG_TIMEOUT_SEC, TimeUnit.SECONDS));
+            assertEquals(1, registry.getSharedQueryCount());
+
+            latch1.set(new CountDownLatch(1));
+            latch2.set(new CountDownLatch(1));
+            createDocNumbered(11);
+
+            assertTrue(latch1.get().await(LONG_TIMEOUT_SEC, TimeUnit.SECONDS));
+            assertTrue(latch2.get().await(LONG_TIMEOUT_SEC, TimeUnit.SECONDS));
+            assertTrue(registry.getSavedExecutionCount() > savedExecutions);
+        }
+        finally {
+            query1.removeChangeListener(token1);
+            query2.removeChangeListener(token2);
+        }
+
+        assertEquals(0, registry.getSharedQueryCount());
+    }
+
+    // Queries with different parameters must not share a compiled query
+    @Test
+    public void testQueriesWithDifferentParamsDoNotShare() throws InterruptedException {
+        final SharedQueryRegistry registry = baseTestDb.getSharedQueries();
+
+        final Query query1 = baseTestDb.createQuery("SELECT meta().id FROM _ WHERE number > $VALUE");
+        Parameters params = new Parameters();
+        params.setInt("VALUE", 1);
+        query1.setParameters(params);
+
+        final Query query2 = baseTestDb.createQuery("SELECT meta().id FROM _ WHERE number > $VALUE");
+        params = new Parameters();
+        params.setInt("VALUE", 2);
+        query2.setParameters(params);
+
+        final CountDownLatch latch = new CountDownLatch(2);
+        final ListenerToken token1 = query1.addChangeListener(testSerialExecutor, change -> latch.countDown());
+        final ListenerToken token2 = query2.addChangeListener(testSerialExecutor, change -> latch.countDown());
+        try {
+            assertTrue(latch.await(LONG_TIMEOUT_SEC, TimeUnit.SECONDS));
+            assertEquals(2, registry.getSharedQueryCount());
+        }
+        finally {
+            query1.removeChangeListener(token1);
+            query2.removeChangeListener(token2);
+        }
+
+        assertEquals(0, registry.getSharedQueryCount());
+    }
+
     // create test docs
     private void createDocNumbered(int i) throws CouchbaseLiteException {
         String docID = "doc-" + i;
@@ -15,10 +15,15 @@
 //
 package com.couchbase.lite;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
@@ -188,6 +193,60 @@ public class LoadTest extends BaseDbTest {
         logPerformanceStats("testUpdate2()", (System.currentTimeMillis() - start));
     }
 
+    // Many threads incrementing a single counter: most saves conflict.
+    @SlowTest
+    @LoadIntegrationTest
+    @Test
+    public void testContendedUpdate() throws Exception {
+        final String docID = "counter";
+        final int threads = 4;
+        final int increments = 500;
+
+        final MutableDocument mDoc = new MutableDocument(docID);
+        mDoc.setInt("count", 0);
+        saveDocInBaseTestDb(mDoc);
+
+        final AtomicInteger resolved = new AtomicInteger();
+        final ConflictHandler handler = (cur, old) -> {
+            resolved.incrementAndGet();
+            cur.setInt("count", ((old == null) ? 0 : old.getInt("count")) + 1);
+            return true;
+        };
+
+        final AtomicInteger unresolved = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(threads);
+        final List<Exception> errors = Collections.synchronizedList(new ArrayList<>());
+
+        long start = System.currentTimeMillis();
+
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                try {
+                    for (int i = 0; i < increments; i++) {
+                        while (true) {
+                            final MutableDocument doc = baseTestDb.getDocument(docID).toMutable();
+                            doc.setInt("count", doc.getInt("count") + 1);
+                            final SaveResult result = baseTestDb.trySave(doc, handler);
+                            if (result == SaveResult.SAVED) { break; }
+                            unresolved.incrementAndGet();
+                        }
+                    }
+                }
+                catch (Exception e) { errors.add(e); }
+                finally { latch.countDown(); }
+            }).start();
+        }
+
+        assertTrue(latch.await(STD_TIMEOUT_SEC * 10, TimeUnit.SECONDS));
+
+        logPerformanceStats(
+            "testContendedUpdate(" + resolved.get() + " resolved, " + unresolved.get() + " unresolved)",
+            (System.currentTimeMillis() - start));
+
+        assertTrue(errors.isEmpty());
+        assertEquals(threads * increments, baseTestDb.getDocument(docID).getInt("count"));
+    }
+
     private boolean updateMap(Map<String, ?> map, int i, long l) {
         Document doc = baseTestDb.getDocument(map.get("ID").toString());
         if (doc == null) { return false; }
@@ -0,0 +1,431 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okio.ByteString;
+
+import com.couchbase.lite.internal.core.C4Constants;
+import com.couchbase.lite.internal.core.C4DocumentEnded;
+import com.couchbase.lite.internal.core.C4Replicator;
+import com.couchbase.lite.internal.core.C4ReplicatorListener;
+import com.couchbase.lite.internal.core.C4ReplicatorMode;
+import com.couchbase.lite.internal.core.C4ReplicatorStatus;
+import com.couchbase.lite.internal.core.C4Socket;
+import com.couchbase.lite.internal.sockets.CloseStatus;
+import com.couchbase.lite.internal.sockets.DirectBufferPool;
+import com.couchbase.lite.internal.sockets.MessageFraming;
+import com.couchbase.lite.internal.sockets.SocketFromCore;
+import com.couchbase.lite.internal.utils.Report;
+
+
+/**
+ * A stand-in for Sync Gateway: a WebSocket server, on the loopback interface, that serves a local database.
+ * <p>
+ * Each connection is handed to a passive LiteCore replicator, through a passive C4Socket.
+ * The server does the WebSocket framing (NO_FRAMING), so that it can count the bytes on the wire.
+ * It supports only what a replicator needs: binary messages, ping/pong and close.
+ * It does not offer any extensions.
+ * <p>
+ * Inbound messages are handed to LiteCore either as the byte arrays into which they were read,
+ * or, like OkHttpSocket, copied into pooled direct buffers.
+ */
+public final class LoopbackSyncServer implements AutoCloseable {
+    private static final String WS_ACCEPT_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final String THREAD_NAME = "loopback-server-";
+
+    private static final int OP_CONTINUATION = 0x0;
+    private static final int OP_BINARY = 0x2;
+    private static final int OP_CLOSE = 0x8;
+    private static final int OP_PING = 0x9;
+    private static final int OP_PONG = 0xA;
+
+    private static final int CLOSE_NORMAL = 1000;
+    private static final int CLOSE_ABNORMAL = 1006;
+
+    private static final long STOP_TIMEOUT_SEC = 10;
+
+    @NonNull
+    private static final DirectBufferPool BUFFER_POOL = new DirectBufferPool();
+
+    private final class Connection implements SocketFromCore, C4ReplicatorListener {
+        @NonNull
+        private final Socket socket;
+        @NonNull
+        private final DataInputStream in;
+        @NonNull
+        private final OutputStream out;
+        @NonNull
+        private final C4Socket c4Socket;
+        @NonNull
+        private final CountDownLatch stopped = new CountDownLatch(1);
+
+        @Nullable
+        private volatile C4Replicator c4Repl;
+
+        Connection(@NonNull Socket socket, int id) throws IOException {
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            in = new DataInputStream(socket.getInputStream());
+            out = socket.getOutputStream();
+            c4Socket = C4Socket.createPassiveSocket(id, MessageFraming.NO_FRAMING);
+            c4Socket.init(this);
+        }
+
+        // Core -> Remote
+
+        @Override
+        public void coreRequestsOpen() { Report.log("Loopback server: unexpected open request"); }
+
+        @Override
+        public void coreWrites(@NonNull byte[] allocatedData) {
+            try {
+                writeFrame(OP_BINARY, allocatedData);
+                c4Socket.ackWriteToCore(allocatedData.length);
+            }
+            catch (IOException e) { closeCore(CLOSE_ABNORMAL, e.getMessage()); }
+        }
+
+        @Override
+        public void coreAcksWrite(long byteCount) { }
+
+        @Override
+        public void coreRequestsClose(@NonNull CloseStatus status) {
+            try { writeFrame(OP_CLOSE, encodeClose(status)); }
+            catch (IOException e) { closeCore(CLOSE_ABNORMAL, e.getMessage()); }
+        }
+
+        @Override
+        public void coreClosed() { }
+
+        // Replicator
+
+        @Override
+        public void statusChanged(
+            @Nullable C4Replicator replicator,
+            @Nullable C4ReplicatorStatus status,
+            @Nullable Object context) {
+            if ((status != null) && (status.getActivityLevel() == C4ReplicatorStatus.ActivityLevel.STOPPED)) {
+                stopped.countDown();
+            }
+        }
+
+        @Override
+        public void documentEnded(
+            @NonNull C4Replicator replicator,
+            boolean pushing,
+            @Nullable C4DocumentEnded[] documents,
+            @Nullable Object context) { }
+
+        // Remote -> Core
+
+        void serve() {
+            try {
+                if (!handshake()) { return; }
+
+                final int passive = C4ReplicatorMode.C4_PASSIVE.getVal();
+                final C4Replicator repl;
+                synchronized (db.getDbLock()) {
+                    repl = db.getOpenC4DbLocked().createTargetReplicator(c4Socket, passive, passive, null, this, this);
+                }
+                c4Repl = repl;
+                repl.start(false);
+                c4Socket.ackOpenToCore(101, null);
+
+                readLoop();
+            }
+            catch (IOException | LiteCoreException e) {
+                Report.log(e, "Loopback server: connection failed");
+                closeCore(CLOSE_ABNORMAL, e.getMessage());
+            }
+            finally {
+                try { socket.close(); }
+                catch (IOException ignore) { }
+            }
+        }
+
+        void stop() {
+            final C4Replicator repl = c4Repl;
+            if (repl == null) { return; }
+            repl.stop();
+            try {
+                if (!stopped.await(STOP_TIMEOUT_SEC, TimeUnit.SECONDS)) {
+                    Report.log("Loopback server: replicator did not stop");
+                }
+            }
+            catch (InterruptedException ignore) { }
+            repl.close();
+        }
+
+        private boolean handshake() throws IOException {
+            final Map<String, String> headers = readRequest(in);
+            final String key = headers.get("sec-websocket-key");
+            if (key == null) {
+                out.write(
+                    "HTTP/1.1 400 Bad Request\r\nContent-Length: 0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+                return false;
+            }
+
+            // Accept the client's preferred protocol: it is talking to the same LiteCore.
+            final String protocols = headers.get("sec-websocket-protocol");
+            final String protocol = (protocols == null) ? null : protocols.split(",")[0].trim();
+
+            final byte[] response = ("HTTP/1.1 101 Switching Protocols\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + ((protocol == null) ? "" : "Sec-WebSocket-Protocol: " + protocol + "\r\n")
+                + "Sec-WebSocket-Accept: " + ByteString.encodeUtf8(key + WS_ACCEPT_GUID).sha1().base64() + "\r\n\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1);
+            synchronized (out) { out.write(response); }
+            bytesSent.addAndGet(response.length);
+
+            return true;
+        }
+
+        private void readLoop() throws IOException {
+            final List<byte[]> fragments = new ArrayList<>();
+            int fragmentsLen = 0;
+
+            while (true) {
+                final int b0;
+                try { b0 = in.readUnsignedByte(); }
+                catch (EOFException e) {
+                    closeCore(CLOSE_ABNORMAL, "Connection closed without a close frame");
+                    return;
+                }
+                final int b1 = in.readUnsignedByte();
+                int headerLen = 2;
+                long len = b1 & 0x7F;
+                if (len == 126) {
+                    len = in.readUnsignedShort();
+                    headerLen += 2;
+                }
+                else if (len == 127) {
+                    len = in.readLong();
+                    headerLen += 8;
+                }
+                final byte[] mask = new byte[4];
+                if ((b1 & 0x80) != 0) {
+                    in.readFully(mask);
+                    headerLen += 4;
+                }
+                final byte[] payload = new byte[(int) len];
+                in.readFully(payload);
+                for (int i = 0; i < payload.length; i++) { payload[i] ^= mask[i & 0x03]; }
+                bytesReceived.addAndGet(headerLen + len);
+
+                final boolean fin = (b0 & 0x80) != 0;
+                final int opcode = b0 & 0x0F;
+                switch (opcode) {
+                    case OP_PING:
+                        writeFrame(OP_PONG, payload);
+                        continue;
+                    case OP_PONG:
+                        continue;
+                    case OP_CLOSE:
+                        writeFrame(OP_CLOSE, payload);
+                        closeCore(decodeCloseCode(payload), decodeCloseMessage(payload));
+                        return;
+                    case OP_CONTINUATION:
+                    default:
+                        break;
+                }
+
+                if (fin && fragments.isEmpty()) {
+                    deliverToCore(payload);
+                    continue;
+                }
+
+                fragments.add(payload);
+                fragmentsLen += payload.length;
+                if (!fin) { continue; }
+
+                final ByteBuffer msg = ByteBuffer.allocate(fragmentsLen);
+                for (byte[] fragment: fragments) { msg.put(fragment); }
+                fragments.clear();
+                fragmentsLen = 0;
+                deliverToCore(msg.array());
+            }
+        }
+
+        private void deliverToCore(@NonNull byte[] msg) {
+            if (!directInbound) {
+                c4Socket.writeToCore(msg);
+                return;
+            }
+
+            final ByteBuffer buf = BUFFER_POOL.acquire(msg.length);
+            try {
+                buf.put(msg).flip();
+                c4Socket.writeToCore(buf);
+            }
+            finally {
+                BUFFER_POOL.release(buf);
+            }
+        }
+
+        private void writeFrame(int opcode, @NonNull byte[] payload) throws IOException {
+            final ByteBuffer frame = ByteBuffer.allocate(10 + payload.length);
+            frame.put((byte) (0x80 | opcode));
+            if (payload.length < 126) { frame.put((byte) payload.length); }
+            else if (payload.length <= 0xFFFF) {
+                frame.put((byte) 126);
+                frame.putShort((short) payload.length);
+            }
+            else {
+                frame.put((byte) 127);
+                frame.putLong(payload.length);
+            }
+            frame.put(payload);
+
+            synchronized (out) {
+                out.write(frame.array(), 0, frame.position());
+                out.flush();
+            }
+            bytesSent.addAndGet(frame.position());
+        }
+
+        private void closeCore(int code, @Nullable String message) {
+            c4Socket.closeCore(new CloseStatus(C4Constants.ErrorDomain.WEB_SOCKET, code, message));
+        }
+    }
+
+
+    @NonNull
+    private final Database db;
+    private final boolean directInbound;
+    @NonNull
+    private final ServerSocket server;
+
+    @NonNull
+    private final List<Connection> connections = new ArrayList<>();
+    @NonNull
+    private final AtomicInteger nConnections = new AtomicInteger();
+
+    @NonNull
+    private final AtomicLong bytesSent = new AtomicLong();
+    @NonNull
+    private final AtomicLong bytesReceived = new AtomicLong();
+
+    public LoopbackSyncServer(@NonNull Database db) throws IOException { this(db, false); }
+
+    public LoopbackSyncServer(@NonNull Database db, boolean directInbound) throws IOException {
+        this.db = db;
+        this.directInbound = directInbound;
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        final Thread acceptor = new Thread(this::acceptLoop, THREAD_NAME + "accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @NonNull
+    public URLEndpoint getEndpoint() {
+        return new URLEndpoint(URI.create("ws://127.0.0.1:" + server.getLocalPort() + "/" + db.getName()));
+    }
+
+    // Bytes sent and received on the wire, including WebSocket framing.
+    public long getBytesSent() { return bytesSent.get(); }
+
+    public long getBytesReceived() { return bytesReceived.get(); }
+
+    public void resetStats() {
+        bytesSent.set(0);
+        bytesReceived.set(0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+
+        final List<Connection> conns;
+        synchronized (connections) {
+            conns = new ArrayList<>(connections);
+            connections.clear();
+        }
+        for (Connection conn: conns) { conn.stop(); }
+    }
+
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try {
+                final Socket socket = server.accept();
+                final Connection conn = new Connection(socket, nConnections.incrementAndGet());
+                synchronized (connections) { connections.add(conn); }
+                final Thread thread = new Thread(conn::serve, THREAD_NAME + nConnections.get());
+                thread.setDaemon(true);
+                thread.start();
+            }
+            catch (IOException ignore) { }
+        }
+    }
+
+    @NonNull
+    private static Map<String, String> readRequest(@NonNull InputStream in) throws IOException {
+        final StringBuilder head = new StringBuilder();
+        while (!head.toString().endsWith("\r\n\r\n")) {
+            final int c = in.read();
+            if (c < 0) { throw new EOFException("EOF in request"); }
+            head.append((char) c);
+        }
+        final Map<String, String> headers = new HashMap<>();
+        for (String line: head.toString().split("\r\n")) {
+            final int colon = line.indexOf(':');
+            if (colon <= 0) { continue; }
+            headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+        }
+        return headers;
+    }
+
+    @NonNull
+    private static byte[] encodeClose(@NonNull CloseStatus status) {
+        final byte[] msg = (status.message == null) ? new byte[0] : status.message.getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer payload = ByteBuffer.allocate(2 + msg.length);
+        payload.putShort((short) status.code);
+        payload.put(msg);
+        return payload.array();
+    }
+
+    private static int decodeCloseCode(@NonNull byte[] payload) {
+        return (payload.length < 2) ? CLOSE_NORMAL : (((payload[0] & 0xFF) << 8) | (payload[1] & 0xFF));
+    }
+
+    @Nullable
+    private static String decodeCloseMessage(@NonNull byte[] payload) {
+        return (payload.length <= 2) ? null : new String(payload, 2, payload.length - 2, StandardCharsets.UTF_8);
+    }
+}
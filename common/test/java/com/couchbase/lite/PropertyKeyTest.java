@@ -0,0 +1,187 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Test;
+
+import com.couchbase.lite.internal.utils.SlowTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class PropertyKeyTest extends BaseDbTest {
+    private static final PropertyKey KEY_STRING = new PropertyKey("string");
+    private static final PropertyKey KEY_LONG = new PropertyKey("long");
+    private static final PropertyKey KEY_DOUBLE = new PropertyKey("double");
+    private static final PropertyKey KEY_BOOL = new PropertyKey("bool");
+    private static final PropertyKey KEY_MISSING = new PropertyKey("missing");
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyName() { new PropertyKey(""); }
+
+    @Test
+    public void testGetName() { assertEquals("string", KEY_STRING.getName()); }
+
+    @Test
+    public void testSavedDocument() throws CouchbaseLiteException {
+        verifyProperties(saveDocInBaseTestDb(makeDoc("doc1", 1)), 1);
+    }
+
+    @Test
+    public void testMutableDocument() throws CouchbaseLiteException {
+        final MutableDocument mDoc = makeDoc("doc1", 1);
+        verifyProperties(mDoc, 1);
+
+        // the key must see changes that have not been saved
+        mDoc.setString("string", "changed");
+        mDoc.remove("long");
+        assertEquals("changed", mDoc.getString(KEY_STRING));
+        assertFalse(mDoc.contains(KEY_LONG));
+        assertEquals(0L, mDoc.getLong(KEY_LONG));
+
+        final MutableDocument mDoc2 = saveDocInBaseTestDb(mDoc).toMutable();
+        mDoc2.setString("string", "changed again");
+        assertEquals("changed again", mDoc2.getString(KEY_STRING));
+        assertEquals(1.5, mDoc2.getDouble(KEY_DOUBLE), 0.001);
+    }
+
+    @Test
+    public void testNestedDictionary() throws CouchbaseLiteException {
+        final MutableDocument mDoc = new MutableDocument("doc1");
+        final MutableDictionary nested = new MutableDictionary();
+        nested.setString("string", "string-3");
+        nested.setLong("long", 3);
+        nested.setBoolean("bool", true);
+        mDoc.setDictionary("nested", nested);
+        final Dictionary dict = saveDocInBaseTestDb(mDoc).getDictionary("nested");
+        assertNotNull(dict);
+        assertEquals("string-3", dict.getString(KEY_STRING));
+        assertEquals(3L, dict.getLong(KEY_LONG));
+        assertTrue(dict.getBoolean(KEY_BOOL));
+        assertFalse(dict.contains(KEY_MISSING));
+    }
+
+    // The same key must work with documents from different databases: they have different shared keys.
+    @Test
+    public void testMultipleDatabases() throws CouchbaseLiteException {
+        final Database otherDb = createDb("property_key_db");
+        try {
+            final MutableDocument mDoc = new MutableDocument("doc1");
+            // put some other keys into the shared keys first, so that the mappings differ
+            for (int i = 0; i < 10; i++) { mDoc.setInt("other-" + i, i); }
+            otherDb.save(mDoc);
+            otherDb.save(makeDoc("doc2", 2));
+
+            for (int i = 0; i < 3; i++) {
+                verifyProperties(saveDocInBaseTestDb(makeDoc("doc" + i, i)), i);
+                final Document doc = otherDb.getDocument("doc2");
+                assertNotNull(doc);
+                verifyProperties(doc, 2);
+            }
+        }
+        finally {
+            deleteDb(otherDb);
+        }
+    }
+
+    // Compares reading 10 properties from each of many documents using String keys and PropertyKeys.
+    @SlowTest
+    @Test
+    public void testReadBenchmark() throws CouchbaseLiteException {
+        final int nDocs = 100000;
+        final int passes = 10;
+        final int nProps = 10;
+
+        final String[] names = new String[nProps];
+        final PropertyKey[] keys = new PropertyKey[nProps];
+        for (int i = 0; i < nProps; i++) {
+            names[i] = String.format(Locale.ENGLISH, "property-%02d", i);
+            keys[i] = new PropertyKey(names[i]);
+        }
+
+        baseTestDb.inBatch(() -> {
+            for (int i = 0; i < nDocs; i++) {
+                final MutableDocument mDoc = new MutableDocument(String.format(Locale.ENGLISH, "doc-%06d", i));
+                for (int j = 0; j < nProps; j++) { mDoc.setLong(names[j], i + j); }
+                baseTestDb.save(mDoc);
+            }
+        });
+
+        final List<Document> docs = new ArrayList<>(nDocs);
+        for (int i = 0; i < nDocs; i++) {
+            docs.add(baseTestDb.getDocument(String.format(Locale.ENGLISH, "doc-%06d", i)));
+        }
+
+        // Each pass uses fresh Documents, so that no pass reads values cached by another.
+        final long[] sums = new long[2];
+        final double stringNs = timePerRunNs(passes, p -> {
+            for (Document doc: docs) {
+                final Document d = new Document(baseTestDb, doc.getId(), doc.getRevisionID(), doc.getFLDict());
+                for (String name: names) { sums[0] += d.getLong(name); }
+            }
+        });
+        final double keyNs = timePerRunNs(passes, p -> {
+            for (Document doc: docs) {
+                final Document d = new Document(baseTestDb, doc.getId(), doc.getRevisionID(), doc.getFLDict());
+                for (PropertyKey key: keys) { sums[1] += d.getLong(key); }
+            }
+        });
+        assertEquals(sums[0], sums[1]);
+
+        reportComparison(
+            "Read " + nProps + " properties per row from " + nDocs + " rows",
+            "String keys",
+            stringNs / nDocs,
+            "PropertyKeys",
+            keyNs / nDocs);
+    }
+
+    private MutableDocument makeDoc(String id, int n) {
+        final MutableDocument mDoc = new MutableDocument(id);
+        mDoc.setString("string", "string-" + n);
+        mDoc.setLong("long", n);
+        mDoc.setDouble("double", n + 0.5);
+        mDoc.setBoolean("bool", true);
+        return mDoc;
+    }
+
+    private void verifyProperties(Document doc, int n) {
+        assertTrue(doc.contains(KEY_STRING));
+        assertEquals("string-" + n, doc.getString(KEY_STRING));
+        assertEquals("string-" + n, doc.getValue(KEY_STRING));
+        assertEquals((long) n, doc.getLong(KEY_LONG));
+        assertEquals(n, doc.getInt(KEY_LONG));
+        assertEquals(n, doc.getNumber(KEY_LONG).intValue());
+        assertEquals(n + 0.5, doc.getDouble(KEY_DOUBLE), 0.001);
+        assertEquals(n + 0.5F, doc.getFloat(KEY_DOUBLE), 0.001F);
+        assertTrue(doc.getBoolean(KEY_BOOL));
+
+        assertFalse(doc.contains(KEY_MISSING));
+        assertNull(doc.getValue(KEY_MISSING));
+        assertNull(doc.getString(KEY_MISSING));
+        assertNull(doc.getNumber(KEY_MISSING));
+        assertEquals(0, doc.getInt(KEY_MISSING));
+        assertFalse(doc.getBoolean(KEY_MISSING));
+    }
+}
@@ -0,0 +1,264 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.couchbase.lite.internal.utils.Report;
+import com.couchbase.lite.internal.utils.SlowTest;
+
+import static org.junit.Assert.assertEquals;
+
+
+/**
+ * Replication throughput, measured against a local stand-in for Sync Gateway.
+ * <p>
+ * The documents are generated from a fixed seed, so every run replicates exactly the same data.
+ * Each test reports docs/sec, bytes/sec on the wire, the percentiles of the time from the start
+ * of the replication to the replication of each document, and, where the platform can measure it,
+ * the rate at which the process allocated memory.
+ */
+public class ReplicatorBenchmarkTest extends BaseReplicatorTest {
+    private static final long SEED = 0x5EED_CB1L;
+
+    private static final int SMALL_DOCS = 1000;
+    private static final int SMALL_DOC_SIZE = 256;
+    private static final int LARGE_DOCS = 100;
+    private static final int LARGE_DOC_SIZE = 64 * 1024;
+    private static final int BLOB_DOCS = 50;
+    private static final int BLOB_SIZE = 256 * 1024;
+
+    private LoopbackSyncServer server;
+
+    @Before
+    public final void setUpReplicatorBenchmarkTest() throws IOException { server = new LoopbackSyncServer(otherDB); }
+
+    @After
+    public final void tearDownReplicatorBenchmarkTest() throws IOException { server.close(); }
+
+    @SlowTest
+    @Test
+    public void testPushSmallDocs() throws CouchbaseLiteException {
+        createDocs(baseTestDb, "push", SMALL_DOCS, SMALL_DOC_SIZE, 0);
+        benchmark("push small docs", ReplicatorType.PUSH, SMALL_DOCS);
+        assertEquals(SMALL_DOCS, otherDB.getCount());
+    }
+
+    @SlowTest
+    @Test
+    public void testPullSmallDocs() throws CouchbaseLiteException {
+        createDocs(otherDB, "pull", SMALL_DOCS, SMALL_DOC_SIZE, 0);
+        benchmark("pull small docs", ReplicatorType.PULL, SMALL_DOCS);
+        assertEquals(SMALL_DOCS, baseTestDb.getCount());
+    }
+
+    @SlowTest
+    @Test
+    public void testPushAndPullSmallDocs() throws CouchbaseLiteException {
+        createDocs(baseTestDb, "push", SMALL_DOCS / 2, SMALL_DOC_SIZE, 0);
+        createDocs(otherDB, "pull", SMALL_DOCS / 2, SMALL_DOC_SIZE, 0);
+        benchmark("push and pull small docs", ReplicatorType.PUSH_AND_PULL, SMALL_DOCS);
+        assertEquals(SMALL_DOCS, baseTestDb.getCount());
+        assertEquals(SMALL_DOCS, otherDB.getCount());
+    }
+
+    @SlowTest
+    @Test
+    public void testPushLargeDocs() throws CouchbaseLiteException {
+        createDocs(baseTestDb, "push", LARGE_DOCS, LARGE_DOC_SIZE, 0);
+        benchmark("push large docs", ReplicatorType.PUSH, LARGE_DOCS);
+        assertEquals(LARGE_DOCS, otherDB.getCount());
+    }
+
+    @SlowTest
+    @Test
+    public void testPullLargeDocs() throws CouchbaseLiteException {
+        createDocs(otherDB, "pull", LARGE_DOCS, LARGE_DOC_SIZE, 0);
+        benchmark("pull large docs", ReplicatorType.PULL, LARGE_DOCS);
+        assertEquals(LARGE_DOCS, baseTestDb.getCount());
+    }
+
+    @SlowTest
+    @Test
+    public void testPushBlobs() throws CouchbaseLiteException {
+        createDocs(baseTestDb, "push", BLOB_DOCS, SMALL_DOC_SIZE, BLOB_SIZE);
+        benchmark("push blobs", ReplicatorType.PUSH, BLOB_DOCS);
+        assertEquals(BLOB_DOCS, otherDB.getCount());
+    }
+
+    @SlowTest
+    @Test
+    public void testPullBlobs() throws CouchbaseLiteException {
+        createDocs(otherDB, "pull", BLOB_DOCS, SMALL_DOC_SIZE, BLOB_SIZE);
+        benchmark("pull blobs", ReplicatorType.PULL, BLOB_DOCS);
+        assertEquals(BLOB_DOCS, baseTestDb.getCount());
+    }
+
+    // Compares handing inbound frames to LiteCore in heap arrays and in direct buffers.
+    // The server end of a push receives nearly all of the frames.
+    @SlowTest
+    @Test
+    public void testPushInboundFrameBuffers() throws CouchbaseLiteException, IOException {
+        createDocs(baseTestDb, "push", LARGE_DOCS, LARGE_DOC_SIZE, 0);
+
+        // alternate, so that neither is favored by warm-up
+        final int rounds = 3;
+        long heapNs = 0;
+        long directNs = 0;
+        for (int i = 0; i < rounds; i++) {
+            heapNs += timedPush(false);
+            directNs += timedPush(true);
+        }
+
+        reportComparison(
+            "Push " + LARGE_DOCS + " large docs, inbound frames",
+            "heap",
+            heapNs / (double) rounds,
+            "direct",
+            directNs / (double) rounds);
+    }
+
+    // Push everything to an empty database.  Returns the time taken, in ns.
+    private long timedPush(boolean directInbound) throws CouchbaseLiteException, IOException {
+        server.close();
+        otherDB = recreateDb(otherDB);
+        server = new LoopbackSyncServer(otherDB, directInbound);
+
+        final long start = System.nanoTime();
+        run(makeConfig(server.getEndpoint(), ReplicatorType.PUSH, false), true, null);
+        final long elapsedNs = System.nanoTime() - start;
+
+        assertEquals(LARGE_DOCS, otherDB.getCount());
+        return elapsedNs;
+    }
+
+    private void benchmark(@NonNull String name, @NonNull ReplicatorType type, int expectedDocs)
+        throws CouchbaseLiteException {
+        final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        final long[] startNs = new long[1];
+
+        server.resetStats();
+        final long startAlloc = getAllocatedBytes();
+
+        run(
+            makeConfig(server.getEndpoint(), type, false),
+            repl -> {
+                repl.addDocumentReplicationListener(replication -> {
+                    final long latency = System.nanoTime() - startNs[0];
+                    for (int i = 0; i < replication.getDocuments().size(); i++) { latencies.add(latency); }
+                });
+                startNs[0] = System.nanoTime();
+            });
+
+        final long elapsedNs = System.nanoTime() - startNs[0];
+        final long allocated = getAllocatedBytes() - startAlloc;
+        final double secs = elapsedNs / 1.0e9;
+        final long wireBytes = server.getBytesSent() + server.getBytesReceived();
+
+        final List<Long> sorted;
+        synchronized (latencies) { sorted = new ArrayList<>(latencies); }
+        Collections.sort(sorted);
+
+        Report.log(
+            "Benchmark %s: %d docs in %.3fs: %.1f docs/sec, %.1f KB/sec (%d bytes)"
+                + ", latency ms p50: %.1f, p90: %.1f, p99: %.1f, alloc: %s",
+            name,
+            sorted.size(),
+            secs,
+            expectedDocs / secs,
+            wireBytes / secs / 1024,
+            wireBytes,
+            percentileMs(sorted, 50),
+            percentileMs(sorted, 90),
+            percentileMs(sorted, 99),
+            (allocated < 0) ? "n/a" : String.format(Locale.ENGLISH, "%.1f MB/sec", allocated / secs / (1024 * 1024)));
+
+        assertEquals(expectedDocs, sorted.size());
+    }
+
+    private void createDocs(@NonNull Database db, @NonNull String prefix, int n, int docSize, int blobSize)
+        throws CouchbaseLiteException {
+        final Random rand = new Random(SEED);
+        db.inBatch(() -> {
+            for (int i = 0; i < n; i++) {
+                final MutableDocument doc = new MutableDocument(String.format(Locale.ENGLISH, "%s-%06d", prefix, i));
+                doc.setInt("seq", i);
+                doc.setString("text", randomText(rand, docSize));
+                if (blobSize > 0) {
+                    final byte[] content = new byte[blobSize];
+                    rand.nextBytes(content);
+                    doc.setBlob("blob", new Blob("application/octet-stream", content));
+                }
+                db.save(doc);
+            }
+        });
+    }
+
+    @NonNull
+    private String randomText(@NonNull Random rand, int len) {
+        final char[] text = new char[len];
+        for (int i = 0; i < len; i++) { text[i] = (char) ('a' + rand.nextInt(26)); }
+        return new String(text);
+    }
+
+    private double percentileMs(@NonNull List<Long> sorted, int pct) {
+        if (sorted.isEmpty()) { return 0; }
+        final int idx = Math.min(sorted.size() - 1, (sorted.size() * pct) / 100);
+        return sorted.get(idx) / 1.0e6;
+    }
+
+    // The total bytes allocated by all live threads, or -1 if the platform can't tell us.
+    // Uses reflection, because the management classes don't exist on Android.
+    private long getAllocatedBytes() {
+        try {
+            final Object bean = Class.forName("java.lang.management.ManagementFactory")
+                .getMethod("getThreadMXBean")
+                .invoke(null);
+            final Class<?> beanClass = Class.forName("com.sun.management.ThreadMXBean");
+            if (!beanClass.isInstance(bean)) { return -1; }
+
+            final long[] ids = (long[]) Class.forName("java.lang.management.ThreadMXBean")
+                .getMethod("getAllThreadIds")
+                .invoke(bean);
+            final Method getAllocated = beanClass.getMethod("getThreadAllocatedBytes", long[].class);
+            final long[] allocs = (long[]) getAllocated.invoke(bean, (Object) ids);
+            return sum(allocs);
+        }
+        catch (ReflectiveOperationException | RuntimeException e) { return -1; }
+    }
+
+    private long sum(@Nullable long[] vals) {
+        if (vals == null) { return -1; }
+        long total = 0;
+        for (long val: vals) {
+            if (val > 0) { total += val; }
+        }
+        return total;
+    }
+}
@@ -29,6 +29,7 @@ import org.junit.Test;
 import com.couchbase.lite.internal.CouchbaseLiteInternal;
 import com.couchbase.lite.internal.ImmutableReplicatorConfiguration;
 import com.couchbase.lite.internal.core.C4Constants;
+import com.couchbase.lite.internal.core.C4DocumentEnded;
 import com.couchbase.lite.internal.core.C4Replicator;
 import com.couchbase.lite.internal.core.C4ReplicatorStatus;
 import com.couchbase.lite.internal.replicator.AbstractCBLWebSocket;
@@ -243,6 +244,133 @@ public class ReplicatorMiscTest extends BaseReplicatorTest {
         assertEquals(doc.getError().getCode(), CBLError.Code.BUSY);
     }
 
+    @Test
+    public void testDocumentReplicationBatch() {
+        final List<DocumentReplicationBatch> batches = new ArrayList<>();
+        final DocumentReplicationBatchListenerToken token = new DocumentReplicationBatchListenerToken(
+            baseTestReplicator,
+            Runnable::run,
+            2,
+            60 * 1000,
+            batches::add);
+
+        token.add(false, new C4DocumentEnded("doc-1", "1-a", 0, 1, 0, 0, 0, false));
+        token.add(false, new C4DocumentEnded("doc-2", "1-b", C4Constants.RevisionFlags.DELETED, 2, 0, 0, 0, false));
+        assertEquals(1, batches.size());
+
+        token.add(
+            false,
+            new C4DocumentEnded(
+                "doc-3",
+                "1-c",
+                0,
+                3,
+                C4Constants.ErrorDomain.LITE_CORE,
+                C4Constants.LiteCoreError.BUSY,
+                0,
+                true));
+        assertEquals(1, batches.size());
+
+        token.flush();
+        assertEquals(2, batches.size());
+
+        DocumentReplicationBatch batch = batches.get(0);
+        assertEquals(baseTestReplicator, batch.getReplicator());
+        assertFalse(batch.isPush());
+        assertEquals(2, batch.getCount());
+        assertEquals("doc-1", batch.getDocumentId(0));
+        assertFalse(batch.isDeleted(0));
+        assertFalse(batch.hasError(0));
+        assertNull(batch.getError(0));
+        assertEquals("doc-2", batch.getDocumentId(1));
+        assertTrue(batch.getFlags(1).contains(DocumentFlag.DELETED));
+
+        batch = batches.get(1);
+        assertEquals(1, batch.getCount());
+        assertEquals("doc-3", batch.getDocumentId(0));
+        assertTrue(batch.hasError(0));
+        assertTrue(batch.isErrorTransient(0));
+        assertEquals(CBLError.Code.BUSY, batch.getError(0).getCode());
+
+        // nothing left to flush
+        token.flush();
+        assertEquals(2, batches.size());
+    }
+
+    // A full batch that empties the buffers cancels the scheduled flush
+    @Test
+    public void testFullDocumentReplicationBatchCancelsFlush() {
+        final List<DocumentReplicationBatch> batches = new ArrayList<>();
+        final DocumentReplicationBatchListenerToken token = new DocumentReplicationBatchListenerToken(
+            baseTestReplicator,
+            Runnable::run,
+            2,
+            60 * 1000,
+            batches::add);
+
+        token.add(true, new C4DocumentEnded("doc-1", "1-a", 0, 1, 0, 0, 0, false));
+        assertTrue(token.isFlushPending());
+
+        token.add(true, new C4DocumentEnded("doc-2", "1-b", 0, 2, 0, 0, 0, false));
+        assertEquals(1, batches.size());
+        assertFalse(token.isFlushPending());
+
+        // a pull event is still buffered: its flush must stay scheduled
+        token.add(false, new C4DocumentEnded("doc-3", "1-c", 0, 3, 0, 0, 0, false));
+        token.add(true, new C4DocumentEnded("doc-4", "1-d", 0, 4, 0, 0, 0, false));
+        token.add(true, new C4DocumentEnded("doc-5", "1-e", 0, 5, 0, 0, 0, false));
+        assertEquals(2, batches.size());
+        assertTrue(token.isFlushPending());
+
+        token.flush();
+        assertEquals(3, batches.size());
+        assertFalse(token.isFlushPending());
+    }
+
+    @Test
+    public void testCoalesceProgressNotifications() throws URISyntaxException, InterruptedException {
+        final ReplicatorConfiguration config = makeConfig(getRemoteTargetEndpoint(), ReplicatorType.PUSH, false);
+        config.setProgressNotificationInterval(60 * 1000);
+        final Replicator repl = testReplicator(config);
+
+        final List<ReplicatorChange> changes = new ArrayList<>();
+        repl.addChangeListener(Runnable::run, changes::add);
+
+        // the first status is a transition: it is delivered
+        repl.c4StatusChanged(new C4ReplicatorStatus(C4ReplicatorStatus.ActivityLevel.BUSY, 1, 10, 1, 0, 0, 0));
+        assertEquals(1, changes.size());
+
+        // progress updates are coalesced
+        repl.c4StatusChanged(new C4ReplicatorStatus(C4ReplicatorStatus.ActivityLevel.BUSY, 2, 10, 2, 0, 0, 0));
+        repl.c4StatusChanged(new C4ReplicatorStatus(C4ReplicatorStatus.ActivityLevel.BUSY, 3, 10, 3, 0, 0, 0));
+        assertEquals(1, changes.size());
+        assertEquals(2, repl.getSuppressedNotificationCount());
+
+        // ... but the status is current
+        assertEquals(3, repl.getStatus().getProgress().getCompleted());
+
+        // the latest update is delivered when the pending notification fires
+        repl.notifyCoalescedProgress();
+        assertEquals(2, changes.size());
+        assertEquals(3, changes.get(1).getStatus().getProgress().getCompleted());
+
+        // errors are always delivered
+        repl.c4StatusChanged(new C4ReplicatorStatus(
+            C4ReplicatorStatus.ActivityLevel.BUSY,
+            4,
+            10,
+            4,
+            C4Constants.ErrorDomain.LITE_CORE,
+            C4Constants.LiteCoreError.BUSY,
+            0));
+        assertEquals(3, changes.size());
+
+        // as are transitions
+        repl.c4StatusChanged(new C4ReplicatorStatus(C4ReplicatorStatus.ActivityLevel.IDLE, 10, 10, 10, 0, 0, 0));
+        assertEquals(4, changes.size());
+        assertEquals(ReplicatorActivityLevel.IDLE, changes.get(3).getStatus().getActivityLevel());
+    }
+
     // CBL-1218
     @Test(expected = IllegalStateException.class)
     public void testStartReplicatorWithClosedDb() throws URISyntaxException {
@@ -964,6 +964,30 @@ public class ResultTest extends BaseQueryTest {
         }
     }
 
+    @Test
+    public void testGetPrimitiveArrays() throws CouchbaseLiteException {
+        final MutableDocument mDoc = new MutableDocument("doc1");
+        mDoc.setDoubleArray("vector", new double[] {0.5, -1.5, 2.0});
+        mDoc.setString("string", "str");
+        saveDocInBaseTestDb(mDoc);
+
+        final Query query = QueryBuilder
+            .select(SelectResult.property("vector"), SelectResult.property("string"))
+            .from(DataSource.database(baseTestDb));
+        try (ResultSet results = query.execute()) {
+            final Result result = results.next();
+            assertNotNull(result);
+
+            assertArrayEquals(new double[] {0.5, -1.5, 2.0}, result.getDoubleArray(0), 0.0);
+            assertArrayEquals(new double[] {0.5, -1.5, 2.0}, result.getDoubleArray("vector"), 0.0);
+            assertArrayEquals(new float[] {0.5F, -1.5F, 2.0F}, result.getFloatArray("vector"), 0.0F);
+            assertArrayEquals(new long[] {0L, -1L, 2L}, result.getLongArray("vector"));
+
+            assertNull(result.getDoubleArray("string"));
+            assertNull(result.getDoubleArray("missing"));
+        }
+    }
+
 
     ///////////////  Tooling
 
@@ -348,6 +348,34 @@ class SaveConflictResolutionTests : BaseDbTest() {
         assertFalse(succeeded)
     }
 
+    /**
+     * 1. Test that trySave reports conflicts as results.
+     * 2. FAIL_ON_CONFLICT returns CONFLICT, a conflict handler that returns false returns REJECTED.
+     * 3. Make sure that the document is not changed by a failed save and is saved by a resolved one.
+     */
+    @Test
+    fun testTrySave() {
+        val doc = MutableDocument(docID)
+        doc.setString("location", "Olympia")
+        saveDocInBaseTestDb(doc)
+
+        val doc1a = baseTestDb.getNonNullDoc(docID).toMutable()
+        val doc1b = baseTestDb.getNonNullDoc(docID).toMutable()
+
+        doc1a.setString("artist", "Sheep Jones")
+        assertEquals(SaveResult.SAVED, baseTestDb.trySave(doc1a, ConcurrencyControl.FAIL_ON_CONFLICT))
+
+        doc1b.setString("artist", "Holly Sears")
+        assertEquals(SaveResult.CONFLICT, baseTestDb.trySave(doc1b, ConcurrencyControl.FAIL_ON_CONFLICT))
+        assertEquals(SaveResult.REJECTED, baseTestDb.trySave(doc1b) { _: MutableDocument, _: Document? -> false })
+        assertEquals(doc1a, baseTestDb.getNonNullDoc(docID))
+        assertEquals(2L, baseTestDb.getNonNullDoc(docID).generation())
+
+        assertEquals(SaveResult.SAVED, baseTestDb.trySave(doc1b) { _: MutableDocument, _: Document? -> true })
+        assertEquals("Holly Sears", baseTestDb.getNonNullDoc(docID).getString("artist"))
+        assertEquals(3L, baseTestDb.getNonNullDoc(docID).generation())
+    }
+
     private fun Database.getNonNullDoc(id: String) =
         this.getDocument(id) ?: throw IllegalStateException("document ${id} is null")
 }
@@ -0,0 +1,126 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import androidx.annotation.NonNull;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+
+import org.junit.Test;
+
+import com.couchbase.lite.internal.utils.Report;
+import com.couchbase.lite.internal.utils.SlowTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+
+/**
+ * Measures the cost of read-modify-write on wide and deep documents:
+ * make a mutable copy of a document whose properties have all been read, and change a single property.
+ */
+public class ToMutableBenchmarkTest extends BaseDbTest {
+    private interface Modifier {
+        void modify(@NonNull MutableDocument doc, int i);
+    }
+
+    @SlowTest
+    @Test
+    public void testWideDocument() throws CouchbaseLiteException {
+        final int width = 10000;
+        final MutableDocument mDoc = new MutableDocument("wide");
+        for (int i = 0; i < width; i++) { mDoc.setInt(key(i), i); }
+
+        final MutableDocument doc = saveDocInBaseTestDb(mDoc).toMutable();
+        // read every property, so that all of them are cached
+        for (int i = 0; i < width; i++) { assertEquals(i, doc.getInt(key(i))); }
+
+        benchmark("wide", doc, 1000, (copy, i) -> copy.setInt(key(i % width), -i));
+    }
+
+    @SlowTest
+    @Test
+    public void testDeepDocument() throws CouchbaseLiteException {
+        final int depth = 50;
+        final int width = 100;
+        final MutableDocument mDoc = new MutableDocument("deep");
+        MutableDictionary dict = new MutableDictionary();
+        mDoc.setDictionary("root", dict);
+        for (int d = 0; d < depth; d++) {
+            for (int i = 0; i < width; i++) { dict.setInt(key(i), i); }
+            final MutableDictionary child = new MutableDictionary();
+            dict.setDictionary("child", child);
+            dict = child;
+        }
+
+        final MutableDocument doc = saveDocInBaseTestDb(mDoc).toMutable();
+        // read the whole tree, so that all of it is cached
+        DictionaryInterface node = doc.getDictionary("root");
+        while (node != null) {
+            for (int i = 0; i < width; i++) { node.getInt(key(i)); }
+            node = node.getDictionary("child");
+        }
+
+        benchmark("deep", doc, 1000, (copy, i) -> {
+            MutableDictionary leaf = copy.getDictionary("root");
+            for (int d = 0; d < depth - 1; d++) {
+                assertNotNull(leaf);
+                leaf = leaf.getDictionary("child");
+            }
+            assertNotNull(leaf);
+            leaf.setInt(key(i % width), -i);
+        });
+    }
+
+    private void benchmark(@NonNull String name, @NonNull MutableDocument doc, int iterations, @NonNull Modifier mod) {
+        // allocation is averaged over every copy, warm-up included
+        final int[] copies = new int[1];
+        final long startBytes = allocatedBytes();
+        final double copyNs = timePerRunNs(
+            iterations,
+            i -> {
+                mod.modify(doc.toMutable(), i);
+                copies[0]++;
+            });
+        final long allocated = allocatedBytes() - startBytes;
+
+        final String allocation = (startBytes < 0)
+            ? "allocation unavailable"
+            : String.format(Locale.ENGLISH, "%dB allocated", allocated / copies[0]);
+        Report.log(
+            "Read-modify-write %s document: %s, %s per copy",
+            name,
+            formatNs(copyNs),
+            allocation);
+    }
+
+    @NonNull
+    private static String key(int i) { return String.format(Locale.ENGLISH, "key-%05d", i); }
+
+    // Bytes allocated by this thread, on JVMs that provide it, otherwise -1.
+    private static long allocatedBytes() {
+        try {
+            final Object bean = Class.forName("java.lang.management.ManagementFactory")
+                .getMethod("getThreadMXBean")
+                .invoke(null);
+            final Method getAllocated = Class.forName("com.sun.management.ThreadMXBean")
+                .getMethod("getThreadAllocatedBytes", long.class);
+            return (Long) getAllocated.invoke(bean, Thread.currentThread().getId());
+        }
+        catch (Exception ignore) { return -1; }
+    }
+}
@@ -0,0 +1,230 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.couchbase.lite.internal.fleece.FLEncoder;
+import com.couchbase.lite.internal.utils.Report;
+import com.couchbase.lite.internal.utils.SlowTest;
+
+import static com.couchbase.lite.internal.utils.TestUtils.assertThrows;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class TypedArrayTest extends BaseDbTest {
+    private static final long SEED = 0x7E_C7_0AL;
+
+    @Test
+    public void testRoundTrip() throws CouchbaseLiteException {
+        final int[] ints = {1, -2, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        final long[] longs = {1L, -2L, Long.MAX_VALUE, Long.MIN_VALUE};
+        final float[] floats = {1.5F, -2.25F, Float.MAX_VALUE, Float.MIN_VALUE};
+        final double[] doubles = {1.5, -2.25, Double.MAX_VALUE, Double.MIN_VALUE};
+
+        final MutableDocument mDoc = new MutableDocument("doc1");
+        mDoc.setTypedArray("ints", new TypedArray(ints));
+        mDoc.setTypedArray("longs", new TypedArray(longs));
+        mDoc.setTypedArray("floats", new TypedArray(floats));
+        mDoc.setTypedArray("doubles", new TypedArray(doubles));
+        final Document doc = saveDocInBaseTestDb(mDoc);
+
+        final TypedArray intArray = doc.getTypedArray("ints");
+        assertNotNull(intArray);
+        assertEquals(TypedArray.ElementType.INT32, intArray.getElementType());
+        assertEquals(4, intArray.count());
+        final int[] readInts = new int[4];
+        intArray.asIntBuffer().get(readInts);
+        assertArrayEquals(ints, readInts);
+
+        final TypedArray longArray = doc.getTypedArray("longs");
+        assertNotNull(longArray);
+        assertArrayEquals(longs, longArray.toLongArray());
+
+        final TypedArray floatArray = doc.getTypedArray("floats");
+        assertNotNull(floatArray);
+        assertArrayEquals(floats, floatArray.toFloatArray(), 0.0F);
+
+        final TypedArray doubleArray = doc.getTypedArray("doubles");
+        assertNotNull(doubleArray);
+        assertArrayEquals(doubles, doubleArray.toDoubleArray(), 0.0);
+
+        // the getters for other types don't see a typed array
+        assertTrue(doc.getValue("doubles") instanceof TypedArray);
+        assertNull(doc.getDictionary("doubles"));
+        assertNull(doc.getArray("doubles"));
+        assertNull(doc.getBlob("doubles"));
+    }
+
+    @Test
+    public void testEquality() throws CouchbaseLiteException {
+        final TypedArray floats = new TypedArray(new float[] {1.0F, 2.0F});
+
+        final MutableDocument mDoc = new MutableDocument("doc1");
+        mDoc.setTypedArray("floats", floats);
+        assertEquals(floats, saveDocInBaseTestDb(mDoc).getTypedArray("floats"));
+
+        assertEquals(floats, new TypedArray(new float[] {1.0F, 2.0F}));
+        assertEquals(floats.hashCode(), new TypedArray(new float[] {1.0F, 2.0F}).hashCode());
+        assertNotEquals(floats, new TypedArray(new float[] {1.0F, 3.0F}));
+        // same bits, different type
+        assertNotEquals(new TypedArray(new int[] {0, 0}), new TypedArray(new float[] {0.0F, 0.0F}));
+    }
+
+    @Test
+    public void testBufferViews() {
+        final TypedArray array = new TypedArray(new float[] {1.0F, 2.0F, 3.0F});
+
+        final FloatBuffer floats = array.asFloatBuffer();
+        assertEquals(3, floats.remaining());
+        assertEquals(2.0F, floats.get(1), 0.0F);
+        assertThrows(ReadOnlyBufferException.class, () -> floats.put(0, 7.0F));
+
+        assertEquals(ByteOrder.LITTLE_ENDIAN, array.asByteBuffer().order());
+        assertEquals(12, array.asByteBuffer().remaining());
+        assertEquals(Float.floatToIntBits(1.0F), array.asByteBuffer().getInt(0));
+
+        assertThrows(IllegalStateException.class, array::asDoubleBuffer);
+        assertThrows(IllegalStateException.class, array::asIntBuffer);
+    }
+
+    @Test
+    public void testConversions() {
+        final TypedArray array = new TypedArray(new double[] {1.75, -2.5});
+        assertArrayEquals(new float[] {1.75F, -2.5F}, array.toFloatArray(), 0.0F);
+        assertArrayEquals(new long[] {1L, -2L}, array.toLongArray());
+        assertArrayEquals(new double[] {7.0, -8.0}, new TypedArray(new int[] {7, -8}).toDoubleArray(), 0.0);
+        assertEquals(0, new TypedArray(new long[0]).toDoubleArray().length);
+    }
+
+    @Test
+    public void testNested() throws CouchbaseLiteException {
+        final TypedArray samples = new TypedArray(new long[] {10L, 20L, 30L});
+
+        final MutableDictionary dict = new MutableDictionary();
+        dict.setTypedArray("samples", samples);
+        final MutableDocument mDoc = new MutableDocument("doc1");
+        mDoc.setDictionary("sensor", dict);
+        mDoc.setArray("history", new MutableArray().addTypedArray(samples).addInt(4));
+        final Document doc = saveDocInBaseTestDb(mDoc);
+
+        assertEquals(samples, doc.getDictionary("sensor").getTypedArray("samples"));
+        assertEquals(samples, doc.getArray("history").getTypedArray(0));
+        assertNull(doc.getArray("history").getTypedArray(1));
+
+        // map values are the typed arrays themselves
+        assertEquals(samples, ((Map<?, ?>) doc.toMap().get("sensor")).get("samples"));
+    }
+
+    // A dictionary that is tagged as a typed array, but isn't one, is just a dictionary.
+    @Test
+    public void testMalformed() throws CouchbaseLiteException {
+        final MutableDocument mDoc = new MutableDocument("doc1");
+        mDoc.setDictionary(
+            "badType",
+            new MutableDictionary().setString("@type", "typed_array").setString("element_type", "int12"));
+        mDoc.setDictionary(
+            "badData",
+            new MutableDictionary()
+                .setString("@type", "typed_array")
+                .setString("element_type", "int32")
+                .setBlob("data", new Blob("application/octet-stream", new byte[] {1, 2, 3})));
+        final Document doc = saveDocInBaseTestDb(mDoc);
+
+        assertNull(doc.getTypedArray("badType"));
+        assertEquals("int12", doc.getDictionary("badType").getString("element_type"));
+        assertNull(doc.getTypedArray("badData"));
+        assertNotNull(doc.getDictionary("badData"));
+    }
+
+    @Test
+    public void testResult() throws CouchbaseLiteException {
+        final TypedArray vector = new TypedArray(new float[] {0.25F, 0.5F});
+        final MutableDocument mDoc = new MutableDocument("doc1");
+        mDoc.setTypedArray("vector", vector);
+        saveDocInBaseTestDb(mDoc);
+
+        final Query query = QueryBuilder
+            .select(SelectResult.property("vector"))
+            .from(DataSource.database(baseTestDb));
+        try (ResultSet results = query.execute()) {
+            final Result result = results.next();
+            assertNotNull(result);
+            assertEquals(vector, result.getTypedArray(0));
+            assertEquals(vector, result.getTypedArray("vector"));
+        }
+    }
+
+    // Compares the size and decode time of a 1536-element embedding stored as an Array and as a TypedArray.
+    @SlowTest
+    @Test
+    public void testEmbeddingSize() throws CouchbaseLiteException, LiteCoreException {
+        final int dimensions = 1536;
+        final int iterations = 2000;
+
+        final Random rand = new Random(SEED);
+        final float[] embedding = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) { embedding[i] = (float) rand.nextGaussian(); }
+
+        final int arraySize = encodedSize(new MutableArray(toDoubles(embedding)));
+        final int typedSize = encodedSize(new TypedArray(embedding));
+
+        final MutableDocument mDoc = new MutableDocument("doc1");
+        mDoc.setDoubleArray("array", toDoubles(embedding));
+        mDoc.setTypedArray("typed", new TypedArray(embedding));
+        final Document saved = saveDocInBaseTestDb(mDoc);
+
+        final double arrayNs = timePerRunNs(
+            iterations,
+            i -> assertEquals(dimensions, reread(saved).getArray("array").toDoubleArray().length));
+        final double typedNs = timePerRunNs(
+            iterations,
+            i -> assertEquals(dimensions, reread(saved).getTypedArray("typed").toFloatArray().length));
+
+        Report.log("%d-element embedding: Array %d bytes, TypedArray %d bytes", dimensions, arraySize, typedSize);
+        reportComparison("Read " + dimensions + "-element embedding", "Array", arrayNs, "TypedArray", typedNs);
+
+        assertTrue(typedSize < arraySize);
+    }
+
+    private int encodedSize(Object value) throws LiteCoreException {
+        try (FLEncoder enc = FLEncoder.getManagedEncoder()) {
+            enc.writeValue(value);
+            return enc.finish().length;
+        }
+    }
+
+    private double[] toDoubles(float[] floats) {
+        final double[] doubles = new double[floats.length];
+        for (int i = 0; i < floats.length; i++) { doubles[i] = floats[i]; }
+        return doubles;
+    }
+
+    private Document reread(Document doc) {
+        return new Document(baseTestDb, doc.getId(), doc.getRevisionID(), doc.getFLDict());
+    }
+}
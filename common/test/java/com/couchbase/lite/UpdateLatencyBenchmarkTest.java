@@ -0,0 +1,86 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import java.util.Locale;
+
+import org.junit.Test;
+
+import com.couchbase.lite.internal.utils.Report;
+import com.couchbase.lite.internal.utils.SlowTest;
+
+import static org.junit.Assert.assertEquals;
+
+
+/**
+ * Measures the latency of saving a single-property change, as a function of document size.
+ */
+public class UpdateLatencyBenchmarkTest extends BaseDbTest {
+    private static final int VALUE_SIZE = 100;
+
+    @SlowTest
+    @Test
+    public void testUpdate10K() throws CouchbaseLiteException { benchmark(10 * 1024, 500); }
+
+    @SlowTest
+    @Test
+    public void testUpdate100K() throws CouchbaseLiteException { benchmark(100 * 1024, 200); }
+
+    @SlowTest
+    @Test
+    public void testUpdate500K() throws CouchbaseLiteException { benchmark(500 * 1024, 100); }
+
+    private void benchmark(int size, int iterations) throws CouchbaseLiteException {
+        final String id = "update-" + size;
+        final int nProps = size / VALUE_SIZE;
+
+        final StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < VALUE_SIZE; i++) { buf.append((char) ('a' + (i % 26))); }
+        final String value = buf.toString();
+
+        final MutableDocument mDoc = new MutableDocument(id);
+        for (int i = 0; i < nProps; i++) { mDoc.setString(key(i), value); }
+        baseTestDb.save(mDoc);
+
+        // warm up.  BaseTest.timePerRunNs can't be used here:
+        // only the save is timed, not reading the document and making it mutable.
+        for (int i = 0; i < iterations / 10; i++) { update(id, i); }
+
+        long saveNs = 0;
+        for (int i = 0; i < iterations; i++) { saveNs += update(id, i); }
+
+        final Document doc = baseTestDb.getDocument(id);
+        assertEquals(nProps + 1, doc.count());
+        assertEquals(iterations - 1, doc.getInt("counter"));
+
+        Report.log(
+            "Single property update, %dKB document (%d properties): %s/save",
+            size / 1024,
+            nProps,
+            formatNs(saveNs / (double) iterations));
+    }
+
+    // Change one property and save.  Returns the time taken by the save, in ns.
+    private long update(String id, int n) throws CouchbaseLiteException {
+        final MutableDocument doc = baseTestDb.getDocument(id).toMutable();
+        doc.setInt("counter", n);
+        final long start = System.nanoTime();
+        baseTestDb.save(doc);
+        return System.nanoTime() - start;
+    }
+
+    private static String key(int i) { return String.format(Locale.ENGLISH, "key-%06d", i); }
+}
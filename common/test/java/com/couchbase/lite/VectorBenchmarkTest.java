@@ -0,0 +1,116 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.couchbase.lite.internal.utils.Report;
+import com.couchbase.lite.internal.utils.SlowTest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+
+/**
+ * Compares element-by-element access to a 1536-element embedding with the bulk primitive array accessors.
+ */
+public class VectorBenchmarkTest extends BaseDbTest {
+    private static final long SEED = 0x0E_B3_DDL;
+    private static final int DIMENSIONS = 1536;
+    private static final int ITERATIONS = 2000;
+
+    @SlowTest
+    @Test
+    public void testReadEmbedding() throws CouchbaseLiteException {
+        final double[] embedding = makeEmbedding();
+        final MutableDocument mDoc = new MutableDocument("doc");
+        mDoc.setDoubleArray("embedding", embedding);
+        final Document saved = saveDocInBaseTestDb(mDoc);
+
+        final double elementNs = timePerRunNs(
+            ITERATIONS,
+            i -> assertArrayEquals(embedding, readElements(reread(saved)), 0.0));
+        final double bulkNs = timePerRunNs(
+            ITERATIONS,
+            i -> assertArrayEquals(embedding, reread(saved).toDoubleArray(), 0.0));
+        final double[] buf = new double[DIMENSIONS];
+        final double bufferNs = timePerRunNs(ITERATIONS, i -> assertEquals(DIMENSIONS, reread(saved).getDoubles(buf)));
+
+        reportComparison(
+            "Read " + DIMENSIONS + "-element embedding",
+            "getDouble(i)",
+            elementNs,
+            "toDoubleArray",
+            bulkNs);
+        Report.log("Read %d-element embedding: getDoubles(buf) %s", DIMENSIONS, formatNs(bufferNs));
+    }
+
+    @SlowTest
+    @Test
+    public void testWriteEmbedding() throws CouchbaseLiteException {
+        final double[] embedding = makeEmbedding();
+
+        final double elementNs = timePerRunNs(ITERATIONS, i -> {
+            final MutableArray array = new MutableArray();
+            for (double d: embedding) { array.addDouble(d); }
+            final MutableDocument mDoc = new MutableDocument("element-" + i);
+            mDoc.setArray("embedding", array);
+            baseTestDb.save(mDoc);
+        });
+
+        final double bulkNs = timePerRunNs(ITERATIONS, i -> {
+            final MutableDocument mDoc = new MutableDocument("bulk-" + i);
+            mDoc.setDoubleArray("embedding", embedding);
+            baseTestDb.save(mDoc);
+        });
+
+        final Document doc = baseTestDb.getDocument("bulk-0");
+        assertNotNull(doc);
+        assertArrayEquals(embedding, doc.getArray("embedding").toDoubleArray(), 0.0);
+
+        reportComparison(
+            "Write " + DIMENSIONS + "-element embedding per doc",
+            "addDouble",
+            elementNs,
+            "setDoubleArray",
+            bulkNs);
+    }
+
+    // A fresh Array, with no cached values, for each read
+    private Array reread(Document doc) {
+        final Array array = new Document(baseTestDb, doc.getId(), doc.getRevisionID(), doc.getFLDict())
+            .getArray("embedding");
+        assertNotNull(array);
+        return array;
+    }
+
+    private double[] readElements(Array array) {
+        final int n = array.count();
+        final double[] values = new double[n];
+        for (int i = 0; i < n; i++) { values[i] = array.getDouble(i); }
+        return values;
+    }
+
+    private double[] makeEmbedding() {
+        final Random rand = new Random(SEED);
+        final double[] embedding = new double[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) { embedding[i] = rand.nextGaussian(); }
+        return embedding;
+    }
+}
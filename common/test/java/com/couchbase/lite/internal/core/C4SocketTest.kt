@@ -21,6 +21,7 @@ import com.couchbase.lite.internal.sockets.SocketFromCore
 import org.junit.After
 import org.junit.Assert.*
 import org.junit.Test
+import java.nio.ByteBuffer
 import java.util.concurrent.CountDownLatch
 import java.util.concurrent.TimeUnit
 
@@ -67,6 +68,7 @@ private open class MockImpl : C4Socket.NativeImpl {
 
     override fun nCompletedWrite(peer: Long, nBytes: Long) = verifyPeer(peer)
     override fun nReceived(peer: Long, data: ByteArray?) = verifyPeer(peer)
+    override fun nReceivedBuffer(peer: Long, data: ByteBuffer?, offset: Int, length: Int) = verifyPeer(peer)
     override fun nCloseRequested(peer: Long, status: Int, message: String?) = verifyPeer(peer)
     override fun nClosed(peer: Long, domain: Int, code: Int, message: String?) {
         verifyPeer(peer)
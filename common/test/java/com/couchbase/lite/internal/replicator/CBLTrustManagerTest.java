@@ -0,0 +1,105 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal.replicator;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.couchbase.lite.BaseTest;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class CBLTrustManagerTest extends BaseTest {
+    // A self-signed EC certificate, valid for 100 years
+    private static final String SELF_SIGNED_CERT = "-----BEGIN CERTIFICATE-----\n"
+        + "MIIBPzCB5aADAgECAggEA6mBH6MrWDAKBggqhkjOPQQDAjATMREwDwYDVQQDEwhj\n"
+        + "YmwtdGVzdDAgFw0yNjEwMTgyMDU2MjVaGA8yMTI2MDkyNDIwNTYyNVowEzERMA8G\n"
+        + "A1UEAxMIY2JsLXRlc3QwWTATBgcqhkjOPQIBBggqhkjOPQMBBwNCAASPdNyWSVIl\n"
+        + "F/cw9F0IqJRwJeD1jhpDi4MxOynN/MJtnR2Q+svOqXoEHuZC/mJxQF1ZyHI+fXcV\n"
+        + "Iryz4csGpTZboyEwHzAdBgNVHQ4EFgQUwQ2L6Vyp2OObe4AMf/stni2MQpwwCgYI\n"
+        + "KoZIzj0EAwIDSQAwRgIhAI/F0AYGtnU4UBWaCFDQFTDMjj5gEq82mR04dv0ZNioG\n"
+        + "AiEA26v60oinXRHn2D7lcbSZQz1wuxH+BdhJDWbZoCKOLv8=\n"
+        + "-----END CERTIFICATE-----\n";
+
+    private X509Certificate cert;
+
+    @Before
+    public final void setUpCBLTrustManagerTest() throws CertificateException {
+        AbstractCBLTrustManager.clearTrustCache();
+        cert = (X509Certificate) CertificateFactory.getInstance("X.509")
+            .generateCertificate(new ByteArrayInputStream(SELF_SIGNED_CERT.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @After
+    public final void tearDownCBLTrustManagerTest() { AbstractCBLTrustManager.clearTrustCache(); }
+
+    // The second verification of a chain comes from the cache, even for a different trust manager.
+    @Test
+    public void testVerifiedChainCached() throws CertificateException {
+        final long hits = AbstractCBLTrustManager.getTrustCacheHits();
+        final long misses = AbstractCBLTrustManager.getTrustCacheMisses();
+
+        checkTrusted(new CBLTrustManager(null, true, certs -> { }));
+        assertCacheStats(hits, 0, misses, 1);
+
+        checkTrusted(new CBLTrustManager(null, true, certs -> { }));
+        assertCacheStats(hits, 1, misses, 1);
+    }
+
+    // Different trust settings are cached separately: a pinned cert is verified again.
+    @Test
+    public void testTrustSettingsInKey() throws CertificateException {
+        final long hits = AbstractCBLTrustManager.getTrustCacheHits();
+        final long misses = AbstractCBLTrustManager.getTrustCacheMisses();
+
+        checkTrusted(new CBLTrustManager(null, true, certs -> { }));
+        assertCacheStats(hits, 0, misses, 1);
+
+        checkTrusted(new CBLTrustManager(cert, false, certs -> { }));
+        assertCacheStats(hits, 0, misses, 2);
+
+        checkTrusted(new CBLTrustManager(cert, false, certs -> { }));
+        assertCacheStats(hits, 1, misses, 2);
+    }
+
+    // A chain that fails verification is not cached.
+    @Test(expected = CertificateException.class)
+    public void testUntrustedChainNotCached() throws CertificateException {
+        final CBLTrustManager trustManager = new CBLTrustManager(null, false, certs -> { });
+        try { checkTrusted(trustManager); }
+        catch (CertificateException ignore) { }
+        checkTrusted(trustManager);
+    }
+
+    private void checkTrusted(@NonNull CBLTrustManager trustManager) throws CertificateException {
+        trustManager.checkServerTrusted(new X509Certificate[] {cert}, "ECDHE_ECDSA");
+    }
+
+    private void assertCacheStats(long hits, long newHits, long misses, long newMisses) {
+        assertEquals(hits + newHits, AbstractCBLTrustManager.getTrustCacheHits());
+        assertEquals(misses + newMisses, AbstractCBLTrustManager.getTrustCacheMisses());
+    }
+}
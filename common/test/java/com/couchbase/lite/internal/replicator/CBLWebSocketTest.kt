@@ -0,0 +1,112 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal.replicator
+
+import com.couchbase.lite.BaseTest
+import com.couchbase.lite.internal.core.C4Replicator
+import com.couchbase.lite.internal.fleece.FLEncoder
+import com.couchbase.lite.internal.sockets.CloseStatus
+import com.couchbase.lite.internal.sockets.SocketFromCore
+import com.couchbase.lite.internal.sockets.SocketFromRemote
+import com.couchbase.lite.internal.sockets.SocketToCore
+import com.couchbase.lite.internal.sockets.SocketToRemote
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.net.URI
+import java.nio.ByteBuffer
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+
+// A remote that doesn't send anything until it is told to.
+private class ThrottledRemote : SocketToRemote {
+    @Volatile
+    var queued = 0L
+
+    override fun init(listener: SocketFromRemote) = Unit
+    override fun openRemote(uri: URI, options: MutableMap<String, Any>?) = true
+    override fun writeToRemote(data: ByteArray): Boolean {
+        queued += data.size
+        return true
+    }
+
+    override fun getQueueSize() = queued
+    override fun closeRemote(status: CloseStatus) = true
+    override fun cancelRemote() = Unit
+    override fun close() = Unit
+}
+
+private class AckCountingCore(val expected: Long) : SocketToCore {
+    val acked = AtomicLong()
+    val latch = CountDownLatch(1)
+
+    override fun getLock() = this
+    override fun init(listener: SocketFromCore) = Unit
+    override fun ackOpenToCore(httpStatus: Int, responseHeadersFleece: ByteArray?) = Unit
+    override fun ackWriteToCore(byteCount: Long) {
+        if (acked.addAndGet(byteCount) >= expected) { latch.countDown() }
+    }
+
+    override fun writeToCore(data: ByteArray) = Unit
+    override fun writeToCore(data: ByteBuffer) = Unit
+    override fun requestCoreClose(status: CloseStatus) = Unit
+    override fun closeCore(status: CloseStatus) = Unit
+    override fun close() = Unit
+}
+
+private class NullCookieStore : CBLCookieStore {
+    override fun setCookie(uri: URI, setCookieHeader: String) = Unit
+    override fun getCookies(uri: URI): String? = null
+}
+
+class CBLWebSocketTest : BaseTest() {
+
+    // Writes are not acknowledged to core while the remote's queue is above the high water mark
+    @Test
+    fun testWriteBackpressure() {
+        val remote = ThrottledRemote()
+        val core = AckCountingCore(3000L)
+
+        val opts = FLEncoder.getManagedEncoder().use {
+            it.write(mapOf(C4Replicator.SOCKET_OPTION_WRITE_HIGH_WATER_MARK to 1500L))
+            it.finish()
+        }
+
+        val ws = CBLWebSocket(remote, core, URI("wss://foo.com"), opts, NullCookieStore()) { }
+        assertEquals(1500L, ws.writeHighWaterMark)
+
+        ws.coreRequestsOpen()
+        ws.remoteOpened(101, null)
+
+        // below the high water mark: acked immediately
+        ws.coreWrites(ByteArray(1000))
+        assertEquals(1000L, core.acked.get())
+
+        // above the high water mark: acks are deferred
+        ws.coreWrites(ByteArray(1000))
+        ws.coreWrites(ByteArray(1000))
+        assertEquals(1000L, core.acked.get())
+        assertEquals(1L, ws.deferredAckCount)
+        assertEquals(3000L, ws.maxQueuedBytes)
+
+        // the remote catches up: the deferred writes are acked
+        remote.queued = 0L
+        assertTrue(core.latch.await(STD_TIMEOUT_SEC, TimeUnit.SECONDS))
+        assertEquals(3000L, core.acked.get())
+    }
+}
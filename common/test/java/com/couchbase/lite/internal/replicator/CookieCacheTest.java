@@ -0,0 +1,163 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal.replicator;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import okhttp3.HttpUrl;
+import org.junit.Test;
+
+import com.couchbase.lite.BaseTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+
+public class CookieCacheTest extends BaseTest {
+    private static final URI URL = URI.create("https://foo.com:4984/db/_blipsync");
+
+    // Stands in for LiteCore's cookie store: records the headers it is given.
+    private static final class TestStore implements CBLCookieStore {
+        final List<String> saved = new ArrayList<>();
+        int reads;
+        @Nullable
+        String cookies;
+        // Run after the store has been read, before the read returns
+        @Nullable
+        Runnable onRead;
+
+        TestStore(@Nullable String cookies) { this.cookies = cookies; }
+
+        @Override
+        public void setCookie(@NonNull URI uri, @NonNull String setCookieHeader) { saved.add(setCookieHeader); }
+
+        @Nullable
+        @Override
+        public String getCookies(@NonNull URI uri) {
+            reads++;
+            final String result = cookies;
+            if (onRead != null) { onRead.run(); }
+            return result;
+        }
+    }
+
+    // Holds tasks until the test runs them.
+    private static final class TestExecutor implements Executor {
+        final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(@NonNull Runnable task) { tasks.add(task); }
+
+        void runAll() {
+            final List<Runnable> tasks = new ArrayList<>(this.tasks);
+            this.tasks.clear();
+            for (Runnable task: tasks) { task.run(); }
+        }
+    }
+
+    // The persistent store is read only once for a URL
+    @Test
+    public void testLoadedOnce() {
+        final TestStore store = new TestStore("SyncGatewaySession=abc");
+        final CookieCache cache = new CookieCache(store, new TestExecutor());
+
+        assertEquals("SyncGatewaySession=abc", cache.getCookies(URL));
+        assertEquals("SyncGatewaySession=abc", cache.getCookies(URL));
+        assertEquals(1, cache.loadCookies(HttpUrl.get(URL)).size());
+        assertEquals(1, store.reads);
+    }
+
+    // A new cookie is visible immediately, and is written to the store by the executor
+    @Test
+    public void testWriteThrough() {
+        final TestStore store = new TestStore("SyncGatewaySession=abc");
+        final TestExecutor executor = new TestExecutor();
+        final CookieCache cache = new CookieCache(store, executor);
+
+        assertEquals("SyncGatewaySession=abc", cache.getCookies(URL));
+
+        cache.setCookie(URL, "SyncGatewaySession=def; Path=/db");
+        assertEquals("SyncGatewaySession=def", cache.getCookies(URL));
+        assertEquals(0, store.saved.size());
+        assertEquals(1, cache.getPendingCount());
+
+        executor.runAll();
+        assertEquals(1, store.saved.size());
+        assertEquals("SyncGatewaySession=def; Path=/db", store.saved.get(0));
+        assertEquals(0, cache.getPendingCount());
+        assertEquals(1, store.reads);
+    }
+
+    // A cookie that has been set, but not yet persisted, is visible to a URL that is loaded later
+    @Test
+    public void testPendingCookieVisibleToNewUrl() {
+        final TestStore store = new TestStore(null);
+        final CookieCache cache = new CookieCache(store, new TestExecutor());
+
+        cache.setCookie(URL, "SyncGatewaySession=def; Path=/db");
+        assertEquals("SyncGatewaySession=def", cache.getCookies(URI.create("https://foo.com:4984/db/other")));
+        assertNull(cache.getCookies(URI.create("https://bar.com:4984/db/_blipsync")));
+    }
+
+    // A cookie that is persisted, and dequeued, while a new URL is reading the store is not lost
+    @Test
+    public void testCookieFlushedDuringLoad() {
+        final TestStore store = new TestStore(null);
+        final TestExecutor executor = new TestExecutor();
+        final CookieCache cache = new CookieCache(store, executor);
+
+        cache.setCookie(URL, "SyncGatewaySession=def; Path=/db");
+        store.onRead = executor::runAll;
+
+        assertEquals("SyncGatewaySession=def", cache.getCookies(URL));
+        assertEquals(0, cache.getPendingCount());
+        assertEquals(1, store.saved.size());
+    }
+
+    // An expired cookie deletes the cached cookie
+    @Test
+    public void testExpiredCookieDeletes() {
+        final TestStore store = new TestStore("SyncGatewaySession=abc; Other=xyz");
+        final CookieCache cache = new CookieCache(store, new TestExecutor());
+
+        assertEquals("SyncGatewaySession=abc; Other=xyz", cache.getCookies(URL));
+
+        cache.setCookie(URL, "SyncGatewaySession=; Expires=Thu, 01 Jan 1970 00:00:00 GMT");
+        assertEquals("Other=xyz", cache.getCookies(URL));
+    }
+
+    // Flush writes everything that is pending, in order
+    @Test
+    public void testFlush() {
+        final TestStore store = new TestStore(null);
+        final CookieCache cache = new CookieCache(store, new TestExecutor());
+
+        cache.setCookie(URL, "a=1");
+        cache.setCookie(URL, "b=2");
+        cache.flush();
+
+        assertEquals(2, store.saved.size());
+        assertEquals("a=1", store.saved.get(0));
+        assertEquals("b=2", store.saved.get(1));
+        assertEquals(0, cache.getPendingCount());
+    }
+}
@@ -0,0 +1,143 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal.replicator;
+
+import androidx.annotation.NonNull;
+
+import java.lang.ref.WeakReference;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.X509ExtendedKeyManager;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.couchbase.lite.BaseTest;
+import com.couchbase.lite.internal.utils.Fn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+
+public class TlsContextCacheTest extends BaseTest {
+    private static final class TestKeyManager extends X509ExtendedKeyManager {
+        @Override
+        public String[] getClientAliases(String keyType, Principal[] issuers) { return null; }
+
+        @Override
+        public String chooseClientAlias(String[] keyType, Principal[] issuers, Socket socket) { return null; }
+
+        @Override
+        public String[] getServerAliases(String keyType, Principal[] issuers) { return null; }
+
+        @Override
+        public String chooseServerAlias(String keyType, Principal[] issuers, Socket socket) { return null; }
+
+        @Override
+        public X509Certificate[] getCertificateChain(String alias) { return null; }
+
+        @Override
+        public PrivateKey getPrivateKey(String alias) { return null; }
+    }
+
+    private static final Fn.Consumer<List<Certificate>> NO_LISTENER = certs -> { };
+
+    @After
+    public final void tearDownTlsContextCacheTest() { TlsContextCache.clear(); }
+
+    // Connections to the same host, with the same settings, share a context.
+    @Test
+    public void testContextsShared() throws GeneralSecurityException {
+        final Fn.Consumer<List<Certificate>> listener = certs -> { };
+
+        final TlsContextCache.Context ctxt1 = TlsContextCache.getContext("foo.com", 443, null, true, null, 0, listener);
+        final TlsContextCache.Context ctxt2 = TlsContextCache.getContext("foo.com", 443, null, true, null, 0, listener);
+        assertSame(ctxt1, ctxt2);
+        assertSame(ctxt1.getSslContext(), ctxt2.getSslContext());
+
+        assertNotSame(ctxt1, TlsContextCache.getContext("bar.com", 443, null, true, null, 0, listener));
+        assertNotSame(ctxt1, TlsContextCache.getContext("foo.com", 4984, null, true, null, 0, listener));
+        assertNotSame(ctxt1, TlsContextCache.getContext("foo.com", 443, null, false, null, 0, listener));
+        assertNotSame(ctxt1, TlsContextCache.getContext("foo.com", 443, null, true, null, 100, listener));
+    }
+
+    // Key managers are compared by identity.
+    @Test
+    public void testKeyManagersShared() throws GeneralSecurityException {
+        final KeyManager km1 = new TestKeyManager();
+        final KeyManager km2 = new TestKeyManager();
+
+        final TlsContextCache.Context ctxt
+            = TlsContextCache.getContext("foo.com", 443, null, true, km1, 0, NO_LISTENER);
+        assertSame(ctxt, TlsContextCache.getContext("foo.com", 443, null, true, km1, 0, NO_LISTENER));
+        assertNotSame(ctxt, TlsContextCache.getContext("foo.com", 443, null, true, km2, 0, NO_LISTENER));
+        assertNotSame(ctxt, TlsContextCache.getContext("foo.com", 443, null, true, null, 0, NO_LISTENER));
+    }
+
+    // The cache does not keep a client identity alive.
+    @Test
+    public void testKeyManagerNotRetained() throws GeneralSecurityException, InterruptedException {
+        final WeakReference<KeyManager> ref = cacheContextForKeyManager();
+
+        for (int i = 0; (i < 20) && (ref.get() != null); i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+
+        assertNull(ref.get());
+        assertEquals(0, TlsContextCache.size());
+    }
+
+    // Every listener hears about the server certs and a new listener hears about the last ones seen.
+    @Test
+    public void testCertsBroadcast() throws GeneralSecurityException {
+        final AtomicReference<List<Certificate>> certs1 = new AtomicReference<>();
+        final Fn.Consumer<List<Certificate>> listener1 = certs1::set;
+        final AtomicReference<List<Certificate>> certs2 = new AtomicReference<>();
+        final Fn.Consumer<List<Certificate>> listener2 = certs2::set;
+
+        final TlsContextCache.Context ctxt
+            = TlsContextCache.getContext("foo.com", 443, null, true, null, 0, listener1);
+        assertNull(certs1.get());
+
+        // An empty chain fails the check, but only after the listeners have been notified
+        try { ctxt.getTrustManager().checkServerTrusted(new X509Certificate[0], "RSA"); }
+        catch (IllegalArgumentException ignore) { }
+        assertNotNull(certs1.get());
+
+        TlsContextCache.getContext("foo.com", 443, null, true, null, 0, listener2);
+        assertSame(certs1.get(), certs2.get());
+    }
+
+    @NonNull
+    private WeakReference<KeyManager> cacheContextForKeyManager() throws GeneralSecurityException {
+        final KeyManager km = new TestKeyManager();
+        TlsContextCache.getContext("foo.com", 443, null, true, km, 0, NO_LISTENER);
+        assertEquals(1, TlsContextCache.size());
+        return new WeakReference<>(km);
+    }
+}
@@ -0,0 +1,529 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal.sockets;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import okhttp3.OkHttpClient;
+import okio.ByteString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.couchbase.lite.BaseTest;
+import com.couchbase.lite.internal.core.C4Constants;
+import com.couchbase.lite.internal.core.C4Replicator;
+import com.couchbase.lite.internal.utils.Report;
+import com.couchbase.lite.internal.utils.SlowTest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class NioSocketTest extends BaseTest {
+    private static final String SERVER_THREAD = "ws-echo-";
+    private static final String WS_ACCEPT_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    // A minimal, blocking, WebSocket echo server: a thread per connection.
+    // If it supports permessage-deflate, it echoes compressed messages compressed.
+    private static final class EchoServer implements AutoCloseable {
+        private final ServerSocket server;
+        private final int status;
+        private final boolean deflate;
+        private final AtomicInteger nConnections = new AtomicInteger();
+
+        EchoServer(int status) throws IOException { this(status, false); }
+
+        EchoServer(int status, boolean deflate) throws IOException {
+            this.status = status;
+            this.deflate = deflate;
+            server = new ServerSocket(0, 1000, InetAddress.getLoopbackAddress());
+            final Thread acceptor = new Thread(this::acceptLoop, SERVER_THREAD + "accept");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        @NonNull
+        URI getUri() { return URI.create("ws://127.0.0.1:" + server.getLocalPort() + "/db/_blipsync"); }
+
+        @Override
+        public void close() throws IOException { server.close(); }
+
+        private void acceptLoop() {
+            while (!server.isClosed()) {
+                try {
+                    final Socket socket = server.accept();
+                    final Thread conn = new Thread(() -> serve(socket), SERVER_THREAD + nConnections.incrementAndGet());
+                    conn.setDaemon(true);
+                    conn.start();
+                }
+                catch (IOException ignore) { }
+            }
+        }
+
+        private void serve(@NonNull Socket socket) {
+            try (Socket s = socket) {
+                s.setTcpNoDelay(true);
+                final DataInputStream in = new DataInputStream(s.getInputStream());
+                final OutputStream out = s.getOutputStream();
+
+                final Map<String, String> headers = readRequest(in);
+                if (status != 101) {
+                    out.write(("HTTP/1.1 " + status + " Nope\r\nContent-Length: 0\r\n\r\n")
+                        .getBytes(StandardCharsets.ISO_8859_1));
+                    return;
+                }
+                final String key = headers.get("sec-websocket-key");
+                if (key == null) { throw new IOException("No key"); }
+                final String accept = ByteString.encodeUtf8(key + WS_ACCEPT_GUID).sha1().base64();
+                final String extensions = headers.get("sec-websocket-extensions");
+                final boolean compress = deflate && (extensions != null) && extensions.contains("permessage-deflate");
+                out.write(("HTTP/1.1 101 Switching Protocols\r\n"
+                    + "Upgrade: websocket\r\n"
+                    + "Connection: Upgrade\r\n"
+                    + (compress ? "Sec-WebSocket-Extensions: permessage-deflate\r\n" : "")
+                    + "Sec-WebSocket-Accept: " + accept + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+
+                final Inflater inflater = new Inflater(true);
+                final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+                while (true) {
+                    final int b0 = in.readUnsignedByte();
+                    final int b1 = in.readUnsignedByte();
+                    long len = b1 & 0x7F;
+                    if (len == 126) { len = in.readUnsignedShort(); }
+                    else if (len == 127) { len = in.readLong(); }
+                    final byte[] mask = new byte[4];
+                    in.readFully(mask);
+                    final byte[] payload = new byte[(int) len];
+                    in.readFully(payload);
+                    for (int i = 0; i < payload.length; i++) { payload[i] ^= mask[i & 0x03]; }
+
+                    final int opcode = b0 & 0x0F;
+                    if (opcode == 0x8) {
+                        writeFrame(out, 0x8, false, payload);
+                        return;
+                    }
+
+                    final boolean compressed = (b0 & 0x40) != 0;
+                    if (!compressed) {
+                        writeFrame(out, (opcode == 0x9) ? 0xA : opcode, false, payload);
+                        continue;
+                    }
+                    writeFrame(out, opcode, true, deflate(deflater, inflate(inflater, payload)));
+                }
+            }
+            catch (IOException | DataFormatException ignore) { }
+        }
+
+        @NonNull
+        private Map<String, String> readRequest(@NonNull InputStream in) throws IOException {
+            final StringBuilder head = new StringBuilder();
+            while (!head.toString().endsWith("\r\n\r\n")) {
+                final int c = in.read();
+                if (c < 0) { throw new IOException("EOF in request"); }
+                head.append((char) c);
+            }
+            final Map<String, String> headers = new HashMap<>();
+            for (String line: head.toString().split("\r\n")) {
+                final int colon = line.indexOf(':');
+                if (colon <= 0) { continue; }
+                headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+            }
+            return headers;
+        }
+
+        @NonNull
+        private byte[] inflate(@NonNull Inflater inflater, @NonNull byte[] payload) throws DataFormatException {
+            final byte[] in = Arrays.copyOf(payload, payload.length + 4);
+            in[in.length - 2] = (byte) 0xFF;
+            in[in.length - 1] = (byte) 0xFF;
+            inflater.setInput(in);
+            final ByteArrayOutputStream msg = new ByteArrayOutputStream();
+            final byte[] buf = new byte[8 * 1024];
+            int n;
+            while ((n = inflater.inflate(buf)) > 0) { msg.write(buf, 0, n); }
+            return msg.toByteArray();
+        }
+
+        @NonNull
+        private byte[] deflate(@NonNull Deflater deflater, @NonNull byte[] msg) {
+            deflater.setInput(msg);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buf = new byte[8 * 1024];
+            int n;
+            do {
+                n = deflater.deflate(buf, 0, buf.length, Deflater.SYNC_FLUSH);
+                out.write(buf, 0, n);
+            }
+            while (n == buf.length);
+            final byte[] data = out.toByteArray();
+            return Arrays.copyOf(data, data.length - 4);
+        }
+
+        private void writeFrame(@NonNull OutputStream out, int opcode, boolean compressed, @NonNull byte[] payload)
+            throws IOException {
+            final ByteBuffer frame = ByteBuffer.allocate(10 + payload.length);
+            frame.put((byte) (0x80 | (compressed ? 0x40 : 0) | opcode));
+            if (payload.length < 126) { frame.put((byte) payload.length); }
+            else if (payload.length <= 0xFFFF) {
+                frame.put((byte) 126);
+                frame.putShort((short) payload.length);
+            }
+            else {
+                frame.put((byte) 127);
+                frame.putLong(payload.length);
+            }
+            frame.put(payload);
+            out.write(frame.array(), 0, frame.position());
+            out.flush();
+        }
+    }
+
+    // Behaves like core: it acknowledges a close request by closing.
+    private static final class TestCore implements SocketFromRemote {
+        final CountDownLatch opened = new CountDownLatch(1);
+        final CountDownLatch closed = new CountDownLatch(1);
+        final BlockingQueue<byte[]> received = new LinkedBlockingQueue<>();
+        volatile int openCode;
+        volatile boolean direct;
+        @Nullable
+        volatile CloseStatus closeStatus;
+        @Nullable
+        volatile Throwable failure;
+        @Nullable
+        volatile NioSocket socket;
+
+        @NonNull
+        @Override
+        public Object getLock() { return this; }
+
+        @Override
+        public void setupRemoteSocketFactory(@NonNull OkHttpClient.Builder builder) { }
+
+        @Override
+        public void remoteOpened(int code, @Nullable Map<String, Object> headers) {
+            openCode = code;
+            opened.countDown();
+        }
+
+        @Override
+        public void remoteWrites(@NonNull byte[] data) { received.add(data); }
+
+        @Override
+        public void remoteWrites(@NonNull ByteBuffer data) {
+            direct = data.isDirect();
+            final byte[] buf = new byte[data.remaining()];
+            data.get(buf);
+            received.add(buf);
+        }
+
+        @Override
+        public void remoteRequestsClose(@NonNull CloseStatus status) {
+            final NioSocket sock = socket;
+            if (sock != null) { sock.closeRemote(status); }
+        }
+
+        @Override
+        public void remoteClosed(@NonNull CloseStatus status) {
+            closeStatus = status;
+            closed.countDown();
+            opened.countDown();
+        }
+
+        @Override
+        public void remoteFailed(@NonNull Throwable err) {
+            failure = err;
+            closed.countDown();
+            opened.countDown();
+        }
+    }
+
+
+    private SelectorLoop loop;
+
+    @Before
+    public final void setUpNioSocketTest() { loop = new SelectorLoop("test-nio", 2); }
+
+    @After
+    public final void tearDownNioSocketTest() { loop.shutdown(); }
+
+    // Open a connection, exchange messages, and close it.
+    @Test
+    public void testEcho() throws Exception {
+        try (EchoServer server = new EchoServer(101)) {
+            final TestCore core = new TestCore();
+            final NioSocket socket = openSocket(server, core);
+            assertEquals(101, core.openCode);
+
+            final byte[] small = new byte[] {1, 2, 3, 4, 5};
+            assertTrue(socket.writeToRemote(small));
+            assertArrayEquals(small, core.received.poll(STD_TIMEOUT_SEC, TimeUnit.SECONDS));
+            assertTrue(core.direct);
+
+            // long enough to need a 64-bit length and more than one read
+            final byte[] large = new byte[100 * 1024];
+            Arrays.fill(large, (byte) 7);
+            assertTrue(socket.writeToRemote(large));
+            assertArrayEquals(large, core.received.poll(STD_TIMEOUT_SEC, TimeUnit.SECONDS));
+
+            // the read buffer shrinks back, once the large message has been read
+            assertTrue(socket.writeToRemote(small));
+            assertArrayEquals(small, core.received.poll(STD_TIMEOUT_SEC, TimeUnit.SECONDS));
+            assertTrue(socket.getReadBufferCapacity() < large.length);
+
+            assertTrue(socket.closeRemote(new CloseStatus(C4Constants.WebSocketError.NORMAL, "bye")));
+            assertTrue(core.closed.await(STD_TIMEOUT_SEC, TimeUnit.SECONDS));
+            assertNull(core.failure);
+            assertEquals(
+                new CloseStatus(C4Constants.ErrorDomain.WEB_SOCKET, C4Constants.WebSocketError.NORMAL, "bye"),
+                core.closeStatus);
+            assertEquals(0, socket.getQueueSize());
+        }
+    }
+
+    // A failed upgrade is reported to core as a close with the HTTP status.
+    @Test
+    public void testHandshakeRejected() throws Exception {
+        try (EchoServer server = new EchoServer(404)) {
+            final TestCore core = new TestCore();
+            openSocket(server, core);
+            assertTrue(core.closed.await(STD_TIMEOUT_SEC, TimeUnit.SECONDS));
+            final CloseStatus status = core.closeStatus;
+            assertNotNull(status);
+            assertEquals(C4Constants.ErrorDomain.WEB_SOCKET, status.domain);
+            assertEquals(404, status.code);
+        }
+    }
+
+    // Large messages are compressed both ways; small ones are not.
+    @Test
+    public void testCompressedEcho() throws Exception {
+        try (EchoServer server = new EchoServer(101, true)) {
+            final TestCore core = new TestCore();
+            final NioSocket socket = openSocket(server, core, null);
+            final WireStats stats = socket.getWireStats();
+
+            final byte[] small = new byte[] {1, 2, 3, 4, 5};
+            assertTrue(socket.writeToRemote(small));
+            assertArrayEquals(small, core.received.poll(STD_TIMEOUT_SEC, TimeUnit.SECONDS));
+
+            // each message uses the previous message's window
+            final byte[] large = compressibleMessage(100 * 1024);
+            for (int i = 0; i < 3; i++) {
+                assertTrue(socket.writeToRemote(large));
+                assertArrayEquals(large, core.received.poll(STD_TIMEOUT_SEC, TimeUnit.SECONDS));
+            }
+
+            assertEquals(small.length + (3 * large.length), stats.getRawBytesSent());
+            assertEquals(stats.getRawBytesSent(), stats.getRawBytesReceived());
+            assertTrue(stats.getWireBytesSent() < (stats.getRawBytesSent() / 4));
+            assertTrue(stats.getWireBytesReceived() < (stats.getRawBytesReceived() / 4));
+
+            assertTrue(socket.closeRemote(new CloseStatus(C4Constants.WebSocketError.NORMAL, "bye")));
+            assertTrue(core.closed.await(STD_TIMEOUT_SEC, TimeUnit.SECONDS));
+            assertNull(core.failure);
+        }
+    }
+
+    // When compression is disabled, the extension is not offered.
+    @Test
+    public void testCompressionDisabled() throws Exception {
+        try (EchoServer server = new EchoServer(101, true)) {
+            final TestCore core = new TestCore();
+            final Map<String, Object> options = new HashMap<>();
+            options.put(C4Replicator.SOCKET_OPTION_COMPRESSION, Boolean.FALSE);
+            final NioSocket socket = openSocket(server, core, options);
+            final WireStats stats = socket.getWireStats();
+
+            final byte[] large = compressibleMessage(100 * 1024);
+            assertTrue(socket.writeToRemote(large));
+            assertArrayEquals(large, core.received.poll(STD_TIMEOUT_SEC, TimeUnit.SECONDS));
+
+            assertEquals(large.length, stats.getRawBytesSent());
+            assertTrue(stats.getWireBytesSent() > stats.getRawBytesSent());
+
+            assertTrue(socket.closeRemote(new CloseStatus(C4Constants.WebSocketError.NORMAL, "bye")));
+            assertTrue(core.closed.await(STD_TIMEOUT_SEC, TimeUnit.SECONDS));
+        }
+    }
+
+    // Bandwidth and CPU cost of compression, at several levels, against the loopback server.
+    // Messages are compressed on the writing thread, so the time spent in writeToRemote is the cost of compression.
+    @SlowTest
+    @Test
+    public void testCompressionCost() throws Exception {
+        final int nMessages = 200;
+        final byte[] msg = compressibleMessage(64 * 1024);
+
+        try (EchoServer server = new EchoServer(101, true)) {
+            for (int level: new int[] {0, 1, 6, 9}) {
+                final Map<String, Object> options = new HashMap<>();
+                if (level <= 0) { options.put(C4Replicator.SOCKET_OPTION_COMPRESSION, Boolean.FALSE); }
+                else { options.put(C4Replicator.SOCKET_OPTION_COMPRESSION_LEVEL, level); }
+
+                final TestCore core = new TestCore();
+                final NioSocket socket = openSocket(server, core, options);
+                final WireStats stats = socket.getWireStats();
+                final long wireBefore = stats.getWireBytesSent();
+
+                long writeNs = 0;
+                final long start = System.nanoTime();
+                for (int i = 0; i < nMessages; i++) {
+                    final long t0 = System.nanoTime();
+                    assertTrue(socket.writeToRemote(msg));
+                    writeNs += System.nanoTime() - t0;
+                    assertNotNull(core.received.poll(STD_TIMEOUT_SEC, TimeUnit.SECONDS));
+                }
+                final long elapsedNs = System.nanoTime() - start;
+
+                Report.log(
+                    "Compression %s: %dKB raw, %dKB on the wire (%d%%), %dus/message to write, %dms total",
+                    (level <= 0) ? "off" : ("level " + level),
+                    stats.getRawBytesSent() / 1024,
+                    (stats.getWireBytesSent() - wireBefore) / 1024,
+                    ((stats.getWireBytesSent() - wireBefore) * 100) / stats.getRawBytesSent(),
+                    writeNs / (nMessages * 1000L),
+                    elapsedNs / 1000000);
+
+                assertTrue(socket.closeRemote(new CloseStatus(1000, "done")));
+                assertTrue(core.closed.await(STD_TIMEOUT_SEC, TimeUnit.SECONDS));
+            }
+        }
+    }
+
+    // Many connections share the loop's two threads.
+    @SlowTest
+    @Test
+    public void testManyConnections() throws Exception {
+        final int nSockets = 200;
+        final int nRounds = 10;
+
+        try (EchoServer server = new EchoServer(101)) {
+            final int clientThreadsBefore = countClientThreads();
+            final Runtime rt = Runtime.getRuntime();
+            rt.gc();
+            final long memBefore = rt.totalMemory() - rt.freeMemory();
+
+            final List<TestCore> cores = new ArrayList<>();
+            final List<NioSocket> sockets = new ArrayList<>();
+            for (int i = 0; i < nSockets; i++) {
+                final TestCore core = new TestCore();
+                cores.add(core);
+                sockets.add(openSocket(server, core));
+            }
+
+            final int clientThreadsAfter = countClientThreads();
+            rt.gc();
+            final long memAfter = rt.totalMemory() - rt.freeMemory();
+
+            final byte[] msg = new byte[1024];
+            final List<Long> latencies = new ArrayList<>();
+            for (int r = 0; r < nRounds; r++) {
+                for (int i = 0; i < nSockets; i++) {
+                    final long start = System.nanoTime();
+                    assertTrue(sockets.get(i).writeToRemote(msg));
+                    assertNotNull(cores.get(i).received.poll(STD_TIMEOUT_SEC, TimeUnit.SECONDS));
+                    latencies.add(System.nanoTime() - start);
+                }
+            }
+            Collections.sort(latencies);
+
+            Report.log(
+                "NIO transport: %d sockets, %d new client threads, ~%dKB heap, rtt p50 %dus, p99 %dus",
+                nSockets,
+                clientThreadsAfter - clientThreadsBefore,
+                (memAfter - memBefore) / 1024,
+                latencies.get(latencies.size() / 2) / 1000,
+                latencies.get((latencies.size() * 99) / 100) / 1000);
+
+            // The selector threads already exist: opening sockets shouldn't create any threads.
+            // Allow for a couple of executor threads that might start in the meantime.
+            assertTrue(clientThreadsAfter - clientThreadsBefore <= 4);
+
+            for (NioSocket socket: sockets) { socket.closeRemote(new CloseStatus(1000, "done")); }
+            for (TestCore core: cores) { assertTrue(core.closed.await(STD_TIMEOUT_SEC, TimeUnit.SECONDS)); }
+        }
+    }
+
+    @NonNull
+    private NioSocket openSocket(@NonNull EchoServer server, @NonNull TestCore core) throws InterruptedException {
+        return openSocket(server, core, null);
+    }
+
+    @NonNull
+    private NioSocket openSocket(
+        @NonNull EchoServer server,
+        @NonNull TestCore core,
+        @Nullable Map<String, Object> options)
+        throws InterruptedException {
+        final NioSocket socket = new NioSocket(loop);
+        core.socket = socket;
+        socket.init(core);
+        assertTrue(socket.openRemote(server.getUri(), options));
+        assertTrue(core.opened.await(STD_TIMEOUT_SEC, TimeUnit.SECONDS));
+        return socket;
+    }
+
+    // Something like a batch of JSON revisions: repetitive, but not trivially so.
+    @NonNull
+    private byte[] compressibleMessage(int size) {
+        final StringBuilder buf = new StringBuilder();
+        for (int i = 0; buf.length() < size; i++) {
+            buf.append("{\"_id\":\"doc-").append(i).append("\",\"_rev\":\"1-").append(Integer.toHexString(i * 7919))
+                .append("\",\"type\":\"reading\",\"value\":").append(i % 97).append("},");
+        }
+        return Arrays.copyOf(buf.toString().getBytes(StandardCharsets.UTF_8), size);
+    }
+
+    private int countClientThreads() {
+        int n = 0;
+        for (Thread thread: Thread.getAllStackTraces().keySet()) {
+            if (!thread.getName().startsWith(SERVER_THREAD)) { n++; }
+        }
+        return n;
+    }
+}
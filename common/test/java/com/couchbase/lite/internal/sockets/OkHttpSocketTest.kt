@@ -17,12 +17,14 @@ package com.couchbase.lite.internal.sockets
 
 import com.couchbase.lite.BaseTest
 import com.couchbase.lite.internal.core.C4Constants
+import com.couchbase.lite.internal.core.C4Replicator
 import okhttp3.*
 import okhttp3.MediaType.parse
 import okio.ByteString
 import org.junit.Assert.*
 import org.junit.Test
 import java.net.URI
+import java.nio.ByteBuffer
 
 
 fun Any?.unit() = Unit
@@ -46,6 +48,7 @@ private open class MockCore : SocketFromRemote {
         TODO("Not yet implemented")
 
     override fun remoteWrites(data: ByteArray): Unit = TODO("Not yet implemented")
+    override fun remoteWrites(data: ByteBuffer): Unit = TODO("Not yet implemented")
     override fun remoteRequestsClose(status: CloseStatus): Unit = TODO("Not yet implemented")
     override fun remoteClosed(status: CloseStatus): Unit = TODO("Not yet implemented")
     override fun remoteFailed(err: Throwable): Unit = TODO("Not yet implemented")
@@ -143,6 +146,78 @@ class OkHttpSocketTest : BaseTest() {
         assertEquals(ws, ok.remote)
     }
 
+    // Sockets with the same per-host limit share a dispatcher; sockets with no limit use OkHttp's defaults
+    @Test
+    fun testSharedDispatcher() {
+        val clients = mutableListOf<OkHttpClient>()
+        fun open(maxPerHost: Int?) {
+            val ok = OkHttpSocket { client, _, _ -> clients.add(client); MockWS() }
+            ok.init(object : MockCore() {
+                override fun setupRemoteSocketFactory(builder: OkHttpClient.Builder) = Unit
+            })
+            val opts = maxPerHost?.let { mapOf<String, Any>(C4Replicator.SOCKET_OPTION_MAX_CONNECTIONS_PER_HOST to it) }
+            assertTrue(ok.openRemote(URI("https://foo.com"), opts))
+        }
+
+        open(null)
+        open(17)
+        open(17)
+        open(23)
+
+        assertEquals(5, clients[0].dispatcher().maxRequestsPerHost)
+        assertEquals(17, clients[1].dispatcher().maxRequestsPerHost)
+        assertSame(clients[1].dispatcher(), clients[2].dispatcher())
+        assertSame(clients[1].connectionPool(), clients[2].connectionPool())
+        assertEquals(23, clients[3].dispatcher().maxRequestsPerHost)
+        assertNotSame(clients[1].dispatcher(), clients[3].dispatcher())
+    }
+
+    // An OkHttp that supports permessage-deflate is told not to offer it, when compression is disabled
+    @Test
+    fun testCompressionDisabled() {
+        val clients = mutableListOf<OkHttpClient>()
+        fun open(opts: Map<String, Any>?) {
+            val ok = OkHttpSocket { client, _, _ -> clients.add(client); MockWS() }
+            ok.init(object : MockCore() {
+                override fun setupRemoteSocketFactory(builder: OkHttpClient.Builder) = Unit
+            })
+            assertTrue(ok.openRemote(URI("https://foo.com"), opts))
+        }
+
+        open(null)
+        open(mapOf<String, Any>(C4Replicator.SOCKET_OPTION_COMPRESSION to false))
+
+        val supported = OkHttpClient.Builder::class.java.methods.any { it.name == "minWebSocketMessageToCompress" }
+        assertEquals(
+            clients[0].interceptors().size + (if (supported) 1 else 0),
+            clients[1].interceptors().size
+        )
+    }
+
+    // Binary frames are delivered to core in a direct buffer
+    @Test
+    fun testReceiveBinaryFrame() {
+        val ws = MockWS()
+        val ok = OkHttpSocket { _, _, _ -> ws }
+
+        var received: ByteArray? = null
+        var direct = false
+        val core = object : MockCore() {
+            override fun setupRemoteSocketFactory(builder: OkHttpClient.Builder) = Unit
+            override fun remoteWrites(data: ByteBuffer) {
+                direct = data.isDirect
+                received = ByteArray(data.remaining()).also { data.get(it) }
+            }
+        }
+        ok.init(core)
+        ok.openRemote(URI("https://foo.com"), null)
+
+        ok.onMessage(ws, ByteString.of(1, 2, 3, 4, 5))
+
+        assertTrue(direct)
+        assertArrayEquals(byteArrayOf(1, 2, 3, 4, 5), received)
+    }
+
     // Core request to reopen a socket is ignored
     @Test
     fun testOpenRemoteWhileOpen() {
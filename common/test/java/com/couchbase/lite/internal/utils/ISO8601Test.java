@@ -0,0 +1,159 @@
+//
+// Copyright (c) 2022 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal.utils;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+import com.couchbase.lite.BaseTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+
+public class ISO8601Test extends BaseTest {
+    private static final String DATE = "2019-02-21T05:37:22.014Z";
+    private static final long MILLIS = 1550727442014L;
+
+    @Test
+    public void testFormat() {
+        assertEquals(DATE, ISO8601.format(MILLIS));
+        assertEquals("1970-01-01T00:00:00.000Z", ISO8601.format(0L));
+        assertEquals("1969-12-31T23:59:59.999Z", ISO8601.format(-1L));
+        assertEquals("2000-02-29T12:00:00.000Z", ISO8601.format(951825600000L));
+    }
+
+    @Test
+    public void testParse() {
+        assertEquals(MILLIS, ISO8601.parse(DATE));
+        assertEquals(MILLIS - 14, ISO8601.parse("2019-02-21T05:37:22Z"));
+        assertEquals(MILLIS, ISO8601.parse("2019-02-21T05:37:22.014z"));
+        assertEquals(MILLIS, ISO8601.parse("2019-02-21T06:37:22.014+01:00"));
+        assertEquals(MILLIS, ISO8601.parse("2019-02-21T00:07:22.014-0530"));
+        assertEquals(MILLIS, ISO8601.parse("2019-02-21T07:37:22.014+02"));
+    }
+
+    @Test
+    public void testParseInvalid() {
+        assertEquals(ISO8601.INVALID, ISO8601.parse(null));
+        assertEquals(ISO8601.INVALID, ISO8601.parse(""));
+        assertEquals(ISO8601.INVALID, ISO8601.parse("string"));
+        assertEquals(ISO8601.INVALID, ISO8601.parse("2019-02-21"));
+        assertEquals(ISO8601.INVALID, ISO8601.parse("2019-02-21T05:37:22.014"));
+        assertEquals(ISO8601.INVALID, ISO8601.parse("2019-02-21T05:37:22.Z"));
+        assertEquals(ISO8601.INVALID, ISO8601.parse("2019-02-21T05:37:22.014+1"));
+    }
+
+    // Dates outside the fast path's range still work
+    @Test
+    public void testOutOfRange() throws ParseException {
+        final SimpleDateFormat sdf = getFormatter();
+        final String[] dates = {"1066-10-14T09:00:00.000Z", "1582-10-15T00:00:00.000Z", "12019-02-21T05:37:22.014Z"};
+        for (String date: dates) {
+            final long millis = sdf.parse(date).getTime();
+            assertEquals(millis, ISO8601.parse(date));
+            assertEquals(date, ISO8601.format(millis));
+        }
+    }
+
+    // The fast path agrees with SimpleDateFormat
+    @Test
+    public void testCompatibility() throws ParseException {
+        final SimpleDateFormat sdf = getFormatter();
+        final Random rand = new Random(0x150_8601L);
+        for (int i = 0; i < 100000; i++) {
+            final long millis = rand.nextLong() % 300000000000000L;
+            final String date = sdf.format(new Date(millis));
+            assertEquals(date, ISO8601.format(millis));
+            assertEquals(sdf.parse(date).getTime(), ISO8601.parse(date));
+        }
+    }
+
+    // Strings that SimpleDateFormat accepted leniently are still accepted
+    @Test
+    public void testLenient() throws ParseException {
+        final String date = "2019-02-30T05:37:22.014Z";
+        assertEquals(getFormatter().parse(date).getTime(), ISO8601.parse(date));
+    }
+
+    // SimpleDateFormat reads a fraction that is not three digits as a count of milliseconds.
+    // Documents may contain such dates: they must still parse as they always have.
+    @Test
+    public void testFractionCompatibility() throws ParseException {
+        final SimpleDateFormat sdf = getFormatter();
+        final String[] dates = {
+            "2019-02-21T05:37:22.1Z",
+            "2019-02-21T05:37:22.5Z",
+            "2019-02-21T05:37:22.01Z",
+            "2019-02-21T05:37:22.0140Z",
+            "2019-02-21T05:37:22.123456Z"};
+        for (String date: dates) { assertEquals(sdf.parse(date).getTime(), ISO8601.parse(date)); }
+
+        assertEquals(MILLIS - 14 + 1, ISO8601.parse("2019-02-21T05:37:22.1Z"));
+        assertEquals(MILLIS - 14 + 123456, ISO8601.parse("2019-02-21T05:37:22.123456Z"));
+    }
+
+    @Test
+    public void testJSONUtils() {
+        assertEquals(DATE, JSONUtils.toJSONString(new Date(MILLIS)));
+        assertEquals(new Date(MILLIS), JSONUtils.toDate(DATE));
+        assertNull(JSONUtils.toDate("not a date"));
+        assertNull(JSONUtils.toDate(null));
+    }
+
+    // Compares the codec with SimpleDateFormat, for 1000 distinct dates.
+    @SlowTest
+    @Test
+    public void testDateCodecPerformance() throws ParseException {
+        final int n = 1000;
+        final int passes = 500;
+
+        final SimpleDateFormat sdf = getFormatter();
+        final Random rand = new Random(0x150_8601L);
+        final long[] times = new long[n];
+        final String[] dates = new String[n];
+        for (int i = 0; i < n; i++) {
+            times[i] = MILLIS + (rand.nextLong() % 100000000000L);
+            dates[i] = sdf.format(new Date(times[i]));
+        }
+
+        final int runs = n * passes;
+        final long[] sum = new long[1];
+        final double sdfParseNs = timePerRunNs(runs, i -> sum[0] += sdf.parse(dates[i % n]).getTime());
+        final double isoParseNs = timePerRunNs(runs, i -> sum[0] += ISO8601.parse(dates[i % n]));
+        final double sdfFormatNs = timePerRunNs(runs, i -> sum[0] += sdf.format(new Date(times[i % n])).length());
+        final double isoFormatNs = timePerRunNs(runs, i -> sum[0] += ISO8601.format(times[i % n]).length());
+
+        // keep the JIT from discarding the work
+        assertNotEquals(0L, sum[0]);
+
+        reportComparison("ISO-8601 date parse", "SimpleDateFormat", sdfParseNs, "codec", isoParseNs);
+        reportComparison("ISO-8601 date format", "SimpleDateFormat", sdfFormatNs, "codec", isoFormatNs);
+    }
+
+    private SimpleDateFormat getFormatter() {
+        final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.ENGLISH);
+        sdf.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return sdf;
+    }
+}